@@ -35,20 +35,23 @@ import java.io.File;
 public class AutoMountVirtualFileSystemRegistry extends VirtualFileSystemRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(AutoMountVirtualFileSystemRegistry.class);
 
-    private final LocalFSMountStrategy mountStrategy;
-    private final EventService         eventService;
-    private final SearcherProvider     searcherProvider;
-    private final SystemPathsFilter    systemFilter;
+    private final LocalFSMountStrategy         mountStrategy;
+    private final EventService                 eventService;
+    private final SearcherProvider             searcherProvider;
+    private final SystemPathsFilter            systemFilter;
+    private final MountPointConfiguration configuration;
 
     @Inject
     public AutoMountVirtualFileSystemRegistry(LocalFSMountStrategy mountStrategy,
                                               EventService eventService,
                                               SystemPathsFilter systemFilter,
+                                              MountPointConfiguration configuration,
                                               @Nullable SearcherProvider searcherProvider) {
         this.mountStrategy = mountStrategy;
         this.eventService = eventService;
         this.searcherProvider = searcherProvider;
         this.systemFilter = systemFilter;
+        this.configuration = configuration;
     }
 
     @Override
@@ -58,6 +61,6 @@ public class AutoMountVirtualFileSystemRegistry extends VirtualFileSystemRegistr
             return null;
         }
         LOG.debug("Using {} as mount point for workspace {} ", wsPath.getAbsolutePath(), vfsId);
-        return new LocalFileSystemProvider(vfsId, mountStrategy, eventService, searcherProvider, systemFilter, this);
+        return new LocalFileSystemProvider(vfsId, mountStrategy, eventService, searcherProvider, systemFilter, this, configuration);
     }
 }
@@ -18,13 +18,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
 
 /**
- * Filesystem based LuceneSearcher which cleans index directory after call method {@link #close()}.
+ * Filesystem based LuceneSearcher which cleans index directory after call method {@link #close()}. Index directory is kept if
+ * searcher is closed with {@link CleanableSearcherProvider} on shutdown of server, such index is reused after restart and only
+ * modified files are re-indexed. Changes of files are applied to the index in batches by {@link CleanableSearcherProvider}.
  *
  * @author andrew00x
  */
@@ -44,14 +47,23 @@ public class CleanableSearcher extends FSIndexSearcher {
 
     @Override
     public void init(final MountPoint mountPoint) throws ServerException {
-        doInit();
+        try {
+            doInit();
+        } catch (ServerException e) {
+            // Index that is left after previous run of server may be broken.
+            LOG.warn("Unable open index in directory '{}', index will be re-created. {}", getIndexDir(), e.getMessage());
+            if (!deleteRecursive(getIndexDir())) {
+                throw e;
+            }
+            doInit();
+        }
         final ExecutorService executor = searcherService.getExecutor();
         if (!executor.isShutdown()) {
             executor.execute(new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        CleanableSearcher.this.addTree(mountPoint.getRoot());
+                        CleanableSearcher.this.syncTree(mountPoint.getRoot());
                         initFlag.set(true);
                     } catch (ServerException e) {
                         initError.set(e);
@@ -72,11 +84,31 @@ public class CleanableSearcher extends FSIndexSearcher {
         return initFlag.get();
     }
 
+    @Override
+    protected boolean isBatchUpdates() {
+        return true;
+    }
+
+    @Override
+    protected ForkJoinPool getIndexingPool() {
+        return searcherService.getIndexingPool();
+    }
+
     @Override
     public void close() {
         searcherService.close(this);
     }
 
+    /** Applies pending changes and closes index but does not remove it. */
+    void doCloseKeepIndex() {
+        try {
+            flush();
+        } catch (ServerException e) {
+            LOG.error(e.getMessage(), e);
+        }
+        super.close();
+    }
+
     void doClose() {
         super.close();
         final java.io.File dir = getIndexDir();
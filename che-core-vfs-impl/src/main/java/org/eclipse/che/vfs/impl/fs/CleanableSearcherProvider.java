@@ -17,42 +17,91 @@ import org.eclipse.che.api.vfs.server.search.LuceneSearcherProvider;
 import org.eclipse.che.api.vfs.server.search.Searcher;
 import org.eclipse.che.api.vfs.server.util.MediaTypeFilter;
 import org.eclipse.che.api.vfs.server.util.VirtualFileFilters;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static org.eclipse.che.commons.lang.IoUtil.deleteRecursive;
 
 /**
- * NOTE: This implementation always create new index in new directory. Index is not reused after call {@link
- * CleanableSearcher#close()}. Index directory is cleaned after close Searcher.
+ * NOTE: Index is not reused after call {@link CleanableSearcher#close()}. Index directory is cleaned after close Searcher. Indexes
+ * that are open when server is stopped are kept and reused after restart of server, index of each mount point is stored in the
+ * directory with the name that is calculated from the path of mount point. Index directories of mount points that are not mounted
+ * again for seven days are removed.
+ * <p/>
+ * Changes of files are applied to the indexes in batches with background thread. Period of commits may be configured with property
+ * <i>vfs.local.fs_index_commit_period</i> in milliseconds, default period is 1 second. Trees of files are indexed with few threads,
+ * number of threads may be configured with property <i>vfs.local.fs_index_parallelism</i>, by default it is the number of available
+ * processors.
  *
  * @author andrew00x
  */
 @Singleton
 public class CleanableSearcherProvider extends LuceneSearcherProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(CleanableSearcherProvider.class);
+
+    private static final long    DEFAULT_COMMIT_PERIOD = 1000;
+    /** Index directories that are not used by any mount point longer than this time are removed. */
+    private static final long    KEEP_INDEX_TIME       = TimeUnit.DAYS.toMillis(7);
+    /** Names of index directories, see {@link #getIndexDirName(java.io.File)}. Other files in root directory of indexes are kept. */
+    private static final Pattern INDEX_DIR_NAME        = Pattern.compile("[0-9a-f]{40}");
+
     private final ConcurrentMap<java.io.File, CleanableSearcher> instances;
     private final ExecutorService                                executor;
+    private final ScheduledExecutorService                       committer;
+    private final AtomicBoolean                                  committerStarted;
     private final java.io.File                                   indexRootDir;
     private final Set<VirtualFileFilter>                         filters;
 
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.fs_index_commit_period")
+    private long commitPeriod = DEFAULT_COMMIT_PERIOD;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.fs_index_parallelism")
+    private int indexingParallelism;
+
+    private volatile ForkJoinPool indexingPool;
+
     @Inject
     CleanableSearcherProvider(@Named("vfs.local.fs_index_root_dir") java.io.File indexRootDir,
                               @Named("vfs.index_filter") Set<VirtualFileFilter> filters) {
+        this(indexRootDir, filters, Runtime.getRuntime().availableProcessors());
+    }
+
+    CleanableSearcherProvider(java.io.File indexRootDir, Set<VirtualFileFilter> filters, int indexingParallelism) {
         this.indexRootDir = indexRootDir;
+        this.indexingParallelism = indexingParallelism;
         this.filters = filters;
         executor = Executors.newFixedThreadPool(1 + Runtime.getRuntime().availableProcessors(),
                                                 new ThreadFactoryBuilder().setNameFormat("LocalVirtualFileSystem-CleanableSearcher-%d")
                                                                           .setDaemon(true).build());
+        committer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("LocalVirtualFileSystem-CleanableSearcher-Committer").setDaemon(true).build());
+        committerStarted = new AtomicBoolean();
         instances = new ConcurrentHashMap<>();
     }
 
@@ -61,11 +110,16 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
         final java.io.File vfsIoRoot = ((VirtualFileImpl)mountPoint.getRoot()).getIoFile();
         CleanableSearcher searcher = instances.get(vfsIoRoot);
         if (searcher == null && create) {
+            startCommitter();
             final java.io.File myIndexDir;
             final CleanableSearcher newSearcher;
             try {
-                Files.createDirectories(indexRootDir.toPath());
-                myIndexDir = Files.createTempDirectory(indexRootDir.toPath(), null).toFile();
+                myIndexDir = new java.io.File(indexRootDir, getIndexDirName(vfsIoRoot));
+                Files.createDirectories(myIndexDir.toPath());
+                // Index is used again, don't remove it as unused.
+                if (!myIndexDir.setLastModified(System.currentTimeMillis())) {
+                    LOG.debug("Unable update modification date of index directory {}", myIndexDir);
+                }
                 final VirtualFileFilter filter;
                 if (!filters.isEmpty()) {
                     final VirtualFileFilter[] myFilters = new VirtualFileFilter[filters.size() + 1];
@@ -86,24 +140,121 @@ public class CleanableSearcherProvider extends LuceneSearcherProvider {
             if (searcher == null) {
                 searcher = newSearcher;
                 searcher.init(mountPoint);
-            } else {
-                // not need this directory
-                myIndexDir.delete();
             }
         }
         return searcher;
     }
 
+    /** Name of index directory is the same for the same mount point, so index may be found after restart of server. */
+    private String getIndexDirName(java.io.File vfsIoRoot) {
+        return Hashing.sha1().hashString(vfsIoRoot.getAbsolutePath(), StandardCharsets.UTF_8).toString();
+    }
+
+    // Commit period is injected after construction of this instance. Start commits when the first searcher is requested.
+    private void startCommitter() {
+        if (committerStarted.compareAndSet(false, true)) {
+            committer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    for (CleanableSearcher searcher : instances.values()) {
+                        try {
+                            searcher.flush();
+                        } catch (Exception e) {
+                            LOG.error(e.getMessage(), e);
+                        }
+                    }
+                }
+            }, commitPeriod, commitPeriod, TimeUnit.MILLISECONDS);
+            committer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    removeUnusedIndexes();
+                }
+            }, 1, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Removes index directories of mount points that are not mounted longer than {@link #KEEP_INDEX_TIME}. Directory of index that is
+     * kept on shutdown of server is touched, so index of mount point that is mounted after restart is not removed.
+     */
+    // package-private for test
+    void removeUnusedIndexes() {
+        final java.io.File[] dirs = indexRootDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        final Set<java.io.File> used = new HashSet<>();
+        for (CleanableSearcher searcher : instances.values()) {
+            used.add(searcher.getIndexDir());
+        }
+        final long expired = System.currentTimeMillis() - KEEP_INDEX_TIME;
+        for (java.io.File dir : dirs) {
+            if (INDEX_DIR_NAME.matcher(dir.getName()).matches() && dir.isDirectory() && !used.contains(dir)
+                && dir.lastModified() < expired) {
+                if (deleteRecursive(dir)) {
+                    LOG.debug("Remove unused index directory {}", dir);
+                } else {
+                    LOG.warn("Unable delete unused index directory '{}'", dir);
+                }
+            }
+        }
+    }
+
     void close(CleanableSearcher searcher) {
         instances.values().remove(searcher);
         searcher.doClose();
     }
 
+    // Number of threads is injected after construction of this instance. Create pool when it is needed the first time.
+    ForkJoinPool getIndexingPool() {
+        ForkJoinPool pool = indexingPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = indexingPool;
+                if (pool == null) {
+                    final ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName("LocalVirtualFileSystem-CleanableSearcher-Indexer-" + thread.getPoolIndex());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    };
+                    indexingPool = pool = new ForkJoinPool(Math.max(1, indexingParallelism), threadFactory, null, false);
+                }
+            }
+        }
+        return pool;
+    }
+
     @PreDestroy
     private void stop() {
-        executor.shutdownNow();
+        committer.shutdownNow();
+        try {
+            if (!committer.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("Unable terminate committer of indexes");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Keep indexes, they are reused after restart. Pending changes may need indexing pool, so it is shut down after that.
         for (CleanableSearcher searcher : instances.values()) {
-            searcher.close();
+            instances.values().remove(searcher);
+            try {
+                searcher.doCloseKeepIndex();
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage(), e);
+            }
+            if (!searcher.getIndexDir().setLastModified(System.currentTimeMillis())) {
+                LOG.debug("Unable update modification date of index directory {}", searcher.getIndexDir());
+            }
+        }
+        executor.shutdownNow();
+        final ForkJoinPool pool = indexingPool;
+        if (pool != null) {
+            pool.shutdownNow();
         }
     }
 
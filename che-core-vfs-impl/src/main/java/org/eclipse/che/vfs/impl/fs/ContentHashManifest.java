@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.commons.lang.Pair;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MD5 sums of content of all files in folder, usually in project. Builders and runners download changes of sources with
+ * differential export that compares MD5 sums of local and remote files. Manifest keeps sums so that content of unchanged files is
+ * not read again for each export.
+ * <p/>
+ * Manifest is stored in service directory of folder. Each record contains size and modification time of file that were seen when
+ * sum was counted. Manifest loaded from the disk is trusted only after size and modification time of each file are checked, since
+ * files may be changed when nothing watched them. After that only files that are reported as changed, see {@link #changed(String)},
+ * are checked again if changes of files are observed, otherwise all files are checked for each request. Sums are counted by reading
+ * content of file with small buffer, not by loading whole file in memory.
+ * <p/>
+ * Symbolic links are followed, sums of files reached through links are counted from content of files they point to. Such files
+ * may be outside of folder where their changes are not observed, so their size and modification time are checked for each request.
+ * <p/>
+ * Paths of files are relative to the folder and use '/' as separator. Instance of this class is thread safe. Changes are reported
+ * without waiting while sums are counted, changes reported during counting are checked with the next request.
+ *
+ * @author andrew00x
+ */
+final class ContentHashManifest {
+    private static final Logger LOG = LoggerFactory.getLogger(ContentHashManifest.class);
+
+    static final String MANIFEST_FILE = FSMountPoint.SERVICE_DIR + java.io.File.separatorChar + "md5sums";
+
+    private static final String FORMAT_VERSION   = "#md5sums 1";
+    private static final int    READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final class Record {
+        final String hash;
+        final long   length;
+        final long   lastModified;
+
+        Record(String hash, long length, long lastModified) {
+            this.hash = hash;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final java.io.File ioFolder;
+    private final java.io.File manifestFile;
+    /** Records sorted by relative path, in the same order as remote sums are sorted for comparison. */
+    private final TreeMap<String, Record> records;
+    /** Relative paths of files and folders that are changed since the last request. Empty path means folder itself. */
+    private final Set<String>             changed;
+    /** Relative paths of files that are reached through symbolic links. Guarded by this. */
+    private final Set<String>             linked;
+    /** Counter of invalidations of manifest. */
+    private final AtomicLong              invalidations;
+
+    /** Value of {@link #invalidations} when check of all files was started, {@code -1} if all files must be checked. */
+    private volatile long verifiedAt = -1;
+
+    // Guarded by this
+    private boolean loaded;
+    private boolean modified;
+
+    ContentHashManifest(java.io.File ioFolder) {
+        this.ioFolder = ioFolder;
+        this.manifestFile = new java.io.File(ioFolder, MANIFEST_FILE);
+        records = new TreeMap<>();
+        changed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        linked = new HashSet<>();
+        invalidations = new AtomicLong();
+    }
+
+    /**
+     * Reports about change of file or folder. Never waits for counting of sums.
+     *
+     * @param relPath
+     *         path of changed item relative to the folder of manifest, empty string if folder itself is changed
+     */
+    void changed(String relPath) {
+        if (verifiedAt == invalidations.get()) {
+            changed.add(relPath);
+        }
+    }
+
+    /** Makes manifest check all files on next request, e.g. when changes of files were not observed for some time. */
+    void invalidate() {
+        invalidations.incrementAndGet();
+        changed.clear();
+    }
+
+    /**
+     * Gets MD5 sums of all files in folder.
+     *
+     * @param observed
+     *         {@code true} if all changes of files are reported to this manifest, in this case only changed files are checked,
+     *         otherwise size and modification time of all files are checked
+     * @return MD5 sums of files sorted by relative path, first element of each pair is MD5 sum and second is relative path of file
+     * @throws IOException
+     *         if any i/o error occurs
+     */
+    synchronized List<Pair<String, String>> getHashSums(boolean observed) throws IOException {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        try {
+            final long current = invalidations.get();
+            if (verifiedAt != current || !observed || changed.contains("")) {
+                // Start recording of changes before files are checked. Files changed while they are checked are checked again with
+                // the next request.
+                changed.clear();
+                verifiedAt = current;
+                checkTree("");
+            } else {
+                for (Iterator<String> iterator = changed.iterator(); iterator.hasNext(); ) {
+                    final String relPath = iterator.next();
+                    iterator.remove();
+                    checkChanged(relPath, true);
+                }
+                // Targets of links are not observed.
+                for (String relPath : new ArrayList<>(linked)) {
+                    checkChanged(relPath, false);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            verifiedAt = -1;
+            throw e;
+        }
+        linked.retainAll(records.keySet());
+        if (modified) {
+            save();
+            modified = false;
+        }
+        final List<Pair<String, String>> hashes = new ArrayList<>(records.size());
+        for (Map.Entry<String, Record> e : records.entrySet()) {
+            hashes.add(Pair.of(e.getValue().hash, e.getKey()));
+        }
+        return hashes;
+    }
+
+    private void checkChanged(String relPath, boolean force) throws IOException {
+        final java.io.File ioFile = new java.io.File(ioFolder, relPath);
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(ioFile.toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            removeTree(relPath);
+            return;
+        }
+        if (attributes.isDirectory()) {
+            removeFile(relPath);
+            checkTree(relPath);
+        } else {
+            removeChildren(relPath);
+            // If content is reported as changed, count sum even if size and modification time are the same.
+            update(relPath, ioFile, attributes, force);
+        }
+    }
+
+    /* Checks all files in folder with specified relative path, counts sums of new and changed files, removes sums of removed files. */
+    private void checkTree(final String relPath) throws IOException {
+        final java.io.File ioTree = relPath.isEmpty() ? ioFolder : new java.io.File(ioFolder, relPath);
+        final Set<String> found = new HashSet<>();
+        if (ioTree.isDirectory()) {
+            final java.nio.file.Path root = ioFolder.toPath();
+            final EnumSet<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+            Files.walkFileTree(ioTree.toPath(), options, Integer.MAX_VALUE, new SimpleFileVisitor<java.nio.file.Path>() {
+                /* Number of linked folders on the current path. */
+                int linkedFolders;
+
+                @Override
+                public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) {
+                    final java.nio.file.Path name = dir.getFileName();
+                    if (name != null && FSMountPoint.SERVICE_DIR.equals(name.toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (Files.isSymbolicLink(dir)) {
+                        linkedFolders++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(java.nio.file.Path dir, IOException e) {
+                    if (Files.isSymbolicLink(dir)) {
+                        linkedFolders--;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs) throws IOException {
+                    // Attributes of broken link are attributes of link itself.
+                    if (attrs.isRegularFile()) {
+                        final String fileRelPath = toRelativePath(root.relativize(file));
+                        found.add(fileRelPath);
+                        if (linkedFolders > 0 || Files.isSymbolicLink(file)) {
+                            linked.add(fileRelPath);
+                        } else {
+                            linked.remove(fileRelPath);
+                        }
+                        update(fileRelPath, file.toFile(), attrs, false);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException e) {
+                    // Removed while walking through the tree or link makes cycle.
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        final Map<String, Record> tree = relPath.isEmpty() ? records : records.subMap(relPath + '/', relPath + (char)('/' + 1));
+        for (Iterator<String> iterator = tree.keySet().iterator(); iterator.hasNext(); ) {
+            if (!found.contains(iterator.next())) {
+                iterator.remove();
+                modified = true;
+            }
+        }
+    }
+
+    private void update(String relPath, java.io.File ioFile, BasicFileAttributes attributes, boolean force) throws IOException {
+        final long length = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final Record record = records.get(relPath);
+        if (!force && record != null && record.length == length && record.lastModified == lastModified) {
+            return;
+        }
+        final String hash;
+        try {
+            hash = countHashSum(ioFile);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // Removed while sum is counted.
+            if (records.remove(relPath) != null) {
+                modified = true;
+            }
+            return;
+        }
+        // Remember attributes that were read before content. If file is updated while sum is counted it is checked again later.
+        records.put(relPath, new Record(hash, length, lastModified));
+        modified = true;
+    }
+
+    private void removeTree(String relPath) {
+        if (relPath.isEmpty()) {
+            if (!records.isEmpty()) {
+                records.clear();
+                modified = true;
+            }
+            return;
+        }
+        removeFile(relPath);
+        removeChildren(relPath);
+    }
+
+    private void removeFile(String relPath) {
+        if (records.remove(relPath) != null) {
+            modified = true;
+        }
+    }
+
+    private void removeChildren(String relPath) {
+        final Map<String, Record> children = records.subMap(relPath + '/', relPath + (char)('/' + 1));
+        if (!children.isEmpty()) {
+            children.clear();
+            modified = true;
+        }
+    }
+
+    private static String countHashSum(java.io.File ioFile) throws IOException {
+        final Hasher hasher = Hashing.md5().newHasher();
+        try (InputStream in = new java.io.FileInputStream(ioFile)) {
+            final byte[] buff = new byte[READ_BUFFER_SIZE];
+            int r;
+            while ((r = in.read(buff)) != -1) {
+                hasher.putBytes(buff, 0, r);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String toRelativePath(java.nio.file.Path relPath) {
+        final String path = relPath.toString();
+        return java.io.File.separatorChar == '/' ? path : path.replace(java.io.File.separatorChar, '/');
+    }
+
+    private void load() {
+        if (!manifestFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!FORMAT_VERSION.equals(reader.readLine())) {
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // <md5 sum> <length> <modification time> <relative path>
+                final int lengthStart = line.indexOf(' ');
+                final int lastModifiedStart = line.indexOf(' ', lengthStart + 1);
+                final int pathStart = line.indexOf(' ', lastModifiedStart + 1);
+                records.put(line.substring(pathStart + 1),
+                            new Record(line.substring(0, lengthStart),
+                                       Long.parseLong(line.substring(lengthStart + 1, lastModifiedStart)),
+                                       Long.parseLong(line.substring(lastModifiedStart + 1, pathStart))));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not critical, all sums are counted again.
+            LOG.warn("Unable read manifest {}. {}", manifestFile, e.getMessage());
+            records.clear();
+        }
+    }
+
+    private void save() {
+        final java.io.File serviceDir = manifestFile.getParentFile();
+        if (!(serviceDir.isDirectory() || serviceDir.mkdirs())) {
+            LOG.warn("Unable create directory {}", serviceDir);
+            return;
+        }
+        final java.io.File tmp = new java.io.File(serviceDir, manifestFile.getName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(FORMAT_VERSION);
+                writer.newLine();
+                for (Map.Entry<String, Record> e : records.entrySet()) {
+                    final Record record = e.getValue();
+                    writer.write(record.hash);
+                    writer.write(' ');
+                    writer.write(Long.toString(record.length));
+                    writer.write(' ');
+                    writer.write(Long.toString(record.lastModified));
+                    writer.write(' ');
+                    writer.write(e.getKey());
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Not critical, manifest is written again on next change.
+            LOG.warn("Unable save manifest {}. {}", manifestFile, e.getMessage());
+            if (!tmp.delete() && Files.exists(tmp.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                LOG.warn("Unable delete {}", tmp);
+            }
+        }
+    }
+}
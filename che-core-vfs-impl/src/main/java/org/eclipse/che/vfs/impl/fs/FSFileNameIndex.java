@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.search.FileNameIndex;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * FileNameIndex that reads names of files directly from the local filesystem. All files are indexed independently to the access
+ * control lists, access to files is checked when they are found.
+ *
+ * @author andrew00x
+ */
+public class FSFileNameIndex extends FileNameIndex {
+    private final java.io.File ioRoot;
+
+    FSFileNameIndex(FSMountPoint mountPoint) {
+        super(mountPoint);
+        ioRoot = mountPoint.getRoot().getIoFile();
+    }
+
+    @Override
+    protected void addTree(String path) throws ServerException {
+        final String rootPath = "/".equals(path) ? "" : path;
+        final java.io.File tree = rootPath.isEmpty() ? ioRoot : new java.io.File(ioRoot, rootPath.substring(1));
+        final Deque<java.io.File> folders = new ArrayDeque<>();
+        final Deque<String> folderPaths = new ArrayDeque<>();
+        folders.push(tree);
+        folderPaths.push(rootPath);
+        while (!folders.isEmpty()) {
+            final java.io.File folder = folders.pop();
+            final String folderPath = folderPaths.pop();
+            final String[] names = folder.list();
+            if (names == null) {
+                // Not a folder or removed.
+                continue;
+            }
+            for (String name : names) {
+                if (FSMountPoint.SERVICE_DIR.equals(name)) {
+                    continue;
+                }
+                final java.io.File child = new java.io.File(folder, name);
+                final String childPath = folderPath + '/' + name;
+                if (child.isDirectory()) {
+                    folders.push(child);
+                    folderPaths.push(childPath);
+                } else {
+                    add(childPath);
+                }
+            }
+        }
+    }
+}
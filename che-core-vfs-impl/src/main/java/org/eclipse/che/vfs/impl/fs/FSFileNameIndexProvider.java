@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.vfs.server.MountPoint;
+import org.eclipse.che.api.vfs.server.VirtualFileSystemRegistry;
+import org.eclipse.che.api.vfs.server.search.FileNameIndex;
+import org.eclipse.che.api.vfs.server.search.FileNameIndexProvider;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * FileNameIndexProvider that creates {@link FSFileNameIndex} for mount points of local filesystem.
+ *
+ * @author andrew00x
+ */
+@Singleton
+public class FSFileNameIndexProvider extends FileNameIndexProvider {
+    @Inject
+    public FSFileNameIndexProvider(EventService eventService, VirtualFileSystemRegistry vfsRegistry) {
+        super(eventService, vfsRegistry);
+    }
+
+    @Override
+    protected FileNameIndex createIndex(MountPoint mountPoint) {
+        if (mountPoint instanceof FSMountPoint) {
+            return new FSFileNameIndex((FSMountPoint)mountPoint);
+        }
+        return super.createIndex(mountPoint);
+    }
+}
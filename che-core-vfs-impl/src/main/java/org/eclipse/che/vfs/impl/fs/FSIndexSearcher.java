@@ -11,6 +11,7 @@
 package org.eclipse.che.vfs.impl.fs;
 
 import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.search.LuceneSearcher;
 
@@ -18,7 +19,9 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.SingleInstanceLockFactory;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Implementation of LuceneSearcher which stores index in the filesystem.
@@ -42,6 +45,16 @@ public class FSIndexSearcher extends LuceneSearcher {
         }
     }
 
+    /**
+     * Reads content of file directly from disk without getting lock of file. It is safe since content of file is replaced atomically
+     * when file is updated. File that is in different file store than root of mount point is replaced non-atomically, it may be not
+     * found or read partially while it is updated, such file is re-indexed after update anyway.
+     */
+    @Override
+    protected InputStream openContent(VirtualFile virtualFile) throws IOException {
+        return new FileInputStream(((VirtualFileImpl)virtualFile).getIoFile());
+    }
+
     public java.io.File getIndexDir() {
         return indexDir;
     }
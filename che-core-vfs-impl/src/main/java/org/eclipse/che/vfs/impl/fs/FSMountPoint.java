@@ -15,7 +15,9 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventService;
-import org.eclipse.che.api.core.util.ValueHolder;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.core.util.ContentTypeGuesser;
+import org.eclipse.che.api.core.util.FileCleaner;
 import org.eclipse.che.api.vfs.server.ContentStream;
 import org.eclipse.che.api.vfs.server.LazyIterator;
 import org.eclipse.che.api.vfs.server.MountPoint;
@@ -27,7 +29,7 @@ import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUser;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUserContext;
-import org.eclipse.che.api.vfs.server.VirtualFileVisitor;
+import org.eclipse.che.api.vfs.server.observation.ChangeJournal;
 import org.eclipse.che.api.vfs.server.observation.CreateEvent;
 import org.eclipse.che.api.vfs.server.observation.DeleteEvent;
 import org.eclipse.che.api.vfs.server.observation.MoveEvent;
@@ -35,10 +37,14 @@ import org.eclipse.che.api.vfs.server.observation.RenameEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdateACLEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdateContentEvent;
 import org.eclipse.che.api.vfs.server.observation.UpdatePropertiesEvent;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+import org.eclipse.che.api.vfs.server.search.Searcher;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.server.util.DeleteOnCloseFileInputStream;
+import org.eclipse.che.api.vfs.server.util.FileChannelInputStream;
 import org.eclipse.che.api.vfs.server.util.NotClosableInputStream;
-import org.eclipse.che.api.vfs.server.util.ZipContent;
+import org.eclipse.che.api.vfs.server.util.StreamingContentInputStream;
+import org.eclipse.che.api.vfs.server.util.ZipBombProtectedInputStream;
 import org.eclipse.che.api.vfs.shared.PropertyFilter;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
@@ -47,18 +53,13 @@ import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo;
 import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
 import org.eclipse.che.commons.lang.NameGenerator;
 import org.eclipse.che.commons.lang.Pair;
-import org.eclipse.che.commons.lang.cache.Cache;
-import org.eclipse.che.commons.lang.cache.LoadingValueSLRUCache;
-import org.eclipse.che.commons.lang.cache.SynchronizedCache;
+import org.eclipse.che.commons.lang.cache.ConcurrentLfuCache;
+import org.eclipse.che.commons.lang.cache.LoadingValueConcurrentLfuCache;
 import org.eclipse.che.commons.lang.ws.rs.ExtMediaType;
 import org.eclipse.che.dto.server.DtoFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.collect.Sets;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import com.google.common.io.ByteSource;
-import com.google.common.io.ByteStreams;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -75,17 +76,38 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -103,27 +125,29 @@ import static org.eclipse.che.commons.lang.Strings.nullToEmpty;
 public class FSMountPoint implements MountPoint {
     private static final Logger LOG = LoggerFactory.getLogger(FSMountPoint.class);
 
-    /*
-     * Configuration parameters for caches.
-     * Caches are split to the few partitions to reduce lock contention.
-     * Use SLRU cache algorithm here.
-     * This is required some additional parameters, e.g. protected and probationary size.
-     * See details about SLRU algorithm: http://en.wikipedia.org/wiki/Cache_algorithms#Segmented_LRU
-     */
-    private static final int CACHE_PARTITIONS_NUM        = 1 << 3;
-    private static final int CACHE_PROTECTED_SIZE        = 100;
-    private static final int CACHE_PROBATIONARY_SIZE     = 200;
-    private static final int MASK                        = CACHE_PARTITIONS_NUM - 1;
-    private static final int PARTITION_PROTECTED_SIZE    = CACHE_PROTECTED_SIZE / CACHE_PARTITIONS_NUM;
-    private static final int PARTITION_PROBATIONARY_SIZE = CACHE_PROBATIONARY_SIZE / CACHE_PARTITIONS_NUM;
-    // end cache parameters
-
     private static final int MAX_BUFFER_SIZE  = 200 * 1024; // 200k
     private static final int COPY_BUFFER_SIZE = 8 * 1024; // 8k
 
     private static final long LOCK_FILE_TIMEOUT     = 60000; // 60 seconds
     private static final int  FILE_LOCK_MAX_THREADS = 1024;
 
+    /* Max resolution of modification time of directory on supported file systems, e.g. 2 seconds for FAT. */
+    private static final long DIRECTORY_TIMESTAMP_RESOLUTION = 2000;
+
+    /* Changes of file system are considered as made through this mount point during this time after virtual file system changes item. */
+    private static final long OWN_CHANGE_TIMEOUT = TimeUnit.SECONDS.toNanos(3);
+    private static final int  MAX_OWN_CHANGES    = 1000;
+
+    /* Max number of folders which MD5 sums are kept in memory. Manifests of other folders are loaded from disk again when needed. */
+    private static final int MAX_HASH_MANIFESTS = 256;
+
+    /* Content of zip entries that are not larger than this is read in memory and written to the files in parallel. */
+    private static final int UNZIP_MAX_BUFFERED_ENTRY = 512 * 1024; // 512k
+    /* Max amount of content of zip entries that is read in memory but is not written to the files yet. */
+    private static final int UNZIP_MAX_BUFFERED       = 16 * 1024 * 1024; // 16M
+    /* Memory that is counted for each entry in addition to its content, limits number of empty files that wait to be written. */
+    private static final int UNZIP_ENTRY_OVERHEAD     = 1024;
+
     static final String SERVICE_DIR = ".vfs";
 
     static final String ACL_DIR         = SERVICE_DIR + java.io.File.separatorChar + "acl";
@@ -135,6 +159,11 @@ public class FSMountPoint implements MountPoint {
     static final String PROPS_DIR              = SERVICE_DIR + java.io.File.separatorChar + "props";
     static final String PROPERTIES_FILE_SUFFIX = "_props";
 
+    /* Temporary files with new content of files. They are renamed to the updated files. */
+    static final String TMP_DIR = SERVICE_DIR + java.io.File.separatorChar + "tmp";
+
+    static final String CHANGE_JOURNAL_FILE = SERVICE_DIR + java.io.File.separatorChar + "journal";
+
 
     /** Hide .vfs directory. */
     private static final java.io.FilenameFilter SERVICE_DIR_FILTER = new java.io.FilenameFilter() {
@@ -168,9 +197,9 @@ public class FSMountPoint implements MountPoint {
 
     private static final FileLock NO_LOCK = new FileLock("no_lock", 0);
 
-    private class FileLockCache extends LoadingValueSLRUCache<Path, FileLock> {
-        FileLockCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+    private class FileLockCache extends LoadingValueConcurrentLfuCache<Path, FileLock> {
+        FileLockCache(int maximumSize) {
+            super(maximumSize);
         }
 
         @Override
@@ -198,9 +227,9 @@ public class FSMountPoint implements MountPoint {
     }
 
 
-    private class FileMetadataCache extends LoadingValueSLRUCache<Path, Map<String, String[]>> {
-        FileMetadataCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+    private class FileMetadataCache extends LoadingValueConcurrentLfuCache<Path, Map<String, String[]>> {
+        FileMetadataCache(int maximumSize) {
+            super(maximumSize);
         }
 
         @Override
@@ -227,9 +256,9 @@ public class FSMountPoint implements MountPoint {
     }
 
 
-    private class AccessControlListCache extends LoadingValueSLRUCache<Path, AccessControlList> {
-        private AccessControlListCache() {
-            super(PARTITION_PROTECTED_SIZE, PARTITION_PROBATIONARY_SIZE);
+    private class AccessControlListCache extends LoadingValueConcurrentLfuCache<Path, AccessControlList> {
+        private AccessControlListCache(int maximumSize) {
+            super(maximumSize);
         }
 
         @Override
@@ -267,11 +296,196 @@ public class FSMountPoint implements MountPoint {
         }
     }
 
+    /** Items of directory together with their attributes. */
+    private static class DirectorySnapshot {
+        final long                  lastModified;
+        final long                  readTime;
+        final String[]              names;
+        final BasicFileAttributes[] attributes;
+
+        DirectorySnapshot(long lastModified, long readTime, String[] names, BasicFileAttributes[] attributes) {
+            this.lastModified = lastModified;
+            this.readTime = readTime;
+            this.names = names;
+            this.attributes = attributes;
+        }
+
+        /**
+         * Checks whether snapshot may be used if directory has specified modification time now. Snapshot which is read too close to
+         * the last modification of directory is never trusted since next modification may not change modification time of
+         * directory.
+         */
+        boolean isUpToDate(long directoryLastModified) {
+            return directoryLastModified == lastModified && (readTime - lastModified) > DIRECTORY_TIMESTAMP_RESOLUTION;
+        }
+    }
+
+
+    private class DirectoryCache extends LoadingValueConcurrentLfuCache<Path, DirectorySnapshot> {
+        DirectoryCache(int maximumSize) {
+            super(maximumSize);
+        }
+
+        @Override
+        protected DirectorySnapshot loadValue(Path key) {
+            final java.nio.file.Path directory = new java.io.File(ioRoot, toIoPath(key)).toPath();
+            try {
+                // Get modification time before reading, so any concurrent modification makes snapshot stale.
+                final long lastModified = Files.getLastModifiedTime(directory).toMillis();
+                final long readTime = System.currentTimeMillis();
+                final List<String> names = new ArrayList<>();
+                final List<BasicFileAttributes> attributes = new ArrayList<>();
+                try (DirectoryStream<java.nio.file.Path> items = Files.newDirectoryStream(directory)) {
+                    for (java.nio.file.Path item : items) {
+                        final BasicFileAttributes itemAttributes = readAttributes(item);
+                        if (itemAttributes != null) {
+                            names.add(item.getFileName().toString());
+                            attributes.add(itemAttributes);
+                        }
+                    }
+                }
+                return new DirectorySnapshot(lastModified, readTime, names.toArray(new String[names.size()]),
+                                             attributes.toArray(new BasicFileAttributes[attributes.size()]));
+            } catch (IOException e) {
+                String msg = String.format("Unable get children '%s'. ", key);
+                LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+                throw new RuntimeException(msg);
+            }
+        }
+
+        private BasicFileAttributes readAttributes(java.nio.file.Path item) throws IOException {
+            try {
+                return Files.readAttributes(item, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                // Item is removed after directory is read or it is broken symbolic link.
+                try {
+                    return Files.readAttributes(item, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException removed) {
+                    return null;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Items changed through this mount point. Helps to separate changes of file system made through virtual file system from changes
+     * made directly on file system, e.g. by builders or git.
+     */
+    private static class OwnChanges {
+        private static final long IN_PROGRESS = Long.MAX_VALUE;
+
+        private final ConcurrentMap<Path, Long> changes = new ConcurrentHashMap<>();
+
+        void begin(Path path) {
+            changes.put(path, IN_PROGRESS);
+        }
+
+        void end(Path path) {
+            final long now = System.nanoTime();
+            changes.put(path, now);
+            if (changes.size() > MAX_OWN_CHANGES) {
+                for (Iterator<Long> iterator = changes.values().iterator(); iterator.hasNext(); ) {
+                    final long time = iterator.next();
+                    if (time != IN_PROGRESS && now - time > OWN_CHANGE_TIMEOUT) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+
+        /** Checks whether item or any of its parents is changed recently or is changing now. */
+        boolean contains(Path path) {
+            final long now = System.nanoTime();
+            for (Path current = path; ; current = current.getParent()) {
+                final Long time = changes.get(current);
+                if (time != null && (time == IN_PROGRESS || now - time <= OWN_CHANGE_TIMEOUT)) {
+                    return true;
+                }
+                if (current.isRoot()) {
+                    return false;
+                }
+            }
+        }
+    }
+
+
+    /** Drops snapshots of directories which are changed through virtual file system. */
+    private class DirectoryCacheInvalidator implements EventSubscriber<VirtualFileEvent> {
+        @Override
+        public void onEvent(VirtualFileEvent event) {
+            if (!workspaceId.equals(event.getWorkspaceId())) {
+                return;
+            }
+            switch (event.getType()) {
+                case CREATED:
+                case CONTENT_UPDATED:
+                case DELETED:
+                    invalidateDirectoryCache(Path.fromString(event.getPath()), event.isFolder());
+                    break;
+                case MOVED:
+                    invalidateDirectoryCache(Path.fromString(((MoveEvent)event).getOldPath()), event.isFolder());
+                    invalidateDirectoryCache(Path.fromString(event.getPath()), event.isFolder());
+                    break;
+                case RENAMED:
+                    invalidateDirectoryCache(Path.fromString(((RenameEvent)event).getOldPath()), event.isFolder());
+                    invalidateDirectoryCache(Path.fromString(event.getPath()), event.isFolder());
+                    break;
+            }
+        }
+    }
+
+    /** Reports changes of files to content hash manifests, see {@link #countMd5Sums(VirtualFileImpl)}. */
+    private class HashManifestUpdater implements EventSubscriber<VirtualFileEvent> {
+        @Override
+        public void onEvent(VirtualFileEvent event) {
+            if (!workspaceId.equals(event.getWorkspaceId()) || hashManifests.size() == 0) {
+                return;
+            }
+            switch (event.getType()) {
+                case CREATED:
+                case CONTENT_UPDATED:
+                case DELETED:
+                    hashManifestsChanged(Path.fromString(event.getPath()));
+                    break;
+                case MOVED:
+                    hashManifestsChanged(Path.fromString(((MoveEvent)event).getOldPath()));
+                    hashManifestsChanged(Path.fromString(event.getPath()));
+                    break;
+                case RENAMED:
+                    hashManifestsChanged(Path.fromString(((RenameEvent)event).getOldPath()));
+                    hashManifestsChanged(Path.fromString(event.getPath()));
+                    break;
+            }
+        }
+    }
+
+    /** Zip archive of folder that is written directly to the output when content is sent to the client. */
+    private class ZipContentInputStream extends StreamingContentInputStream {
+        final VirtualFileImpl       folder;
+        final VirtualFileFilter     filter;
+        final VirtualFileSystemUser user;
+
+        ZipContentInputStream(VirtualFileImpl folder, VirtualFileFilter filter, VirtualFileSystemUser user) {
+            this.folder = folder;
+            this.filter = filter;
+            this.user = user;
+        }
+
+        @Override
+        protected void writeTo(OutputStream out) throws IOException {
+            writeZip(folder, filter, user, out);
+        }
+    }
+
     private final String           workspaceId;
     private final java.io.File     ioRoot;
     private final EventService     eventService;
     private final SearcherProvider searcherProvider;
     private final SystemPathsFilter systemFilter;
+    private final MountPointConfiguration.FsyncPolicy fsyncPolicy;
+    private final boolean                             streamingZip;
+    private final boolean                             watchExternalChanges;
 
     /* NOTE -- This does not related to virtual file system locking in any kind. -- */
     private final PathLockFactory pathLockFactory;
@@ -279,16 +493,29 @@ public class FSMountPoint implements MountPoint {
     private final VirtualFileImpl root;
 
     /* ----- Access control list feature. ----- */
-    private final AccessControlListSerializer      aclSerializer;
-    private final Cache<Path, AccessControlList>[] aclCache;
+    private final AccessControlListSerializer aclSerializer;
+    private final AccessControlListCache      aclCache;
 
     /* ----- Virtual file system lock feature. ----- */
-    private final FileLockSerializer      locksSerializer;
-    private final Cache<Path, FileLock>[] lockTokensCache;
+    private final FileLockSerializer locksSerializer;
+    private final FileLockCache      lockTokensCache;
 
     /* ----- File metadata. ----- */
-    private final FileMetadataSerializer               metadataSerializer;
-    private final Cache<Path, Map<String, String[]>>[] metadataCache;
+    private final FileMetadataSerializer metadataSerializer;
+    private final FileMetadataCache      metadataCache;
+
+    /* ----- Listings of directories. ----- */
+    private final DirectoryCache            directoryCache;
+    private final DirectoryCacheInvalidator directoryCacheInvalidator;
+
+    /* ----- MD5 sums of files for differential export. ----- */
+    private final ConcurrentLfuCache<Path, ContentHashManifest> hashManifests;
+    private final HashManifestUpdater                           hashManifestUpdater;
+
+    private final OwnChanges ownChanges;
+
+    /* May be null if journal is disabled with configuration. */
+    private final ChangeJournal changeJournal;
 
     private final VirtualFileSystemUserContext userContext;
 
@@ -299,32 +526,66 @@ public class FSMountPoint implements MountPoint {
      *         root directory for virtual file system. Any file in higher level than root are not accessible through
      *         virtual file system API.
      */
-    @SuppressWarnings("unchecked")
     FSMountPoint(String workspaceId, java.io.File ioRoot, EventService eventService, SearcherProvider searcherProvider, SystemPathsFilter systemFilter) {
+        this(workspaceId, ioRoot, eventService, searcherProvider, systemFilter, new MountPointConfiguration());
+    }
+
+    /**
+     * @param workspaceId
+     *         id of workspace to which this MountPoint belongs to
+     * @param ioRoot
+     *         root directory for virtual file system. Any file in higher level than root are not accessible through
+     *         virtual file system API.
+     * @param configuration
+     *         configuration of caches and content updates of mount point
+     */
+    FSMountPoint(String workspaceId,
+                 java.io.File ioRoot,
+                 EventService eventService,
+                 SearcherProvider searcherProvider,
+                 SystemPathsFilter systemFilter,
+                 MountPointConfiguration configuration) {
         this.workspaceId = workspaceId;
         this.ioRoot = ioRoot;
         this.eventService = eventService;
         this.searcherProvider = searcherProvider;
         this.systemFilter = systemFilter;
+        this.fsyncPolicy = configuration.getFsyncPolicy();
+        this.streamingZip = configuration.isStreamingZip();
+        this.watchExternalChanges = configuration.isWatchExternalChanges();
 
         root = new VirtualFileImpl(ioRoot, Path.ROOT, pathToId(Path.ROOT), this);
         pathLockFactory = new PathLockFactory(FILE_LOCK_MAX_THREADS);
 
         aclSerializer = new AccessControlListSerializer();
-        aclCache = new Cache[CACHE_PARTITIONS_NUM];
+        aclCache = new AccessControlListCache(configuration.getAclCacheSize());
 
         locksSerializer = new FileLockSerializer();
-        lockTokensCache = new Cache[CACHE_PARTITIONS_NUM];
+        lockTokensCache = new FileLockCache(configuration.getLockTokensCacheSize());
 
         metadataSerializer = new FileMetadataSerializer();
-        metadataCache = new Cache[CACHE_PARTITIONS_NUM];
+        metadataCache = new FileMetadataCache(configuration.getMetadataCacheSize());
+
+        directoryCache = new DirectoryCache(configuration.getDirectoryCacheSize());
+        directoryCacheInvalidator = new DirectoryCacheInvalidator();
+
+        hashManifests = new ConcurrentLfuCache<>(MAX_HASH_MANIFESTS);
+        hashManifestUpdater = new HashManifestUpdater();
+
+        ownChanges = new OwnChanges();
 
-        for (int i = 0; i < CACHE_PARTITIONS_NUM; i++) {
-            aclCache[i] = new SynchronizedCache(new AccessControlListCache());
-            lockTokensCache[i] = new SynchronizedCache(new FileLockCache());
-            metadataCache[i] = new SynchronizedCache(new FileMetadataCache());
-        }
         userContext = VirtualFileSystemUserContext.newInstance();
+
+        final int changeJournalSize = configuration.getChangeJournalSize();
+        changeJournal = changeJournalSize > 0
+                        ? new ChangeJournal(workspaceId, changeJournalSize, new java.io.File(ioRoot, CHANGE_JOURNAL_FILE))
+                        : null;
+
+        eventService.subscribe(directoryCacheInvalidator);
+        eventService.subscribe(hashManifestUpdater);
+        if (changeJournal != null) {
+            eventService.subscribe(changeJournal);
+        }
     }
 
     @Override
@@ -355,6 +616,11 @@ public class FSMountPoint implements MountPoint {
         return eventService;
     }
 
+    @Override
+    public ChangeJournal getChangeJournal() {
+        return changeJournal;
+    }
+
     @Override
     public VirtualFileImpl getVirtualFile(String path) throws NotFoundException, ForbiddenException, ServerException {
         if (path == null || path.isEmpty() || "/".equals(path)) {
@@ -380,6 +646,19 @@ public class FSMountPoint implements MountPoint {
         clearMetadataCache();
         clearAclCache();
         clearLockTokensCache();
+        clearDirectoryCache();
+        invalidateHashManifests();
+    }
+
+    /** Call when this MountPoint is unmounted and is not going to be used anymore. Stops listening of events and clears all caches. */
+    void close() {
+        eventService.unsubscribe(directoryCacheInvalidator);
+        eventService.unsubscribe(hashManifestUpdater);
+        if (changeJournal != null) {
+            eventService.unsubscribe(changeJournal);
+            changeJournal.close();
+        }
+        reset();
     }
 
     // Used in tests. Need this to check state of PathLockFactory.
@@ -388,6 +667,23 @@ public class FSMountPoint implements MountPoint {
         return pathLockFactory;
     }
 
+    // Used in tests and benchmarks. Need this to check efficiency of caches.
+    LoadingValueConcurrentLfuCache<Path, AccessControlList> getAclCache() {
+        return aclCache;
+    }
+
+    LoadingValueConcurrentLfuCache<Path, FileLock> getLockTokensCache() {
+        return lockTokensCache;
+    }
+
+    LoadingValueConcurrentLfuCache<Path, Map<String, String[]>> getMetadataCache() {
+        return metadataCache;
+    }
+
+    LoadingValueConcurrentLfuCache<Path, ?> getDirectoryCache() {
+        return directoryCache;
+    }
+
    /* =================================== INTERNAL =================================== */
 
     // All methods below designed to be used from VirtualFileImpl ONLY.
@@ -480,19 +776,61 @@ public class FSMountPoint implements MountPoint {
 
 
     private List<VirtualFile> doGetChildren(VirtualFileImpl virtualFile, java.io.FilenameFilter filter) throws ServerException {
-        final String[] names = virtualFile.getIoFile().list(filter);
-        if (names == null) {
-            // Something wrong. According to java docs may be null only if i/o error occurs.
-            throw new ServerException(String.format("Unable get children '%s'. ", virtualFile.getPath()));
+        final java.io.File ioFile = virtualFile.getIoFile();
+        final Path path = virtualFile.getVirtualFilePath();
+        final long directoryLastModified;
+        try {
+            directoryLastModified = Files.getLastModifiedTime(ioFile.toPath()).toMillis();
+        } catch (IOException e) {
+            String msg = String.format("Unable get children '%s'. ", virtualFile.getPath());
+            LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+            throw new ServerException(msg);
         }
-        final List<VirtualFile> children = new ArrayList<>(names.length);
-        for (String name : names) {
-            final Path childPath = virtualFile.getVirtualFilePath().newPath(name);
-            children.add(new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(childPath)), childPath, pathToId(childPath), this));
+        final long startTime = System.currentTimeMillis();
+        DirectorySnapshot snapshot;
+        try {
+            snapshot = directoryCache.get(path);
+            if (snapshot.readTime < startTime && !snapshot.isUpToDate(directoryLastModified)) {
+                // Directory is changed outside of virtual file system since snapshot was read.
+                directoryCache.remove(path);
+                snapshot = directoryCache.get(path);
+            }
+        } catch (RuntimeException e) {
+            throw new ServerException(e.getMessage());
+        }
+        final List<VirtualFile> children = new ArrayList<>(snapshot.names.length);
+        for (int i = 0; i < snapshot.names.length; i++) {
+            final String name = snapshot.names[i];
+            if (filter.accept(ioFile, name)) {
+                final Path childPath = path.newPath(name);
+                children.add(new VirtualFileImpl(new java.io.File(ioFile, name), childPath, pathToId(childPath), this,
+                                                 snapshot.attributes[i]));
+            }
         }
         return children;
     }
 
+    /* Forget listings of parent of specified item and, if item is folder, listings of item itself and all its sub-folders. */
+    private void invalidateDirectoryCache(Path path, boolean folder) {
+        if (!path.isRoot()) {
+            directoryCache.remove(path.getParent());
+        }
+        if (folder) {
+            removeTree(directoryCache, path);
+        }
+    }
+
+    /* Remove entries of item and all its descendants from cache. */
+    private static <V> void removeTree(LoadingValueConcurrentLfuCache<Path, V> cache, Path path) {
+        cache.remove(path);
+        for (Iterator<Map.Entry<Path, V>> iterator = cache.iterator(); iterator.hasNext(); ) {
+            final Path cached = iterator.next().getKey();
+            if (cached.isChild(path)) {
+                cache.remove(cached);
+            }
+        }
+    }
+
 
     VirtualFileImpl createFile(VirtualFileImpl parent, String name, String mediaType, InputStream content)
             throws ForbiddenException, ConflictException, ServerException {
@@ -534,7 +872,7 @@ public class FSMountPoint implements MountPoint {
                 LOG.error(e.getMessage(), e);
             }
         }
-        eventService.publish(new CreateEvent(workspaceId, newVirtualFile.getPath(), false));
+        publishEvent(new CreateEvent(workspaceId, newVirtualFile.getPath(), false));
         return newVirtualFile;
     }
 
@@ -573,7 +911,7 @@ public class FSMountPoint implements MountPoint {
         // Return first created folder, e.g. assume we need create: folder1/folder2/folder3 in specified folder.
         // If folder1 already exists then return folder2 as first created in hierarchy.
         final VirtualFileImpl newVirtualFile = new VirtualFileImpl(newIoFile, newPath, pathToId(newPath), this);
-        eventService.publish(new CreateEvent(workspaceId, newVirtualFile.getPath(), true));
+        publishEvent(new CreateEvent(workspaceId, newVirtualFile.getPath(), true));
         return newVirtualFile;
     }
 
@@ -621,7 +959,7 @@ public class FSMountPoint implements MountPoint {
         }
 
         doCopy(source, destination);
-        eventService.publish(new CreateEvent(workspaceId, destination.getPath(), source.isFolder()));
+        publishEvent(new CreateEvent(workspaceId, destination.getPath(), source.isFolder()));
         return destination;
     }
 
@@ -682,10 +1020,15 @@ public class FSMountPoint implements MountPoint {
             final java.io.File sourceMetadataFile = new java.io.File(ioRoot, toIoPath(getMetadataFilePath(source.getVirtualFilePath())));
             final java.io.File destinationMetadataFile =
                     new java.io.File(ioRoot, toIoPath(getMetadataFilePath(destination.getVirtualFilePath())));
-            if (sourceMetadataFile.exists()) {
-                nioCopy(sourceMetadataFile, destinationMetadataFile, filter);
+            ownChanges.begin(destination.getVirtualFilePath());
+            try {
+                if (sourceMetadataFile.exists()) {
+                    nioCopy(sourceMetadataFile, destinationMetadataFile, filter);
+                }
+                nioCopy(source.getIoFile(), destination.getIoFile(), filter);
+            } finally {
+                ownChanges.end(destination.getVirtualFilePath());
             }
-            nioCopy(source.getIoFile(), destination.getIoFile(), filter);
 
             if (searcherProvider != null) {
                 try {
@@ -756,7 +1099,7 @@ public class FSMountPoint implements MountPoint {
                 LOG.warn("Unable to set timestamp to '{}'. ", virtualFile.getIoFile());
             }
         }
-        eventService.publish(new RenameEvent(workspaceId, renamed.getPath(), sourcePath, renamed.isFolder()));
+        publishEvent(new RenameEvent(workspaceId, renamed.getPath(), sourcePath, renamed.isFolder()));
         return renamed;
     }
 
@@ -824,7 +1167,7 @@ public class FSMountPoint implements MountPoint {
         // use copy and delete
         doCopy(source, destination);
         doDelete(source, lockToken);
-        eventService.publish(new MoveEvent(workspaceId, destination.getPath(), sourcePath, destination.isFolder()));
+        publishEvent(new MoveEvent(workspaceId, destination.getPath(), sourcePath, destination.isFolder()));
         return destination;
     }
 
@@ -866,11 +1209,11 @@ public class FSMountPoint implements MountPoint {
                                              virtualFile.getMediaType(), buff.length, new Date(ioFile.lastModified()));
                 }
 
-                // Otherwise copy this file to be able release the file lock before leave this method.
-                final java.io.File f = java.io.File.createTempFile("spool_file", null);
-                nioCopy(ioFile, f, null);
-                return new ContentStream(virtualFile.getName(), new DeleteOnCloseFileInputStream(f),
-                                         virtualFile.getMediaType(), fLength, new Date(ioFile.lastModified()));
+                // Otherwise open channel while we hold the file lock and serve content from it after the lock released, without copying
+                // of file. Updates replace file with new one, so opened channel keeps content that was actual when we get it.
+                final FileChannelInputStream channelIn = new FileChannelInputStream(ioFile);
+                return new ContentStream(virtualFile.getName(), channelIn, virtualFile.getMediaType(), channelIn.getLength(),
+                                         new Date(ioFile.lastModified()));
             } catch (IOException e) {
                 String msg = String.format("Unable get content of '%s'. ", virtualFile.getPath());
                 LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
@@ -916,6 +1259,7 @@ public class FSMountPoint implements MountPoint {
         } else {
             doUpdateContent(virtualFile, content);
         }
+        virtualFile.resetAttributes();
 
         if (searcherProvider != null) {
             try {
@@ -924,39 +1268,116 @@ public class FSMountPoint implements MountPoint {
                 LOG.error(e.getMessage(), e);
             }
         }
-        eventService.publish(new UpdateContentEvent(workspaceId, virtualFile.getPath()));
+        publishEvent(new UpdateContentEvent(workspaceId, virtualFile.getPath()));
     }
 
 
     private void doUpdateContent(VirtualFileImpl virtualFile, String mediaType, InputStream content) throws ServerException {
+        // Don't hold the lock while content is received, readers of current content should not wait for writer.
+        final java.io.File newContent = writeTempContent(virtualFile, content, fsyncPolicy);
         try (PathLockFactory.PathLock lock = acquireLock(virtualFile, true)) {
-            _doUpdateContent(virtualFile, content);
+            replaceContent(virtualFile, newContent, fsyncPolicy);
             setProperty(virtualFile, "vfs:mimeType", mediaType);
+        } finally {
+            deleteTempContent(newContent);
         }
     }
 
     private void doUpdateContent(VirtualFileImpl virtualFile, InputStream content) throws ServerException {
+        doUpdateContent(virtualFile, content, fsyncPolicy);
+    }
+
+    private void doUpdateContent(VirtualFileImpl virtualFile, InputStream content, MountPointConfiguration.FsyncPolicy fsyncPolicy)
+            throws ServerException {
+        final java.io.File newContent = writeTempContent(virtualFile, content, fsyncPolicy);
         try (PathLockFactory.PathLock lock = acquireLock(virtualFile, true)) {
-            _doUpdateContent(virtualFile, content);
+            replaceContent(virtualFile, newContent, fsyncPolicy);
+        } finally {
+            deleteTempContent(newContent);
+        }
+    }
+
+    /** Saves content in temporary file in the same file system as updated file, so it can be atomically renamed to the updated file. */
+    private java.io.File writeTempContent(VirtualFileImpl virtualFile, InputStream content,
+                                          MountPointConfiguration.FsyncPolicy fsyncPolicy) throws ServerException {
+        java.io.File tmpFile = null;
+        try {
+            final java.nio.file.Path tmpDir = Files.createDirectories(new java.io.File(ioRoot, TMP_DIR).toPath());
+            tmpFile = Files.createTempFile(tmpDir, "content", null).toFile();
+            try (FileOutputStream fOut = new FileOutputStream(tmpFile)) {
+                final byte[] buff = new byte[COPY_BUFFER_SIZE];
+                int r;
+                while ((r = content.read(buff)) != -1) {
+                    fOut.write(buff, 0, r);
+                }
+                if (fsyncPolicy != MountPointConfiguration.FsyncPolicy.NONE) {
+                    fOut.getFD().sync();
+                }
+            }
+            return tmpFile;
+        } catch (IOException e) {
+            deleteTempContent(tmpFile);
+            String msg = String.format("Unable set content of '%s'. ", virtualFile.getPath());
+            LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+            throw new ServerException(msg);
         }
     }
 
     // UNDER LOCK
-    private void _doUpdateContent(VirtualFileImpl virtualFile, InputStream content) throws ServerException {
-        FileOutputStream fOut = null;
+    private void replaceContent(VirtualFileImpl virtualFile, java.io.File newContent, MountPointConfiguration.FsyncPolicy fsyncPolicy)
+            throws ServerException {
+        java.nio.file.Path target = virtualFile.getIoFile().toPath();
         try {
-            fOut = new FileOutputStream(virtualFile.getIoFile());
-            final byte[] buff = new byte[COPY_BUFFER_SIZE];
-            int r;
-            while ((r = content.read(buff)) != -1) {
-                fOut.write(buff, 0, r);
+            if (Files.isSymbolicLink(target)) {
+                // Update file that link points to but not replace link itself.
+                target = target.toRealPath();
+            }
+            if (Files.exists(target)) {
+                try {
+                    Files.setPosixFilePermissions(newContent.toPath(), Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException ignored) {
+                    // Not POSIX file system.
+                }
+            }
+            try {
+                Files.move(newContent.toPath(), target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // File is in different file store than root of mount point, may happen if some sub-folder is mounted separately or
+                // symbolic link points outside of mount point. Update isn't atomic in this case: readers that already opened the file
+                // still read previous content but new readers may not find file or see it partially written until move is completed.
+                Files.move(newContent.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+                if (fsyncPolicy != MountPointConfiguration.FsyncPolicy.NONE) {
+                    syncFile(target);
+                }
+            }
+            if (fsyncPolicy == MountPointConfiguration.FsyncPolicy.FULL) {
+                syncDirectory(target.getParent());
             }
         } catch (IOException e) {
             String msg = String.format("Unable set content of '%s'. ", virtualFile.getPath());
             LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
             throw new ServerException(msg);
-        } finally {
-            closeQuietly(fOut);
+        }
+    }
+
+    private void syncFile(java.nio.file.Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void syncDirectory(java.nio.file.Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms, e.g. Windows, do not allow open directory.
+            LOG.debug(e.getMessage(), e);
+        }
+    }
+
+    private void deleteTempContent(java.io.File tmpFile) {
+        if (tmpFile != null && tmpFile.exists() && !tmpFile.delete()) {
+            FileCleaner.addFile(tmpFile);
         }
     }
 
@@ -975,7 +1396,8 @@ public class FSMountPoint implements MountPoint {
         }
 
         doDelete(virtualFile, lockToken);
-        eventService.publish(new DeleteEvent(workspaceId, myPath, folder));
+        virtualFile.resetAttributes();
+        publishEvent(new DeleteEvent(workspaceId, myPath, folder));
     }
 
     private void doDelete(VirtualFileImpl virtualFile, String lockToken) throws ForbiddenException, ServerException {
@@ -1016,9 +1438,14 @@ public class FSMountPoint implements MountPoint {
 
         final String path = virtualFile.getPath();
         boolean isFile = virtualFile.isFile();
-        if (!deleteRecursive(virtualFile.getIoFile())) {
-            LOG.error("Unable delete file {}", virtualFile.getIoFile());
-            throw new ServerException(String.format("Unable delete item '%s'. ", path));
+        ownChanges.begin(virtualFile.getVirtualFilePath());
+        try {
+            if (!deleteRecursive(virtualFile.getIoFile())) {
+                LOG.error("Unable delete file {}", virtualFile.getIoFile());
+                throw new ServerException(String.format("Unable delete item '%s'. ", path));
+            }
+        } finally {
+            ownChanges.end(virtualFile.getVirtualFilePath());
         }
 
         // delete ACL file
@@ -1050,22 +1477,26 @@ public class FSMountPoint implements MountPoint {
 
 
     private void clearLockTokensCache() {
-        for (Cache<Path, FileLock> cache : lockTokensCache) {
-            cache.clear();
-        }
+        lockTokensCache.clear();
     }
 
 
     private void clearAclCache() {
-        for (Cache<Path, AccessControlList> cache : aclCache) {
-            cache.clear();
-        }
+        aclCache.clear();
     }
 
 
     private void clearMetadataCache() {
-        for (Cache<Path, Map<String, String[]>> cache : metadataCache) {
-            cache.clear();
+        metadataCache.clear();
+    }
+
+    private void clearDirectoryCache() {
+        directoryCache.clear();
+    }
+
+    private void invalidateHashManifests() {
+        for (Map.Entry<Path, ContentHashManifest> e : hashManifests) {
+            e.getValue().invalidate();
         }
     }
 
@@ -1074,6 +1505,64 @@ public class FSMountPoint implements MountPoint {
         if (!virtualFile.isFolder()) {
             throw new ForbiddenException(String.format("Unable export to zip. Item '%s' is not a folder. ", virtualFile.getPath()));
         }
+        if (!streamingZip) {
+            return zipToTempFile(virtualFile, filter);
+        }
+        // Zip is written when content is sent to the client, remember the current user to check permissions on items.
+        final ZipContentInputStream zipContent = new ZipContentInputStream(virtualFile, filter, userContext.getVirtualFileSystemUser());
+        return new ContentStream(virtualFile.getName() + ".zip", zipContent, ExtMediaType.APPLICATION_ZIP, new Date());
+    }
+
+    /**
+     * Writes zip archive of the folder to the output. Content of files is compressed in parallel, see {@link ParallelZipWriter}.
+     *
+     * @param user
+     *         user on behalf of whom archive is created, items that aren't readable for this user aren't added to archive
+     */
+    void writeZip(VirtualFileImpl virtualFile, VirtualFileFilter filter, VirtualFileSystemUser user, OutputStream out) throws IOException {
+        final ParallelZipWriter zipWriter =
+                new ParallelZipWriter(out, ParallelZipWriter.getSharedExecutor(), Runtime.getRuntime().availableProcessors());
+        try {
+            final LinkedList<VirtualFile> q = new LinkedList<>();
+            q.add(virtualFile);
+            final int zipEntryNameTrim = virtualFile.getVirtualFilePath().length();
+            while (!q.isEmpty()) {
+                for (VirtualFile current : doGetChildren((VirtualFileImpl)q.pop(), SERVICE_GIT_DIR_FILTER)) {
+                    // (1) Check filter.
+                    // (2) Check permission directly for current file only.
+                    // We already know parent accessible for current user otherwise we should not be here.
+                    // Ignore item if don't have permission to read it.
+                    if (filter.accept(current) && hasPermission((VirtualFileImpl)current, BasicPermissions.READ, false, user)) {
+                        final String zipEntryName = current.getVirtualFilePath().subPath(zipEntryNameTrim).toString().substring(1);
+                        if (current.isFile()) {
+                            final java.io.File ioFile = ((VirtualFileImpl)current).getIoFile();
+                            final FileChannel channel;
+                            try (PathLockFactory.PathLock lock = acquireLock(current, false)) {
+                                // Content of opened channel stays the same when file is updated since updates replace file.
+                                channel = FileChannel.open(ioFile.toPath(), StandardOpenOption.READ);
+                            } catch (NoSuchFileException e) {
+                                // Removed after listing of parent.
+                                continue;
+                            }
+                            final boolean compress = !ParallelZipWriter.isCompressed(ContentTypeGuesser.guessContentType(ioFile));
+                            zipWriter.putFile(zipEntryName, current.getLastModificationDate(), channel, compress);
+                        } else if (current.isFolder()) {
+                            zipWriter.putFolder(zipEntryName, 0);
+                            q.add(current);
+                        }
+                    }
+                }
+            }
+            zipWriter.finish();
+        } catch (ServerException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            zipWriter.abort();
+        }
+    }
+
+    /** Creates zip archive of folder in temporary file. Used when streaming of zip archives is disabled with configuration. */
+    ContentStream zipToTempFile(VirtualFileImpl virtualFile, VirtualFileFilter filter) throws ServerException {
         java.io.File zipFile = null;
         FileOutputStream out = null;
         try {
@@ -1136,24 +1625,22 @@ public class FSMountPoint implements MountPoint {
         if (!parent.isFolder()) {
             throw new ForbiddenException(String.format("Unable import zip content. Item '%s' is not a folder. ", parent.getPath()));
         }
-        final ZipContent zipContent;
-        try {
-            zipContent = ZipContent.newInstance(zipped);
-        } catch (IOException e) {
-            throw new ServerException(e.getMessage(), e);
-        }
         if (!hasPermission(parent, BasicPermissions.WRITE, true)) {
             throw new ForbiddenException(String.format("Unable import from zip to '%s'. Operation not permitted. ", parent.getPath()));
         }
 
-        ZipInputStream zip = null;
+        // Zip is read only once, compression ratio is checked while entries are unpacked.
+        final ZipInputStream zip = new ZipBombProtectedInputStream(zipped);
+        // Wrap zip stream to prevent close it. We can pass stream to other method and it can read content of current
+        // ZipEntry but not able to close original stream of ZIPed data.
+        final InputStream noCloseZip = new NotClosableInputStream(zip);
+        final UnzipWriter writer = new UnzipWriter(overwrite, userContext.getVirtualFileSystemUser());
+        final Set<Path> folders = new HashSet<>();
+        ownChanges.begin(parent.getVirtualFilePath());
         try {
-            zip = new ZipInputStream(zipContent.zippedData);
-            // Wrap zip stream to prevent close it. We can pass stream to other method and it can read content of current
-            // ZipEntry but not able to close original stream of ZIPed data.
-            InputStream noCloseZip = new NotClosableInputStream(zip);
             ZipEntry zipEntry;
             while ((zipEntry = zip.getNextEntry()) != null) {
+                writer.checkFailure();
                 VirtualFileImpl current = parent;
                 Path relPath = Path.fromString(zipEntry.getName());
 
@@ -1170,7 +1657,7 @@ public class FSMountPoint implements MountPoint {
                     // create all required parent directories
                     final Path parentPath = parent.getVirtualFilePath().newPath(relPath.subPath(0, relPath.length() - 1));
                     current = new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(parentPath)), parentPath, pathToId(parentPath), this);
-                    if (!(current.exists() || current.getIoFile().mkdirs())) {
+                    if (folders.add(parentPath) && !(current.exists() || current.getIoFile().mkdirs())) {
                         throw new ServerException(String.format("Unable create directory '%s' ", parentPath));
                     }
                 }
@@ -1179,7 +1666,7 @@ public class FSMountPoint implements MountPoint {
                     final java.io.File dir = new java.io.File(current.getIoFile(), name);
                     if (!dir.exists()) {
                         if (dir.mkdir()) {
-                            eventService.publish(new CreateEvent(workspaceId, newPath.toString(), true));
+                            writer.folderCreated(newPath);
                         } else {
                             throw new ServerException(String.format("Unable create directory '%s' ", newPath));
                         }
@@ -1187,38 +1674,11 @@ public class FSMountPoint implements MountPoint {
                 } else {
                     final VirtualFileImpl file =
                             new VirtualFileImpl(new java.io.File(current.getIoFile(), name), newPath, pathToId(newPath), this);
-                    if (file.exists()) {
-                        if (isLocked(file)) {
-                            throw new ForbiddenException(String.format("File '%s' already exists and locked. ", file.getPath()));
-                        }
-                        if (!hasPermission(file, BasicPermissions.WRITE, true)) {
-                            throw new ForbiddenException(
-                                    String.format("Unable update file '%s'. Operation not permitted. ", file.getPath()));
-                        }
-                    }
-
-                    boolean newFile;
-                    try {
-                        if (!(newFile = file.getIoFile().createNewFile())) { // atomic
-                            if (!overwrite) {
-                                throw new ConflictException(String.format("File '%s' already exists. ", file.getPath()));
-                            }
-                        }
-                    } catch (IOException e) {
-                        String msg = String.format("Unable create new file '%s'. ", newPath);
-                        LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
-                        throw new ServerException(msg);
-                    }
-
-                    doUpdateContent(file, noCloseZip);
-                    if (newFile) {
-                        eventService.publish(new CreateEvent(workspaceId, newPath.toString(), false));
-                    } else {
-                        eventService.publish(new UpdateContentEvent(workspaceId, newPath.toString()));
-                    }
+                    writer.writeFile(file, zipEntry.getSize(), noCloseZip);
                 }
                 zip.closeEntry();
             }
+            writer.finish();
             if (searcherProvider != null) {
                 try {
                     searcherProvider.getSearcher(this, true).add(parent);
@@ -1229,10 +1689,301 @@ public class FSMountPoint implements MountPoint {
         } catch (IOException e) {
             throw new ServerException(e.getMessage(), e);
         } finally {
+            writer.abort();
+            writer.publishEvents();
+            ownChanges.end(parent.getVirtualFilePath());
             closeQuietly(zip);
         }
     }
 
+    /**
+     * Creates or updates file with content of zip entry.
+     *
+     * @return event about created or updated file that must be published by caller
+     */
+    private VirtualFileEvent unzipFile(VirtualFileImpl file, InputStream content, boolean overwrite, VirtualFileSystemUser user)
+            throws ForbiddenException, ConflictException, ServerException {
+        if (file.exists()) {
+            if (isLocked(file)) {
+                throw new ForbiddenException(String.format("File '%s' already exists and locked. ", file.getPath()));
+            }
+            if (!hasPermission(file, BasicPermissions.WRITE, true, user)) {
+                throw new ForbiddenException(String.format("Unable update file '%s'. Operation not permitted. ", file.getPath()));
+            }
+        }
+
+        boolean newFile;
+        try {
+            if (!(newFile = file.getIoFile().createNewFile())) { // atomic
+                if (!overwrite) {
+                    throw new ConflictException(String.format("File '%s' already exists. ", file.getPath()));
+                }
+            }
+        } catch (IOException e) {
+            String msg = String.format("Unable create new file '%s'. ", file.getPath());
+            LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+            throw new ServerException(msg);
+        }
+
+        // Files unpacked from zip are never forced to disk one by one, fsync of each entry makes import of large project very slow.
+        doUpdateContent(file, content, MountPointConfiguration.FsyncPolicy.NONE);
+        return newFile ? new CreateEvent(workspaceId, file.getPath(), false) : new UpdateContentEvent(workspaceId, file.getPath());
+    }
+
+    /**
+     * Writes files unpacked from zip. Zip is read in one thread, but content of small entries is read in memory and written to the
+     * files in parallel. Amount of content that waits to be written is limited, reader of zip waits until some files are written if
+     * limit is reached. Content of large entries is written directly from zip by reader.
+     * <p/>
+     * Events about created files are published together when all files are written, in the same order as entries in zip.
+     * Instance of this class must be used by reader of zip only.
+     */
+    private class UnzipWriter {
+        final boolean                    overwrite;
+        final VirtualFileSystemUser      user;
+        final ExecutorService            executor;
+        final Semaphore                  memory;
+        final List<Future<?>>            tasks;
+        final List<UnzippedItem>         items;
+        final AtomicReference<Exception> failure;
+
+        UnzipWriter(boolean overwrite, VirtualFileSystemUser user) {
+            this.overwrite = overwrite;
+            this.user = user;
+            executor = ParallelZipWriter.getSharedExecutor();
+            memory = new Semaphore(UNZIP_MAX_BUFFERED);
+            tasks = new ArrayList<>();
+            items = new ArrayList<>();
+            failure = new AtomicReference<>();
+        }
+
+        void folderCreated(Path path) {
+            items.add(new UnzippedItem(new CreateEvent(workspaceId, path.toString(), true)));
+        }
+
+        void writeFile(final VirtualFileImpl file, long size, InputStream content)
+                throws ForbiddenException, ConflictException, ServerException, IOException {
+            byte[] buff = new byte[size >= 0 && size <= UNZIP_MAX_BUFFERED_ENTRY ? (int)size : COPY_BUFFER_SIZE];
+            int length = 0;
+            while (true) {
+                if (length == buff.length) {
+                    // Don't trust size from entry header, make sure the end of entry is reached.
+                    final int b = content.read();
+                    if (b == -1) {
+                        break;
+                    }
+                    if (length >= UNZIP_MAX_BUFFERED_ENTRY) {
+                        // Too large to keep in memory, write what is already read and the rest of entry in this thread.
+                        final byte[] head = Arrays.copyOf(buff, length + 1);
+                        head[length] = (byte)b;
+                        final UnzippedItem item = new UnzippedItem(null);
+                        items.add(item);
+                        item.event = unzipFile(file, new SequenceInputStream(new ByteArrayInputStream(head), content), overwrite, user);
+                        return;
+                    }
+                    buff = Arrays.copyOf(buff, Math.min(Math.max(length * 2, COPY_BUFFER_SIZE), UNZIP_MAX_BUFFERED_ENTRY));
+                    buff[length++] = (byte)b;
+                }
+                final int r = content.read(buff, length, buff.length - length);
+                if (r == -1) {
+                    break;
+                }
+                length += r;
+            }
+
+            final int permits = Math.min(length + UNZIP_ENTRY_OVERHEAD, UNZIP_MAX_BUFFERED);
+            try {
+                memory.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServerException(String.format("Unable import file '%s'. Import is interrupted. ", file.getPath()));
+            }
+            final UnzippedItem item = new UnzippedItem(null);
+            items.add(item);
+            final InputStream fileContent = new ByteArrayInputStream(buff, 0, length);
+            try {
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure.get() == null) {
+                                item.event = unzipFile(file, fileContent, overwrite, user);
+                            }
+                        } catch (ForbiddenException | ConflictException | ServerException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            memory.release(permits);
+                        }
+                    }
+                }));
+            } catch (RuntimeException e) {
+                memory.release(permits);
+                throw e;
+            }
+        }
+
+        /** Rethrows the first error that occurred while files were written. */
+        void checkFailure() throws ForbiddenException, ConflictException, ServerException {
+            final Exception e = failure.get();
+            if (e == null) {
+                return;
+            }
+            if (e instanceof ForbiddenException) {
+                throw (ForbiddenException)e;
+            }
+            if (e instanceof ConflictException) {
+                throw (ConflictException)e;
+            }
+            if (e instanceof ServerException) {
+                throw (ServerException)e;
+            }
+            throw (RuntimeException)e;
+        }
+
+        /** Waits until all files are written. */
+        void finish() throws ForbiddenException, ConflictException, ServerException {
+            awaitTasks();
+            checkFailure();
+        }
+
+        /** Stops writing of files that are not started yet and waits for files that are being written. */
+        void abort() {
+            failure.compareAndSet(null, new ServerException("Import is aborted. "));
+            try {
+                awaitTasks();
+            } catch (ServerException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+
+        void publishEvents() {
+            // Don't remember each item as changed by this mount point, importing folder is remembered.
+            for (UnzippedItem item : items) {
+                final VirtualFileEvent event = item.event;
+                if (event != null) {
+                    eventService.publish(event);
+                }
+            }
+            items.clear();
+        }
+
+        private void awaitTasks() throws ServerException {
+            boolean interrupted = false;
+            try {
+                for (Future<?> task : tasks) {
+                    while (true) {
+                        try {
+                            task.get();
+                            break;
+                        } catch (InterruptedException e) {
+                            // Files must not be changed after import is finished.
+                            interrupted = true;
+                        } catch (ExecutionException e) {
+                            throw new ServerException(e.getCause().getMessage(), e.getCause());
+                        }
+                    }
+                }
+                tasks.clear();
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static class UnzippedItem {
+        /** Event about created or updated item, {@code null} if item is not written. Updated by thread that writes file. */
+        volatile VirtualFileEvent event;
+
+        UnzippedItem(VirtualFileEvent event) {
+            this.event = event;
+        }
+    }
+
+   /* ============ CHANGES OUTSIDE OF VIRTUAL FILE SYSTEM ============ */
+
+    /** Checks whether item is changed through this mount point recently. Such changes must not be reported by watcher again. */
+    boolean isChangedThroughMountPoint(Path path) {
+        return ownChanges.contains(path);
+    }
+
+    /** Drops cached ACL, lock and properties of item when files that keep them are changed directly on file system. */
+    void invalidateItemData(Path path) {
+        aclCache.remove(path);
+        lockTokensCache.remove(path);
+        metadataCache.remove(path);
+    }
+
+    /** Item is created directly on file system. */
+    void externalCreated(Path path, boolean folder) {
+        invalidateItemTree(path, folder);
+        final Searcher searcher = getExistedSearcher();
+        if (searcher != null) {
+            try {
+                searcher.add(new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(path)), path, pathToId(path), this));
+            } catch (ServerException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        eventService.publish(new CreateEvent(workspaceId, path.toString(), folder));
+    }
+
+    /** Content of file is updated directly on file system. */
+    void externalUpdated(Path path) {
+        final Searcher searcher = getExistedSearcher();
+        if (searcher != null) {
+            try {
+                searcher.update(new VirtualFileImpl(new java.io.File(ioRoot, toIoPath(path)), path, pathToId(path), this));
+            } catch (ServerException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        eventService.publish(new UpdateContentEvent(workspaceId, path.toString()));
+    }
+
+    /** Item is deleted directly on file system. */
+    void externalDeleted(Path path, boolean folder) {
+        invalidateItemTree(path, folder);
+        final Searcher searcher = getExistedSearcher();
+        if (searcher != null) {
+            try {
+                searcher.delete(path.toString(), !folder);
+            } catch (ServerException e) {
+                LOG.error(e.getMessage(), e);
+            }
+        }
+        eventService.publish(new DeleteEvent(workspaceId, path.toString(), folder));
+    }
+
+    private void invalidateItemTree(Path path, boolean folder) {
+        if (folder) {
+            removeTree(aclCache, path);
+            removeTree(lockTokensCache, path);
+            removeTree(metadataCache, path);
+        } else {
+            invalidateItemData(path);
+        }
+    }
+
+    /* Do not create index if it does not exist yet. New index is created from actual state of file system anyway. */
+    private Searcher getExistedSearcher() {
+        if (searcherProvider == null) {
+            return null;
+        }
+        try {
+            return searcherProvider.getSearcher(this, false);
+        } catch (ServerException e) {
+            LOG.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void publishEvent(VirtualFileEvent event) {
+        ownChanges.end(Path.fromString(event.getPath()));
+        eventService.publish(event);
+    }
+
    /* ============ LOCKING ============ */
 
     String lock(VirtualFileImpl virtualFile, long timeout) throws ForbiddenException, ConflictException, ServerException {
@@ -1248,8 +1999,7 @@ public class FSMountPoint implements MountPoint {
 
 
     private String doLock(VirtualFileImpl virtualFile, long timeout) throws ConflictException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        if (NO_LOCK == lockTokensCache[index].get(virtualFile.getVirtualFilePath())) // causes read from file if need.
+        if (NO_LOCK == lockTokensCache.get(virtualFile.getVirtualFilePath())) // causes read from file if need.
         {
             final String lockToken = NameGenerator.generate(null, 16);
             final long expired = timeout > 0 ? (System.currentTimeMillis() + timeout) : Long.MAX_VALUE;
@@ -1273,7 +2023,7 @@ public class FSMountPoint implements MountPoint {
             }
 
             // Save lock token in cache if lock successful.
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), fileLock);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), fileLock);
             return lockToken;
         }
 
@@ -1297,7 +2047,6 @@ public class FSMountPoint implements MountPoint {
     }
 
     private void doUnlock(VirtualFileImpl virtualFile, FileLock lock, String lockToken) throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         try {
             if (!lock.getLockToken().equals(lockToken)) {
                 throw new ForbiddenException(String.format("Unable unlock file '%s'. Lock token does not match. ", virtualFile.getPath()));
@@ -1307,7 +2056,7 @@ public class FSMountPoint implements MountPoint {
                 throw new IOException(String.format("Unable delete lock file %s. ", lockIoFile));
             }
             // Mark as unlocked in cache.
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), NO_LOCK);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), NO_LOCK);
         } catch (IOException e) {
             String msg = String.format("Unable unlock file '%s'. ", virtualFile.getPath());
             LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
@@ -1321,9 +2070,8 @@ public class FSMountPoint implements MountPoint {
     }
 
     private FileLock checkIsLockValidAndGet(VirtualFileImpl virtualFile) {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         // causes read from file if need
-        final FileLock lock = lockTokensCache[index].get(virtualFile.getVirtualFilePath());
+        final FileLock lock = lockTokensCache.get(virtualFile.getVirtualFilePath());
         if (NO_LOCK == lock) {
             return NO_LOCK;
         }
@@ -1335,7 +2083,7 @@ public class FSMountPoint implements MountPoint {
                     LOG.warn("Unable delete lock file %s. ", lockIoFile);
                 }
             }
-            lockTokensCache[index].put(virtualFile.getVirtualFilePath(), NO_LOCK);
+            lockTokensCache.put(virtualFile.getVirtualFilePath(), NO_LOCK);
             return NO_LOCK;
         }
         return lock;
@@ -1358,14 +2106,13 @@ public class FSMountPoint implements MountPoint {
 
     AccessControlList getACL(VirtualFileImpl virtualFile) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        return new AccessControlList(aclCache[virtualFile.getVirtualFilePath().hashCode() & MASK].get(virtualFile.getVirtualFilePath()));
+        return new AccessControlList(aclCache.get(virtualFile.getVirtualFilePath()));
     }
 
 
     void updateACL(VirtualFileImpl virtualFile, List<AccessControlEntry> acl, boolean override, String lockToken)
             throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final AccessControlList actualACL = aclCache[index].get(virtualFile.getVirtualFilePath());
+        final AccessControlList actualACL = aclCache.get(virtualFile.getVirtualFilePath());
 
         if (!hasPermission(virtualFile, BasicPermissions.UPDATE_ACL, true)) {
             throw new ForbiddenException(String.format("Unable update ACL for '%s'. Operation not permitted. ", virtualFile.getPath()));
@@ -1407,17 +2154,25 @@ public class FSMountPoint implements MountPoint {
         }
 
         // 4. update cache
-        aclCache[index].put(virtualFile.getVirtualFilePath(), copy);
+        aclCache.put(virtualFile.getVirtualFilePath(), copy);
         // 5. update last modification time
         if (!virtualFile.getIoFile().setLastModified(System.currentTimeMillis())) {
             LOG.warn("Unable to set timestamp to '{}'. ", virtualFile.getIoFile());
         }
 
-        eventService.publish(new UpdateACLEvent(workspaceId, virtualFile.getPath(), virtualFile.isFolder()));
+        publishEvent(new UpdateACLEvent(workspaceId, virtualFile.getPath(), virtualFile.isFolder()));
     }
 
 
     protected boolean hasPermission(VirtualFileImpl virtualFile, BasicPermissions p, boolean checkParent) {
+        return hasPermission(virtualFile, p, checkParent, null);
+    }
+
+    /**
+     * @param user
+     *         user whose permissions are checked, if {@code null} then permissions of the current user are checked
+     */
+    private boolean hasPermission(VirtualFileImpl virtualFile, BasicPermissions p, boolean checkParent, VirtualFileSystemUser user) {
         // Find the closes access control list on the line of ancestry, starting with the virtual file itself
         Path path = virtualFile.getVirtualFilePath();
         AccessControlList accessControlList;
@@ -1425,7 +2180,7 @@ public class FSMountPoint implements MountPoint {
             if (path == null) {
                 return true;
             }
-            accessControlList = aclCache[path.hashCode() & MASK].get(path);
+            accessControlList = aclCache.get(path);
             if (!accessControlList.isEmpty()) {
                 // A non-empty ACL, search done
                 break;
@@ -1437,7 +2192,9 @@ public class FSMountPoint implements MountPoint {
             path = path.getParent();
         }
         // 1- Check user permissions
-        VirtualFileSystemUser user = userContext.getVirtualFileSystemUser();
+        if (user == null) {
+            user = userContext.getVirtualFileSystemUser();
+        }
         Boolean aclCheck = aclPermission(user.getUserId(), Principal.Type.USER, accessControlList, p);
         if (aclCheck != null) {
             return aclCheck;
@@ -1498,7 +2255,6 @@ public class FSMountPoint implements MountPoint {
 
     void updateProperties(VirtualFileImpl virtualFile, List<Property> properties, String lockToken)
             throws ForbiddenException, ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         if (!hasPermission(virtualFile, BasicPermissions.WRITE, true)) {
             throw new ForbiddenException(
                     String.format("Unable update properties for '%s'. Operation not permitted. ", virtualFile.getPath()));
@@ -1510,7 +2266,7 @@ public class FSMountPoint implements MountPoint {
         }
 
         // 1. make copy of properties
-        final Map<String, String[]> metadata = copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        final Map<String, String[]> metadata = copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
         // 2. update
         for (Property property : properties) {
             final String name = property.getName();
@@ -1525,33 +2281,30 @@ public class FSMountPoint implements MountPoint {
         // 3. save in file
         saveFileMetadata(virtualFile, metadata);
         // 4. update cache
-        metadataCache[index].put(virtualFile.getVirtualFilePath(), metadata);
+        metadataCache.put(virtualFile.getVirtualFilePath(), metadata);
         // 5. update last modification time
         if (!virtualFile.getIoFile().setLastModified(System.currentTimeMillis())) {
             LOG.warn("Unable to set timestamp to '{}'. ", virtualFile.getIoFile());
         }
-        eventService.publish(new UpdatePropertiesEvent(workspaceId, virtualFile.getPath(), virtualFile.isFolder()));
+        publishEvent(new UpdatePropertiesEvent(workspaceId, virtualFile.getPath(), virtualFile.isFolder()));
     }
 
 
     private Map<String, String[]> getFileMetadata(VirtualFileImpl virtualFile) {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        return copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        return copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
     }
 
 
     String getPropertyValue(VirtualFileImpl virtualFile, String name) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final String[] value = metadataCache[index].get(virtualFile.getVirtualFilePath()).get(name);
+        final String[] value = metadataCache.get(virtualFile.getVirtualFilePath()).get(name);
         return value == null || value.length == 0 ? null : value[0];
     }
 
 
     String[] getPropertyValues(VirtualFileImpl virtualFile, String name) {
         // Do not check permission here. We already check 'read' permission when get VirtualFile.
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
-        final String[] value = metadataCache[index].get(virtualFile.getVirtualFilePath()).get(name);
+        final String[] value = metadataCache.get(virtualFile.getVirtualFilePath()).get(name);
         final String[] copyValue = new String[value.length];
         System.arraycopy(value, 0, copyValue, 0, value.length);
         return copyValue;
@@ -1564,9 +2317,8 @@ public class FSMountPoint implements MountPoint {
 
 
     void setProperty(VirtualFileImpl virtualFile, String name, String... value) throws ServerException {
-        final int index = virtualFile.getVirtualFilePath().hashCode() & MASK;
         // 1. make copy of properties
-        final Map<String, String[]> metadata = copyMetadataMap(metadataCache[index].get(virtualFile.getVirtualFilePath()));
+        final Map<String, String[]> metadata = copyMetadataMap(metadataCache.get(virtualFile.getVirtualFilePath()));
         // 2. update
         if (value != null) {
             String[] copyValue = new String[value.length];
@@ -1578,7 +2330,7 @@ public class FSMountPoint implements MountPoint {
         // 3. save in file
         saveFileMetadata(virtualFile, metadata);
         // 4. update cache
-        metadataCache[index].put(virtualFile.getVirtualFilePath(), metadata);
+        metadataCache.put(virtualFile.getVirtualFilePath(), metadata);
     }
 
 
@@ -1648,43 +2400,76 @@ public class FSMountPoint implements MountPoint {
 
    /* ==================================== */
 
+    /**
+     * Gets MD5 sums of files in folder. Sums are kept in manifest of folder and are counted again for changed files only, see {@link
+     * ContentHashManifest}.
+     */
     LazyIterator<Pair<String, String>> countMd5Sums(VirtualFileImpl virtualFile) throws ServerException {
         if (!virtualFile.isFolder()) {
             return LazyIterator.emptyIterator();
         }
-        final List<Pair<String, String>> hashes = new ArrayList<>();
-        final int trimPathLength = virtualFile.getPath().length() + 1;
-        final HashFunction hashFunction = Hashing.md5();
-        final ValueHolder<ServerException> errorHolder = new ValueHolder<>();
-        virtualFile.accept(new VirtualFileVisitor() {
-            @Override
-            public void visit(final VirtualFile virtualFile) {
-                try {
-                    if (virtualFile.isFile()) {
-                        hashes.add(Pair.of(countHashSum(virtualFile, hashFunction), virtualFile.getPath().substring(trimPathLength)));
-                    } else {
-                        final LazyIterator<VirtualFile> children = virtualFile.getChildren(VirtualFileFilter.ALL);
-                        while (children.hasNext()) {
-                            children.next().accept(this);
-                        }
-                    }
-                } catch (ServerException e) {
-                    errorHolder.set(e);
-                }
+        final Path path = virtualFile.getVirtualFilePath();
+        ContentHashManifest manifest = hashManifests.get(path);
+        if (manifest == null) {
+            final ContentHashManifest newManifest = new ContentHashManifest(virtualFile.getIoFile());
+            manifest = hashManifests.putIfAbsent(path, newManifest);
+            if (manifest == null) {
+                manifest = newManifest;
             }
-        });
-        return LazyIterator.fromList(hashes);
+        }
+        final List<Pair<String, String>> hashes;
+        try {
+            // Without watching of mount point changes made directly on file system are not seen, so check all files.
+            hashes = manifest.getHashSums(watchExternalChanges);
+        } catch (IOException e) {
+            String msg = String.format("Unable count MD5 sums of files in '%s'. ", virtualFile.getPath());
+            LOG.error(msg + e.getMessage(), e); // More details in log but do not show internal error to caller.
+            throw new ServerException(msg);
+        }
+        return LazyIterator.fromList(getReadable(path, hashes));
     }
 
+    /* Removes MD5 sums of files that current user is not allowed to read. */
+    private List<Pair<String, String>> getReadable(Path folder, List<Pair<String, String>> hashes) {
+        final Map<Path, Boolean> readableFolders = new HashMap<>();
+        readableFolders.put(folder, true);
+        final List<Pair<String, String>> readable = new ArrayList<>(hashes.size());
+        for (Pair<String, String> hash : hashes) {
+            if (isReadable(folder.newPath(hash.second), readableFolders)) {
+                readable.add(hash);
+            }
+        }
+        return readable;
+    }
 
-    private String countHashSum(VirtualFile virtualFile, HashFunction hashFunction) throws ServerException {
-        try (PathLockFactory.PathLock lock = acquireLock(virtualFile, false);
-                InputStream contentStream = virtualFile.getContent().getStream()) {
-            return ByteSource.wrap(ByteStreams.toByteArray(contentStream)).hash(hashFunction).toString();
-        } catch (ForbiddenException e) {
-            throw new ServerException(e.getServiceError());
-        } catch (IOException e) {
-            throw new ServerException(e);
+    private boolean isReadable(Path path, Map<Path, Boolean> readableFolders) {
+        final Path parent = path.getParent();
+        Boolean parentReadable = readableFolders.get(parent);
+        if (parentReadable == null) {
+            parentReadable = isReadable(parent, readableFolders);
+            readableFolders.put(parent, parentReadable);
+        }
+        if (!parentReadable) {
+            return false;
+        }
+        // ACLs of items are stored in service directory of their parent. Do not look for ACL if there is no such directory.
+        final java.io.File ioParent = new java.io.File(ioRoot, toIoPath(parent));
+        if (!new java.io.File(ioParent, ACL_DIR).isDirectory()) {
+            return true;
+        }
+        final VirtualFileImpl virtualFile = new VirtualFileImpl(new java.io.File(ioParent, path.getName()), path, pathToId(path), this);
+        return hasPermission(virtualFile, BasicPermissions.READ, false);
+    }
+
+    /* Forgets MD5 sums of folders that are removed or moved and reports changes of files inside folders. */
+    private void hashManifestsChanged(Path path) {
+        for (Map.Entry<Path, ContentHashManifest> e : hashManifests) {
+            final Path folder = e.getKey();
+            if (folder.equals(path) || folder.isChild(path)) {
+                hashManifests.remove(folder);
+            } else if (path.isChild(folder)) {
+                e.getValue().changed(path.subPath(folder.length()).toString().substring(1));
+            }
         }
     }
 
@@ -42,6 +42,7 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
     private final VirtualFileSystemUserContext userContext;
     private final SystemPathsFilter            systemFilter;
     private final VirtualFileSystemRegistry    vfsRegistry;
+    private final MountPointConfiguration configuration;
 
     /**
      * @param workspaceId
@@ -58,7 +59,35 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
                                    SearcherProvider searcherProvider,
                                    SystemPathsFilter systemFilter,
                                    VirtualFileSystemRegistry vfsRegistry) {
-        this(workspaceId, mountStrategy, eventService, searcherProvider, VirtualFileSystemUserContext.newInstance(), systemFilter, vfsRegistry);
+        this(workspaceId, mountStrategy, eventService, searcherProvider, systemFilter, vfsRegistry, new MountPointConfiguration());
+    }
+
+    /**
+     * @param workspaceId
+     *         virtual file system identifier
+     * @param mountStrategy
+     *         LocalFSMountStrategy
+     * @param searcherProvider
+     *         SearcherProvider or {@code null}
+     * @param configuration
+     *         configuration of caches and content updates of mount point
+     * @see LocalFileSystemProvider
+     */
+    public LocalFileSystemProvider(String workspaceId,
+                                   LocalFSMountStrategy mountStrategy,
+                                   EventService eventService,
+                                   SearcherProvider searcherProvider,
+                                   SystemPathsFilter systemFilter,
+                                   VirtualFileSystemRegistry vfsRegistry,
+                                   MountPointConfiguration configuration) {
+        this(workspaceId,
+             mountStrategy,
+             eventService,
+             searcherProvider,
+             VirtualFileSystemUserContext.newInstance(),
+             systemFilter,
+             vfsRegistry,
+             configuration);
     }
 
 
@@ -78,15 +107,28 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
                                       VirtualFileSystemUserContext userContext,
                                       SystemPathsFilter systemFilter,
                                       VirtualFileSystemRegistry vfsRegistry) {
+        this(workspaceId, mountStrategy, eventService, searcherProvider, userContext, systemFilter, vfsRegistry,
+             new MountPointConfiguration());
+    }
+
+    protected LocalFileSystemProvider(String workspaceId,
+                                      LocalFSMountStrategy mountStrategy,
+                                      EventService eventService,
+                                      SearcherProvider searcherProvider,
+                                      VirtualFileSystemUserContext userContext,
+                                      SystemPathsFilter systemFilter,
+                                      VirtualFileSystemRegistry vfsRegistry,
+                                      MountPointConfiguration configuration) {
         super(workspaceId);
         this.workspaceId = workspaceId;
         this.mountStrategy = mountStrategy;
         this.eventService = eventService;
         this.searcherProvider = searcherProvider;
         this.userContext = userContext;
-        this.mountRef = new MountPointRef();
+        this.mountRef = new MountPointRef(configuration.isWatchExternalChanges());
         this.systemFilter = systemFilter;
         this.vfsRegistry = vfsRegistry;
+        this.configuration = configuration;
     }
 
     /** Get new instance of LocalFileSystem. If virtual file system is not mounted yet if mounted automatically when used first time. */
@@ -128,7 +170,7 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
      * @see VirtualFileSystem
      */
     public void mount(java.io.File ioFile) throws ServerException {
-        if (!mountRef.maybeSet(new FSMountPoint(getWorkspaceId(), ioFile, eventService, searcherProvider, systemFilter))) {
+        if (!mountRef.maybeSet(new FSMountPoint(getWorkspaceId(), ioFile, eventService, searcherProvider, systemFilter, configuration))) {
             throw new ServerException(String.format("Local filesystem '%s' already mounted. ", ioFile));
         }
     }
@@ -142,7 +184,8 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
         FSMountPoint mount = mountRef.get();
         if (mount == null && create) {
             final java.io.File workspaceMountPoint = mountStrategy.getMountPath(workspaceId);
-            FSMountPoint newMount = new FSMountPoint(workspaceId, workspaceMountPoint, eventService, searcherProvider, systemFilter);
+            FSMountPoint newMount = new FSMountPoint(workspaceId, workspaceMountPoint, eventService, searcherProvider, systemFilter,
+                                                     configuration);
             if (mountRef.maybeSet(newMount)) {
                 if (!(workspaceMountPoint.exists() || workspaceMountPoint.mkdirs())) {
                     LOG.error("Unable create directory {}", workspaceMountPoint);
@@ -157,15 +200,21 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
 
     private static class MountPointRef {
         final AtomicReference<FSMountPoint> ref;
+        final boolean                       watch;
 
-        private MountPointRef() {
+        private MountPointRef(boolean watch) {
+            this.watch = watch;
             ref = new AtomicReference<>();
         }
 
         boolean maybeSet(FSMountPoint mountPoint) {
             final boolean res = ref.compareAndSet(null, mountPoint);
             if (res) {
-                MountPointCacheCleaner.add(mountPoint);
+                if (watch) {
+                    MountPointWatcher.getInstance().add(mountPoint);
+                }
+            } else {
+                mountPoint.close();
             }
             return res;
         }
@@ -177,7 +226,10 @@ public class LocalFileSystemProvider extends VirtualFileSystemProvider {
         FSMountPoint remove() {
             final FSMountPoint mountPoint = ref.getAndSet(null);
             if (mountPoint != null) {
-                MountPointCacheCleaner.remove(mountPoint);
+                if (watch) {
+                    MountPointWatcher.getInstance().remove(mountPoint);
+                }
+                mountPoint.close();
             }
             return mountPoint;
         }
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Configuration of each {@link FSMountPoint}. Defaults may be overridden with configuration properties:
+ * <ul>
+ * <li>vfs.local.acl_cache_size - size of cache of ACLs</li>
+ * <li>vfs.local.lock_tokens_cache_size - size of cache of lock tokens</li>
+ * <li>vfs.local.metadata_cache_size - size of cache of properties</li>
+ * <li>vfs.local.directory_cache_size - size of cache of directory listings</li>
+ * <li>vfs.local.fsync_policy - one of {@link FsyncPolicy}, default is {@link FsyncPolicy#NONE}, policy is applied
+ * to saving of single file, files unpacked from zip are never forced to disk</li>
+ * <li>vfs.local.watch_external_changes - watch changes made directly on file system, e.g. by builders or git, and update caches and
+ * search index of mount point, default is {@code true}</li>
+ * <li>vfs.local.streaming_zip - write zip archives of folders directly to the client and compress content of files in parallel,
+ * otherwise archive is created in temporary file before sending to the client, default is {@code true}</li>
+ * <li>vfs.local.change_journal_size - number of the latest changes kept in journal of changes of mount point, journal is disabled if
+ * value is {@code 0}</li>
+ * </ul>
+ *
+ * @author andrew00x
+ */
+@Singleton
+public class MountPointConfiguration {
+    public static final int DEFAULT_CACHE_SIZE           = 10000;
+    public static final int DEFAULT_DIRECTORY_CACHE_SIZE = 1000;
+    public static final int DEFAULT_CHANGE_JOURNAL_SIZE  = 10000;
+
+    /** Defines how content of file is flushed to the storage device when file is updated. */
+    public enum FsyncPolicy {
+        /** Do not force content to disk, rely on operating system. Fastest but content may be lost after crash of system. */
+        NONE,
+        /** Force content of temporary file to disk before rename it to the updated file. Content is never seen half-written. */
+        DATA,
+        /** As {@link #DATA} and also force parent directory after rename. Update itself survives crash of system. */
+        FULL
+    }
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.acl_cache_size")
+    private int aclCacheSize = DEFAULT_CACHE_SIZE;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.lock_tokens_cache_size")
+    private int lockTokensCacheSize = DEFAULT_CACHE_SIZE;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.metadata_cache_size")
+    private int metadataCacheSize = DEFAULT_CACHE_SIZE;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.directory_cache_size")
+    private int directoryCacheSize = DEFAULT_DIRECTORY_CACHE_SIZE;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.fsync_policy")
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.watch_external_changes")
+    private boolean watchExternalChanges = true;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.streaming_zip")
+    private boolean streamingZip = true;
+
+    @com.google.inject.Inject(optional = true)
+    @Named("vfs.local.change_journal_size")
+    private int changeJournalSize = DEFAULT_CHANGE_JOURNAL_SIZE;
+
+    public MountPointConfiguration() {
+    }
+
+    public MountPointConfiguration(int aclCacheSize, int lockTokensCacheSize, int metadataCacheSize) {
+        this(aclCacheSize, lockTokensCacheSize, metadataCacheSize, FsyncPolicy.NONE);
+    }
+
+    public MountPointConfiguration(int aclCacheSize, int lockTokensCacheSize, int metadataCacheSize, FsyncPolicy fsyncPolicy) {
+        this(aclCacheSize, lockTokensCacheSize, metadataCacheSize, DEFAULT_DIRECTORY_CACHE_SIZE, fsyncPolicy);
+    }
+
+    public MountPointConfiguration(int aclCacheSize,
+                                   int lockTokensCacheSize,
+                                   int metadataCacheSize,
+                                   int directoryCacheSize,
+                                   FsyncPolicy fsyncPolicy) {
+        this(aclCacheSize, lockTokensCacheSize, metadataCacheSize, directoryCacheSize, fsyncPolicy, true);
+    }
+
+    public MountPointConfiguration(int aclCacheSize,
+                                   int lockTokensCacheSize,
+                                   int metadataCacheSize,
+                                   int directoryCacheSize,
+                                   FsyncPolicy fsyncPolicy,
+                                   boolean watchExternalChanges) {
+        this.aclCacheSize = aclCacheSize;
+        this.lockTokensCacheSize = lockTokensCacheSize;
+        this.metadataCacheSize = metadataCacheSize;
+        this.directoryCacheSize = directoryCacheSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.watchExternalChanges = watchExternalChanges;
+    }
+
+    public int getAclCacheSize() {
+        return aclCacheSize;
+    }
+
+    public int getLockTokensCacheSize() {
+        return lockTokensCacheSize;
+    }
+
+    public int getMetadataCacheSize() {
+        return metadataCacheSize;
+    }
+
+    public int getDirectoryCacheSize() {
+        return directoryCacheSize;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public boolean isWatchExternalChanges() {
+        return watchExternalChanges;
+    }
+
+    public boolean isStreamingZip() {
+        return streamingZip;
+    }
+
+    public int getChangeJournalSize() {
+        return changeJournalSize;
+    }
+}
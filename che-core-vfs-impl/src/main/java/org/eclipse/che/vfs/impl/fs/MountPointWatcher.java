@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches directories of mounted {@link FSMountPoint}s for changes made directly on file system, e.g. by builders or git, and updates
+ * caches and search index of mount point and publishes {@code VirtualFileEvent}s for them. Single thread serves all mount points.
+ * Events are collected during short time after the first one and processed together, so burst of changes, e.g. checkout of git
+ * branch, results in one event per item. Changes made through virtual file system are not reported again.
+ *
+ * @author andrew00x
+ */
+public class MountPointWatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(MountPointWatcher.class);
+
+    /* Time to collect events after the first one before processing them. */
+    private static final long DEFAULT_COALESCE_DELAY = 300; // 0.3 second
+
+    private static final String GIT_DIR   = ".git";
+    private static final String ACL_DIR   = new java.io.File(FSMountPoint.ACL_DIR).getName();
+    private static final String LOCKS_DIR = new java.io.File(FSMountPoint.LOCKS_DIR).getName();
+    private static final String PROPS_DIR = new java.io.File(FSMountPoint.PROPS_DIR).getName();
+
+    private static final Comparator<Path> PARENTS_FIRST = new Comparator<Path>() {
+        @Override
+        public int compare(Path a, Path b) {
+            return Integer.compare(a.length(), b.length());
+        }
+    };
+
+    private static final MountPointWatcher INSTANCE = new MountPointWatcher(DEFAULT_COALESCE_DELAY);
+
+    static MountPointWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /** What kind of files directory contains. */
+    private enum Content {
+        /** Files and folders of virtual file system. */
+        ITEMS,
+        /** Service directory of virtual file system, see {@link FSMountPoint#SERVICE_DIR}. */
+        SERVICE,
+        /** Files with ACLs of items. */
+        ACL,
+        /** Files with locks of items. */
+        LOCKS,
+        /** Files with properties of items. */
+        PROPS
+    }
+
+    private static class WatchedDirectory {
+        final FSMountPoint       mountPoint;
+        /* Path of directory in virtual file system. For service directories this is path of directory which items they describe. */
+        final Path               path;
+        final java.nio.file.Path ioPath;
+        final Content            content;
+
+        WatchedDirectory(FSMountPoint mountPoint, Path path, java.nio.file.Path ioPath, Content content) {
+            this.mountPoint = mountPoint;
+            this.path = path;
+            this.ioPath = ioPath;
+            this.content = content;
+        }
+    }
+
+    /* Events of item collected during coalesce delay. Actual state of item is read from file system when events are processed. */
+    private static class ItemEvents {
+        final boolean created;
+        boolean deleted;
+
+        ItemEvents(WatchEvent.Kind<?> first) {
+            created = first == ENTRY_CREATE;
+            deleted = first == ENTRY_DELETE;
+        }
+    }
+
+    /* Events collected for mount point. */
+    private static class Changes {
+        final Map<Path, ItemEvents> items = new LinkedHashMap<>();
+        boolean overflow;
+        boolean invalidKeys;
+    }
+
+    private final long                                            coalesceDelay;
+    private final ConcurrentMap<WatchKey, WatchedDirectory>       directories;
+    private final ConcurrentMap<java.nio.file.Path, WatchKey>     keys;
+    private final ConcurrentMap<FSMountPoint, java.nio.file.Path> mountPoints;
+
+    private WatchService watchService;
+    private Thread       thread;
+
+    MountPointWatcher(long coalesceDelay) {
+        this.coalesceDelay = coalesceDelay;
+        directories = new ConcurrentHashMap<>();
+        keys = new ConcurrentHashMap<>();
+        mountPoints = new ConcurrentHashMap<>();
+    }
+
+    /** Starts watching of all directories of mount point. */
+    void add(FSMountPoint mountPoint) {
+        final java.nio.file.Path ioRoot = mountPoint.getRoot().getIoFile().toPath();
+        try {
+            final WatchService myWatchService = start();
+            mountPoints.put(mountPoint, ioRoot);
+            if (Files.isDirectory(ioRoot)) {
+                registerTree(myWatchService, mountPoint, ioRoot, ioRoot);
+            }
+        } catch (IOException e) {
+            LOG.error(String.format("Unable watch changes of VFS mounted at %s. %s", ioRoot, e.getMessage()), e);
+        }
+    }
+
+    /** Stops watching of directories of mount point. */
+    void remove(FSMountPoint mountPoint) {
+        if (mountPoints.remove(mountPoint) != null) {
+            for (Iterator<WatchedDirectory> iterator = directories.values().iterator(); iterator.hasNext(); ) {
+                final WatchedDirectory directory = iterator.next();
+                if (directory.mountPoint == mountPoint) {
+                    iterator.remove();
+                    final WatchKey key = keys.remove(directory.ioPath);
+                    if (key != null) {
+                        key.cancel();
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+            watchService = null;
+        }
+        directories.clear();
+        keys.clear();
+        mountPoints.clear();
+    }
+
+    private synchronized WatchService start() throws IOException {
+        if (watchService == null) {
+            final WatchService newWatchService = FileSystems.getDefault().newWatchService();
+            final Thread newThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    watch(newWatchService);
+                }
+            }, "MountPointWatcher");
+            newThread.setDaemon(true);
+            newThread.start();
+            watchService = newWatchService;
+            thread = newThread;
+            LOG.info("VFS watcher started.");
+        }
+        return watchService;
+    }
+
+    private void watch(WatchService myWatchService) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = myWatchService.take();
+                final Map<FSMountPoint, Changes> changes = new LinkedHashMap<>();
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceDelay);
+                while (key != null) {
+                    collect(myWatchService, key, changes);
+                    final long remaining = deadline - System.nanoTime();
+                    key = remaining > 0 ? myWatchService.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                }
+                for (Map.Entry<FSMountPoint, Changes> e : changes.entrySet()) {
+                    try {
+                        apply(myWatchService, e.getKey(), e.getValue());
+                    } catch (RuntimeException re) {
+                        LOG.error(re.getMessage(), re);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Stopped.
+        }
+        LOG.info("VFS watcher stopped.");
+    }
+
+    private void collect(WatchService myWatchService, WatchKey key, Map<FSMountPoint, Changes> changes) {
+        final WatchedDirectory directory = directories.get(key);
+        final List<WatchEvent<?>> events = key.pollEvents();
+        final boolean valid = key.reset();
+        if (directory == null || !mountPoints.containsKey(directory.mountPoint)) {
+            return;
+        }
+        Changes myChanges = changes.get(directory.mountPoint);
+        if (myChanges == null) {
+            changes.put(directory.mountPoint, myChanges = new Changes());
+        }
+        // Directory is removed or is not accessible anymore. Keep it registered until events of its parent are processed.
+        myChanges.invalidKeys |= !valid;
+        for (WatchEvent<?> event : events) {
+            final WatchEvent.Kind<?> kind = event.kind();
+            if (kind == OVERFLOW) {
+                myChanges.overflow = true;
+                continue;
+            }
+            final String name = event.context().toString();
+            switch (directory.content) {
+                case ITEMS:
+                    if (FSMountPoint.SERVICE_DIR.equals(name)) {
+                        if (kind == ENTRY_CREATE) {
+                            registerServiceDirectory(myWatchService, directory.mountPoint, directory.ioPath.resolve(name), directory.path, true);
+                        }
+                    } else if (!GIT_DIR.equals(name)) {
+                        final Path path = directory.path.newPath(name);
+                        final ItemEvents itemEvents = myChanges.items.get(path);
+                        if (itemEvents == null) {
+                            myChanges.items.put(path, new ItemEvents(kind));
+                        } else if (kind == ENTRY_DELETE) {
+                            itemEvents.deleted = true;
+                        }
+                    }
+                    break;
+                case SERVICE:
+                    if (kind == ENTRY_CREATE) {
+                        final Content content = getServiceContent(name);
+                        if (content != null) {
+                            registerCreatedServiceDirectory(myWatchService, directory.mountPoint, directory.path, directory.ioPath.resolve(name),
+                                                            content);
+                        }
+                    }
+                    break;
+                case ACL:
+                case LOCKS:
+                case PROPS:
+                    invalidateItemData(directory.mountPoint, directory.path, name, directory.content);
+                    break;
+            }
+        }
+    }
+
+    private void invalidateItemData(FSMountPoint mountPoint, Path parent, String name, Content content) {
+        final String suffix = getFileSuffix(content);
+        if (name.endsWith(suffix)) {
+            final String itemName = name.substring(0, name.length() - suffix.length());
+            // ACL, lock and properties of root folder are stored in files with empty item name.
+            mountPoint.invalidateItemData(itemName.isEmpty() ? parent : parent.newPath(itemName));
+        }
+    }
+
+    private void apply(WatchService myWatchService, FSMountPoint mountPoint, Changes changes) {
+        final java.nio.file.Path ioRoot = mountPoints.get(mountPoint);
+        if (ioRoot == null) {
+            return;
+        }
+        if (changes.overflow) {
+            // Some events are lost. Forget everything that is cached and make sure all directories are watched.
+            LOG.warn("Too many changes in VFS mounted at {}, reset its cache. ", ioRoot);
+            mountPoint.reset();
+            registerTree(myWatchService, mountPoint, ioRoot, ioRoot);
+        }
+        // Parents go before their children. Created or removed folder covers all its descendants.
+        final List<Path> paths = new ArrayList<>(changes.items.keySet());
+        Collections.sort(paths, PARENTS_FIRST);
+        final Set<Path> covered = new HashSet<>();
+        for (Path path : paths) {
+            if (isCovered(path, covered)) {
+                continue;
+            }
+            final ItemEvents itemEvents = changes.items.get(path);
+            final java.nio.file.Path ioPath = ioRoot.resolve(toRelativeIoPath(path));
+            final boolean wasFolder = keys.containsKey(ioPath);
+            final boolean exists = Files.exists(ioPath);
+            final boolean folder = exists && Files.isDirectory(ioPath);
+            // Item existed before if the first event is not creation. If it was deleted and exists now then it is replaced.
+            final boolean replaced = exists && (wasFolder || !itemEvents.created) && (itemEvents.deleted || folder != wasFolder);
+            if (wasFolder && (!folder || replaced)) {
+                unregisterTree(ioPath);
+                covered.add(path);
+            }
+            if (folder && (!wasFolder || replaced)) {
+                registerTree(myWatchService, mountPoint, ioRoot, ioPath);
+                covered.add(path);
+            }
+            if (mountPoint.isChangedThroughMountPoint(path)) {
+                // Already handled by mount point itself.
+                continue;
+            }
+            if (!exists) {
+                if (!itemEvents.created || wasFolder) {
+                    mountPoint.externalDeleted(path, wasFolder);
+                }
+            } else if (replaced) {
+                if (folder || wasFolder) {
+                    mountPoint.externalDeleted(path, wasFolder);
+                    mountPoint.externalCreated(path, folder);
+                } else {
+                    mountPoint.externalUpdated(path);
+                }
+            } else if (itemEvents.created) {
+                mountPoint.externalCreated(path, folder);
+            } else if (!folder) {
+                mountPoint.externalUpdated(path);
+            }
+        }
+        if (changes.invalidKeys) {
+            for (Iterator<Map.Entry<WatchKey, WatchedDirectory>> iterator = directories.entrySet().iterator(); iterator.hasNext(); ) {
+                final Map.Entry<WatchKey, WatchedDirectory> e = iterator.next();
+                if (!e.getKey().isValid()) {
+                    iterator.remove();
+                    keys.remove(e.getValue().ioPath, e.getKey());
+                }
+            }
+        }
+    }
+
+    private boolean isCovered(Path path, Set<Path> covered) {
+        for (Path parent = path.getParent(); parent != null && !parent.isRoot(); parent = parent.getParent()) {
+            if (covered.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unregisterTree(java.nio.file.Path root) {
+        for (Iterator<Map.Entry<java.nio.file.Path, WatchKey>> iterator = keys.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<java.nio.file.Path, WatchKey> e = iterator.next();
+            if (e.getKey().startsWith(root)) {
+                iterator.remove();
+                directories.remove(e.getValue());
+                e.getValue().cancel();
+            }
+        }
+    }
+
+    private void registerTree(final WatchService myWatchService,
+                              final FSMountPoint mountPoint,
+                              final java.nio.file.Path ioRoot,
+                              final java.nio.file.Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<java.nio.file.Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) throws IOException {
+                    final java.nio.file.Path name = dir.getFileName();
+                    if (!dir.equals(ioRoot) && name != null) {
+                        if (GIT_DIR.equals(name.toString())) {
+                            // Do not watch internals of git repository, e.g. objects and index. They change a lot but never shown to user.
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (FSMountPoint.SERVICE_DIR.equals(name.toString())) {
+                            registerServiceDirectory(myWatchService, mountPoint, dir, toVfsPath(ioRoot, dir.getParent()), false);
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                    }
+                    register(myWatchService, mountPoint, toVfsPath(ioRoot, dir), dir, Content.ITEMS);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(java.nio.file.Path file, IOException e) {
+                    LOG.debug(e.getMessage(), e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.error(String.format("Unable watch directory %s. %s", start, e.getMessage()), e);
+        }
+    }
+
+    private void registerServiceDirectory(WatchService myWatchService,
+                                          FSMountPoint mountPoint,
+                                          java.nio.file.Path ioPath,
+                                          Path path,
+                                          boolean created) {
+        register(myWatchService, mountPoint, path, ioPath, Content.SERVICE);
+        for (String name : new String[]{ACL_DIR, LOCKS_DIR, PROPS_DIR}) {
+            final java.nio.file.Path child = ioPath.resolve(name);
+            if (Files.isDirectory(child)) {
+                if (created) {
+                    registerCreatedServiceDirectory(myWatchService, mountPoint, path, child, getServiceContent(name));
+                } else {
+                    register(myWatchService, mountPoint, path, child, getServiceContent(name));
+                }
+            }
+        }
+    }
+
+    /* Files may be added in new directory before we start watching it. Forget cached data of items which have such files. */
+    private void registerCreatedServiceDirectory(WatchService myWatchService,
+                                                 FSMountPoint mountPoint,
+                                                 Path path,
+                                                 java.nio.file.Path ioPath,
+                                                 Content content) {
+        register(myWatchService, mountPoint, path, ioPath, content);
+        try (DirectoryStream<java.nio.file.Path> files = Files.newDirectoryStream(ioPath)) {
+            for (java.nio.file.Path file : files) {
+                invalidateItemData(mountPoint, path, file.getFileName().toString(), content);
+            }
+        } catch (IOException e) {
+            LOG.debug(e.getMessage(), e);
+        }
+    }
+
+    private void register(WatchService myWatchService, FSMountPoint mountPoint, Path path, java.nio.file.Path ioPath, Content content) {
+        try {
+            final WatchKey key = ioPath.register(myWatchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            directories.put(key, new WatchedDirectory(mountPoint, path, ioPath, content));
+            keys.put(ioPath, key);
+        } catch (IOException e) {
+            // May happen if directory is removed or limit of watched directories is reached.
+            LOG.warn("Unable watch directory {}. {}", ioPath, e.getMessage());
+        } catch (ClosedWatchServiceException ignored) {
+            // Stopped.
+        }
+    }
+
+    private static String getFileSuffix(Content content) {
+        switch (content) {
+            case ACL:
+                return FSMountPoint.ACL_FILE_SUFFIX;
+            case LOCKS:
+                return FSMountPoint.LOCK_FILE_SUFFIX;
+            case PROPS:
+                return FSMountPoint.PROPERTIES_FILE_SUFFIX;
+            default:
+                throw new IllegalArgumentException(content.name());
+        }
+    }
+
+    private static Content getServiceContent(String name) {
+        if (ACL_DIR.equals(name)) {
+            return Content.ACL;
+        }
+        if (LOCKS_DIR.equals(name)) {
+            return Content.LOCKS;
+        }
+        if (PROPS_DIR.equals(name)) {
+            return Content.PROPS;
+        }
+        return null;
+    }
+
+    private static Path toVfsPath(java.nio.file.Path ioRoot, java.nio.file.Path ioPath) {
+        final String relative = ioRoot.relativize(ioPath).toString();
+        return Path.fromString('/' == java.io.File.separatorChar ? relative : relative.replace(java.io.File.separatorChar, '/'));
+    }
+
+    private static String toRelativeIoPath(Path path) {
+        return path.isRoot() ? "" : path.join(java.io.File.separatorChar).substring(1);
+    }
+
+    public static class Finalizer {
+        @PreDestroy
+        void stop() {
+            INSTANCE.stop();
+        }
+    }
+}
@@ -0,0 +1,769 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes zip archive directly to the output stream and compresses content of files in parallel. Content of each file is split into
+ * chunks which are deflated independently in the shared pool of threads. Each chunk except the first one uses the last 32K of the
+ * previous chunk as dictionary and each chunk except the last one is ended with sync flush, so concatenated chunks make valid deflate
+ * stream, as pigz does. Chunks are written in the order they were added. Number of chunks in progress is limited so memory used by
+ * writer does not depend on size of archived files.
+ * <p/>
+ * Content of files that are compressed already, e.g. images or archives, is stored without compression.
+ * <p/>
+ * Zip64 extensions are used when size of files or archive exceeds limits of regular zip format. Instance of this class is not thread
+ * safe.
+ *
+ * @author andrew00x
+ */
+final class ParallelZipWriter {
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    private static final int DICTIONARY_SIZE  = 32 * 1024;
+    private static final int CRC_BUFFER_SIZE  = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int  LOCAL_HEADER_SIG        = 0x04034b50;
+    private static final int  DATA_DESCRIPTOR_SIG     = 0x08074b50;
+    private static final int  CENTRAL_HEADER_SIG      = 0x02014b50;
+    private static final int  ZIP64_END_SIG           = 0x06064b50;
+    private static final int  ZIP64_END_LOCATOR_SIG   = 0x07064b50;
+    private static final int  END_SIG                 = 0x06054b50;
+    private static final int  ZIP64_EXTRA_ID          = 0x0001;
+    private static final int  FLAG_DATA_DESCRIPTOR    = 1 << 3;
+    private static final int  FLAG_UTF8               = 1 << 11;
+    private static final int  VERSION                 = 20;
+    private static final int  VERSION_ZIP64           = 45;
+    private static final long ZIP64_MAGIC             = 0xFFFFFFFFL;
+    private static final int  ZIP64_MAGIC_COUNT       = 0xFFFF;
+    private static final int  STORED                  = 0;
+    private static final int  DEFLATED                = 8;
+    private static final int  DIRECTORY_ATTRIBUTE     = 0x10;
+
+    private static volatile ExecutorService sharedExecutor;
+
+    /** Gets shared pool of threads that compress content of files. Pool has as many threads as there are available processors. */
+    static ExecutorService getSharedExecutor() {
+        ExecutorService executor = sharedExecutor;
+        if (executor == null) {
+            synchronized (ParallelZipWriter.class) {
+                executor = sharedExecutor;
+                if (executor == null) {
+                    sharedExecutor = executor = Executors.newFixedThreadPool(
+                            Runtime.getRuntime().availableProcessors(),
+                            new ThreadFactoryBuilder().setNameFormat("LocalVirtualFileSystem-Zip-%d").setDaemon(true).build());
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Checks is content of specified media type compressed already so it's useless to compress it again.
+     *
+     * @param mediaType
+     *         media type of file
+     * @return {@code true} if content of file should be stored in zip as is
+     */
+    static boolean isCompressed(String mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        final String type = mediaType.toLowerCase();
+        if (type.startsWith("image/")) {
+            return !(type.startsWith("image/svg") || type.startsWith("image/bmp") || type.startsWith("image/x-ms-bmp")
+                     || type.startsWith("image/tiff"));
+        }
+        if (type.startsWith("video/") || type.startsWith("audio/")) {
+            return !(type.startsWith("audio/wav") || type.startsWith("audio/x-wav"));
+        }
+        switch (type) {
+            case "application/zip":
+            case "application/x-zip-compressed":
+            case "application/java-archive":
+            case "application/x-java-archive":
+            case "application/gzip":
+            case "application/x-gzip":
+            case "application/x-compressed-tar":
+            case "application/x-bzip2":
+            case "application/x-xz":
+            case "application/x-7z-compressed":
+            case "application/x-rar-compressed":
+            case "application/pdf":
+            case "application/vnd.android.package-archive":
+                return true;
+        }
+        return false;
+    }
+
+    private final CountingOutputStream out;
+    private final ExecutorService      executor;
+    private final int                  maxPendingParts;
+    private final ArrayDeque<Part>     pending;
+    private final List<Entry>          entries;
+
+    private boolean finished;
+
+    /**
+     * @param out
+     *         output for zip archive, it isn't closed by this writer
+     * @param executor
+     *         executor for compression of content of files
+     * @param parallelism
+     *         number of chunks of content that are compressed simultaneously
+     */
+    ParallelZipWriter(OutputStream out, ExecutorService executor, int parallelism) {
+        this.out = new CountingOutputStream(out);
+        this.executor = executor;
+        // Keep more chunks in progress than threads in pool, small files are compressed faster than written.
+        this.maxPendingParts = Math.max(1, parallelism) * 4;
+        pending = new ArrayDeque<>();
+        entries = new ArrayList<>();
+    }
+
+    /**
+     * Adds entry for folder.
+     *
+     * @param name
+     *         name of entry, must not end with '/'
+     * @param time
+     *         modification time of folder
+     */
+    void putFolder(String name, long time) throws IOException {
+        final Entry entry = new Entry(name + '/', time, STORED, 0, false);
+        entry.external = DIRECTORY_ATTRIBUTE;
+        addPart(new StoredPart(entry, null, null));
+    }
+
+    /**
+     * Adds entry for file. Writer takes ownership of the channel and closes it after content is written. Archive gets as many bytes of
+     * content as the file had when this method is called. Content is read with absolute positions, so the channel of file that is
+     * replaced on update, instead of rewritten in place, provides consistent content even if file is updated while archive is created.
+     *
+     * @param name
+     *         name of entry
+     * @param time
+     *         modification time of file
+     * @param channel
+     *         channel to read content of file
+     * @param compress
+     *         if {@code false} content is stored in zip as is
+     */
+    void putFile(String name, long time, FileChannel channel, boolean compress) throws IOException {
+        final long length;
+        try {
+            length = channel.size();
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        if (!compress) {
+            final Entry entry = new Entry(name, time, STORED, length, false);
+            addPart(new StoredPart(entry, channel, executor.submit(new ChecksumTask(channel, length))));
+            return;
+        }
+        final Entry entry = new Entry(name, time, DEFLATED, length, true);
+        // Local header of deflated entry is written at once, checksum and sizes are written after content in data descriptor.
+        addPart(new LocalHeaderPart(entry));
+        long position = 0;
+        do {
+            final int chunkLength = (int)Math.min(CHUNK_SIZE, length - position);
+            final boolean last = position + chunkLength == length;
+            final Future<DeflatedChunk> chunk = executor.submit(new DeflateTask(channel, position, chunkLength, last));
+            addPart(new DeflatedPart(entry, last ? channel : null, chunk));
+            position += chunkLength;
+        } while (position < length);
+    }
+
+    /**
+     * Writes the rest of entries and central directory of the archive. Underlying stream is flushed but not closed.
+     *
+     * @throws IOException
+     *         if any i/o error occurs
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        while (!pending.isEmpty()) {
+            writePart(pending.poll());
+        }
+        writeCentralDirectory();
+        out.flush();
+        finished = true;
+    }
+
+    /** Cancels compression of entries that are not written yet and releases all resources. Does nothing if writer is finished. */
+    void abort() {
+        Part part;
+        while ((part = pending.poll()) != null) {
+            part.cancel();
+        }
+        finished = true;
+    }
+
+    private void addPart(Part part) throws IOException {
+        if (finished) {
+            part.cancel();
+            throw new IOException("Zip is finished. ");
+        }
+        pending.add(part);
+        while (pending.size() > maxPendingParts) {
+            writePart(pending.poll());
+        }
+    }
+
+    private void writePart(Part part) throws IOException {
+        try {
+            part.write();
+        } catch (IOException | RuntimeException e) {
+            part.cancel();
+            throw e;
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.offset = out.count;
+        // Use zip64 extra field in local header if size of entry may exceed the limit of regular zip format.
+        final boolean zip64 = entry.length >= ZIP64_MAGIC;
+        final ByteBuffer header = newBuffer(30 + entry.name.length + (zip64 ? 20 : 0));
+        header.putInt(LOCAL_HEADER_SIG);
+        header.putShort((short)(zip64 ? VERSION_ZIP64 : VERSION));
+        header.putShort((short)entry.flags);
+        header.putShort((short)entry.method);
+        header.putInt((int)entry.dosTime);
+        if (entry.hasDataDescriptor()) {
+            header.putInt(0);
+            header.putInt(zip64 ? (int)ZIP64_MAGIC : 0);
+            header.putInt(zip64 ? (int)ZIP64_MAGIC : 0);
+        } else {
+            header.putInt((int)entry.crc);
+            header.putInt(zip64 ? (int)ZIP64_MAGIC : (int)entry.compressedSize);
+            header.putInt(zip64 ? (int)ZIP64_MAGIC : (int)entry.size);
+        }
+        header.putShort((short)entry.name.length);
+        header.putShort((short)(zip64 ? 20 : 0));
+        header.put(entry.name);
+        if (zip64) {
+            header.putShort((short)ZIP64_EXTRA_ID);
+            header.putShort((short)16);
+            header.putLong(entry.hasDataDescriptor() ? 0 : entry.size);
+            header.putLong(entry.hasDataDescriptor() ? 0 : entry.compressedSize);
+        }
+        write(header);
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        // Readers expect eight-bytes sizes if any of sizes exceeds the limit of regular zip format.
+        final boolean zip64 = entry.length >= ZIP64_MAGIC || entry.size > ZIP64_MAGIC || entry.compressedSize > ZIP64_MAGIC;
+        final ByteBuffer descriptor = newBuffer(zip64 ? 24 : 16);
+        descriptor.putInt(DATA_DESCRIPTOR_SIG);
+        descriptor.putInt((int)entry.crc);
+        if (zip64) {
+            descriptor.putLong(entry.compressedSize);
+            descriptor.putLong(entry.size);
+        } else {
+            descriptor.putInt((int)entry.compressedSize);
+            descriptor.putInt((int)entry.size);
+        }
+        write(descriptor);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        final long start = out.count;
+        for (Entry entry : entries) {
+            final boolean zip64Size = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+            final boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+            final int extraLength = zip64Size || zip64Offset ? 4 + (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0) : 0;
+            final ByteBuffer header = newBuffer(46 + entry.name.length + extraLength);
+            final int version = extraLength > 0 ? VERSION_ZIP64 : VERSION;
+            header.putInt(CENTRAL_HEADER_SIG);
+            header.putShort((short)version);
+            header.putShort((short)version);
+            header.putShort((short)entry.flags);
+            header.putShort((short)entry.method);
+            header.putInt((int)entry.dosTime);
+            header.putInt((int)entry.crc);
+            header.putInt(zip64Size ? (int)ZIP64_MAGIC : (int)entry.compressedSize);
+            header.putInt(zip64Size ? (int)ZIP64_MAGIC : (int)entry.size);
+            header.putShort((short)entry.name.length);
+            header.putShort((short)extraLength);
+            header.putShort((short)0); // comment length
+            header.putShort((short)0); // disk number
+            header.putShort((short)0); // internal attributes
+            header.putInt(entry.external);
+            header.putInt(zip64Offset ? (int)ZIP64_MAGIC : (int)entry.offset);
+            header.put(entry.name);
+            if (extraLength > 0) {
+                header.putShort((short)ZIP64_EXTRA_ID);
+                header.putShort((short)(extraLength - 4));
+                if (zip64Size) {
+                    header.putLong(entry.size);
+                    header.putLong(entry.compressedSize);
+                }
+                if (zip64Offset) {
+                    header.putLong(entry.offset);
+                }
+            }
+            write(header);
+        }
+        final long end = out.count;
+        final long size = end - start;
+        final int count = entries.size();
+        if (count >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC) {
+            final ByteBuffer zip64End = newBuffer(56 + 20);
+            zip64End.putInt(ZIP64_END_SIG);
+            zip64End.putLong(44);
+            zip64End.putShort((short)VERSION_ZIP64);
+            zip64End.putShort((short)VERSION_ZIP64);
+            zip64End.putInt(0); // number of this disk
+            zip64End.putInt(0); // disk with central directory
+            zip64End.putLong(count);
+            zip64End.putLong(count);
+            zip64End.putLong(size);
+            zip64End.putLong(start);
+            zip64End.putInt(ZIP64_END_LOCATOR_SIG);
+            zip64End.putInt(0);
+            zip64End.putLong(end);
+            zip64End.putInt(1);
+            write(zip64End);
+        }
+        final ByteBuffer endRecord = newBuffer(22);
+        endRecord.putInt(END_SIG);
+        endRecord.putShort((short)0);
+        endRecord.putShort((short)0);
+        endRecord.putShort((short)Math.min(count, ZIP64_MAGIC_COUNT));
+        endRecord.putShort((short)Math.min(count, ZIP64_MAGIC_COUNT));
+        endRecord.putInt((int)Math.min(size, ZIP64_MAGIC));
+        endRecord.putInt((int)Math.min(start, ZIP64_MAGIC));
+        endRecord.putShort((short)0);
+        write(endRecord);
+    }
+
+    private void transfer(FileChannel channel, long length) throws IOException {
+        // Transfer exactly as many bytes as announced in local header even if file grows after it was added.
+        final WritableByteChannel target = Channels.newChannel(out);
+        long position = 0;
+        while (position < length) {
+            final long transferred = channel.transferTo(position, length - position, target);
+            if (transferred <= 0) {
+                // No progress, e.g. file is truncated or target doesn't accept bytes at the moment. Copy the rest through the heap buffer.
+                copy(channel, position, length);
+                return;
+            }
+            position += transferred;
+        }
+    }
+
+    private void copy(FileChannel channel, long position, long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), length - position));
+            final int r = channel.read(buffer, position);
+            if (r == -1) {
+                throw new EOFException("File was truncated while it is read. ");
+            }
+            out.write(buffer.array(), 0, r);
+            position += r;
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void readFully(FileChannel channel, long position, byte[] buff, int offset, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(buff, offset, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - offset) == -1) {
+                throw new EOFException("File was truncated while it is read. ");
+            }
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static long toDosTime(long time) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        final int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+               | (calendar.get(Calendar.MONTH) + 1) << 21
+               | calendar.get(Calendar.DAY_OF_MONTH) << 16
+               | calendar.get(Calendar.HOUR_OF_DAY) << 11
+               | calendar.get(Calendar.MINUTE) << 5
+               | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    /*
+     * Combines checksums of two sequential blocks of data, port of crc32_combine from zlib. Lets compute checksum of chunks of file
+     * in parallel.
+     */
+    static long combineCrc(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+        // Operator for one zero bit.
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Operators for two and four zero bits.
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+        long len = length2;
+        do {
+            // Apply zeros operator for this bit of length.
+            gf2MatrixSquare(even, odd);
+            if ((len & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len >>= 1;
+            if (len == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len >>= 1;
+        } while (len != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        while (vector != 0) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            vector >>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+
+    private static final class Entry {
+        final byte[] name;
+        final long   dosTime;
+        final int    method;
+        final int    flags;
+        /** Length of file at the moment when entry was added. */
+        final long   length;
+
+        int  external;
+        long crc;
+        long size;
+        long compressedSize;
+        long offset;
+
+        Entry(String name, long time, int method, long length, boolean dataDescriptor) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.dosTime = toDosTime(time);
+            this.method = method;
+            this.length = length;
+            this.flags = FLAG_UTF8 | (dataDescriptor ? FLAG_DATA_DESCRIPTOR : 0);
+        }
+
+        boolean hasDataDescriptor() {
+            return (flags & FLAG_DATA_DESCRIPTOR) != 0;
+        }
+    }
+
+
+    /** Part of archive. Parts are written in the same order they were added to the writer. */
+    private abstract class Part {
+        abstract void write() throws IOException;
+
+        abstract void cancel();
+    }
+
+
+    private final class LocalHeaderPart extends Part {
+        final Entry entry;
+
+        LocalHeaderPart(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        void write() throws IOException {
+            writeLocalHeader(entry);
+            entries.add(entry);
+        }
+
+        @Override
+        void cancel() {
+        }
+    }
+
+
+    private final class DeflatedPart extends Part {
+        final Entry                 entry;
+        final FileChannel           channel;
+        final Future<DeflatedChunk> chunk;
+
+        /**
+         * @param channel
+         *         channel that is closed when this part is written or cancelled, must be set for the last part of entry only
+         */
+        DeflatedPart(Entry entry, FileChannel channel, Future<DeflatedChunk> chunk) {
+            this.entry = entry;
+            this.channel = channel;
+            this.chunk = chunk;
+        }
+
+        @Override
+        void write() throws IOException {
+            final DeflatedChunk result = getResult(chunk);
+            out.write(result.data, 0, result.dataLength);
+            entry.crc = combineCrc(entry.crc, result.crc, result.length);
+            entry.size += result.length;
+            entry.compressedSize += result.dataLength;
+            if (channel != null) {
+                closeQuietly(channel);
+                writeDataDescriptor(entry);
+            }
+        }
+
+        @Override
+        void cancel() {
+            chunk.cancel(false);
+            closeQuietly(channel);
+        }
+    }
+
+
+    private final class StoredPart extends Part {
+        final Entry        entry;
+        final FileChannel  channel;
+        final Future<Long> checksum;
+
+        StoredPart(Entry entry, FileChannel channel, Future<Long> checksum) {
+            this.entry = entry;
+            this.channel = channel;
+            this.checksum = checksum;
+        }
+
+        @Override
+        void write() throws IOException {
+            try {
+                if (checksum != null) {
+                    entry.crc = getResult(checksum);
+                }
+                entry.size = entry.compressedSize = entry.length;
+                writeLocalHeader(entry);
+                entries.add(entry);
+                if (channel != null) {
+                    transfer(channel, entry.length);
+                }
+            } finally {
+                closeQuietly(channel);
+            }
+        }
+
+        @Override
+        void cancel() {
+            if (checksum != null) {
+                checksum.cancel(false);
+            }
+            closeQuietly(channel);
+        }
+    }
+
+
+    private static final class DeflatedChunk {
+        final byte[] data;
+        final int    dataLength;
+        final long   crc;
+        final int    length;
+
+        DeflatedChunk(byte[] data, int dataLength, long crc, int length) {
+            this.data = data;
+            this.dataLength = dataLength;
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+
+
+    private static final class DeflateTask implements Callable<DeflatedChunk> {
+        final FileChannel channel;
+        final long        position;
+        final int         length;
+        final boolean     last;
+
+        DeflateTask(FileChannel channel, long position, int length, boolean last) {
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+            this.last = last;
+        }
+
+        @Override
+        public DeflatedChunk call() throws IOException {
+            final int dictionaryLength = (int)Math.min(DICTIONARY_SIZE, position);
+            final byte[] input = new byte[dictionaryLength + length];
+            readFully(channel, position - dictionaryLength, input, 0, input.length);
+            final CRC32 crc = new CRC32();
+            crc.update(input, dictionaryLength, length);
+            final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                if (dictionaryLength > 0) {
+                    deflater.setDictionary(input, 0, dictionaryLength);
+                }
+                deflater.setInput(input, dictionaryLength, length);
+                final int flush;
+                if (last) {
+                    deflater.finish();
+                    flush = Deflater.NO_FLUSH;
+                } else {
+                    flush = Deflater.SYNC_FLUSH;
+                }
+                byte[] output = new byte[length + (length >> 8) + 64];
+                int outputLength = 0;
+                for (; ; ) {
+                    if (outputLength == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    final int space = output.length - outputLength;
+                    final int deflated = deflater.deflate(output, outputLength, space, flush);
+                    outputLength += deflated;
+                    if (last ? deflater.finished() : deflated < space) {
+                        break;
+                    }
+                }
+                return new DeflatedChunk(output, outputLength, crc.getValue(), length);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+
+    private static final class ChecksumTask implements Callable<Long> {
+        final FileChannel channel;
+        final long        length;
+
+        ChecksumTask(FileChannel channel, long length) {
+            this.channel = channel;
+            this.length = length;
+        }
+
+        @Override
+        public Long call() throws IOException {
+            final CRC32 crc = new CRC32();
+            final byte[] buff = new byte[CRC_BUFFER_SIZE];
+            long position = 0;
+            while (position < length) {
+                final int r = (int)Math.min(buff.length, length - position);
+                readFully(channel, position, buff, 0, r);
+                crc.update(buff, 0, r);
+                position += r;
+            }
+            return crc.getValue();
+        }
+    }
+
+
+    private static final class CountingOutputStream extends OutputStream {
+        final OutputStream out;
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.eclipse.che.api.vfs.shared.dto.Property;
 import org.eclipse.che.commons.lang.Pair;
 
 import java.io.InputStream;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -45,11 +46,19 @@ public class VirtualFileImpl implements VirtualFile {
     private final Path         path;
     private final FSMountPoint mountPoint;
 
+    /* Attributes read together with listing of parent directory. If null then file system is asked directly. */
+    private volatile BasicFileAttributes attributes;
+
     VirtualFileImpl(java.io.File ioFile, Path path, String id, FSMountPoint mountPoint) {
+        this(ioFile, path, id, mountPoint, null);
+    }
+
+    VirtualFileImpl(java.io.File ioFile, Path path, String id, FSMountPoint mountPoint, BasicFileAttributes attributes) {
         this.ioFile = ioFile;
         this.path = path;
         this.id = id;
         this.mountPoint = mountPoint;
+        this.attributes = attributes;
     }
 
     @Override
@@ -84,12 +93,14 @@ public class VirtualFileImpl implements VirtualFile {
 
     @Override
     public boolean isFile() {
-        return getIoFile().isFile();
+        final BasicFileAttributes myAttributes = attributes;
+        return myAttributes == null ? getIoFile().isFile() : myAttributes.isRegularFile();
     }
 
     @Override
     public boolean isFolder() {
-        return getIoFile().isDirectory();
+        final BasicFileAttributes myAttributes = attributes;
+        return myAttributes == null ? getIoFile().isDirectory() : myAttributes.isDirectory();
     }
 
     @Override
@@ -148,12 +159,14 @@ public class VirtualFileImpl implements VirtualFile {
 
     @Override
     public long getLastModificationDate() {
-        return getIoFile().lastModified();
+        final BasicFileAttributes myAttributes = attributes;
+        return myAttributes == null ? getIoFile().lastModified() : myAttributes.lastModifiedTime().toMillis();
     }
 
     @Override
     public long getLength() throws ServerException {
-        return getIoFile().length();
+        final BasicFileAttributes myAttributes = attributes;
+        return myAttributes == null ? getIoFile().length() : myAttributes.size();
     }
 
     //
@@ -330,4 +343,9 @@ public class VirtualFileImpl implements VirtualFile {
     public final java.io.File getIoFile() {
         return ioFile;
     }
+
+    /** Forget attributes read with listing of parent directory. Must be called when this file is changed through this instance. */
+    void resetAttributes() {
+        attributes = null;
+    }
 }
@@ -15,6 +15,7 @@ import javax.inject.Inject;
 import org.eclipse.che.api.vfs.server.SystemPathsFilter;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.api.vfs.server.search.FileNameIndexProvider;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 
 import com.google.inject.AbstractModule;
@@ -30,7 +31,8 @@ public class VirtualFileSystemFSModule extends AbstractModule {
         multibinder.addBinding().to(DefaultVirtualFileFilter.class);
         //bind(LocalFSMountStrategy.class).to(WorkspaceHashLocalFSMountStrategy.class);
         bind(SearcherProvider.class).to(CleanableSearcherProvider.class);
-        bind(MountPointCacheCleaner.Finalizer.class).asEagerSingleton();
+        bind(FileNameIndexProvider.class).to(FSFileNameIndexProvider.class);
+        bind(MountPointWatcher.Finalizer.class).asEagerSingleton();
     }
 
     public static class DefaultVirtualFileFilter implements VirtualFileFilter {
@@ -21,7 +21,8 @@ public class AutoMountVirtualFileSystemRegistryTest extends LocalFileSystemTest
     public void testAutoMount() throws Exception {
         // new registry without any registered vfs providers
         AutoMountVirtualFileSystemRegistry registry =
-                new AutoMountVirtualFileSystemRegistry(new WorkspaceHashLocalFSMountStrategy(root, root), new EventService(), SystemPathsFilter.ANY, null);
+                new AutoMountVirtualFileSystemRegistry(new WorkspaceHashLocalFSMountStrategy(root, root), new EventService(), SystemPathsFilter.ANY,
+                                                       new MountPointConfiguration(), null);
         final VirtualFileSystemProvider fileSystemProvider = registry.getProvider(MY_WORKSPACE_ID);
         assertEquals(MY_WORKSPACE_ID, fileSystemProvider.getWorkspaceId());
     }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.ContentStream;
+import org.eclipse.che.api.vfs.server.LazyIterator;
+import org.eclipse.che.api.vfs.server.VirtualFileSystemImpl;
+import org.eclipse.che.commons.lang.Pair;
+
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Checks MD5 sums of files that are used for differential export of folders.
+ *
+ * @author andrew00x
+ */
+public class ContentHashManifestTest extends LocalFileSystemTest {
+    private String folderPath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "ContentHashManifestTest_Folder");
+        createFile(folderPath, "a.txt", "a".getBytes());
+        final String dir = createDirectory(folderPath, "dir");
+        createFile(dir, "b.txt", "b".getBytes());
+        createFile(dir, "c.txt", "c".getBytes());
+    }
+
+    public void testCountSums() throws Exception {
+        Map<String, String> sums = getSums();
+        assertEquals(3, sums.size());
+        assertEquals(md5("a"), sums.get("a.txt"));
+        assertEquals(md5("b"), sums.get("dir/b.txt"));
+        assertEquals(md5("c"), sums.get("dir/c.txt"));
+        assertTrue(new java.io.File(getIoFile(folderPath), ContentHashManifest.MANIFEST_FILE).isFile());
+    }
+
+    public void testSumsFollowChanges() throws Exception {
+        getSums();
+        mountPoint.getVirtualFile(folderPath + "/a.txt").updateContent(new ByteArrayInputStream("updated".getBytes()), null);
+        mountPoint.getVirtualFile(folderPath + "/dir/b.txt").delete(null);
+        mountPoint.getVirtualFile(folderPath + "/dir").createFile("d.txt", null, new ByteArrayInputStream("d".getBytes()));
+        Map<String, String> sums = getSums();
+        assertEquals(3, sums.size());
+        assertEquals(md5("updated"), sums.get("a.txt"));
+        assertEquals(md5("d"), sums.get("dir/d.txt"));
+        assertFalse(sums.containsKey("dir/b.txt"));
+    }
+
+    public void testOnlyReportedChangesAreCheckedIfChangesAreObserved() throws Exception {
+        java.io.File ioFolder = getIoFile(folderPath);
+        ContentHashManifest manifest = new ContentHashManifest(ioFolder);
+        manifest.getHashSums(true);
+        java.io.File ioFile = new java.io.File(ioFolder, "a.txt");
+        long lastModified = ioFile.lastModified();
+        writeFile(folderPath + "/a.txt", "z".getBytes());
+        assertTrue(ioFile.setLastModified(lastModified));
+        assertEquals(md5("a"), toMap(manifest.getHashSums(true)).get("a.txt"));
+
+        manifest.changed("a.txt");
+        assertEquals(md5("z"), toMap(manifest.getHashSums(true)).get("a.txt"));
+    }
+
+    public void testAllFilesAreCheckedAfterInvalidate() throws Exception {
+        java.io.File ioFolder = getIoFile(folderPath);
+        ContentHashManifest manifest = new ContentHashManifest(ioFolder);
+        manifest.getHashSums(true);
+        writeFile(folderPath + "/dir/b.txt", "updated".getBytes());
+        assertTrue(new java.io.File(ioFolder, "dir/b.txt").setLastModified(System.currentTimeMillis() + 10000));
+        assertEquals(md5("b"), toMap(manifest.getHashSums(true)).get("dir/b.txt"));
+
+        manifest.invalidate();
+        // Changes reported before check of all files aren't needed.
+        manifest.changed("a.txt");
+        assertEquals(md5("updated"), toMap(manifest.getHashSums(true)).get("dir/b.txt"));
+    }
+
+    public void testManifestLoadedFromDiskIsChecked() throws Exception {
+        java.io.File ioFolder = getIoFile(folderPath);
+        new ContentHashManifest(ioFolder).getHashSums(true);
+        writeFile(folderPath + "/dir/c.txt", "updated".getBytes());
+        assertTrue(new java.io.File(ioFolder, "dir/c.txt").setLastModified(System.currentTimeMillis() + 10000));
+        Map<String, String> sums = toMap(new ContentHashManifest(ioFolder).getHashSums(true));
+        assertEquals(3, sums.size());
+        assertEquals(md5("updated"), sums.get("dir/c.txt"));
+    }
+
+    public void testFilesReachedThroughLinksAreChecked() throws Exception {
+        java.io.File ioFolder = getIoFile(folderPath);
+        java.io.File ioTargets = getIoFile(createDirectory(testRootPath, "ContentHashManifestTest_Targets"));
+        java.io.File ioTargetFile = new java.io.File(ioTargets, "target.txt");
+        Files.write(ioTargetFile.toPath(), "t".getBytes());
+        Files.createSymbolicLink(new java.io.File(ioFolder, "link.txt").toPath(), ioTargetFile.toPath());
+        Files.createSymbolicLink(new java.io.File(ioFolder, "linkdir").toPath(), ioTargets.toPath());
+        ContentHashManifest manifest = new ContentHashManifest(ioFolder);
+        Map<String, String> sums = toMap(manifest.getHashSums(true));
+        assertEquals(5, sums.size());
+        assertEquals(md5("t"), sums.get("link.txt"));
+        assertEquals(md5("t"), sums.get("linkdir/target.txt"));
+
+        // Changes of targets of links are not reported.
+        Files.write(ioTargetFile.toPath(), "updated".getBytes());
+        assertTrue(ioTargetFile.setLastModified(System.currentTimeMillis() + 10000));
+        sums = toMap(manifest.getHashSums(true));
+        assertEquals(md5("updated"), sums.get("link.txt"));
+        assertEquals(md5("updated"), sums.get("linkdir/target.txt"));
+    }
+
+    public void testExportChanges() throws Exception {
+        createFile(folderPath + "/dir", "e.txt", "e".getBytes());
+        String remote = md5("old") + "  a.txt\n"
+                        + md5("b") + "  dir/b.txt\n"
+                        + md5("c") + "  dir/c.txt\n"
+                        + md5("x") + "  removed.txt\n";
+        Response response = VirtualFileSystemImpl.exportZip(mountPoint.getVirtualFile(folderPath),
+                                                            new ByteArrayInputStream(remote.getBytes()));
+        assertEquals(200, response.getStatus());
+        assertEquals("[removed.txt]", response.getMetadata().getFirst("x-removed-paths"));
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ((ContentStream)response.getEntity()).transferTo(zip);
+        Set<String> names = new HashSet<>();
+        ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()));
+        ZipEntry zipEntry;
+        while ((zipEntry = zipIn.getNextEntry()) != null) {
+            names.add(zipEntry.getName());
+        }
+        zipIn.close();
+        Set<String> expected = new HashSet<>();
+        expected.add("a.txt");
+        expected.add("dir/");
+        expected.add("dir/e.txt");
+        assertEquals(expected, names);
+    }
+
+    public void testExportNoChanges() throws Exception {
+        String remote = md5("a") + "  a.txt\n" + md5("b") + "  dir/b.txt\n" + md5("c") + "  dir/c.txt\n";
+        Response response = VirtualFileSystemImpl.exportZip(mountPoint.getVirtualFile(folderPath),
+                                                            new ByteArrayInputStream(remote.getBytes()));
+        assertEquals(204, response.getStatus());
+    }
+
+    private Map<String, String> getSums() throws Exception {
+        Map<String, String> sums = new HashMap<>();
+        LazyIterator<Pair<String, String>> iterator = mountPoint.getVirtualFile(folderPath).countMd5Sums();
+        while (iterator.hasNext()) {
+            Pair<String, String> pair = iterator.next();
+            sums.put(pair.second, pair.first);
+        }
+        return sums;
+    }
+
+    private Map<String, String> toMap(List<Pair<String, String>> hashes) {
+        Map<String, String> sums = new HashMap<>();
+        for (Pair<String, String> pair : hashes) {
+            sums.put(pair.second, pair.first);
+        }
+        return sums;
+    }
+
+    private String md5(String content) {
+        return Hashing.md5().hashBytes(content.getBytes()).toString();
+    }
+}
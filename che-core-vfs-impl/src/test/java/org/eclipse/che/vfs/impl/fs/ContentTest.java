@@ -10,10 +10,13 @@
  *******************************************************************************/
 package org.eclipse.che.vfs.impl.fs;
 
+import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
+import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.dto.server.DtoFactory;
 
 import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 
 import org.everrest.core.impl.ContainerResponse;
 import org.everrest.core.tools.ByteArrayContainerResponseWriter;
@@ -22,11 +25,17 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
 
@@ -90,6 +99,19 @@ public class ContentTest extends LocalFileSystemTest {
                      writer.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
     }
 
+    public void testDownloadLargeFile() throws Exception {
+        // Files larger than 200k are streamed from opened file channel.
+        byte[] largeContent = new byte[1024 * 1024];
+        new Random().nextBytes(largeContent);
+        String largeFileId = pathToId(createFile(testRootPath, "ContentTest_LargeFile.bin", largeContent));
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        String requestPath = SERVICE_URI + "downloadfile/" + largeFileId;
+        ContainerResponse response = launcher.service(HttpMethod.GET, requestPath, BASE_URI, null, null, writer, null);
+        assertEquals("Error: " + response.getEntity(), 200, response.getStatus());
+        assertTrue(Arrays.equals(largeContent, writer.getBody()));
+        assertEquals(String.valueOf(largeContent.length), writer.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH).toString());
+    }
+
     public void testGetContentFolder() throws Exception {
         ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
         String requestPath = SERVICE_URI + "content/" + folderId;
@@ -137,6 +159,67 @@ public class ContentTest extends LocalFileSystemTest {
         validateProperties(filePath, expectedProperties);
     }
 
+    public void testUpdateContentDoesNotAffectOpenedContent() throws Exception {
+        byte[] largeContent = new byte[1024 * 1024];
+        new Random().nextBytes(largeContent);
+        String largeFilePath = createFile(testRootPath, "ContentTest_LargeFile.bin", largeContent);
+        VirtualFile file = mountPoint.getVirtualFile(largeFilePath);
+        try (InputStream opened = file.getContent().getStream()) {
+            file.updateContent(new ByteArrayInputStream(updateContent), null);
+            assertTrue(Arrays.equals(updateContent, readFile(largeFilePath)));
+            // Stream opened before update still provides old content.
+            assertTrue(Arrays.equals(largeContent, ByteStreams.toByteArray(opened)));
+        }
+        assertEquals("Temporary files must be removed", 0, new java.io.File(testFsIoRoot, FSMountPoint.TMP_DIR).list().length);
+    }
+
+    public void testConcurrentReadersSeeWholeContent() throws Throwable {
+        final byte[] first = new byte[256 * 1024];
+        final byte[] second = new byte[128 * 1024];
+        Arrays.fill(first, (byte)'a');
+        Arrays.fill(second, (byte)'b');
+        final VirtualFile file = mountPoint.getVirtualFile(createFile(testRootPath, "ContentTest_ConcurrentFile.txt", first));
+        final EnvironmentContext context = EnvironmentContext.getCurrent();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    EnvironmentContext.setCurrent(context);
+                    try {
+                        while (!stop.get()) {
+                            final byte[] read;
+                            try (InputStream in = file.getContent().getStream()) {
+                                read = ByteStreams.toByteArray(in);
+                            }
+                            // Reader gets either old or new content but never mix of them.
+                            if (!(Arrays.equals(first, read) || Arrays.equals(second, read))) {
+                                throw new AssertionError("Partially updated content, length " + read.length);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        try {
+            for (int i = 0; i < 50; i++) {
+                file.updateContent(new ByteArrayInputStream(i % 2 == 0 ? second : first), null);
+            }
+        } finally {
+            stop.set(true);
+            done.await();
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+    }
+
     public void testUpdateContentFolder() throws Exception {
         ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
         String requestPath = SERVICE_URI + "content/" + folderId;
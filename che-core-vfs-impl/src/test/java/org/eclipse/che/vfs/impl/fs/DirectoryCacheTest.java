@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.LazyIterator;
+import org.eclipse.che.api.vfs.server.Path;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.commons.lang.cache.LoadingValueConcurrentLfuCache;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks cache of directory listings of {@link FSMountPoint}.
+ *
+ * @author andrew00x
+ */
+public class DirectoryCacheTest extends LocalFileSystemTest {
+    private String folderPath;
+    private String subFolderPath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "DirectoryCacheTest_Folder");
+        createFile(folderPath, "FILE01", DEFAULT_CONTENT_BYTES);
+        createFile(folderPath, "FILE02", DEFAULT_CONTENT_BYTES);
+        subFolderPath = createDirectory(folderPath, "FOLDER01");
+        createFile(subFolderPath, "FILE03", DEFAULT_CONTENT_BYTES);
+        makeOld(folderPath);
+        makeOld(subFolderPath);
+    }
+
+    public void testListingIsCached() throws Exception {
+        final LoadingValueConcurrentLfuCache<Path, ?> cache = mountPoint.getDirectoryCache();
+        Map<String, VirtualFile> children = getChildren(folderPath);
+        assertTrue(cache.contains(Path.fromString(folderPath)));
+        final long hits = cache.getHitCount();
+
+        children = getChildren(folderPath);
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(3, children.size());
+        assertTrue(children.get("FILE01").isFile());
+        assertFalse(children.get("FILE01").isFolder());
+        assertEquals(DEFAULT_CONTENT_BYTES.length, children.get("FILE01").getLength());
+        assertEquals(getIoFile(folderPath + "/FILE01").lastModified(), children.get("FILE01").getLastModificationDate());
+        assertTrue(children.get("FOLDER01").isFolder());
+    }
+
+    public void testCreateAndDeleteInvalidateListing() throws Exception {
+        getChildren(folderPath);
+        mountPoint.getVirtualFile(folderPath).createFile("FILE04", null, new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+        assertFalse(mountPoint.getDirectoryCache().contains(Path.fromString(folderPath)));
+        assertTrue(getChildren(folderPath).containsKey("FILE04"));
+
+        mountPoint.getVirtualFile(folderPath + "/FILE04").delete(null);
+        assertFalse(getChildren(folderPath).containsKey("FILE04"));
+    }
+
+    public void testUpdateContentInvalidatesListing() throws Exception {
+        getChildren(folderPath);
+        final byte[] content = "updated content".getBytes();
+        mountPoint.getVirtualFile(folderPath + "/FILE01").updateContent(new ByteArrayInputStream(content), null);
+        assertEquals(content.length, getChildren(folderPath).get("FILE01").getLength());
+    }
+
+    public void testDeleteFolderInvalidatesListingsOfSubFolders() throws Exception {
+        getChildren(folderPath);
+        getChildren(subFolderPath);
+        mountPoint.getVirtualFile(folderPath).delete(null);
+        assertFalse(mountPoint.getDirectoryCache().contains(Path.fromString(folderPath)));
+        assertFalse(mountPoint.getDirectoryCache().contains(Path.fromString(subFolderPath)));
+        assertFalse(getChildren(testRootPath).containsKey("DirectoryCacheTest_Folder"));
+    }
+
+    public void testRenameFolderInvalidatesListingsOfSubFolders() throws Exception {
+        getChildren(folderPath);
+        getChildren(subFolderPath);
+        mountPoint.getVirtualFile(subFolderPath).rename("FOLDER02", null, null);
+        assertFalse(mountPoint.getDirectoryCache().contains(Path.fromString(subFolderPath)));
+        final Map<String, VirtualFile> children = getChildren(folderPath);
+        assertFalse(children.containsKey("FOLDER01"));
+        assertTrue(children.containsKey("FOLDER02"));
+        assertTrue(getChildren(folderPath + "/FOLDER02").containsKey("FILE03"));
+    }
+
+    public void testDetectExternalChanges() throws Exception {
+        getChildren(folderPath);
+        createFile(folderPath, "FILE04", DEFAULT_CONTENT_BYTES);
+        // Modification time of directory must differ from the cached one whatever resolution of timestamps is.
+        assertTrue(getIoFile(folderPath).setLastModified(getIoFile(folderPath).lastModified() - 10000));
+        assertTrue(getChildren(folderPath).containsKey("FILE04"));
+    }
+
+    public void testRecentlyModifiedDirectoryIsNotTrusted() throws Exception {
+        getChildren(subFolderPath);
+        createFile(subFolderPath, "FILE04", DEFAULT_CONTENT_BYTES);
+        // Directory just changed, modification time may be the same as before for file systems with low resolution of timestamps.
+        assertTrue(getChildren(subFolderPath).containsKey("FILE04"));
+        createFile(subFolderPath, "FILE05", DEFAULT_CONTENT_BYTES);
+        assertTrue(getChildren(subFolderPath).containsKey("FILE05"));
+    }
+
+    private Map<String, VirtualFile> getChildren(String path) throws Exception {
+        final Map<String, VirtualFile> children = new HashMap<>();
+        final LazyIterator<VirtualFile> iterator = mountPoint.getVirtualFile(path).getChildren(VirtualFileFilter.ALL);
+        while (iterator.hasNext()) {
+            final VirtualFile child = iterator.next();
+            children.put(child.getName(), child);
+        }
+        return children;
+    }
+
+    private void makeOld(String path) {
+        assertTrue(getIoFile(path).setLastModified(System.currentTimeMillis() - 60000));
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.vfs.server.ContentStream;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.commons.lang.ws.rs.ExtMediaType;
+import org.everrest.core.impl.ContainerResponse;
+import org.everrest.core.tools.ByteArrayContainerResponseWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
+
+/**
+ * @author andrew00x
+ */
+public class ExportTest extends LocalFileSystemTest {
+    private String              exportFolderPath;
+    private Map<String, byte[]> expectedFiles;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        exportFolderPath = createDirectory(testRootPath, "ExportTest_Folder");
+        final String folder1 = createDirectory(exportFolderPath, "folder1");
+        final String folder12 = createDirectory(folder1, "folder12");
+        createDirectory(exportFolderPath, "empty");
+
+        // Content that is split in a few chunks, compressible and not compressible parts.
+        final byte[] large = new byte[ParallelZipWriter.CHUNK_SIZE * 3 + 17];
+        final Random random = new Random(7);
+        for (int i = 0; i < large.length; i++) {
+            large[i] = i % 2 == 0 ? (byte)random.nextInt() : (byte)('a' + i % 13);
+        }
+        final byte[] image = new byte[ParallelZipWriter.CHUNK_SIZE + 3];
+        random.nextBytes(image);
+
+        expectedFiles = new HashMap<>();
+        expectedFiles.put("folder1/", null);
+        expectedFiles.put("folder1/folder12/", null);
+        expectedFiles.put("empty/", null);
+        expectedFiles.put("file.txt", DEFAULT_CONTENT_BYTES);
+        expectedFiles.put("empty.txt", new byte[0]);
+        expectedFiles.put("folder1/large.txt", large);
+        expectedFiles.put("folder1/folder12/image.png", image);
+        createFile(exportFolderPath, "file.txt", DEFAULT_CONTENT_BYTES);
+        createFile(exportFolderPath, "empty.txt", new byte[0]);
+        createFile(folder1, "large.txt", large);
+        createFile(folder12, "image.png", image);
+    }
+
+    public void testExportFolder() throws Exception {
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        String path = SERVICE_URI + "export/" + mountPoint.getVirtualFile(exportFolderPath).getId();
+        ContainerResponse response = launcher.service(HttpMethod.GET, path, BASE_URI, null, null, writer, null);
+        assertEquals(200, response.getStatus());
+        assertEquals(ExtMediaType.APPLICATION_ZIP, writer.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        checkZipEntries(new ByteArrayInputStream(writer.getBody()));
+        checkCentralDirectory(writer.getBody());
+    }
+
+    public void testReadExportedZipAsStream() throws Exception {
+        ContentStream zip = mountPoint.getVirtualFile(exportFolderPath).zip(VirtualFileFilter.ALL);
+        assertEquals(-1, zip.getLength());
+        checkZipEntries(zip.getStream());
+    }
+
+    public void testZipToTempFileHasTheSameEntries() throws Exception {
+        ContentStream zip = mountPoint.zipToTempFile(mountPoint.getVirtualFile(exportFolderPath), VirtualFileFilter.ALL);
+        assertTrue(zip.getLength() > 0);
+        checkZipEntries(zip.getStream());
+    }
+
+    public void testCompressedContentIsStored() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mountPoint.getVirtualFile(exportFolderPath).zip(VirtualFileFilter.ALL).transferTo(out);
+        ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+        ZipEntry zipEntry;
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            if (!zipEntry.isDirectory()) {
+                int expectedMethod = zipEntry.getName().endsWith(".png") ? ZipEntry.STORED : ZipEntry.DEFLATED;
+                assertEquals(zipEntry.getName(), expectedMethod, zipEntry.getMethod());
+            }
+        }
+        zip.close();
+    }
+
+    public void testExportFile() throws Exception {
+        String filePath = createFile(exportFolderPath, "export_test_file.txt", DEFAULT_CONTENT_BYTES);
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        String path = SERVICE_URI + "export/" + mountPoint.getVirtualFile(filePath).getId();
+        ContainerResponse response = launcher.service(HttpMethod.GET, path, BASE_URI, null, null, writer, null);
+        assertEquals(403, response.getStatus());
+    }
+
+    private void checkZipEntries(InputStream in) throws Exception {
+        Map<String, byte[]> expected = new HashMap<>(expectedFiles);
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry zipEntry;
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            String name = zipEntry.getName();
+            assertTrue("Not found " + name + " entry in zip. ", expected.containsKey(name));
+            byte[] expectedContent = expected.remove(name);
+            if (expectedContent != null) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                int r;
+                while ((r = zip.read(buf)) != -1) {
+                    content.write(buf, 0, r);
+                }
+                assertTrue("Unexpected content of " + name, Arrays.equals(expectedContent, content.toByteArray()));
+            }
+            zip.closeEntry();
+        }
+        zip.close();
+        assertTrue(expected.isEmpty());
+    }
+
+    private void checkCentralDirectory(byte[] zipBytes) throws Exception {
+        java.io.File zipFile = java.io.File.createTempFile("export", ".zip");
+        try {
+            Files.write(zipFile.toPath(), zipBytes);
+            Map<String, byte[]> expected = new HashMap<>(expectedFiles);
+            try (ZipFile zip = new ZipFile(zipFile)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry zipEntry = entries.nextElement();
+                    byte[] expectedContent = expected.remove(zipEntry.getName());
+                    if (expectedContent != null) {
+                        assertEquals(expectedContent.length, zipEntry.getSize());
+                    }
+                }
+            }
+            assertTrue(expected.isEmpty());
+        } finally {
+            assertTrue(zipFile.delete());
+        }
+    }
+}
@@ -10,17 +10,21 @@
  *******************************************************************************/
 package org.eclipse.che.vfs.impl.fs;
 
+import org.eclipse.che.api.core.ConflictException;
+import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventSubscriber;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.observation.CreateEvent;
 import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
 import org.everrest.core.impl.ContainerResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -116,4 +120,63 @@ public class ImportTest extends LocalFileSystemTest {
 
         assertEquals(0, _events.size());
     }
+
+    public void testImportManyFiles() throws Exception {
+        Random random = new Random(3);
+        List<String> names = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ZipOutputStream zipOut = new ZipOutputStream(bout);
+        for (int i = 0; i < 300; i++) {
+            // Empty, small and large files, large files are not read in memory but written directly from zip.
+            byte[] content = new byte[i % 50 == 0 ? 1024 * 1024 + i : i % 7 == 0 ? 0 : random.nextInt(8192)];
+            random.nextBytes(content);
+            String name = "dir" + (i % 10) + "/file" + i + ".txt";
+            zipOut.putNextEntry(new ZipEntry(name));
+            zipOut.write(content);
+            names.add(name);
+            contents.add(content);
+        }
+        zipOut.close();
+
+        VirtualFile parent = mountPoint.getVirtualFileById(importTestRootId);
+        parent.unzip(new ByteArrayInputStream(bout.toByteArray()), false, 0);
+
+        for (int i = 0; i < names.size(); i++) {
+            VirtualFile file = parent.getChild(names.get(i));
+            assertNotNull(file);
+            assertTrue(Arrays.equals(contents.get(i), readFile(file.getPath())));
+        }
+        // Events are published in the same order as entries in zip.
+        assertEquals(names.size(), events.size());
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(parent.getPath() + "/" + names.get(i), events.get(i).getPath());
+        }
+    }
+
+    public void testImportConflict() throws Exception {
+        VirtualFile parent = mountPoint.getVirtualFileById(importTestRootId);
+        parent.unzip(new ByteArrayInputStream(zipFolder), false, 0);
+        events.clear();
+        try {
+            parent.unzip(new ByteArrayInputStream(zipFolder), false, 0);
+            fail("ConflictException is expected. ");
+        } catch (ConflictException expected) {
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    public void testImportZipBomb() throws Exception {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ZipOutputStream zipOut = new ZipOutputStream(bout);
+        zipOut.putNextEntry(new ZipEntry("bomb.txt"));
+        zipOut.write(new byte[50 * 1024 * 1024]);
+        zipOut.close();
+        VirtualFile parent = mountPoint.getVirtualFileById(importTestRootId);
+        try {
+            parent.unzip(new ByteArrayInputStream(bout.toByteArray()), false, 0);
+            fail("ServerException is expected. ");
+        } catch (ServerException expected) {
+        }
+    }
 }
@@ -136,7 +136,7 @@ public abstract class LocalFileSystemTest extends TestCase {
         assertTrue(new java.io.File(testFsIoRoot, testName).mkdirs());
 
         provider = new LocalFileSystemProvider(MY_WORKSPACE_ID, new WorkspaceHashLocalFSMountStrategy(root, root), new EventService(), null,
-                                               SystemPathsFilter.ANY, virtualFileSystemRegistry);
+                                               SystemPathsFilter.ANY, virtualFileSystemRegistry, createMountPointConfiguration());
         provider.mount(testFsIoRoot);
         mountPoint = provider.getMountPoint(true);
         ROOT_ID = mountPoint.getRoot().getId();
@@ -159,6 +159,16 @@ public abstract class LocalFileSystemTest extends TestCase {
                 , false));
     }
 
+    // Tests prepare data directly on file system. Do not watch such changes, otherwise they are reported with unexpected events.
+    protected MountPointConfiguration createMountPointConfiguration() {
+        return new MountPointConfiguration(MountPointConfiguration.DEFAULT_CACHE_SIZE,
+                                           MountPointConfiguration.DEFAULT_CACHE_SIZE,
+                                           MountPointConfiguration.DEFAULT_CACHE_SIZE,
+                                           MountPointConfiguration.DEFAULT_DIRECTORY_CACHE_SIZE,
+                                           MountPointConfiguration.FsyncPolicy.DATA,
+                                           false);
+    }
+
     // Directory "fs-root" in "target" folder of builder project.
     // It is root where all (but we have only one at the in test) virtual filesystems are bound.
     private java.io.File createRootDirectory() throws Exception {
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.vfs.impl.fs;
+
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that changes made directly on file system are reported by {@link MountPointWatcher}.
+ *
+ * @author andrew00x
+ */
+public class MountPointWatcherTest extends LocalFileSystemTest {
+    private static final long TIMEOUT = 10000;
+
+    private MountPointWatcher                 watcher;
+    private List<VirtualFileEvent>            events;
+    private EventSubscriber<VirtualFileEvent> subscriber;
+    private String                            folderPath;
+    private String                            filePath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        folderPath = createDirectory(testRootPath, "MountPointWatcherTest_Folder");
+        createDirectory(folderPath, "SubFolder");
+        filePath = createFile(testRootPath, "MountPointWatcherTest_File", DEFAULT_CONTENT_BYTES);
+
+        events = Collections.synchronizedList(new ArrayList<VirtualFileEvent>());
+        subscriber = new EventSubscriber<VirtualFileEvent>() {
+            @Override
+            public void onEvent(VirtualFileEvent event) {
+                events.add(event);
+            }
+        };
+        mountPoint.getEventService().subscribe(subscriber);
+        watcher = new MountPointWatcher(100);
+        watcher.add(mountPoint);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        watcher.stop();
+        mountPoint.getEventService().unsubscribe(subscriber);
+        super.tearDown();
+    }
+
+    public void testCreateFile() throws Exception {
+        String path = createFile(folderPath, "NewFile", DEFAULT_CONTENT_BYTES);
+        VirtualFileEvent event = waitForEvent(path);
+        assertEquals(VirtualFileEvent.ChangeType.CREATED, event.getType());
+        assertFalse(event.isFolder());
+    }
+
+    public void testCreateFileInNewFolder() throws Exception {
+        String newFolderPath = createDirectory(folderPath, "NewFolder");
+        VirtualFileEvent event = waitForEvent(newFolderPath);
+        assertEquals(VirtualFileEvent.ChangeType.CREATED, event.getType());
+        assertTrue(event.isFolder());
+
+        String path = createFile(newFolderPath, "NewFile", DEFAULT_CONTENT_BYTES);
+        event = waitForEvent(path);
+        assertEquals(VirtualFileEvent.ChangeType.CREATED, event.getType());
+    }
+
+    public void testUpdateContent() throws Exception {
+        byte[] content = "updated content".getBytes();
+        writeFile(filePath, content);
+        VirtualFileEvent event = waitForEvent(filePath);
+        assertEquals(VirtualFileEvent.ChangeType.CONTENT_UPDATED, event.getType());
+        assertEquals(content.length, mountPoint.getVirtualFile(filePath).getLength());
+    }
+
+    public void testDeleteFolder() throws Exception {
+        assertTrue(deleteRecursive(getIoFile(folderPath)));
+        VirtualFileEvent event = waitForEvent(folderPath);
+        assertEquals(VirtualFileEvent.ChangeType.DELETED, event.getType());
+        assertTrue(event.isFolder());
+        // Deleted sub-folder is covered with event about its parent.
+        Thread.sleep(500);
+        assertEquals(1, events.size());
+    }
+
+    public void testChangesThroughVirtualFileSystemAreNotReportedTwice() throws Exception {
+        mountPoint.getVirtualFile(folderPath).createFile("NewFile", null, new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+        mountPoint.getVirtualFile(filePath).updateContent(new ByteArrayInputStream("updated content".getBytes()), null);
+        mountPoint.getVirtualFile(folderPath).delete(null);
+        Thread.sleep(1000);
+        assertEquals(3, events.size());
+    }
+
+    public void testUpdateProperties() throws Exception {
+        assertNull(mountPoint.getVirtualFile(filePath).getPropertyValue("MyProperty"));
+        Map<String, String[]> properties = new HashMap<>(1);
+        properties.put("MyProperty", new String[]{"hello world"});
+        writeProperties(filePath, properties);
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (mountPoint.getVirtualFile(filePath).getPropertyValue("MyProperty") == null && System.currentTimeMillis() < end) {
+            Thread.sleep(100);
+        }
+        assertEquals("hello world", mountPoint.getVirtualFile(filePath).getPropertyValue("MyProperty"));
+    }
+
+    public void testGitInternalsAreNotWatched() throws Exception {
+        String gitPath = createDirectory(testRootPath, ".git");
+        Files.write(getIoFile(gitPath + "/index").toPath(), DEFAULT_CONTENT_BYTES);
+        createFile(testRootPath, "Marker", DEFAULT_CONTENT_BYTES);
+        waitForEvent(testRootPath + "/Marker");
+        for (VirtualFileEvent event : events) {
+            assertFalse(event.getPath().startsWith(gitPath));
+        }
+    }
+
+    private VirtualFileEvent waitForEvent(String path) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < end) {
+            synchronized (events) {
+                for (VirtualFileEvent event : events) {
+                    if (path.equals(event.getPath())) {
+                        return event;
+                    }
+                }
+            }
+            Thread.sleep(100);
+        }
+        fail(String.format("No event for %s", path));
+        return null;
+    }
+}
@@ -16,6 +16,7 @@ import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.shared.dto.Item;
 import org.eclipse.che.api.vfs.shared.dto.ItemList;
 import org.eclipse.che.commons.lang.Pair;
+import com.google.common.base.Strings;
 import org.apache.lucene.analysis.core.SimpleAnalyzer;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.QueryParser;
@@ -29,12 +30,14 @@ import org.everrest.core.impl.ContainerResponse;
 import org.everrest.core.tools.ByteArrayContainerResponseWriter;
 
 import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.HttpHeaders;
@@ -51,8 +54,9 @@ public class SearcherTest extends LocalFileSystemTest {
     private String file3;
     private String file4;
 
-    private CleanableSearcher searcher;
-    private SearcherManager   searcherManager;
+    private CleanableSearcher         searcher;
+    private SearcherManager           searcherManager;
+    private CleanableSearcherProvider searcherProvider;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -92,7 +96,7 @@ public class SearcherTest extends LocalFileSystemTest {
         queryToResult[8] = new Pair<>(new String[]{file2, file3}, "name=SearcherTest*&mediaType=text/plain");
         queryToResult[9] = new Pair<>(new String[]{file1}, "name=SearcherTest*&mediaType=text/xml");
 
-        CleanableSearcherProvider searcherProvider = new CleanableSearcherProvider(root.getParentFile(), Collections.<VirtualFileFilter>emptySet());
+        searcherProvider = new CleanableSearcherProvider(root.getParentFile(), Collections.<VirtualFileFilter>emptySet());
         // Re-register virtual file system with searching enabled.
         // remove old one first
         provider.close();
@@ -100,7 +104,8 @@ public class SearcherTest extends LocalFileSystemTest {
         virtualFileSystemRegistry.unregisterProvider(MY_WORKSPACE_ID);
         // create new one
         provider = new LocalFileSystemProvider(MY_WORKSPACE_ID, new WorkspaceHashLocalFSMountStrategy(root, root), new EventService(),
-                                               searcherProvider, SystemPathsFilter.ANY, virtualFileSystemRegistry);
+                                               searcherProvider, SystemPathsFilter.ANY, virtualFileSystemRegistry,
+                                               createMountPointConfiguration());
         provider.mount(testFsIoRoot);
         mountPoint = provider.getMountPoint(true);
         virtualFileSystemRegistry.registerProvider(MY_WORKSPACE_ID, provider);
@@ -108,7 +113,10 @@ public class SearcherTest extends LocalFileSystemTest {
         // Touch Searcher to initialize it.
         searcher = (CleanableSearcher)searcherProvider.getSearcher(mountPoint, true);
         searcherManager = new SearcherManager(searcher.getIndexWriter(), true, new SearcherFactory());
+        waitInitialized();
+    }
 
+    private void waitInitialized() throws Exception {
         Throwable error;
         while ((error = searcher.initializationError()) == null && !searcher.initialized()) {
             Thread.sleep(100);
@@ -118,6 +126,91 @@ public class SearcherTest extends LocalFileSystemTest {
         }
     }
 
+    @Override
+    protected void tearDown() throws Exception {
+        searcherManager.close();
+        searcher.close();
+        super.tearDown();
+    }
+
+    public void testIndexReusedAfterRestart() throws Exception {
+        // Emulate stop of server. Index must be kept.
+        searcherManager.close();
+        searcher.doCloseKeepIndex();
+        final java.io.File indexDir = searcher.getIndexDir();
+        assertTrue(indexDir.exists());
+        // Change files while server is stopped.
+        Files.write(new java.io.File(testFsIoRoot, file4).toPath(), "changed while server is stopped".getBytes());
+        assertTrue(new java.io.File(testFsIoRoot, file1).delete());
+
+        CleanableSearcherProvider restartedProvider = new CleanableSearcherProvider(root.getParentFile(),
+                                                                                    Collections.<VirtualFileFilter>emptySet());
+        searcher = (CleanableSearcher)restartedProvider.getSearcher(mountPoint, true);
+        assertEquals(indexDir, searcher.getIndexDir());
+        searcherManager = new SearcherManager(searcher.getIndexWriter(), true, new SearcherFactory());
+        waitInitialized();
+
+        searcherManager.maybeRefresh();
+        IndexSearcher luceneSearcher = searcherManager.acquire();
+        TopDocs topDocs = luceneSearcher.search(new QueryParser("text", new SimpleAnalyzer()).parse("stopped"), 10);
+        assertEquals(1, topDocs.totalHits);
+        topDocs = luceneSearcher.search(new TermQuery(new Term("path", file1)), 10);
+        assertEquals(0, topDocs.totalHits);
+        topDocs = luceneSearcher.search(new TermQuery(new Term("path", file2)), 10);
+        assertEquals(1, topDocs.totalHits);
+        searcherManager.release(luceneSearcher);
+    }
+
+    public void testUnusedIndexIsRemoved() throws Exception {
+        final long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8);
+        final java.io.File unusedIndexDir = new java.io.File(root.getParentFile(), Strings.repeat("a", 40));
+        assertTrue(unusedIndexDir.mkdir());
+        assertTrue(unusedIndexDir.setLastModified(old));
+        final java.io.File otherDir = Files.createTempDirectory(root.getParentFile().toPath(), "not-index").toFile();
+        assertTrue(otherDir.setLastModified(old));
+        assertTrue(searcher.getIndexDir().setLastModified(old));
+
+        searcherProvider.removeUnusedIndexes();
+        assertFalse(unusedIndexDir.exists());
+        // Index of mounted file system and directories that don't look like index are kept.
+        assertTrue(searcher.getIndexDir().exists());
+        assertTrue(otherDir.exists());
+        assertTrue(otherDir.delete());
+    }
+
+    public void testParallelIndexingIndexesAllFiles() throws Exception {
+        final String treePath = createDirectory(testRootPath, "SearcherTest_Tree");
+        int files = 0;
+        for (int m = 0; m < 4; m++) {
+            final String module = createDirectory(treePath, "module" + m);
+            for (int p = 0; p < 5; p++) {
+                final String pkg = createDirectory(module, "package" + p);
+                for (int f = 0; f < 10; f++) {
+                    createFile(pkg, "File" + f + ".txt", ("tree file " + m + '_' + p + '_' + f).getBytes());
+                    files++;
+                }
+            }
+        }
+        // Index is removed after close, new searcher indexes all files again with few threads.
+        searcherManager.close();
+        searcher.close();
+        CleanableSearcherProvider parallelProvider = new CleanableSearcherProvider(root.getParentFile(),
+                                                                                   Collections.<VirtualFileFilter>emptySet(), 4);
+        searcher = (CleanableSearcher)parallelProvider.getSearcher(mountPoint, true);
+        searcherManager = new SearcherManager(searcher.getIndexWriter(), true, new SearcherFactory());
+        waitInitialized();
+
+        searcherManager.maybeRefresh();
+        IndexSearcher luceneSearcher = searcherManager.acquire();
+        TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", treePath)), files * 2);
+        assertEquals(files, topDocs.totalHits);
+        topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
+        assertEquals(4, topDocs.totalHits);
+        topDocs = luceneSearcher.search(new QueryParser("text", new SimpleAnalyzer()).parse("tree"), files * 2);
+        assertEquals(files, topDocs.totalHits);
+        searcherManager.release(luceneSearcher);
+    }
+
     @SuppressWarnings({"rawtypes", "unchecked"})
     public void testSearch() throws Exception {
         ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
@@ -145,6 +238,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testDeleteFile() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new TermQuery(new Term("path", file1)), 10);
@@ -152,6 +246,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
 
         mountPoint.getVirtualFile(file1).delete(null);
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new TermQuery(new Term("path", file1)), 10);
@@ -160,6 +255,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testDeleteFolder() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -167,6 +263,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
 
         mountPoint.getVirtualFile(searchTestPath).delete(null);
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -175,6 +272,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testAdd() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -182,6 +280,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(searchTestPath).createFile("new_file.txt", null, new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -190,6 +289,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testUpdate() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new QueryParser("text", new SimpleAnalyzer()).parse("updated"), 10);
@@ -197,6 +297,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(file2).updateContent(new ByteArrayInputStream("updated content".getBytes()), null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new QueryParser("text", new SimpleAnalyzer()).parse("updated"), 10);
@@ -205,6 +306,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testMove() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         String destination = createDirectory(testRootPath, "___destination");
@@ -214,6 +316,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(file3).moveTo(mountPoint.getVirtualFile(destination), null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", expected)), 10);
@@ -224,6 +327,7 @@ public class SearcherTest extends LocalFileSystemTest {
     }
 
     public void testCopy() throws Exception {
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         String destination = createDirectory(testRootPath, "___destination");
@@ -233,6 +337,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(file3).copyTo(mountPoint.getVirtualFile(destination));
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", expected)), 10);
@@ -244,6 +349,7 @@ public class SearcherTest extends LocalFileSystemTest {
 
     public void testRename() throws Exception {
         String newName = "___renamed";
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", file2)), 10);
@@ -251,6 +357,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(file2).rename(newName, null, null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath + '/' + newName)), 10);
@@ -264,6 +371,7 @@ public class SearcherTest extends LocalFileSystemTest {
         String newName = FILE_NAME + "A";
         String newPath =searchTestPath + '/' + newName;
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", file4)), 10);
@@ -271,6 +379,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(file4).rename(newName, null, null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
         topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", newPath)), 10);
@@ -288,6 +397,7 @@ public class SearcherTest extends LocalFileSystemTest {
 
     public void testRenameFolder() throws Exception {
         String newName = "___renamed";
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -295,6 +405,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(searchTestPath).rename(newName, null, null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
 
@@ -310,6 +421,7 @@ public class SearcherTest extends LocalFileSystemTest {
     public void testRenameFolderByAddingFewNewSymbol() throws Exception {
         String newName = SEARCH_FOLDER_PATH + "A";
         String newPath = searchTestPath + "A";
+        searcher.flush();
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
         TopDocs topDocs = luceneSearcher.search(new PrefixQuery(new Term("path", searchTestPath)), 10);
@@ -317,6 +429,7 @@ public class SearcherTest extends LocalFileSystemTest {
         searcherManager.release(luceneSearcher);
         mountPoint.getVirtualFile(searchTestPath).rename(newName, null, null);
 
+        searcher.flush();
         searcherManager.maybeRefresh();
         luceneSearcher = searcherManager.acquire();
 
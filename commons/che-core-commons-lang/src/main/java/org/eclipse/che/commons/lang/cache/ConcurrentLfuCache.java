@@ -0,0 +1,565 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.lang.cache;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent bounded cache with W-TinyLFU eviction policy. See for details <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A
+ * Highly Efficient Cache Admission Policy</a>.
+ * <p/>
+ * New entries are added to the small LRU "window" area. Entries that are pushed out of the window get in the main segmented LRU
+ * area only if they are used more often than the entries they are going to replace. Usage frequencies are kept in the compact
+ * count-min sketch that is halved periodically, so old popularity is forgotten with time.
+ * <p/>
+ * Implementation is threadsafe. Entries are kept in {@link ConcurrentHashMap}, so reads never take locks. Reads are recorded in
+ * lossy striped buffers and replayed to eviction policy in batches by the thread that succeeds to get the eviction lock. Writes
+ * update eviction policy immediately.
+ *
+ * @author andrew00x
+ */
+public class ConcurrentLfuCache<K, V> implements Cache<K, V> {
+    /* Size of read buffer of each stripe. Must be power of two. */
+    private static final int READ_BUFFER_SIZE      = 32;
+    private static final int READ_BUFFER_MASK      = READ_BUFFER_SIZE - 1;
+    /* Try to replay read buffer each time when such number of reads is recorded in it. */
+    private static final int READ_BUFFER_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    private static final int NONE      = 0;
+    private static final int WINDOW    = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final int                              maximumSize;
+    private final int                              windowMaximumSize;
+    private final int                              protectedMaximumSize;
+    private final ReadBuffer<K, V>[]               readBuffers;
+    private final int                              readBuffersMask;
+    // Eviction policy state. Guarded by evictionLock.
+    private final ReentrantLock                    evictionLock;
+    private final FrequencySketch                  sketch;
+    private final AccessOrderDeque<K, V>           window;
+    private final AccessOrderDeque<K, V>           probation;
+    private final AccessOrderDeque<K, V>           protect;
+    // end eviction policy state
+
+    private final LongAdder  hits;
+    private final LongAdder  misses;
+    private final LongAdder  evictions;
+    /* Incremented each time when entry is removed or cache is cleared. */
+    private final AtomicLong invalidations;
+
+    /**
+     * @param maximumSize
+     *         max number of entries in cache
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLfuCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than 0. ");
+        }
+        this.maximumSize = maximumSize;
+        windowMaximumSize = Math.max(1, maximumSize / 100);
+        protectedMaximumSize = (maximumSize - windowMaximumSize) * 4 / 5;
+        data = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        final int stripes = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+        readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+        readBuffersMask = stripes - 1;
+        evictionLock = new ReentrantLock();
+        sketch = new FrequencySketch(maximumSize);
+        window = new AccessOrderDeque<>();
+        probation = new AccessOrderDeque<>();
+        protect = new AccessOrderDeque<>();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        evictions = new LongAdder();
+        invalidations = new AtomicLong();
+    }
+
+    @Override
+    public V get(K key) {
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not allowed. ");
+        }
+        final Node<K, V> node = new Node<>(key, value);
+        for (; ; ) {
+            final Node<K, V> existing = data.putIfAbsent(key, node);
+            if (existing == null) {
+                afterWrite(node);
+                return null;
+            }
+            final V oldValue = existing.value;
+            existing.value = value;
+            if (!existing.retired) {
+                afterRead(existing);
+                return oldValue;
+            }
+            // Entry is removed concurrently. Try again.
+        }
+    }
+
+    /**
+     * Add value in cache if there is no value for the key yet.
+     *
+     * @return existed value or <code>null</code> if value added in cache
+     */
+    public V putIfAbsent(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not allowed. ");
+        }
+        final Node<K, V> node = new Node<>(key, value);
+        final Node<K, V> existing = data.putIfAbsent(key, node);
+        if (existing == null) {
+            afterWrite(node);
+            return null;
+        }
+        afterRead(existing);
+        return existing.value;
+    }
+
+    @Override
+    public V remove(K key) {
+        // Increment it first. Value that is loading concurrently must not be added in cache after we remove entry.
+        invalidations.incrementAndGet();
+        final Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        node.retired = true;
+        evictionLock.lock();
+        try {
+            unlink(node);
+        } finally {
+            evictionLock.unlock();
+        }
+        return node.value;
+    }
+
+    /** Removes entry only if key is currently mapped to the given value. Used to roll back stale loaded values. */
+    boolean remove(K key, V value) {
+        final Node<K, V> node = data.get(key);
+        if (node == null || node.value != value || !data.remove(key, node)) {
+            return false;
+        }
+        node.retired = true;
+        evictionLock.lock();
+        try {
+            unlink(node);
+        } finally {
+            evictionLock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public void clear() {
+        invalidations.incrementAndGet();
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    node.retired = true;
+                    unlink(node);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        final Iterator<Node<K, V>> delegate = data.values().iterator();
+        return new Iterator<Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                final Node<K, V> node = delegate.next();
+                return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /** Returns max number of entries in cache. */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** Returns number of successful lookups. */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** Returns number of lookups that do not find value in cache. */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Returns number of entries removed from cache by eviction policy. */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** Returns number of entries removed from cache with methods {@link #remove(Object)} and {@link #clear()}. */
+    long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentLfuCache{" +
+               "size=" + size() +
+               ", maximumSize=" + maximumSize +
+               ", hits=" + getHitCount() +
+               ", misses=" + getMissCount() +
+               ", evictions=" + getEvictionCount() +
+               '}';
+    }
+
+    /* ============ EVICTION POLICY ============ */
+
+    private void afterRead(Node<K, V> node) {
+        final ReadBuffer<K, V> buffer = readBuffers[(int)Thread.currentThread().getId() & readBuffersMask];
+        if (buffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Node<K, V> node) {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (node.retired) {
+                return;
+            }
+            sketch.increment(node.key);
+            window.addLast(node);
+            node.queue = WINDOW;
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // UNDER LOCK
+    private void drainReadBuffers() {
+        for (ReadBuffer<K, V> buffer : readBuffers) {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                final Node<K, V> node = buffer.poll(i);
+                if (node != null) {
+                    onAccess(node);
+                }
+            }
+        }
+    }
+
+    // UNDER LOCK
+    private void onAccess(Node<K, V> node) {
+        if (node.retired || node.queue == NONE) {
+            return;
+        }
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                // Entry is used at least twice, promote it to protected area.
+                probation.remove(node);
+                protect.addLast(node);
+                node.queue = PROTECTED;
+                if (protect.size() > protectedMaximumSize) {
+                    final Node<K, V> demoted = protect.pollFirst();
+                    probation.addLast(demoted);
+                    demoted.queue = PROBATION;
+                }
+                break;
+            case PROTECTED:
+                protect.moveToLast(node);
+                break;
+        }
+    }
+
+    // UNDER LOCK
+    private void evictEntries() {
+        // Entries pushed out of window become candidates for main area.
+        int candidates = 0;
+        while (window.size() > windowMaximumSize) {
+            final Node<K, V> node = window.pollFirst();
+            probation.addLast(node);
+            node.queue = PROBATION;
+            candidates++;
+        }
+        while (window.size() + probation.size() + protect.size() > maximumSize) {
+            final Node<K, V> victim = probation.peekFirst();
+            final Node<K, V> candidate = candidates > 0 ? probation.peekLast() : null;
+            if (victim == null) {
+                // All entries are in protected area or in window.
+                evict(protect.size() > 0 ? protect.peekFirst() : window.peekFirst());
+            } else if (candidate == null || candidate == victim) {
+                evict(victim);
+                if (candidate != null) {
+                    candidates--;
+                }
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                // Candidate is admitted. It stays in probation area until it is used again.
+                evict(victim);
+            } else {
+                evict(candidate);
+                candidates--;
+            }
+        }
+    }
+
+    // UNDER LOCK
+    private void evict(Node<K, V> node) {
+        unlink(node);
+        if (data.remove(node.key, node)) {
+            node.retired = true;
+            evictions.increment();
+        }
+    }
+
+    // UNDER LOCK
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protect.remove(node);
+                break;
+        }
+        node.queue = NONE;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        int n = 1;
+        while (n < x) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /* ============ HELPERS ============ */
+
+    private static final class Node<K, V> {
+        final K          key;
+        volatile V       value;
+        volatile boolean retired;
+        // Guarded by eviction lock.
+        int        queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** Doubly linked list of nodes in access order, least recently used first. Not threadsafe. */
+    private static final class AccessOrderDeque<K, V> {
+        private final Node<K, V> head = new Node<>(null, null);
+        private int size;
+
+        AccessOrderDeque() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (head.prev != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        Node<K, V> peekFirst() {
+            return head.next == head ? null : head.next;
+        }
+
+        Node<K, V> peekLast() {
+            return head.prev == head ? null : head.prev;
+        }
+
+        Node<K, V> pollFirst() {
+            final Node<K, V> first = peekFirst();
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /** Lossy buffer of reads. If buffer is full new reads are not recorded. */
+    private static final class ReadBuffer<K, V> {
+        private final AtomicReferenceArray<Node<K, V>> slots  = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicInteger                    writes = new AtomicInteger();
+
+        /** Records read. Returns <code>true</code> if it is time to replay recorded reads. */
+        boolean offer(Node<K, V> node) {
+            final int index = writes.getAndIncrement();
+            slots.lazySet(index & READ_BUFFER_MASK, node);
+            return (index & (READ_BUFFER_THRESHOLD - 1)) == 0;
+        }
+
+        Node<K, V> poll(int index) {
+            return slots.get(index) == null ? null : slots.getAndSet(index, null);
+        }
+    }
+
+    /**
+     * Count-min sketch with four 4-bit counters per entry. When number of recorded events reaches sample size all counters are
+     * halved. Not threadsafe.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEED       = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long   RESET_MASK = 0x7777777777777777L;
+        private static final long   ONE_MASK   = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int    tableMask;
+        private final int    sampleSize;
+        private       int    size;
+
+        FrequencySketch(int maximumSize) {
+            final int length = ceilingPowerOfTwo(Math.max(maximumSize, 8));
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = maximumSize > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : maximumSize * 10;
+        }
+
+        int frequency(Object item) {
+            final int hash = spread(item.hashCode());
+            final int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                final int count = (int)((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object item) {
+            final int hash = spread(item.hashCode());
+            final int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            final int offset = j << 2;
+            final long mask = 0xfL << offset;
+            if ((table[i] & mask) != mask) {
+                table[i] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return ((int)hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.lang.cache;
+
+/**
+ * ConcurrentLfuCache that loads value for key if it is not cached yet.
+ * <p/>
+ * Value is loaded without any lock, so few threads may load value for the same key concurrently. Loaded value is added in cache
+ * only if there is no value for the key yet and no one entry was removed from cache while value was loading. So value that is
+ * put in cache after update of its source is never replaced with stale loaded value.
+ *
+ * @author andrew00x
+ * @see ConcurrentLfuCache
+ */
+public abstract class LoadingValueConcurrentLfuCache<K, V> extends ConcurrentLfuCache<K, V> {
+    /**
+     * @param maximumSize
+     *         max number of entries in cache
+     */
+    public LoadingValueConcurrentLfuCache(int maximumSize) {
+        super(maximumSize);
+    }
+
+    @Override
+    public V get(K key) {
+        V value = super.get(key);
+        if (value != null) {
+            return value;
+        }
+        final long invalidations = getInvalidationCount();
+        value = loadValue(key);
+        if (invalidations != getInvalidationCount()) {
+            // Some entries were removed while we load value. Loaded value may be stale, do not cache it.
+            return value;
+        }
+        final V existing = putIfAbsent(key, value);
+        if (existing != null) {
+            return existing;
+        }
+        if (invalidations != getInvalidationCount()) {
+            remove(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Load value in implementation specific way.
+     *
+     * @param key
+     *         key
+     * @return value
+     * @throws RuntimeException
+     *         if failed to load value
+     */
+    protected abstract V loadValue(K key) throws RuntimeException;
+}
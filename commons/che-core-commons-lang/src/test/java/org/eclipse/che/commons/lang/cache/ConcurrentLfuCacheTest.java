@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.commons.lang.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/** Test of ConcurrentLfuCache class */
+public class ConcurrentLfuCacheTest {
+    @Test
+    public void shouldBeAbleToGetValueAfterPut() throws Exception {
+        //given
+        ConcurrentLfuCache<String, String> cache = new ConcurrentLfuCache<>(100);
+        cache.put("k1", "v1");
+        //when
+        String value = cache.get("k1");
+        //then
+        assertEquals(value, "v1");
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 0);
+    }
+
+    @Test
+    public void shouldReplaceValue() throws Exception {
+        //given
+        ConcurrentLfuCache<String, String> cache = new ConcurrentLfuCache<>(100);
+        cache.put("k1", "v1");
+        //when
+        String previous = cache.put("k1", "v2");
+        //then
+        assertEquals(previous, "v1");
+        assertEquals(cache.get("k1"), "v2");
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void shouldNotKeepMoreEntriesThenMaximumSize() throws Exception {
+        //given
+        ConcurrentLfuCache<Integer, Integer> cache = new ConcurrentLfuCache<>(100);
+        //when
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        //then
+        assertEquals(cache.size(), 100);
+        assertEquals(cache.getEvictionCount(), 900);
+    }
+
+    @Test
+    public void shouldKeepFrequentlyUsedEntriesWhenScanned() throws Exception {
+        //given
+        ConcurrentLfuCache<Integer, Integer> cache = new ConcurrentLfuCache<>(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        for (int n = 0; n < 100; n++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get(i);
+            }
+        }
+        //when
+        // one-time scan of many other entries while frequently used entries are still in use
+        for (int i = 1000; i < 10000; i++) {
+            cache.put(i, i);
+            cache.get(i % 50);
+        }
+        //then
+        for (int i = 0; i < 50; i++) {
+            assertEquals(cache.get(i), Integer.valueOf(i));
+        }
+    }
+
+    @Test
+    public void shouldRemoveEntry() throws Exception {
+        //given
+        ConcurrentLfuCache<String, String> cache = new ConcurrentLfuCache<>(100);
+        cache.put("k1", "v1");
+        //when
+        String removed = cache.remove("k1");
+        //then
+        assertEquals(removed, "v1");
+        assertFalse(cache.contains("k1"));
+        assertNull(cache.get("k1"));
+        assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void shouldClearCache() throws Exception {
+        //given
+        ConcurrentLfuCache<Integer, Integer> cache = new ConcurrentLfuCache<>(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put(i, i);
+        }
+        //when
+        cache.clear();
+        //then
+        assertEquals(cache.size(), 0);
+        assertFalse(cache.iterator().hasNext());
+    }
+
+    @Test
+    public void shouldLoadValueOnlyOnce() throws Exception {
+        //given
+        final AtomicInteger loads = new AtomicInteger();
+        LoadingValueConcurrentLfuCache<String, String> cache = new LoadingValueConcurrentLfuCache<String, String>(100) {
+            @Override
+            protected String loadValue(String key) {
+                loads.incrementAndGet();
+                return key + "_value";
+            }
+        };
+        //when
+        assertEquals(cache.get("k1"), "k1_value");
+        assertEquals(cache.get("k1"), "k1_value");
+        //then
+        assertEquals(loads.get(), 1);
+        assertTrue(cache.contains("k1"));
+    }
+
+    @Test
+    public void shouldNotCacheValueLoadedConcurrentlyWithRemove() throws Exception {
+        //given
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        final LoadingValueConcurrentLfuCache<String, String> cache = new LoadingValueConcurrentLfuCache<String, String>(100) {
+            @Override
+            protected String loadValue(String key) {
+                loading.countDown();
+                try {
+                    removed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "stale";
+            }
+        };
+        Thread loader = new Thread() {
+            @Override
+            public void run() {
+                cache.get("k1");
+            }
+        };
+        loader.start();
+        loading.await();
+        //when
+        cache.remove("k1");
+        removed.countDown();
+        loader.join();
+        //then
+        assertFalse(cache.contains("k1"));
+    }
+
+    @Test
+    public void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+        //given
+        final ConcurrentLfuCache<Integer, Integer> cache = new ConcurrentLfuCache<>(500);
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        //when
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            final int key = (i * 31 + seed) % 2000;
+                            if (cache.get(key) == null) {
+                                cache.put(key, key);
+                            }
+                            if (i % 1000 == 0) {
+                                cache.remove(key);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+        //then
+        assertTrue(cache.size() <= 500);
+    }
+}
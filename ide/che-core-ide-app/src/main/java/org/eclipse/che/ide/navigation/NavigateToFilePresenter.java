@@ -35,6 +35,7 @@ import org.eclipse.che.ide.websocket.rest.Unmarshallable;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +51,8 @@ import static org.eclipse.che.ide.rest.HTTPHeader.ACCEPT;
  */
 @Singleton
 public class NavigateToFilePresenter implements NavigateToFileView.ActionDelegate {
+    private static final int MAX_ITEMS = 50;
+
 
     private final String                     SEARCH_URL;
     private       MessageBus                 wsMessageBus;
@@ -74,7 +77,7 @@ public class NavigateToFilePresenter implements NavigateToFileView.ActionDelegat
 
         resultMap = new HashMap<>();
 
-        SEARCH_URL = "/project/" + workspaceId + "/search";
+        SEARCH_URL = "/project/" + workspaceId + "/navigate";
         view.setDelegate(this);
     }
 
@@ -87,10 +90,10 @@ public class NavigateToFilePresenter implements NavigateToFileView.ActionDelegat
     /** {@inheritDoc} */
     @Override
     public void onRequestSuggestions(String query, final AsyncCallback<List<ItemReference>> callback) {
-        resultMap = new HashMap<>();
+        resultMap = new LinkedHashMap<>();
 
-        // add '*' to allow search files by first letters
-        search(query + "*", new AsyncCallback<List<ItemReference>>() {
+        // server finds files by first letters of name and by first letters of words of name, best matches first
+        search(query, new AsyncCallback<List<ItemReference>>() {
             @Override
             public void onSuccess(List<ItemReference> result) {
                 for (ItemReference item : result) {
@@ -156,7 +159,7 @@ public class NavigateToFilePresenter implements NavigateToFileView.ActionDelegat
 
     private void search(String fileName, final AsyncCallback<List<ItemReference>> callback) {
         final String projectPath = appContext.getCurrentProject().getRootProject().getPath();
-        final String url = SEARCH_URL + projectPath + "/?name=" + URL.encodePathSegment(fileName);
+        final String url = SEARCH_URL + projectPath + "?namePattern=" + URL.encodeQueryString(fileName) + "&maxItems=" + MAX_ITEMS;
         Message message = new MessageBuilder(GET, url).header(ACCEPT, APPLICATION_JSON).build();
         Unmarshallable<List<ItemReference>> unmarshaller = dtoUnmarshallerFactory.newWSListUnmarshaller(ItemReference.class);
         try {
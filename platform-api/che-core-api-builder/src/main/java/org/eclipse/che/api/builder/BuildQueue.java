@@ -14,12 +14,15 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.eclipse.che.api.builder.dto.BaseBuilderRequest;
 import org.eclipse.che.api.builder.dto.BuildOptions;
+import org.eclipse.che.api.builder.dto.BuildQueueState;
 import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.api.builder.dto.BuilderMetric;
 import org.eclipse.che.api.builder.dto.BuilderServerAccessCriteria;
 import org.eclipse.che.api.builder.dto.BuilderServerLocation;
 import org.eclipse.che.api.builder.dto.BuilderServerRegistration;
 import org.eclipse.che.api.builder.dto.BuilderState;
 import org.eclipse.che.api.builder.dto.DependencyRequest;
+import org.eclipse.che.api.builder.dto.WorkspaceBuildQueueState;
 import org.eclipse.che.api.builder.internal.BuilderEvent;
 import org.eclipse.che.api.builder.internal.Constants;
 import org.eclipse.che.api.core.NotFoundException;
@@ -35,6 +38,7 @@ import org.eclipse.che.api.project.shared.dto.ProjectDescriptor;
 import org.eclipse.che.api.workspace.server.WorkspaceService;
 import org.eclipse.che.api.workspace.shared.dto.WorkspaceDescriptor;
 import org.eclipse.che.commons.env.EnvironmentContext;
+import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.commons.lang.cache.Cache;
 import org.eclipse.che.commons.lang.cache.SLRUCache;
 import org.eclipse.che.commons.lang.cache.SynchronizedCache;
@@ -54,21 +58,24 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.ws.rs.core.UriBuilder;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -91,14 +98,15 @@ import static org.eclipse.che.api.builder.BuilderUtils.builderRequest;
 public class BuildQueue {
     private static final Logger LOG = LoggerFactory.getLogger(BuildQueue.class);
 
-    private static final long CHECK_AVAILABLE_BUILDER_DELAY = 2000;
-
     private static final AtomicLong sequence = new AtomicLong(1);
 
     private final ConcurrentMap<String, RemoteBuilderServer> builderServices;
     private final BuilderSelectionStrategy                   builderSelector;
     private final ConcurrentMap<Long, BuildQueueTask>        tasks;
     private final ConcurrentMap<BuilderListKey, BuilderList> builderListMapping;
+    /** Builders and workspaces of tasks that are sent to remote builders. Key is id of task. */
+    private final ConcurrentMap<Long, Pair<RemoteBuilder, String>> dispatchedTasks;
+    private final WorkspaceQuotas                            quotas;
     private final int                                        maxExecutionTimeMillis;
     private final HttpJsonRequestFactory                     requestFactory;
     private final EventService                               eventService;
@@ -108,7 +116,7 @@ public class BuildQueue {
     private final AtomicBoolean                              started;
     private final long                                       keepResultTimeMillis;
 
-    private ExecutorService          executor;
+    private ThreadPoolExecutor       executor;
     private ScheduledExecutorService scheduler;
 
     /** Optional pre-configured slave builders. */
@@ -116,6 +124,21 @@ public class BuildQueue {
     @Named(Constants.BUILDER_SLAVE_BUILDER_URLS)
     private String[] slaves = new String[0];
 
+    /** Number of threads that send tasks to slave builders. */
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.QUEUE_THREADS)
+    private int queueThreads = 20;
+
+    /** Max number of concurrent builds of workspace if workspace doesn't have own setting, zero or negative number means no limit. */
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.WORKSPACE_MAX_CONCURRENT_BUILDS)
+    private int workspaceMaxConcurrentBuilds = 0;
+
+    /** Period (in seconds) of synchronization of known number of free workers with state of remote builders. */
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILDER_STATE_SYNC_PERIOD)
+    private int builderStateSyncPeriod = 5;
+
     /**
      * @param waitingTime
      *         max time for request to be in queue in seconds. Configuration parameter that sets max time (in seconds) which request may be
@@ -139,6 +162,8 @@ public class BuildQueue {
 
         tasks = new ConcurrentHashMap<>();
         builderListMapping = new ConcurrentHashMap<>();
+        dispatchedTasks = new ConcurrentHashMap<>();
+        quotas = new WorkspaceQuotas();
         successfulBuilds = new SynchronizedCache<>(new SLRUCache<BaseBuilderRequest, RemoteTask>(200, 400));
         builderServices = new ConcurrentHashMap<>();
         started = new AtomicBoolean(false);
@@ -170,6 +195,88 @@ public class BuildQueue {
         return count;
     }
 
+    /**
+     * Get state of this queue: number of tasks, number of tasks that wait for free builder, waiting time of tasks and usage of queue by
+     * workspaces. Fairness index is Jain's index of number of running builds (divided by weight) of workspaces that have waiting tasks,
+     * it is 1 if all such workspaces get fair share of builders.
+     */
+    public BuildQueueState getState() {
+        checkStarted();
+        final long now = System.currentTimeMillis();
+        final Map<String, WorkspaceBuildQueueState> workspaces = new HashMap<>();
+        int waitingNum = 0;
+        long longestWaitingTime = 0;
+        for (BuilderList builderList : builderListMapping.values()) {
+            for (Waiter waiter : builderList.getWaiters()) {
+                final WorkspaceBuildQueueState workspace = getWorkspaceState(workspaces, waiter.request.getWorkspace());
+                final long waitingTime = now - waiter.created;
+                workspace.setWaitingTasks(workspace.getWaitingTasks() + 1);
+                workspace.setWeight(waiter.weight);
+                workspace.setMaxRunningTasks(waiter.maxRunning);
+                workspace.setLongestWaitingTime(Math.max(workspace.getLongestWaitingTime(), waitingTime));
+                longestWaitingTime = Math.max(longestWaitingTime, waitingTime);
+                waitingNum++;
+            }
+        }
+        for (WorkspaceQuotas.Usage usage : quotas.getUsages()) {
+            final WorkspaceBuildQueueState workspace = getWorkspaceState(workspaces, usage.workspace);
+            workspace.setRunningTasks(usage.running);
+            workspace.setMaxRunningTasks(usage.limit);
+            workspace.setWeight(usage.weight);
+            workspace.setDispatchedTasks(usage.dispatched);
+            workspace.setAverageWaitingTime(usage.getAverageWaitingTime());
+        }
+        double sum = 0;
+        double sumOfSquares = 0;
+        int backlogged = 0;
+        for (WorkspaceBuildQueueState workspace : workspaces.values()) {
+            if (workspace.getWaitingTasks() > 0) {
+                final double share = (double)workspace.getRunningTasks() / Math.max(1, workspace.getWeight());
+                sum += share;
+                sumOfSquares += share * share;
+                backlogged++;
+            }
+        }
+        final double fairness = sumOfSquares == 0 ? 1.0 : (sum * sum) / (backlogged * sumOfSquares);
+
+        final List<BuilderMetric> stats = new LinkedList<>();
+        stats.add(createMetric(BuilderMetric.QUEUE_SIZE, tasks.size(), "Number of tasks in queue"));
+        stats.add(createMetric(BuilderMetric.NUMBER_OF_WAITING_TASKS, waitingNum, "Number of tasks that wait for free builder"));
+        stats.add(createMetric(BuilderMetric.NUMBER_OF_RUNNING_TASKS, dispatchedTasks.size(), "Number of tasks that are sent to builders"));
+        stats.add(createMetric(BuilderMetric.NUMBER_OF_DISPATCHED_TASKS, quotas.getDispatched(),
+                               "Number of tasks that are sent to builders since queue is started"));
+        stats.add(createMetric(BuilderMetric.LONGEST_WAITING_TIME, longestWaitingTime,
+                               "Time in milliseconds of the longest waiting task that is still in queue"));
+        stats.add(createMetric(BuilderMetric.AVERAGE_WAITING_TIME, quotas.getAverageWaitingTime(),
+                               "Average time in milliseconds that dispatched tasks were waiting for free builder"));
+        stats.add(createMetric(BuilderMetric.MAX_WAITING_TIME, quotas.getMaxWaitingTime(),
+                               "Max time in milliseconds that dispatched task was waiting for free builder"));
+        stats.add(createMetric(BuilderMetric.FAIRNESS_INDEX, String.format("%.3f", fairness),
+                               "Fairness of sharing builders between workspaces that have waiting tasks, 1 is perfectly fair"));
+        stats.add(createMetric(BuilderMetric.NUMBER_OF_WORKERS, executor.getMaximumPoolSize(),
+                               "Number of threads that send tasks to builders"));
+        stats.add(createMetric(BuilderMetric.NUMBER_OF_ACTIVE_WORKERS, executor.getActiveCount(),
+                               "Number of threads that are sending tasks to builders"));
+        return DtoFactory.getInstance().createDto(BuildQueueState.class)
+                         .withStats(stats)
+                         .withWorkspaces(new ArrayList<>(workspaces.values()));
+    }
+
+    private WorkspaceBuildQueueState getWorkspaceState(Map<String, WorkspaceBuildQueueState> workspaces, String id) {
+        WorkspaceBuildQueueState workspace = workspaces.get(id);
+        if (workspace == null) {
+            workspaces.put(id, workspace = DtoFactory.getInstance().createDto(WorkspaceBuildQueueState.class).withWorkspace(id));
+        }
+        return workspace;
+    }
+
+    private BuilderMetric createMetric(String name, Object value, String description) {
+        return DtoFactory.getInstance().createDto(BuilderMetric.class)
+                         .withName(name)
+                         .withValue(String.valueOf(value))
+                         .withDescription(description);
+    }
+
     public List<RemoteBuilderServer> getRegisterBuilderServers() {
         return new ArrayList<>(builderServices.values());
     }
@@ -216,13 +323,186 @@ public class BuildQueue {
         final BuilderListKey key = new BuilderListKey(builderServer.getAssignedProject(), builderServer.getAssignedWorkspace());
         BuilderList builderList = builderListMapping.get(key);
         if (builderList == null) {
-            final BuilderList newBuilderList = new BuilderList(builderSelector);
+            final BuilderList newBuilderList = new BuilderList(builderSelector, quotas);
             builderList = builderListMapping.putIfAbsent(key, newBuilderList);
             if (builderList == null) {
                 builderList = newBuilderList;
             }
         }
-        return builderList.addBuilders(builderServer.getRemoteBuilders());
+        final Map<RemoteBuilder, Integer> freeWorkers = new LinkedHashMap<>();
+        for (RemoteBuilder builder : builderServer.getRemoteBuilders()) {
+            freeWorkers.put(builder, getFreeWorkers(builder));
+        }
+        return builderList.addBuilders(freeWorkers);
+    }
+
+    private int getFreeWorkers(RemoteBuilder builder) {
+        try {
+            return builder.getBuilderState().getFreeWorkers();
+        } catch (Exception e) {
+            // Builder isn't used until next synchronization of its state.
+            LOG.warn("Unable get state of builder '{}' at '{}': {}", builder.getName(), builder.getBaseUrl(), e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Update known number of free workers of remote builder. Slave builders don't call it by themselves, it may be used by external
+     * tools that know about changes of state of builders, see {@code POST /admin/builder/server/state}. Queue doesn't ask remote
+     * builders about their state while it dispatches tasks. It counts free workers itself, with {@code BuilderEvent}s of dispatched
+     * tasks, and corrects the count with state of remote builders that is requested periodically, see
+     * {@link Constants#BUILDER_STATE_SYNC_PERIOD}.
+     *
+     * @param url
+     *         url of slave builder server
+     * @param state
+     *         current state of builder
+     * @return {@code true} if builder is registered in this queue and its state is updated
+     */
+    public boolean updateBuilderState(String url, BuilderState state) {
+        checkStarted();
+        boolean updated = false;
+        for (BuilderList builderList : builderListMapping.values()) {
+            for (RemoteBuilder builder : builderList.getBuilders()) {
+                if (builder.getBaseUrl().equals(url) && builder.getName().equals(state.getName())) {
+                    updated |= builderList.setFreeWorkers(builder, state.getFreeWorkers());
+                }
+            }
+        }
+        return updated;
+    }
+
+    private void syncBuilderStates() {
+        for (BuilderList builderList : builderListMapping.values()) {
+            for (RemoteBuilder builder : builderList.getBuilders()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                // Tasks that are dispatched while request to the builder is in progress may be not counted by the remote builder yet.
+                final long dispatches = builderList.getDispatches(builder);
+                final BuilderState state;
+                try {
+                    state = builder.getBuilderState();
+                } catch (Exception e) {
+                    LOG.warn("Unable get state of builder '{}' at '{}': {}", builder.getName(), builder.getBaseUrl(), e.getMessage());
+                    continue;
+                }
+                builderList.setFreeWorkers(builder, state.getFreeWorkers(), dispatches);
+            }
+        }
+    }
+
+    /**
+     * Remove tasks that wait for builder longer than waiting time and tasks whose results are expired. Builder of removed task is
+     * released even if remote builder doesn't send event about end of task, e.g. if remote builder is lost.
+     */
+    // Switched to default for test.
+    // private
+    void removeExpiredTasks() {
+        int num = 0;
+        int waitingNum = 0;
+        for (Iterator<BuildQueueTask> i = tasks.values().iterator(); i.hasNext(); ) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            final BuildQueueTask task = i.next();
+            final boolean waiting = task.isWaiting();
+            final BaseBuilderRequest request = task.getRequest();
+            if (waiting) {
+                if ((task.getCreationTime() + waitingTimeMillis) < System.currentTimeMillis()) {
+                    try {
+                        task.cancel();
+                        eventService.publish(
+                                BuilderEvent.terminatedEvent(task.getId(), request.getWorkspace(), request.getProject()));
+                    } catch (Exception e) {
+                        LOG.warn(e.getMessage(), e);
+                    }
+                    i.remove();
+                    waitingNum++;
+                    num++;
+                }
+            } else {
+                RemoteTask remote = null;
+                try {
+                    remote = task.getRemoteTask();
+                } catch (Exception e) {
+                    LOG.warn(e.getMessage(), e);
+                }
+                if (remote == null) {
+                    i.remove();
+                    releaseBuilder(task.getId());
+                    successfulBuilds.remove(DtoFactory.getInstance().clone(request).withId(0L).withTimeout(0L));
+                    num++;
+                } else if ((remote.getCreationTime() + keepResultTimeMillis) < System.currentTimeMillis()) {
+                    try {
+                        remote.getBuildTaskDescriptor();
+                    } catch (NotFoundException e) {
+                        // Remote builder doesn't know about task, e.g. it is restarted. Event about end of task never comes.
+                        i.remove();
+                        releaseBuilder(task.getId());
+                        num++;
+                    } catch (Exception e) {
+                        LOG.warn(e.getMessage(), e);
+                        i.remove();
+                        releaseBuilder(task.getId());
+                        num++;
+                    }
+                }
+            }
+        }
+        if (num > 0) {
+            LOG.debug("Remove {} expired tasks, {} of them were waiting for processing", num, waitingNum);
+        }
+        if (waitingNum > 0) {
+            // Forget about canceled tasks.
+            for (BuilderList builderList : builderListMapping.values()) {
+                builderList.dispatch();
+            }
+        }
+    }
+
+    private void releaseBuilder(long taskId) {
+        final Pair<RemoteBuilder, String> dispatched = dispatchedTasks.remove(taskId);
+        if (dispatched != null) {
+            quotas.release(dispatched.second);
+            // Workspace may wait for free worker of builder in any list if it reaches its limit of concurrent builds.
+            for (BuilderList builderList : builderListMapping.values()) {
+                builderList.release(dispatched.first);
+            }
+        }
+    }
+
+    /**
+     * Add task in list of tasks that wait for free builder. Waiting task doesn't hold any thread. Task is executed in pool of this
+     * queue as soon as builder gets free worker, typically task just sends request to start build to the remote builder.
+     */
+    private void enqueue(final InternalBuildTask future, BaseBuilderRequest request, WorkspaceDescriptor workspace) {
+        final Waiter waiter = new Waiter(request, getQueueWeight(workspace), getMaxConcurrentBuilds(workspace)) {
+            @Override
+            boolean isCancelled() {
+                return future.isDone();
+            }
+
+            @Override
+            void dispatch(RemoteBuilder builder) {
+                dispatchedTasks.put(future.id, Pair.of(builder, future.workspace));
+                try {
+                    executor.execute(future);
+                } catch (RejectedExecutionException e) {
+                    // Queue is stopped.
+                    future.cancel(false);
+                }
+            }
+
+            @Override
+            void reject() {
+                future.reject(new BuilderException("There is no any builder available. "));
+            }
+        };
+        final BuilderList builderList = getBuilderList(request.getWorkspace(), request.getProject());
+        if (builderList == null || !builderList.enqueue(waiter)) {
+            waiter.reject();
+        }
     }
 
     /**
@@ -311,10 +591,6 @@ public class BuildQueue {
                 callable = new Callable<RemoteTask>() {
                     @Override
                     public RemoteTask call() throws Exception {
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException ignored) {
-                        }
                         return successfulTask;
                     }
                 };
@@ -332,7 +608,17 @@ public class BuildQueue {
         final BuildQueueTask task = new BuildQueueTask(id, request, waitingTimeMillis, future, eventService, serviceContext.getServiceUriBuilder());
         tasks.put(id, task);
         eventService.publish(BuilderEvent.queueStartedEvent(id, wsId, project));
-        executor.execute(future);
+        if (reuse) {
+            // Result of previous build is returned with small delay, don't hold any thread while waiting.
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    executor.execute(future);
+                }
+            }, 1, TimeUnit.SECONDS);
+        } else {
+            enqueue(future, request, workspace);
+        }
         return task;
     }
 
@@ -340,7 +626,13 @@ public class BuildQueue {
         return new Callable<RemoteTask>() {
             @Override
             public RemoteTask call() throws BuilderException {
-                return getBuilder(request).perform(request);
+                final RemoteBuilder builder = getBuilder(request);
+                try {
+                    return builder.perform(request);
+                } catch (BuilderException | RuntimeException e) {
+                    releaseBuilder(request.getId());
+                    throw e;
+                }
             }
         };
     }
@@ -382,13 +674,20 @@ public class BuildQueue {
         }
         final WorkspaceDescriptor workspace = getWorkspaceDescriptor(wsId, serviceContext);
         request.setTimeout(getBuildTimeout(workspace));
-        final Callable<RemoteTask> callable = createTaskFor(request);
+        return enqueue(request, createTaskFor(request), workspace, serviceContext.getServiceUriBuilder());
+    }
+
+    // Switched to default for test.
+    // private
+    BuildQueueTask enqueue(BaseBuilderRequest request, Callable<RemoteTask> callable, WorkspaceDescriptor workspace,
+                           UriBuilder uriBuilder) {
         final Long id = sequence.getAndIncrement();
-        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, wsId, project, false);
+        final InternalBuildTask future = new InternalBuildTask(ThreadLocalPropagateContext.wrap(callable), id, request.getWorkspace(),
+                                                               request.getProject(), false);
         request.setId(id);
-        final BuildQueueTask task = new BuildQueueTask(id, request, waitingTimeMillis, future, eventService, serviceContext.getServiceUriBuilder());
+        final BuildQueueTask task = new BuildQueueTask(id, request, waitingTimeMillis, future, eventService, uriBuilder);
         tasks.put(id, task);
-        executor.execute(future);
+        enqueue(future, request, workspace);
         return task;
     }
 
@@ -396,7 +695,13 @@ public class BuildQueue {
         return new Callable<RemoteTask>() {
             @Override
             public RemoteTask call() throws BuilderException {
-                return getBuilder(request).perform(request);
+                final RemoteBuilder builder = getBuilder(request);
+                try {
+                    return builder.perform(request);
+                } catch (BuilderException | RuntimeException e) {
+                    releaseBuilder(request.getId());
+                    throw e;
+                }
             }
         };
     }
@@ -489,19 +794,25 @@ public class BuildQueue {
     // Switched to default for test.
     // private
     RemoteBuilder getBuilder(BaseBuilderRequest request) throws BuilderException {
-        final BuilderList builderList = getBuilderList(request.getWorkspace(), request.getProject());
-        if (builderList == null) {
-            // Cannot continue, typically should never happen. At least shared builders should be available for everyone.
-            throw new BuilderException("There is no any builder to process this request. ");
-        }
-        final RemoteBuilder builder = builderList.getBuilder(request);
-        if (builder == null) {
+        final Pair<RemoteBuilder, String> dispatched = dispatchedTasks.get(request.getId());
+        if (dispatched == null) {
             throw new BuilderException("There is no any builder available. ");
         }
+        final RemoteBuilder builder = dispatched.first;
         LOG.info("Use builder '{}' at '{}'", builder.getName(), builder.getBaseUrl());
         return builder;
     }
 
+    private int getQueueWeight(WorkspaceDescriptor workspace) {
+        final String weightAttr = workspace.getAttributes().get(Constants.BUILDER_QUEUE_WEIGHT);
+        return weightAttr != null ? Integer.parseInt(weightAttr) : 1;
+    }
+
+    private int getMaxConcurrentBuilds(WorkspaceDescriptor workspace) {
+        final String limitAttr = workspace.getAttributes().get(Constants.BUILDER_MAX_CONCURRENT_BUILDS);
+        return limitAttr != null ? Integer.parseInt(limitAttr) : workspaceMaxConcurrentBuilds;
+    }
+
     private long getBuildTimeout(WorkspaceDescriptor workspace) throws BuilderException {
         final String timeoutAttr = workspace.getAttributes().get(Constants.BUILDER_EXECUTION_TIME);
         return timeoutAttr != null ? Integer.parseInt(timeoutAttr) : maxExecutionTimeMillis;
@@ -563,7 +874,7 @@ public class BuildQueue {
     @PostConstruct
     public void start() {
         if (started.compareAndSet(false, true)) {
-            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            executor = new ThreadPoolExecutor(queueThreads, queueThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
                                               new ThreadFactoryBuilder().setNameFormat("BuildQueue-[%d]").setDaemon(true).build()) {
                 @Override
                 protected void afterExecute(Runnable runnable, Throwable error) {
@@ -581,63 +892,34 @@ public class BuildQueue {
                     }
                 }
             };
+            executor.allowCoreThreadTimeOut(true);
             scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("BuildQueueScheduler-%d")
                                                                                              .setDaemon(true).build());
             scheduler.scheduleAtFixedRate(ThreadLocalPropagateContext.wrap(new Runnable() {
                 @Override
                 public void run() {
-                    int num = 0;
-                    int waitingNum = 0;
-                    for (Iterator<BuildQueueTask> i = tasks.values().iterator(); i.hasNext(); ) {
-                        if (Thread.currentThread().isInterrupted()) {
-                            return;
-                        }
-                        final BuildQueueTask task = i.next();
-                        final boolean waiting = task.isWaiting();
-                        final BaseBuilderRequest request = task.getRequest();
-                        if (waiting) {
-                            if ((task.getCreationTime() + waitingTimeMillis) < System.currentTimeMillis()) {
-                                try {
-                                    task.cancel();
-                                    eventService.publish(
-                                            BuilderEvent.terminatedEvent(task.getId(), request.getWorkspace(), request.getProject()));
-                                } catch (Exception e) {
-                                    LOG.warn(e.getMessage(), e);
-                                }
-                                i.remove();
-                                waitingNum++;
-                                num++;
-                            }
-                        } else {
-                            RemoteTask remote = null;
-                            try {
-                                remote = task.getRemoteTask();
-                            } catch (Exception e) {
-                                LOG.warn(e.getMessage(), e);
-                            }
-                            if (remote == null) {
-                                i.remove();
-                                successfulBuilds.remove(DtoFactory.getInstance().clone(request).withId(0L).withTimeout(0L));
-                                num++;
-                            } else if ((remote.getCreationTime() + keepResultTimeMillis) < System.currentTimeMillis()) {
-                                try {
-                                    remote.getBuildTaskDescriptor();
-                                } catch (NotFoundException e) {
-                                    i.remove();
-                                    num++;
-                                } catch (Exception e) {
-                                    LOG.warn(e.getMessage(), e);
-                                    i.remove();
-                                    num++;
-                                }
-                            }
-                        }
+                    removeExpiredTasks();
+                }
+            }), 1, 1, TimeUnit.MINUTES);
+            if (builderStateSyncPeriod > 0) {
+                scheduler.scheduleAtFixedRate(ThreadLocalPropagateContext.wrap(new Runnable() {
+                    @Override
+                    public void run() {
+                        syncBuilderStates();
                     }
-                    if (num > 0) {
-                        LOG.debug("Remove {} expired tasks, {} of them were waiting for processing", num, waitingNum);
+                }), builderStateSyncPeriod, builderStateSyncPeriod, TimeUnit.SECONDS);
+            }
+
+            eventService.subscribe(new EventSubscriber<BuilderEvent>() {
+                @Override
+                public void onEvent(BuilderEvent event) {
+                    // Worker of remote builder is free, give it to the next task that waits for it.
+                    if ((event.getType() == BuilderEvent.EventType.DONE && !event.isReused())
+                        || event.getType() == BuilderEvent.EventType.CANCELED) {
+                        releaseBuilder(event.getTaskId());
                     }
                 }
-            }), 1, 1, TimeUnit.MINUTES);
+            });
 
             eventService.subscribe(new EventSubscriber<BuilderEvent>() {
                 @Override
@@ -751,7 +1033,12 @@ public class BuildQueue {
                 executor.shutdownNow();
             }
             tasks.clear();
+            for (BuilderList builderList : builderListMapping.values()) {
+                builderList.clear();
+            }
             builderListMapping.clear();
+            dispatchedTasks.clear();
+            quotas.clear();
             successfulBuilds.clear();
             if (interrupted) {
                 Thread.currentThread().interrupt();
@@ -778,6 +1065,10 @@ public class BuildQueue {
             this.project = project;
             this.reused = reused;
         }
+
+        void reject(Throwable error) {
+            setException(error);
+        }
     }
 
     private static class BuilderListKey {
@@ -821,21 +1112,44 @@ public class BuildQueue {
     }
 
 
-    private static class BuilderList {
-        final Collection<RemoteBuilder> builders;
-        final BuilderSelectionStrategy  builderSelector;
-
-        BuilderList(BuilderSelectionStrategy builderSelector) {
+    /**
+     * Remote builders which are available for the same set of workspaces and projects. Keeps number of free workers of each builder
+     * and tasks that wait for free worker. Waiting tasks don't hold any thread, task is given to the builder as soon as any of matched
+     * builders gets free worker, there is no any request to remote builders while tasks are dispatched.
+     * <p/>
+     * Tasks of different workspaces are served with start-time fair queuing: each task gets tag that is equal to the greater of
+     * virtual time of the list and finish tag of the previous task of the same workspace, finish tag is the tag of task plus
+     * {@code 1 / weight} of workspace. Tasks are dispatched in order of their tags, so workspace that adds many tasks doesn't delay
+     * tasks of other workspaces. Tasks with the same tag are served in order they were added to the queue. Workspace that has as many
+     * running builds as its limit allows is skipped until one of its builds ends.
+     */
+    // Switched to default for test.
+    // private
+    static class BuilderList {
+        final Map<RemoteBuilder, Workers> builders;
+        final TreeSet<Waiter>             waiters;
+        final BuilderSelectionStrategy    builderSelector;
+        final WorkspaceQuotas             quotas;
+        /** Finish tags of the last waiting tasks of workspaces. */
+        final Map<String, Double>         finishTags;
+
+        double virtualTime;
+        long   waiterSequence;
+
+        BuilderList(BuilderSelectionStrategy builderSelector, WorkspaceQuotas quotas) {
             this.builderSelector = builderSelector;
-            builders = new LinkedHashSet<>();
+            this.quotas = quotas;
+            builders = new LinkedHashMap<>();
+            waiters = new TreeSet<>();
+            finishTags = new HashMap<>();
         }
 
         synchronized List<RemoteBuilder> getBuilders() {
-            return new ArrayList<>(builders);
+            return new ArrayList<>(builders.keySet());
         }
 
         synchronized boolean hasBuilder(String name) {
-            for (RemoteBuilder builder : builders) {
+            for (RemoteBuilder builder : builders.keySet()) {
                 if (name.equals(builder.getName())) {
                     return true;
                 }
@@ -843,65 +1157,270 @@ public class BuildQueue {
             return false;
         }
 
-        synchronized boolean addBuilders(Collection<? extends RemoteBuilder> list) {
-            return builders.addAll(list);
-        }
-
-        synchronized boolean removeBuilders(Collection<? extends RemoteBuilder> list) {
-            return builders.removeAll(list);
+        /**
+         * Add builders.
+         *
+         * @param freeWorkers
+         *         builders and number of their free workers
+         * @return {@code true} if set of builders changed as result of the call
+         */
+        synchronized boolean addBuilders(Map<RemoteBuilder, Integer> freeWorkers) {
+            boolean modified = false;
+            for (Map.Entry<RemoteBuilder, Integer> e : freeWorkers.entrySet()) {
+                final Workers workers = builders.get(e.getKey());
+                if (workers == null) {
+                    builders.put(e.getKey(), new Workers(e.getValue()));
+                    modified = true;
+                } else {
+                    workers.set(e.getValue());
+                }
+            }
+            dispatch();
+            return modified;
         }
 
         synchronized boolean removeBuilder(RemoteBuilder builder) {
-            return builders.remove(builder);
+            final boolean modified = builders.remove(builder) != null;
+            if (modified) {
+                dispatch();
+            }
+            return modified;
         }
 
         synchronized int size() {
             return builders.size();
         }
 
-        synchronized RemoteBuilder getBuilder(BaseBuilderRequest request) {
-            final List<RemoteBuilder> matched = new ArrayList<>();
-            for (RemoteBuilder builder : builders) {
-                if (request.getBuilder().equals(builder.getName())) {
-                    matched.add(builder);
+        /** Set number of free workers of builder. Returns {@code false} if builder isn't in this list. */
+        synchronized boolean setFreeWorkers(RemoteBuilder builder, int freeWorkers) {
+            final Workers workers = builders.get(builder);
+            if (workers == null) {
+                return false;
+            }
+            workers.set(freeWorkers);
+            dispatch();
+            return true;
+        }
+
+        /**
+         * Set number of free workers of builder that is got from the remote builder. Number is ignored if any task was given to the builder
+         * after the request to the remote builder is sent, the remote builder may not count such tasks yet and the same workers would be
+         * given to the next tasks. Number is updated on the next synchronization in this case.
+         *
+         * @param dispatches
+         *         number of tasks given to the builder before request to the remote builder, see {@link #getDispatches(RemoteBuilder)}
+         * @return {@code false} if builder isn't in this list or number of free workers isn't updated
+         */
+        synchronized boolean setFreeWorkers(RemoteBuilder builder, int freeWorkers, long dispatches) {
+            final Workers workers = builders.get(builder);
+            if (workers == null || workers.dispatches != dispatches) {
+                return false;
+            }
+            workers.set(freeWorkers);
+            dispatch();
+            return true;
+        }
+
+        /** Get number of tasks that are given to the builder or {@code -1} if builder isn't in this list. */
+        synchronized long getDispatches(RemoteBuilder builder) {
+            final Workers workers = builders.get(builder);
+            return workers == null ? -1 : workers.dispatches;
+        }
+
+        /** Get number of free workers of builder or {@code -1} if builder isn't in this list. */
+        synchronized int getFreeWorkers(RemoteBuilder builder) {
+            final Workers workers = builders.get(builder);
+            return workers == null ? -1 : workers.free;
+        }
+
+        /** Get tasks that wait for free worker. */
+        synchronized List<Waiter> getWaiters() {
+            final List<Waiter> result = new ArrayList<>(waiters.size());
+            for (Waiter waiter : waiters) {
+                if (!waiter.isCancelled()) {
+                    result.add(waiter);
                 }
             }
-            final int size = matched.size();
-            if (size == 0) {
-                return null;
+            return result;
+        }
+
+        /**
+         * Return worker that was given to the task back to the builder. Builder may be {@code null} if only limit of concurrent builds of
+         * workspace is changed, tasks that wait for free worker are checked again in this case.
+         */
+        synchronized void release(RemoteBuilder builder) {
+            final Workers workers = builder == null ? null : builders.get(builder);
+            if (workers != null) {
+                workers.release();
             }
-            final List<RemoteBuilder> available = new ArrayList<>(matched.size());
-            for (; ; ) {
-                for (RemoteBuilder builder : matched) {
-                    if (Thread.currentThread().isInterrupted()) {
-                        return null; // stop immediately
-                    }
-                    BuilderState builderState;
-                    try {
-                        builderState = builder.getBuilderState();
-                    } catch (Exception e) {
-                        LOG.error(e.getMessage(), e);
-                        continue;
+            dispatch();
+        }
+
+        /**
+         * Add task to the list of waiting tasks. Task is dispatched immediately if one of builders that matches the request has free
+         * worker.
+         *
+         * @return {@code false} if there is no builder that matches the request
+         */
+        synchronized boolean enqueue(Waiter waiter) {
+            if (!hasBuilder(waiter.request.getBuilder())) {
+                return false;
+            }
+            final String workspace = waiter.request.getWorkspace();
+            final Double finishTag = finishTags.get(workspace);
+            waiter.tag = finishTag == null ? virtualTime : Math.max(virtualTime, finishTag);
+            waiter.sequence = waiterSequence++;
+            finishTags.put(workspace, waiter.tag + 1.0 / waiter.weight);
+            waiters.add(waiter);
+            dispatch();
+            return true;
+        }
+
+        /** Reject all waiting tasks. */
+        synchronized void clear() {
+            for (Waiter waiter : waiters) {
+                waiter.reject();
+            }
+            waiters.clear();
+            finishTags.clear();
+        }
+
+        /** Give free workers to waiting tasks. Should be called after any change of builders, their workers or limits of workspaces. */
+        synchronized void dispatch() {
+            if (waiters.isEmpty()) {
+                return;
+            }
+            // Names of builders that don't have free workers anymore and workspaces that reach their limit of concurrent builds, don't
+            // need to check them again for the next tasks.
+            final Set<String> busyBuilders = new HashSet<>();
+            final Set<String> busyWorkspaces = new HashSet<>();
+            for (Iterator<Waiter> i = waiters.iterator(); i.hasNext(); ) {
+                final Waiter waiter = i.next();
+                if (waiter.isCancelled()) {
+                    i.remove();
+                    continue;
+                }
+                final String name = waiter.request.getBuilder();
+                final String workspace = waiter.request.getWorkspace();
+                if (busyBuilders.contains(name) || busyWorkspaces.contains(workspace)) {
+                    continue;
+                }
+                boolean matched = false;
+                final List<RemoteBuilder> available = new ArrayList<>();
+                for (Map.Entry<RemoteBuilder, Workers> e : builders.entrySet()) {
+                    if (name.equals(e.getKey().getName())) {
+                        matched = true;
+                        if (e.getValue().free > 0) {
+                            available.add(e.getKey());
+                        }
                     }
-                    if (builderState.getFreeWorkers() > 0) {
-                        available.add(builder);
+                }
+                if (!matched) {
+                    // All builders for this task are removed.
+                    i.remove();
+                    waiter.reject();
+                } else if (available.isEmpty()) {
+                    busyBuilders.add(name);
+                } else if (!quotas.acquire(workspace, waiter.maxRunning, waiter.weight)) {
+                    busyWorkspaces.add(workspace);
+                } else {
+                    final RemoteBuilder builder = builderSelector.select(available, waiter.request);
+                    final Workers workers = builder == null ? null : builders.get(builder);
+                    if (workers == null) {
+                        quotas.release(workspace);
+                        busyBuilders.add(name);
+                    } else {
+                        workers.free--;
+                        workers.dispatches++;
+                        i.remove();
+                        virtualTime = Math.max(virtualTime, waiter.tag);
+                        quotas.dispatched(workspace, System.currentTimeMillis() - waiter.created);
+                        waiter.dispatch(builder);
                     }
                 }
+            }
+            if (waiters.isEmpty()) {
+                finishTags.clear();
+            }
+        }
 
-                if (available.isEmpty()) {
-                    try {
-                        wait(CHECK_AVAILABLE_BUILDER_DELAY); // wait and try again
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        return null; // expected to get here if task is canceled
-                    }
-                } else {
-                    return builderSelector.select(available, request);
+        static class Workers {
+            /** Max number of free workers that we ever saw. Don't let to free more workers than builder has. */
+            int  max;
+            int  free;
+            /** Number of tasks that are given to the builder. */
+            long dispatches;
+
+            Workers(int free) {
+                set(free);
+            }
+
+            void set(int free) {
+                this.free = free;
+                max = Math.max(max, free);
+            }
+
+            void release() {
+                if (free < max) {
+                    free++;
                 }
             }
         }
     }
 
+    /**
+     * Task that waits for free worker of remote builder. Implementations must not block in any method, they are called while {@code
+     * BuilderList} is locked.
+     */
+    // Switched to default for test.
+    // private
+    abstract static class Waiter implements Comparable<Waiter> {
+        final BaseBuilderRequest request;
+        final int                weight;
+        final int                maxRunning;
+        final long               created;
+
+        double tag;
+        long   sequence;
+
+        /**
+         * @param request
+         *         request
+         * @param weight
+         *         weight of workspace, workspace with weight 2 gets twice as much workers as workspace with weight 1 if both have
+         *         waiting tasks
+         * @param maxRunning
+         *         max number of concurrent builds of workspace, zero or negative number means no limit
+         */
+        Waiter(BaseBuilderRequest request, int weight, int maxRunning) {
+            this.request = request;
+            this.weight = Math.max(1, weight);
+            this.maxRunning = maxRunning;
+            created = System.currentTimeMillis();
+        }
+
+        /** Reports that the task is canceled and should not be dispatched. */
+        abstract boolean isCancelled();
+
+        /** Task gets worker of remote builder. */
+        abstract void dispatch(RemoteBuilder builder);
+
+        /** There is no builder for the task anymore. */
+        abstract void reject();
+
+        @Override
+        public int compareTo(Waiter other) {
+            int result = Double.compare(tag, other.tag);
+            if (result == 0) {
+                result = Long.compare(request.getId(), other.request.getId());
+            }
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+
     private class AnalyticsMessenger implements EventSubscriber<BuilderEvent> {
         @Override
         public void onEvent(BuilderEvent event) {
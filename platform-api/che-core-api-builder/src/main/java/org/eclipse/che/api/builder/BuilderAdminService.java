@@ -10,10 +10,12 @@
  *******************************************************************************/
 package org.eclipse.che.api.builder;
 
+import org.eclipse.che.api.builder.dto.BuildQueueState;
 import org.eclipse.che.api.builder.dto.BuilderDescriptor;
 import org.eclipse.che.api.builder.dto.BuilderServer;
 import org.eclipse.che.api.builder.dto.BuilderServerLocation;
 import org.eclipse.che.api.builder.dto.BuilderServerRegistration;
+import org.eclipse.che.api.builder.dto.BuilderState;
 import org.eclipse.che.api.builder.internal.Constants;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.rest.Service;
@@ -33,6 +35,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
@@ -92,6 +95,28 @@ public class BuilderAdminService extends Service {
         return Response.status(Response.Status.OK).build();
     }
 
+    @ApiOperation(value = "Update state of builder",
+                  notes = "Notify about changes of state of builder, e.g. number of free workers. Slave builders don't call it, " +
+                          "build queue synchronizes state of builders periodically",
+                  position = 3)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 403, message = "User not authorized to call this method"),
+            @ApiResponse(code = 404, message = "Builder is not registered"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @POST
+    @Path("/server/state")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateState(@ApiParam(value = "URL of builder service", required = true)
+                                @QueryParam("url") String url,
+                                @ApiParam(value = "JSON with state of builder", required = true)
+                                BuilderState state) throws Exception {
+        if (url == null || !buildQueue.updateBuilderState(url, state)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.status(Response.Status.OK).build();
+    }
+
     private static final String[] SERVER_LINK_RELS = new String[]{Constants.LINK_REL_AVAILABLE_BUILDERS,
                                                                   Constants.LINK_REL_SERVER_STATE,
                                                                   Constants.LINK_REL_BUILDER_STATE};
@@ -100,7 +125,7 @@ public class BuilderAdminService extends Service {
                   notes = "Get all registered builders",
                   response = BuilderServer.class,
                   responseContainer = "List",
-                  position = 3)
+                  position = 4)
     @ApiResponses(value = {
                   @ApiResponse(code = 200, message = "OK"),
                   @ApiResponse(code = 403, message = "User not authorized to call this method"),
@@ -150,4 +175,20 @@ public class BuilderAdminService extends Service {
 
         return result;
     }
+
+    @ApiOperation(value = "Get state of build queue",
+                  notes = "Get size of build queue, waiting time of tasks and usage of queue by workspaces",
+                  response = BuildQueueState.class,
+                  position = 5)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 403, message = "User not authorized to call this method"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GenerateLink(rel = Constants.LINK_REL_QUEUE_STATE)
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/queue")
+    public BuildQueueState getQueueState() {
+        return buildQueue.getState();
+    }
 }
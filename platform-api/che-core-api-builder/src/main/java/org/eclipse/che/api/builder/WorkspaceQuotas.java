@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps number of builds of each workspace that are started on slave builders and limits number of concurrent builds of workspace.
+ * Also collects statistic of waiting time of tasks in {@link BuildQueue}. Workspace is tracked while it has started builds, so memory
+ * usage depends on number of active workspaces only. Instance of this class is thread-safe.
+ *
+ * @author andrew00x
+ */
+class WorkspaceQuotas {
+    private final Map<String, Usage> usages = new HashMap<>();
+
+    private long dispatched;
+    private long totalWaitingTime;
+    private long maxWaitingTime;
+
+    /**
+     * Start new build of workspace if workspace doesn't exceed its limit of concurrent builds.
+     *
+     * @param workspace
+     *         id of workspace
+     * @param limit
+     *         max number of concurrent builds of workspace, zero or negative number means no limit
+     * @param weight
+     *         weight of workspace in queue
+     * @return {@code true} if build may be started and {@code false} otherwise
+     */
+    synchronized boolean acquire(String workspace, int limit, int weight) {
+        Usage usage = usages.get(workspace);
+        if (usage == null) {
+            usages.put(workspace, usage = new Usage(workspace));
+        }
+        usage.limit = limit;
+        usage.weight = weight;
+        if (limit > 0 && usage.running >= limit) {
+            return false;
+        }
+        usage.running++;
+        return true;
+    }
+
+    /** Build of workspace is ended. */
+    synchronized void release(String workspace) {
+        final Usage usage = usages.get(workspace);
+        if (usage != null && --usage.running <= 0) {
+            usages.remove(workspace);
+        }
+    }
+
+    /**
+     * Build of workspace is sent to slave builder.
+     *
+     * @param workspace
+     *         id of workspace
+     * @param waitingTime
+     *         time in milliseconds that build task was waiting for free builder
+     */
+    synchronized void dispatched(String workspace, long waitingTime) {
+        dispatched++;
+        totalWaitingTime += waitingTime;
+        maxWaitingTime = Math.max(maxWaitingTime, waitingTime);
+        final Usage usage = usages.get(workspace);
+        if (usage != null) {
+            usage.dispatched++;
+            usage.totalWaitingTime += waitingTime;
+            usage.maxWaitingTime = Math.max(usage.maxWaitingTime, waitingTime);
+        }
+    }
+
+    synchronized int getRunning(String workspace) {
+        final Usage usage = usages.get(workspace);
+        return usage == null ? 0 : usage.running;
+    }
+
+    /** Get number of tasks that are sent to slave builders. */
+    synchronized long getDispatched() {
+        return dispatched;
+    }
+
+    /** Get average time in milliseconds that dispatched tasks were waiting for free builder. */
+    synchronized long getAverageWaitingTime() {
+        return dispatched == 0 ? 0 : totalWaitingTime / dispatched;
+    }
+
+    /** Get max time in milliseconds that dispatched task was waiting for free builder. */
+    synchronized long getMaxWaitingTime() {
+        return maxWaitingTime;
+    }
+
+    /** Get copy of usages of workspaces which have started builds. */
+    synchronized List<Usage> getUsages() {
+        final List<Usage> copy = new ArrayList<>(usages.size());
+        for (Usage usage : usages.values()) {
+            copy.add(new Usage(usage));
+        }
+        return copy;
+    }
+
+    synchronized void clear() {
+        usages.clear();
+    }
+
+    static class Usage {
+        final String workspace;
+
+        int  running;
+        int  limit;
+        int  weight;
+        long dispatched;
+        long totalWaitingTime;
+        long maxWaitingTime;
+
+        Usage(String workspace) {
+            this.workspace = workspace;
+        }
+
+        Usage(Usage other) {
+            workspace = other.workspace;
+            running = other.running;
+            limit = other.limit;
+            weight = other.weight;
+            dispatched = other.dispatched;
+            totalWaitingTime = other.totalWaitingTime;
+            maxWaitingTime = other.maxWaitingTime;
+        }
+
+        long getAverageWaitingTime() {
+            return dispatched == 0 ? 0 : totalWaitingTime / dispatched;
+        }
+    }
+}
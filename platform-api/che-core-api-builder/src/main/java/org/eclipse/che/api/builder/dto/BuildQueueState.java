@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+import java.util.List;
+
+/**
+ * Describes current state of build queue.
+ *
+ * @author andrew00x
+ */
+@DTO
+public interface BuildQueueState {
+    /** Queue metrics, e.g. number of waiting tasks, waiting time of tasks, etc. */
+    List<BuilderMetric> getStats();
+
+    BuildQueueState withStats(List<BuilderMetric> stats);
+
+    void setStats(List<BuilderMetric> stats);
+
+    /** State of workspaces that have waiting or running builds. */
+    List<WorkspaceBuildQueueState> getWorkspaces();
+
+    BuildQueueState withWorkspaces(List<WorkspaceBuildQueueState> workspaces);
+
+    void setWorkspaces(List<WorkspaceBuildQueueState> workspaces);
+}
@@ -36,6 +36,20 @@ public interface BuilderMetric {
 
     String MAX_QUEUE_SIZE = "maxQueueSize";
 
+    String NUMBER_OF_WAITING_TASKS = "numberOfWaitingTasks";
+
+    String NUMBER_OF_RUNNING_TASKS = "numberOfRunningTasks";
+
+    String NUMBER_OF_DISPATCHED_TASKS = "numberOfDispatchedTasks";
+
+    String MAX_WAITING_TIME = "maxWaitingTime";
+
+    String AVERAGE_WAITING_TIME = "averageWaitingTime";
+
+    String LONGEST_WAITING_TIME = "longestWaitingTime";
+
+    String FAIRNESS_INDEX = "fairnessIndex";
+
 
     String getName();
 
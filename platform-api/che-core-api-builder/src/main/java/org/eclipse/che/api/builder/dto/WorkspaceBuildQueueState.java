@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+/**
+ * Describes usage of build queue by single workspace.
+ *
+ * @author andrew00x
+ */
+@DTO
+public interface WorkspaceBuildQueueState {
+    String getWorkspace();
+
+    WorkspaceBuildQueueState withWorkspace(String workspace);
+
+    void setWorkspace(String workspace);
+
+    /** Number of tasks of workspace that wait for free builder. */
+    int getWaitingTasks();
+
+    WorkspaceBuildQueueState withWaitingTasks(int waitingTasks);
+
+    void setWaitingTasks(int waitingTasks);
+
+    /** Number of tasks of workspace that are sent to builders and not finished yet. */
+    int getRunningTasks();
+
+    WorkspaceBuildQueueState withRunningTasks(int runningTasks);
+
+    void setRunningTasks(int runningTasks);
+
+    /** Max number of concurrent builds of workspace, zero or negative number means no limit. */
+    int getMaxRunningTasks();
+
+    WorkspaceBuildQueueState withMaxRunningTasks(int maxRunningTasks);
+
+    void setMaxRunningTasks(int maxRunningTasks);
+
+    /** Weight of workspace in build queue. */
+    int getWeight();
+
+    WorkspaceBuildQueueState withWeight(int weight);
+
+    void setWeight(int weight);
+
+    /** Number of tasks of workspace that are sent to builders since workspace has running builds. */
+    long getDispatchedTasks();
+
+    WorkspaceBuildQueueState withDispatchedTasks(long dispatchedTasks);
+
+    void setDispatchedTasks(long dispatchedTasks);
+
+    /** Average time in milliseconds that dispatched tasks of workspace were waiting for free builder. */
+    long getAverageWaitingTime();
+
+    WorkspaceBuildQueueState withAverageWaitingTime(long averageWaitingTime);
+
+    void setAverageWaitingTime(long averageWaitingTime);
+
+    /** Time in milliseconds of the longest waiting task of workspace that is still in the queue. */
+    long getLongestWaitingTime();
+
+    WorkspaceBuildQueueState withLongestWaitingTime(long longestWaitingTime);
+
+    void setLongestWaitingTime(long longestWaitingTime);
+}
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.eclipse.che.api.builder.dto.BaseBuilderRequest;
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.api.builder.dto.DependencyRequest;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.eclipse.che.commons.lang.cache.Cache;
+import org.eclipse.che.commons.lang.cache.SLRUCache;
+import org.eclipse.che.commons.lang.cache.SynchronizedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache of build results. Key of cached build is hash of project sources and parameters of build, so the same
+ * sources built with the same parameters are built only once even if slave builder is restarted or sources are sent from different
+ * workspace. Files that are produced by build are stored in the cache by hash of their content, each file is stored only once even if
+ * it is produced by many builds.
+ * <p/>
+ * Layout of cache directory:
+ * <pre>
+ *     objects/ab/ab0123...   content of produced files, name of file is SHA-1 hash of its content
+ *     builds/cd4567...       list of files produced by build (relative path and hash of content), name is the key of build
+ * </pre>
+ * Files are added to cache with atomic rename so directory of cache may be shared between slave builders. Cached build is restored to
+ * temporary directory first and its files are moved to the working directory only if all of them are copied, so build that is removed
+ * by other slave builder at the same time is never restored partially. When size of stored files exceeds the limit the least recently
+ * used builds are removed from the cache together with files that aren't used by other builds. Files that aren't used by any build are
+ * kept for {@link #ORPHAN_GRACE_PERIOD} since they may be just stored by other slave builder that doesn't write list of files of build
+ * yet.
+ * <p/>
+ * Size of cache is counted when cache is started and when files are added to it, eviction is run only when counted size exceeds the
+ * limit. Files that are added by other slave builders are counted with the next eviction.
+ * <p/>
+ * Configuration parameters:
+ * <ul>
+ * <li>{@link Constants#BUILD_CACHE_DIRECTORY} - directory of cache, by default directory {@code cache} inside {@link
+ * Constants#BASE_DIRECTORY}</li>
+ * <li>{@link Constants#BUILD_CACHE_SIZE} - max size of cache in megabytes, zero disables cache, default is 1024</li>
+ * </ul>
+ *
+ * @author andrew00x
+ */
+@Singleton
+public class BuildCache {
+    private static final Logger LOG = LoggerFactory.getLogger(BuildCache.class);
+
+    private static final long    DEFAULT_CACHE_SIZE = 1024;
+    private static final Pattern HASH_PATTERN       = Pattern.compile("[0-9a-f]{40}");
+    /** Files that are modified less then this time (in milliseconds) before snapshot of sources is created are checked again. */
+    private static final long    MODIFICATION_TIME_PRECISION = 2000;
+    /** Stored files that aren't used by any build and temporary files aren't removed until they get older than this time. */
+    private static final long    ORPHAN_GRACE_PERIOD         = TimeUnit.MINUTES.toMillis(10);
+
+    /** Hash, size and modification date of file of sources, see {@link #snapshot(String, File)}. */
+    private static class FileStamp {
+        final String hash;
+        final long   size;
+        final long   lastModified;
+        /** Time when file is hashed. */
+        final long   time;
+
+        FileStamp(String hash, long size, long lastModified, long time) {
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.time = time;
+        }
+    }
+
+    private final File                                        rootDirectory;
+    /* Stamps of files of the latest snapshots of sources of projects. */
+    private final Cache<String, Map<String, FileStamp>>       stamps;
+    /* Size of stored files known to this instance. */
+    private final AtomicLong                                  size;
+    private final Lock                                        evictLock;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILD_CACHE_DIRECTORY)
+    private String cacheDirectory;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.BUILD_CACHE_SIZE)
+    private long cacheSize = DEFAULT_CACHE_SIZE;
+
+    private File objects;
+    private File builds;
+    private long maxSize;
+
+    @Inject
+    public BuildCache(@Named(Constants.BASE_DIRECTORY) File rootDirectory) {
+        this.rootDirectory = rootDirectory;
+        stamps = new SynchronizedCache<>(new SLRUCache<String, Map<String, FileStamp>>(20, 20));
+        size = new AtomicLong();
+        evictLock = new ReentrantLock();
+    }
+
+    /**
+     * @param directory
+     *         directory of cache
+     * @param maxSize
+     *         max size of cache in bytes, zero disables cache
+     */
+    public BuildCache(File directory, long maxSize) {
+        this.rootDirectory = null;
+        stamps = new SynchronizedCache<>(new SLRUCache<String, Map<String, FileStamp>>(20, 20));
+        size = new AtomicLong();
+        evictLock = new ReentrantLock();
+        init(directory, maxSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        init(cacheDirectory == null ? new File(rootDirectory, "cache") : new File(cacheDirectory), cacheSize * 1024 * 1024);
+    }
+
+    private void init(File directory, long maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize > 0) {
+            objects = new File(directory, "objects");
+            builds = new File(directory, "builds");
+            if (!(objects.exists() || objects.mkdirs()) || !(builds.exists() || builds.mkdirs())) {
+                throw new IllegalStateException(String.format("Unable create directory %s", directory.getAbsolutePath()));
+            }
+            size.set(getSize());
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Create snapshot of directory.
+     *
+     * @return map of relative paths of files to SHA-1 hashes of their content
+     */
+    public Map<String, String> snapshot(File directory) throws IOException {
+        return snapshot(directory, null, 0);
+    }
+
+    /**
+     * Create snapshot of sources of project. Files that have the same size and modification date as in the previous snapshot of the
+     * same project aren't read again. Sources of project are hard linked or copied to working directory of build, so files that aren't
+     * updated keep their modification dates.
+     *
+     * @param project
+     *         id of project, e.g. workspace id and path of project
+     * @param directory
+     *         directory of sources
+     * @return map of relative paths of files to SHA-1 hashes of their content
+     */
+    public Map<String, String> snapshot(String project, File directory) throws IOException {
+        final long time = System.currentTimeMillis();
+        final Map<String, FileStamp> previous = stamps.get(project);
+        final Map<String, FileStamp> current = new HashMap<>();
+        final Path root = directory.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    final String path = root.relativize(file).toString().replace('\\', '/');
+                    final long lastModified = attrs.lastModifiedTime().toMillis();
+                    final FileStamp stamp = previous == null ? null : previous.get(path);
+                    if (stamp != null && stamp.size == attrs.size() && stamp.lastModified == lastModified
+                        && lastModified < stamp.time - MODIFICATION_TIME_PRECISION) {
+                        current.put(path, stamp);
+                    } else {
+                        final String hash = com.google.common.io.Files.hash(file.toFile(), Hashing.sha1()).toString();
+                        current.put(path, new FileStamp(hash, attrs.size(), lastModified, time));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        stamps.put(project, current);
+        final Map<String, String> snapshot = new HashMap<>(current.size());
+        for (Map.Entry<String, FileStamp> e : current.entrySet()) {
+            snapshot.put(e.getKey(), e.getValue().hash);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get key of build.
+     *
+     * @param builder
+     *         name of builder
+     * @param configuration
+     *         configuration of build
+     * @param sources
+     *         snapshot of sources
+     * @see #snapshot(java.io.File)
+     */
+    public String getKey(String builder, BuilderConfiguration configuration, Map<String, String> sources) {
+        final BaseBuilderRequest request = configuration.getRequest();
+        final Hasher hasher = Hashing.sha1().newHasher();
+        putString(hasher, builder);
+        putString(hasher, String.valueOf(configuration.getTaskType()));
+        putString(hasher, request.getBuilder());
+        for (String target : request.getTargets()) {
+            putString(hasher, target);
+        }
+        putString(hasher, "");
+        for (Map.Entry<String, String> e : new TreeMap<>(request.getOptions()).entrySet()) {
+            putString(hasher, e.getKey());
+            putString(hasher, e.getValue());
+        }
+        putString(hasher, "");
+        hasher.putBoolean(request.isIncludeDependencies());
+        if (request instanceof BuildRequest) {
+            hasher.putBoolean(((BuildRequest)request).isSkipTest());
+        } else if (request instanceof DependencyRequest) {
+            putString(hasher, ((DependencyRequest)request).getType());
+        }
+        for (Map.Entry<String, String> e : new TreeMap<>(sources).entrySet()) {
+            putString(hasher, e.getKey());
+            putString(hasher, e.getValue());
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putString(value == null ? "" : value, StandardCharsets.UTF_8).putByte((byte)0);
+    }
+
+    /**
+     * Copy files produced by cached build to the working directory. Files are copied to temporary directory and moved to the working
+     * directory when all of them are copied, working directory isn't changed if cached build is removed while it is restored.
+     *
+     * @return {@code true} if build is found in cache and {@code false} otherwise
+     */
+    public boolean restore(String key, File workDir) throws IOException {
+        final File entry = new File(builds, key);
+        final Properties files;
+        try {
+            files = readManifest(entry);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return false;
+        }
+        final Path workPath = workDir.toPath().normalize();
+        final Path tmp = Files.createTempDirectory(workPath, ".restore");
+        try {
+            for (String path : files.stringPropertyNames()) {
+                final Path target = workPath.resolve(path).normalize();
+                if (!target.startsWith(workPath)) {
+                    throw new IOException(String.format("Invalid path %s in cached build %s", path, key));
+                }
+                final Path tmpTarget = tmp.resolve(path);
+                Files.createDirectories(tmpTarget.getParent());
+                try {
+                    Files.copy(getObjectFile(files.getProperty(path)).toPath(), tmpTarget);
+                } catch (NoSuchFileException e) {
+                    // Part of build result is removed from cache by other slave builder.
+                    Files.deleteIfExists(entry.toPath());
+                    return false;
+                }
+            }
+            for (String path : files.stringPropertyNames()) {
+                final Path target = workPath.resolve(path).normalize();
+                Files.createDirectories(target.getParent());
+                Files.move(tmp.resolve(path), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            IoUtil.deleteRecursive(tmp.toFile());
+        }
+        // Used for eviction of least recently used builds.
+        entry.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Save files that are produced by build in cache.
+     *
+     * @param key
+     *         key of build
+     * @param workDir
+     *         working directory of build
+     * @param sources
+     *         snapshot of working directory that is created before build
+     * @param snapshotTime
+     *         time when snapshot of sources is created, files that aren't modified after this time aren't read again
+     */
+    public void store(String key, File workDir, Map<String, String> sources, long snapshotTime) throws IOException {
+        final Map<String, String> produced = snapshot(workDir, sources, snapshotTime);
+        final Properties files = new Properties();
+        long added = 0;
+        for (Map.Entry<String, String> e : produced.entrySet()) {
+            if (!e.getValue().equals(sources.get(e.getKey()))) {
+                final File object = getObjectFile(e.getValue());
+                // Update date of file that is already stored, so it isn't removed as not used before list of files of build is written.
+                if (!object.setLastModified(System.currentTimeMillis())) {
+                    final File dir = object.getParentFile();
+                    if (!(dir.exists() || dir.mkdirs())) {
+                        throw new IOException(String.format("Unable create directory %s", dir.getAbsolutePath()));
+                    }
+                    final File tmp = File.createTempFile(object.getName(), ".tmp", dir);
+                    Files.copy(new File(workDir, e.getKey()).toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(tmp.toPath(), object.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    added += object.length();
+                }
+                files.setProperty(e.getKey(), e.getValue());
+            }
+        }
+        final File tmp = File.createTempFile(key, ".tmp", builds);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            files.store(out, null);
+        }
+        Files.move(tmp.toPath(), new File(builds, key).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        if (size.addAndGet(added) > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Get file from cache by hash of its content.
+     *
+     * @return file or {@code null} if there is no file with such hash in cache
+     */
+    public File getObject(String hash) {
+        if (!isEnabled() || !HASH_PATTERN.matcher(hash).matches()) {
+            return null;
+        }
+        final File object = getObjectFile(hash);
+        return object.isFile() ? object : null;
+    }
+
+    /** Get size of all files stored in cache in bytes. */
+    public long getSize() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long size = 0;
+        final File[] dirs = objects.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                final File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        size += file.length();
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private File getObjectFile(String hash) {
+        return new File(new File(objects, hash.substring(0, 2)), hash);
+    }
+
+    /**
+     * Remove the least recently used builds while size of cache is greater then limit. Removes files that aren't used by any build and
+     * are older than {@link #ORPHAN_GRACE_PERIOD}. Does nothing if eviction is already run by other thread.
+     */
+    private void evict() throws IOException {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            doEvict();
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    private void doEvict() throws IOException {
+        final File[] entries = builds.listFiles();
+        if (entries == null) {
+            return;
+        }
+        final long orphanTime = System.currentTimeMillis() - ORPHAN_GRACE_PERIOD;
+        final List<File> sorted = new ArrayList<>(entries.length);
+        final Map<File, Properties> manifests = new HashMap<>();
+        final Map<String, Integer> references = new HashMap<>();
+        for (File entry : entries) {
+            if (entry.getName().endsWith(".tmp")) {
+                if (entry.lastModified() < orphanTime) {
+                    Files.deleteIfExists(entry.toPath());
+                }
+                continue;
+            }
+            final Properties files;
+            try {
+                files = readManifest(entry);
+            } catch (IOException e) {
+                LOG.warn("Unable read cached build {}: {}", entry, e.getMessage());
+                continue;
+            }
+            sorted.add(entry);
+            manifests.put(entry, files);
+            for (String path : files.stringPropertyNames()) {
+                final String hash = files.getProperty(path);
+                final Integer count = references.get(hash);
+                references.put(hash, count == null ? 1 : count + 1);
+            }
+        }
+        long size = 0;
+        final File[] dirs = objects.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                final File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (references.containsKey(file.getName())) {
+                            size += file.length();
+                        } else if (file.lastModified() < orphanTime) {
+                            Files.deleteIfExists(file.toPath());
+                        } else {
+                            // May be stored just now, list of files of build isn't written yet.
+                            size += file.length();
+                        }
+                    }
+                }
+            }
+        }
+        if (size <= maxSize) {
+            this.size.set(size);
+            return;
+        }
+        Collections.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+        for (int i = 0, n = sorted.size(); i < n && size > maxSize; i++) {
+            final File entry = sorted.get(i);
+            Files.deleteIfExists(entry.toPath());
+            final Properties files = manifests.get(entry);
+            for (String path : files.stringPropertyNames()) {
+                final String hash = files.getProperty(path);
+                final int count = references.get(hash) - 1;
+                if (count == 0) {
+                    references.remove(hash);
+                    final File object = getObjectFile(hash);
+                    size -= object.length();
+                    Files.deleteIfExists(object.toPath());
+                } else {
+                    references.put(hash, count);
+                }
+            }
+            LOG.debug("Remove cached build {}", entry.getName());
+        }
+        this.size.set(size);
+    }
+
+    private Properties readManifest(File entry) throws IOException {
+        final Properties files = new Properties();
+        try (InputStream in = new FileInputStream(entry)) {
+            files.load(in);
+        }
+        return files;
+    }
+
+    /**
+     * Create snapshot of directory. If {@code previous} snapshot isn't {@code null} then files that are in previous snapshot and aren't
+     * modified after {@code previousTime} aren't read again.
+     */
+    private Map<String, String> snapshot(File directory, final Map<String, String> previous, final long previousTime)
+            throws IOException {
+        final Path root = directory.toPath();
+        final Map<String, String> snapshot = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    final String path = root.relativize(file).toString().replace('\\', '/');
+                    final String hash = previous == null ? null : previous.get(path);
+                    if (hash != null && attrs.lastModifiedTime().toMillis() < previousTime - MODIFICATION_TIME_PRECISION) {
+                        snapshot.put(path, hash);
+                    } else {
+                        snapshot.put(path, com.google.common.io.Files.hash(file.toFile(), Hashing.sha1()).toString());
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return snapshot;
+    }
+}
@@ -85,6 +85,8 @@ public abstract class Builder {
     private java.io.File             builds;
     @Inject
     private SourcesManager           sourcesManager; // TODO inject this from constructor
+    @com.google.inject.Inject(optional = true)
+    private BuildCache               buildCache;
 
     public Builder(java.io.File rootDirectory, int numberOfWorkers, int queueSize, int keepResultTime, EventService eventService) {
         this.rootDirectory = rootDirectory;
@@ -216,6 +218,11 @@ public abstract class Builder {
         return sourcesManager;
     }
 
+    /** Get cache of build results or {@code null} if builder doesn't use cache. */
+    public BuildCache getBuildCache() {
+        return buildCache;
+    }
+
     public java.io.File getSourcesDirectory() {
         checkStarted();
         return sources;
@@ -385,6 +392,25 @@ public abstract class Builder {
                 eventService.publish(BuilderEvent.buildTimeStartedEvent(request.getId(), request.getWorkspace(), request.getProject(),
                                                                         System.currentTimeMillis()));
                 eventService.publish(BuilderEvent.beginEvent(request.getId(), request.getWorkspace(), request.getProject()));
+                final BuildCache cache = buildCache;
+                Map<String, String> sources = null;
+                String cacheKey = null;
+                long snapshotTime = 0;
+                if (cache != null && cache.isEnabled()) {
+                    try {
+                        snapshotTime = System.currentTimeMillis();
+                        sources = cache.snapshot(request.getWorkspace() + '/' + request.getProject(), configuration.getWorkDir());
+                        cacheKey = cache.getKey(getName(), configuration, sources);
+                        if (cache.restore(cacheKey, configuration.getWorkDir())) {
+                            logger.writeLine("[INFO] Sources and parameters of build are not changed, result of previous build is reused.");
+                            LOG.debug("Restore result of build {} from cache", cacheKey);
+                            return Boolean.TRUE;
+                        }
+                    } catch (IOException e) {
+                        LOG.warn("Unable use cache of build results: {}", e.getMessage());
+                        cacheKey = null;
+                    }
+                }
                 int result = -1;
                 boolean terminated = false;
                 ProcessBuilder processBuilder = createProcessBuilder(commandLine, configuration);
@@ -414,6 +440,13 @@ public abstract class Builder {
                     }
                 }
                 LOG.debug("Done: {}, exit code: {}", commandLine, result);
+                if (result == 0 && cacheKey != null) {
+                    try {
+                        cache.store(cacheKey, configuration.getWorkDir(), sources, snapshotTime);
+                    } catch (IOException e) {
+                        LOG.warn("Unable save result of build in cache: {}", e.getMessage());
+                    }
+                }
                 return result == 0;
             }
         };
@@ -64,6 +64,35 @@ public class Constants {
      * this time build may be terminated.
      */
     public static final String MAX_EXECUTION_TIME         = "builder.max_execution_time";
+    /** Number of threads of build queue that send build requests to slave builders. */
+    public static final String QUEUE_THREADS              = "builder.queue_threads";
+    /**
+     * Max number of concurrent builds of workspace if workspace doesn't have own setting, see {@link #BUILDER_MAX_CONCURRENT_BUILDS}.
+     * Zero or negative value means no limit. Other build requests of workspace wait in the queue.
+     */
+    public static final String WORKSPACE_MAX_CONCURRENT_BUILDS = "builder.workspace_max_concurrent_builds";
+    /**
+     * Period in seconds of synchronization of number of free workers that build queue keeps for each slave builder with state of slave
+     * builders. Slave builders don't push their state to the queue, between synchronizations queue counts workers by itself. Zero or
+     * negative value disables synchronization.
+     */
+    public static final String BUILDER_STATE_SYNC_PERIOD  = "builder.state_sync_period";
+
+    /** Directory of cache of build results, see {@link BuildCache}. May be shared between slave builders. */
+    public static final String BUILD_CACHE_DIRECTORY      = "builder.cache_directory";
+    /** Max size of cache of build results in megabytes, zero disables cache. */
+    public static final String BUILD_CACHE_SIZE           = "builder.cache_size";
+
+    /**
+     * Populate working directory of build with hard links to locally stored project sources instead of copying them. Default is
+     * {@code false}. Sources are copied if file system doesn't support hard links or if other build of the same project is running.
+     * <p/>
+     * Linked file shares content with local copy of project sources, so builder that modifies sources in place, e.g. rewrites them
+     * with filtered or formatted content instead of replacing them, modifies local copy of sources too. Such files are downloaded
+     * again with the next build, but build of the same project that starts while the first one is running may copy modified files.
+     * Enable hard links only for builders that never write to source files.
+     */
+    public static final String SOURCES_HARD_LINKS         = "builder.sources_hard_links";
 
     /** Build results archive type: .zip */
     public static final String RESULT_ARCHIVE_ZIP         = "zip";
@@ -86,7 +115,14 @@ public class Constants {
     public static final String INTERNAL_QUEUE_SIZE = QUEUE_SIZE;
 
     // attributes of workspace which are interested for builder
-    public static final String BUILDER_EXECUTION_TIME = "codenvy:builder_execution_time";
+    public static final String BUILDER_EXECUTION_TIME        = "codenvy:builder_execution_time";
+    /** Max number of concurrent builds of workspace, see {@link #WORKSPACE_MAX_CONCURRENT_BUILDS}. */
+    public static final String BUILDER_MAX_CONCURRENT_BUILDS = "codenvy:builder_max_concurrent_builds";
+    /**
+     * Weight of workspace in build queue, default weight is 1. If many workspaces wait for free builders then workspace with weight 2
+     * gets twice as many builders as workspace with weight 1.
+     */
+    public static final String BUILDER_QUEUE_WEIGHT          = "codenvy:builder_queue_weight";
 
     private Constants() {
     }
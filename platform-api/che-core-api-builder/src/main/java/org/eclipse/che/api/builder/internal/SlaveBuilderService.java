@@ -417,6 +417,22 @@ public final class SlaveBuilderService extends Service {
         throw new NotFoundException(String.format("%s does not exist or is not a file", path));
     }
 
+    /** Download file from cache of build results by SHA-1 hash of its content. See {@link BuildCache}. */
+    @GET
+    @Path("cache/{builder}/{hash}")
+    public Response downloadCachedFile(@PathParam("builder") String builder, @PathParam("hash") String hash) throws Exception {
+        final BuildCache cache = getBuilder(builder).getBuildCache();
+        final java.io.File target = cache == null ? null : cache.getObject(hash);
+        if (target == null) {
+            throw new NotFoundException(String.format("%s is not found in cache", hash));
+        }
+        return Response.status(200)
+                       .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"%s\"", hash))
+                       .type(MediaType.APPLICATION_OCTET_STREAM)
+                       .entity(target)
+                       .build();
+    }
+
     private Builder getBuilder(String name) throws NotFoundException {
         final Builder myBuilder = builders.get(name);
         if (myBuilder == null) {
@@ -11,12 +11,10 @@
 package org.eclipse.che.api.builder.internal;
 
 import org.eclipse.che.api.builder.dto.BaseBuilderRequest;
-import org.eclipse.che.api.core.util.ValueHolder;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.json.JsonHelper;
 import org.eclipse.che.commons.json.JsonParseException;
 import org.eclipse.che.commons.lang.IoUtil;
-import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.commons.lang.ZipUtils;
 import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
 
@@ -30,8 +28,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,22 +41,36 @@ import java.io.StringReader;
 import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -77,23 +91,32 @@ import javax.ws.rs.core.MediaType;
 public class SourcesManagerImpl implements SourcesManager {
     private static final Logger LOG = LoggerFactory.getLogger(SourcesManagerImpl.class);
 
-    private final File                                rootDirectory;
-    private final ConcurrentMap<String, Future<Void>> tasks;
-    private final AtomicReference<String>             projectKeyHolder;
-    private final Set<SourceManagerListener>          listeners;
-    private final ScheduledExecutorService            executor;
+    private final File                                  rootDirectory;
+    private final ConcurrentMap<String, ProjectSources> projects;
+    private final Set<SourceManagerListener>            listeners;
+    private final ScheduledExecutorService              executor;
+    private final ExecutorService                       hashExecutor;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(Constants.SOURCES_HARD_LINKS)
+    private boolean hardLinks = false;
 
     private static final long KEEP_PROJECT_TIME = TimeUnit.MINUTES.toMillis(30);
+    /** Files that are modified less than this time before hashing are hashed again next time even if their size and date are the same. */
+    private static final long MODIFICATION_TIME_PRECISION = 2000;
+    /** Suffix of file that contains hashes of project files, this file is stored next to directory of project. */
+    private static final String HASHES_FILE_SUFFIX = ".md5sums";
     private static final int  CONNECT_TIMEOUT   = (int)TimeUnit.MINUTES.toMillis(4);//This time is chosen empirically and
     private static final int  READ_TIMEOUT      = (int)TimeUnit.MINUTES.toMillis(4);//necessary for some large projects. See IDEX-1957.
 
     @Inject
     public SourcesManagerImpl(@Named(Constants.BASE_DIRECTORY) File rootDirectory) {
         this.rootDirectory = rootDirectory;
-        tasks = new ConcurrentHashMap<>();
-        projectKeyHolder = new AtomicReference<>();
+        projects = new ConcurrentHashMap<>();
         executor = Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder().setNameFormat(getClass().getSimpleName() + "-FileCleaner-%d").setDaemon(true).build());
+        hashExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder()
+                .setNameFormat(getClass().getSimpleName() + "-Hasher-%d").setDaemon(true).build());
         listeners = new CopyOnWriteArraySet<>();
     }
 
@@ -106,6 +129,7 @@ public class SourcesManagerImpl implements SourcesManager {
     public void stop() {
         listeners.clear();
         executor.shutdown();
+        hashExecutor.shutdownNow();
     }
 
     public void getSources(BuildLogger logger, File sourcesDir, BuilderConfiguration configuration) throws IOException {
@@ -119,56 +143,66 @@ public class SourcesManagerImpl implements SourcesManager {
         // Directory for sources. Keep sources to avoid download whole project before build.
         // This directory is not permanent and may be removed at any time.
         final java.io.File srcDir = new java.io.File(directory, workspace + java.io.File.separatorChar + project);
-        // Temporary directory where we copy sources before build.
-        final String key = workspace + project;
+        final ProjectSources sources;
         try {
-            synchronized (this) {
-                while (key.equals(projectKeyHolder.get())) {
-                    wait();
-                }
-            }
+            sources = acquire(getKey(srcDir));
         } catch (InterruptedException e) {
-            LOG.error(e.getMessage(), e);
             Thread.currentThread().interrupt();
+            throw new IOException("Getting of sources is interrupted. ");
         }
-        // Avoid multiple threads download source of the same project.
-        Future<Void> future = tasks.get(key);
-        final ValueHolder<IOException> errorHolder = new ValueHolder<>();
-        if (future == null) {
-            final FutureTask<Void> newFuture = new FutureTask<>(ThreadLocalPropagateContext.wrap(new Runnable() {
-                @Override
-                public void run() {
+        try {
+            // Avoid multiple threads download source of the same project. Threads that come while sources are downloading wait for
+            // the end of download and get the same result.
+            FutureTask<Void> future;
+            for (; ; ) {
+                future = sources.download.get();
+                if (future != null) {
+                    break;
+                }
+                final FutureTask<Void> newFuture = new FutureTask<>(ThreadLocalPropagateContext.wrap(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        sources.lock.writeLock().lock();
+                        try {
+                            download(sourcesUrl, srcDir, directory);
+                        } catch (IOException e) {
+                            LOG.error(e.getMessage(), e);
+                            throw e;
+                        } finally {
+                            sources.lock.writeLock().unlock();
+                        }
+                        return null;
+                    }
+                }));
+                if (sources.download.compareAndSet(null, newFuture)) {
+                    future = newFuture;
+                    logger.writeLine("[INFO] Injecting source code into builder...");
                     try {
-                        download(sourcesUrl, srcDir, directory);
-                    } catch (IOException e) {
-                        LOG.error(e.getMessage(), e);
-                        errorHolder.set(e);
+                        newFuture.run();
+                    } finally {
+                        sources.download.compareAndSet(newFuture, null);
                     }
+                    try {
+                        newFuture.get(); // Never blocks, task is completed already.
+                    } catch (ExecutionException e) {
+                        logger.writeLine("[ERROR] Source code injection failed: " + e.getCause().getMessage()
+                                         + "\n[INFO] ------------------------------------------------------------------------");
+                        throw e;
+                    }
+                    logger.writeLine("[INFO] Source code injection finished"
+                                     + "\n[INFO] ------------------------------------------------------------------------");
+                    break;
                 }
-            }), null);
-            future = tasks.putIfAbsent(key, newFuture);
-            if (future == null) {
-                future = newFuture;
-                try {
-                    // Need a bit time before to publish sources download start message via websocket
-                    // as client may not have already subscribed to the channel so early in build task execution
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    LOG.error(e.getMessage(), e);
-                }
-                logger.writeLine("[INFO] Injecting source code into builder...");
-                newFuture.run();
-                logger.writeLine("[INFO] Source code injection finished"
-                                 + "\n[INFO] ------------------------------------------------------------------------");
             }
-        }
-        try {
             future.get(); // Block thread until download is completed.
-            final IOException ioError = errorHolder.get();
-            if (ioError != null) {
-                throw ioError;
+            // Next download of the same project waits until sources are copied, so working directory gets consistent sources.
+            sources.lock.readLock().lock();
+            try {
+                // Link sources only if there is no other build of the same project that may modify linked files.
+                populateWorkDir(srcDir, workDir, hardLinks && sources.users.get() == 1);
+            } finally {
+                sources.lock.readLock().unlock();
             }
-            IoUtil.copy(srcDir, workDir, IoUtil.ANY_FILTER);
             for (SourceManagerListener listener : listeners) {
                 listener.afterDownload(new SourceManagerEvent(workspace, project, sourcesUrl, workDir));
             }
@@ -177,19 +211,66 @@ public class SourcesManagerImpl implements SourcesManager {
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new IOException("Getting of sources is interrupted. ");
         } catch (ExecutionException e) {
-            // Runnable does not throw checked exceptions.
             final Throwable cause = e.getCause();
-            if (cause instanceof Error) {
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof Error) {
                 throw (Error)cause;
             } else {
                 throw (RuntimeException)cause;
             }
         } finally {
-            tasks.remove(key);
+            sources.users.decrementAndGet();
         }
     }
 
+    /**
+     * Register one more user of local copy of project sources. Waits if sources are being removed at the moment.
+     *
+     * @see #createSchedulerTask()
+     */
+    private ProjectSources acquire(String key) throws InterruptedException {
+        for (; ; ) {
+            final ProjectSources sources = getProjectSources(key);
+            final int users = sources.users.get();
+            if (users < 0) {
+                sources.removed.await();
+            } else if (sources.users.compareAndSet(users, users + 1)) {
+                return sources;
+            }
+        }
+    }
+
+    private ProjectSources getProjectSources(String key) {
+        ProjectSources sources = projects.get(key);
+        if (sources == null) {
+            final ProjectSources newSources = new ProjectSources();
+            sources = projects.putIfAbsent(key, newSources);
+            if (sources == null) {
+                sources = newSources;
+            }
+        }
+        return sources;
+    }
+
+    private String getKey(java.io.File srcDir) {
+        return srcDir.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    /** Local copy of project sources. */
+    private static class ProjectSources {
+        /** Number of builds that use sources or {@code -1} if sources are being removed. */
+        final AtomicInteger                     users    = new AtomicInteger();
+        /** Released when sources are removed or cleaner decides to keep them. */
+        final CountDownLatch                    removed  = new CountDownLatch(1);
+        /** Download that is in progress at the moment. */
+        final AtomicReference<FutureTask<Void>> download = new AtomicReference<>();
+        /** Download holds write lock, copying of sources to working directory of build holds read lock. */
+        final ReadWriteLock                     lock     = new ReentrantReadWriteLock();
+    }
+
     static final OutputStream DEV_NULL = new OutputStream() {
         public void write(byte[] b, int off, int len) {
         }
@@ -204,29 +285,14 @@ public class SourcesManagerImpl implements SourcesManager {
     private void download(String downloadUrl, java.io.File downloadTo, File directory) throws IOException {
         HttpURLConnection conn = null;
         try {
-            final LinkedList<java.io.File> q = new LinkedList<>();
-            q.add(downloadTo);
             final long start = System.currentTimeMillis();
-            final List<Pair<String, String>> md5sums = new LinkedList<>();
-            while (!q.isEmpty()) {
-                java.io.File current = q.pop();
-                java.io.File[] list = current.listFiles();
-                if (list != null) {
-                    for (java.io.File f : list) {
-                        if (f.isDirectory()) {
-                            q.push(f);
-                        } else {
-                            md5sums.add(Pair.of(com.google.common.io.Files.hash(f, Hashing.md5()).toString(),
-                                                downloadTo.toPath().relativize(f.toPath()).toString()
-                                                          .replace("\\", "/"))); //Replacing of "\" is need for windows support
-                        }
-                    }
-                }
-            }
+            final java.io.File hashesFile = getHashesFile(downloadTo);
+            final Map<String, FileHash> md5sums = countHashes(downloadTo, readHashes(hashesFile));
             final long end = System.currentTimeMillis();
             if (md5sums.size() > 0) {
                 LOG.debug("count md5sums of {} files, time: {}ms", md5sums.size(), (end - start));
             }
+            writeHashes(hashesFile, md5sums, start);
             conn = (HttpURLConnection)new URL(downloadUrl).openConnection();
             conn.setConnectTimeout(CONNECT_TIMEOUT);
             conn.setReadTimeout(READ_TIMEOUT);
@@ -241,10 +307,10 @@ public class SourcesManagerImpl implements SourcesManager {
                 conn.setDoOutput(true);
                 try (OutputStream output = conn.getOutputStream();
                      Writer writer = new OutputStreamWriter(output)) {
-                    for (Pair<String, String> pair : md5sums) {
-                        writer.write(pair.first);
+                    for (Map.Entry<String, FileHash> entry : md5sums.entrySet()) {
+                        writer.write(entry.getValue().md5);
                         writer.write(' ');
-                        writer.write(pair.second);
+                        writer.write(entry.getKey());
                         writer.write('\n');
                     }
                 }
@@ -275,7 +341,9 @@ public class SourcesManagerImpl implements SourcesManager {
                                         try (FileOutputStream fOut = new FileOutputStream(tmp)) {
                                             multipart.readBodyData(fOut);
                                         }
-                                        ZipUtils.unzip(tmp, downloadTo);
+                                        try (InputStream zip = new FileInputStream(tmp)) {
+                                            unzipUpdates(zip, downloadTo, directory);
+                                        }
                                     } finally {
                                         if (tmp.exists()) {
                                             tmp.delete();
@@ -284,7 +352,7 @@ public class SourcesManagerImpl implements SourcesManager {
                                 } else {
                                     final ByteArrayOutputStream bOut = new ByteArrayOutputStream(length);
                                     multipart.readBodyData(bOut);
-                                    ZipUtils.unzip(new ByteArrayInputStream(bOut.toByteArray()), downloadTo);
+                                    unzipUpdates(new ByteArrayInputStream(bOut.toByteArray()), downloadTo, directory);
                                 }
                             } else if ("removed-paths".equals(name)) {
                                 final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
@@ -306,7 +374,7 @@ public class SourcesManagerImpl implements SourcesManager {
                     }
                 } else {
                     try (InputStream in = conn.getInputStream()) {
-                        ZipUtils.unzip(in, downloadTo);
+                        unzipUpdates(in, downloadTo, directory);
                     }
                 }
             } else if (responseCode != HttpURLConnection.HTTP_NO_CONTENT) {
@@ -321,6 +389,205 @@ public class SourcesManagerImpl implements SourcesManager {
         }
     }
 
+    /**
+     * Unzip updates to temporary directory and move them to directory of project. Existed files are replaced but not overwritten since
+     * they may be hard linked to working directories of builds.
+     */
+    // package-private for test
+    void unzipUpdates(InputStream zip, java.io.File downloadTo, File directory) throws IOException {
+        final Path tmp = Files.createTempDirectory(directory.toPath(), "updates");
+        try {
+            ZipUtils.unzip(zip, tmp.toFile());
+            Files.createDirectories(downloadTo.toPath());
+            final Path target = downloadTo.toPath();
+            Files.walkFileTree(tmp, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(target.resolve(tmp.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.move(file, target.resolve(tmp.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            IoUtil.deleteRecursive(tmp.toFile());
+        }
+    }
+
+    /**
+     * Copy sources of project to working directory of build. Copied files keep modification date of sources. If {@code hardLink} is
+     * {@code true} files are hard linked if it's possible. Updates from remote server never overwrite files in directory of project, see
+     * {@link #unzipUpdates(InputStream, File, File)}, but linked file that is modified by build in place is modified in directory of
+     * project too. Such file is hashed again and restored from remote server with the next build since its size or date is changed, so
+     * files should be linked only if there is no other build of the same project, see {@link Constants#SOURCES_HARD_LINKS}.
+     */
+    private void populateWorkDir(java.io.File srcDir, java.io.File workDir, final boolean hardLink) throws IOException {
+        final Path source = srcDir.toPath();
+        final Path target = workDir.toPath();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            boolean linksSupported = hardLink;
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final Path link = target.resolve(source.relativize(file).toString());
+                Files.deleteIfExists(link);
+                if (linksSupported) {
+                    try {
+                        Files.createLink(link, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch (UnsupportedOperationException | FileSystemException e) {
+                        // Hard links aren't supported or directories are located on different file systems.
+                        LOG.debug("Unable create hard link {}, copy sources: {}", link, e.getMessage());
+                        linksSupported = false;
+                    }
+                }
+                Files.copy(file, link, StandardCopyOption.COPY_ATTRIBUTES);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private java.io.File getHashesFile(java.io.File srcDir) {
+        return new java.io.File(srcDir.getParentFile(), srcDir.getName() + HASHES_FILE_SUFFIX);
+    }
+
+    /**
+     * Count md5 sums of all files in directory. Sums of files that have the same size and modification date as in {@code previous} are
+     * not counted again. Other files are hashed in parallel.
+     *
+     * @return map of relative paths of files to their hashes
+     */
+    // package-private for test
+    Map<String, FileHash> countHashes(java.io.File directory, final FileHashes previous) throws IOException {
+        final Map<String, FileHash> hashes = new HashMap<>();
+        if (!directory.isDirectory()) {
+            return hashes;
+        }
+        final Path root = directory.toPath();
+        final Map<String, Future<FileHash>> futures = new HashMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile()) {
+                        //Replacing of "\" is need for windows support
+                        final String path = root.relativize(file).toString().replace("\\", "/");
+                        final long size = attrs.size();
+                        final long lastModified = attrs.lastModifiedTime().toMillis();
+                        final FileHash hash = previous.files.get(path);
+                        if (hash != null && hash.size == size && hash.lastModified == lastModified
+                            && lastModified < previous.time - MODIFICATION_TIME_PRECISION) {
+                            hashes.put(path, hash);
+                        } else {
+                            futures.put(path, hashExecutor.submit(ThreadLocalPropagateContext.wrap(new Callable<FileHash>() {
+                                @Override
+                                public FileHash call() throws IOException {
+                                    return new FileHash(com.google.common.io.Files.hash(file.toFile(), Hashing.md5()).toString(), size,
+                                                        lastModified);
+                                }
+                            })));
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (Map.Entry<String, Future<FileHash>> entry : futures.entrySet()) {
+                hashes.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Counting of md5 sums is interrupted. ");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else {
+                throw (RuntimeException)cause;
+            }
+        } finally {
+            for (Future<FileHash> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        LOG.debug("{} of {} files in {} are hashed again", futures.size(), hashes.size(), directory);
+        return hashes;
+    }
+
+    // package-private for test
+    FileHashes readHashes(java.io.File file) {
+        final Map<String, FileHash> files = new HashMap<>();
+        if (!file.isFile()) {
+            return new FileHashes(0, files);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final long time = Long.parseLong(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // md5 size lastModified path
+                final String[] parts = line.split(" ", 4);
+                files.put(parts[3], new FileHash(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+            return new FileHashes(time, files);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable read md5 sums from {}: {}", file, e.getMessage());
+            return new FileHashes(0, new HashMap<String, FileHash>());
+        }
+    }
+
+    // package-private for test
+    void writeHashes(java.io.File file, Map<String, FileHash> hashes, long time) {
+        try {
+            final java.io.File tmp = java.io.File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(Long.toString(time));
+                writer.write('\n');
+                for (Map.Entry<String, FileHash> entry : hashes.entrySet()) {
+                    final FileHash hash = entry.getValue();
+                    writer.write(hash.md5 + ' ' + hash.size + ' ' + hash.lastModified + ' ' + entry.getKey());
+                    writer.write('\n');
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Unable save md5 sums to {}: {}", file, e.getMessage());
+        }
+    }
+
+    static class FileHash {
+        final String md5;
+        final long   size;
+        final long   lastModified;
+
+        FileHash(String md5, long size, long lastModified) {
+            this.md5 = md5;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    static class FileHashes {
+        /** Time when hashing is started. */
+        final long                  time;
+        final Map<String, FileHash> files;
+
+        FileHashes(long time, Map<String, FileHash> files) {
+            this.time = time;
+            this.files = files;
+        }
+    }
+
     private Map<String, List<String>> parseChunkHeader(List<String> rawHeaders) throws IOException {
         final Map<String, List<String>> headers = new HashMap<>();
         for (String field : rawHeaders) {
@@ -368,34 +635,48 @@ public class SourcesManagerImpl implements SourcesManager {
             public void run() {
                 // get a list of the builder source dirs
                 File[] builders = rootDirectory.listFiles();
+                if (builders == null) {
+                    return;
+                }
                 for (File builderDir : builders) {
-                File directory = new File(builderDir, Constants.SOURCES_DIR_NAME);
-                //get list of workspaces
-                java.io.File[] workspaces = directory.listFiles();
-                for (java.io.File workspace : workspaces) {
-                    //get list of workspace projects
-                    java.io.File[] projects = workspace.listFiles();
-                    for (java.io.File project : projects) {
-                        String key = workspace.getName() + project.getName();
-                        //if project is not downloading
-                        if (tasks.get(key) == null) {
-                            projectKeyHolder.set(key);
-                            try {
-                                final long lastModifiedMillis = project.lastModified();
-                                if ((System.currentTimeMillis() - lastModifiedMillis) >= KEEP_PROJECT_TIME) {
-                                    IoUtil.deleteRecursive(project);
-                                    LOG.debug("Remove project {} that is unused since {}", project, lastModifiedMillis);
-                                }
-                            } finally {
-                                projectKeyHolder.set(null);
-                                synchronized (SourcesManagerImpl.this) {
-                                    SourcesManagerImpl.this.notify();
+                    File directory = new File(builderDir, Constants.SOURCES_DIR_NAME);
+                    //get list of workspaces
+                    java.io.File[] workspaces = directory.listFiles();
+                    if (workspaces == null) {
+                        continue;
+                    }
+                    for (java.io.File workspace : workspaces) {
+                        //get list of workspace projects
+                        java.io.File[] projectDirs = workspace.listFiles();
+                        if (projectDirs == null) {
+                            continue;
+                        }
+                        for (java.io.File project : projectDirs) {
+                            if (!project.isDirectory()) {
+                                // md5 sums of project files, removed together with project
+                                continue;
+                            }
+                            final String key = getKey(project);
+                            final ProjectSources sources = getProjectSources(key);
+                            //if project is not used by any build
+                            if (sources.users.compareAndSet(0, -1)) {
+                                try {
+                                    final long lastModifiedMillis = project.lastModified();
+                                    if ((System.currentTimeMillis() - lastModifiedMillis) >= KEEP_PROJECT_TIME) {
+                                        IoUtil.deleteRecursive(project);
+                                        if (!getHashesFile(project).delete()) {
+                                            LOG.debug("Unable remove md5 sums of project {}", project);
+                                        }
+                                        LOG.debug("Remove project {} that is unused since {}", project, lastModifiedMillis);
+                                    }
+                                } finally {
+                                    projects.remove(key, sources);
+                                    sources.removed.countDown();
                                 }
                             }
                         }
                     }
                 }
-                }
             }
         });
     }
@@ -10,8 +10,272 @@
  *******************************************************************************/
 package org.eclipse.che.api.builder;
 
+import org.eclipse.che.api.builder.dto.BaseBuilderRequest;
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.api.builder.dto.BuildTaskDescriptor;
+import org.eclipse.che.api.builder.dto.BuilderDescriptor;
+import org.eclipse.che.api.builder.internal.Constants;
+import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.rest.shared.dto.Link;
+import org.eclipse.che.api.workspace.shared.dto.WorkspaceDescriptor;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.eclipse.che.dto.server.DtoFactory.newDto;
+
 /**
  * @author andrew00x
  */
 public class BuildQueueTest {
+    private WorkspaceQuotas        quotas;
+    private BuildQueue.BuilderList builderList;
+    private RemoteBuilder          builder;
+    private List<Long>             dispatched;
+
+    @BeforeMethod
+    public void setUp() {
+        quotas = new WorkspaceQuotas();
+        builderList = new BuildQueue.BuilderList(new BuilderSelectionStrategy() {
+            @Override
+            public RemoteBuilder select(List<RemoteBuilder> slaveBuilders) {
+                return slaveBuilders.get(0);
+            }
+        }, quotas);
+        builder = new RemoteBuilder("http://localhost:8080/api/internal/builder",
+                                    newDto(BuilderDescriptor.class).withName("maven"),
+                                    Collections.<Link>emptyList(),
+                                    null);
+        dispatched = new ArrayList<>();
+    }
+
+    @Test
+    public void testTaskWaitsForFreeWorker() throws Exception {
+        addBuilder(1);
+        final TestWaiter first = enqueue(1, "ws1", 1, 0);
+        Assert.assertEquals(first.builder, builder);
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 0);
+
+        final TestWaiter second = enqueue(2, "ws1", 1, 0);
+        Assert.assertNull(second.builder);
+        Assert.assertEquals(builderList.getWaiters().size(), 1);
+
+        end(first);
+        Assert.assertEquals(second.builder, builder);
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 0);
+        Assert.assertTrue(builderList.getWaiters().isEmpty());
+    }
+
+    @Test
+    public void testTasksOfWorkspaceAreDispatchedInOrderTheyAreAdded() throws Exception {
+        addBuilder(0);
+        enqueue(1, "ws1", 1, 0);
+        enqueue(2, "ws1", 1, 0);
+        enqueue(3, "ws1", 1, 0);
+
+        // Notification from slave builder.
+        builderList.setFreeWorkers(builder, 3);
+        Assert.assertEquals(dispatched, Arrays.asList(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testWorkspacesShareBuildersFairly() throws Exception {
+        addBuilder(0);
+        for (long id = 1; id <= 4; id++) {
+            enqueue(id, "busy", 1, 0);
+        }
+        enqueue(5, "ws1", 1, 0);
+        enqueue(6, "ws1", 1, 0);
+
+        builderList.setFreeWorkers(builder, 6);
+        Assert.assertEquals(dispatched, Arrays.asList(1L, 5L, 2L, 6L, 3L, 4L));
+    }
+
+    @Test
+    public void testWorkspaceWithGreaterWeightGetsMoreBuilders() throws Exception {
+        addBuilder(0);
+        for (long id = 1; id <= 3; id++) {
+            enqueue(id, "ws1", 1, 0);
+        }
+        for (long id = 4; id <= 7; id++) {
+            enqueue(id, "ws2", 2, 0);
+        }
+
+        builderList.setFreeWorkers(builder, 7);
+        Assert.assertEquals(dispatched, Arrays.asList(1L, 4L, 5L, 2L, 6L, 7L, 3L));
+    }
+
+    @Test
+    public void testWorkspaceLimitOfConcurrentBuilds() throws Exception {
+        addBuilder(3);
+        final TestWaiter first = enqueue(1, "ws1", 1, 1);
+        final TestWaiter second = enqueue(2, "ws1", 1, 1);
+        final TestWaiter third = enqueue(3, "ws2", 1, 1);
+        Assert.assertEquals(first.builder, builder);
+        Assert.assertNull(second.builder);
+        Assert.assertEquals(third.builder, builder);
+        Assert.assertEquals(quotas.getRunning("ws1"), 1);
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 1);
+
+        end(first);
+        Assert.assertEquals(second.builder, builder);
+        Assert.assertEquals(quotas.getRunning("ws1"), 1);
+    }
+
+    @Test
+    public void testReleaseDoesNotExceedNumberOfWorkers() throws Exception {
+        addBuilder(2);
+        builderList.release(builder);
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 2);
+    }
+
+    @Test
+    public void testWaitingTaskIsRejectedWhenBuilderIsRemoved() throws Exception {
+        addBuilder(0);
+        final TestWaiter waiter = enqueue(1, "ws1", 1, 0);
+        builderList.removeBuilder(builder);
+        Assert.assertTrue(waiter.rejected);
+        Assert.assertTrue(builderList.getWaiters().isEmpty());
+    }
+
+    @Test
+    public void testCanceledTaskIsNotDispatched() throws Exception {
+        addBuilder(0);
+        final TestWaiter waiter = enqueue(1, "ws1", 1, 0);
+        waiter.cancelled = true;
+        Assert.assertTrue(builderList.getWaiters().isEmpty());
+        builderList.setFreeWorkers(builder, 1);
+        Assert.assertNull(waiter.builder);
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 1);
+    }
+
+    @Test
+    public void testStateOfBuilderIsIgnoredIfTaskIsDispatchedWhileStateIsRequested() throws Exception {
+        addBuilder(2);
+        final long dispatches = builderList.getDispatches(builder);
+        // Task is dispatched after request of state is sent, remote builder doesn't count it yet.
+        final TestWaiter first = enqueue(1, "ws1", 1, 0);
+        Assert.assertEquals(first.builder, builder);
+        Assert.assertFalse(builderList.setFreeWorkers(builder, 2, dispatches));
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 1);
+
+        Assert.assertTrue(builderList.setFreeWorkers(builder, 1, builderList.getDispatches(builder)));
+        Assert.assertEquals(builderList.getFreeWorkers(builder), 1);
+    }
+
+    @Test
+    public void testBuilderIsReleasedWhenDispatchedTaskExpiresWithoutEvent() throws Exception {
+        final BuildQueue queue = new BuildQueue(60, 60, 0, new BuilderSelectionStrategy() {
+            @Override
+            public RemoteBuilder select(List<RemoteBuilder> slaveBuilders) {
+                return slaveBuilders.get(0);
+            }
+        }, null, new EventService());
+        queue.start();
+        try {
+            Assert.assertTrue(queue.doRegisterBuilderServer(new RemoteBuilderServer(builder.getBaseUrl(), null) {
+                @Override
+                public List<RemoteBuilder> getRemoteBuilders() {
+                    return Collections.singletonList(builder);
+                }
+            }));
+            queue.getBuilderList("ws1", null).setFreeWorkers(builder, 2);
+            final WorkspaceDescriptor workspace = newDto(WorkspaceDescriptor.class)
+                    .withId("ws1")
+                    .withAttributes(Collections.singletonMap(Constants.BUILDER_MAX_CONCURRENT_BUILDS, "1"));
+            final BuildQueueTask first = queue.enqueue(newDto(BuildRequest.class).withBuilder("maven").withWorkspace("ws1"),
+                                                       lostRemoteTask(), workspace, null);
+            final BuildQueueTask second = queue.enqueue(newDto(BuildRequest.class).withBuilder("maven").withWorkspace("ws1"),
+                                                        lostRemoteTask(), workspace, null);
+            waitForDispatch(first);
+            Assert.assertTrue(second.isWaiting());
+
+            // Remote builder doesn't know about the first task and never sends event about its end.
+            queue.removeExpiredTasks();
+            Assert.assertFalse(queue.getTasks().contains(first));
+            waitForDispatch(second);
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private Callable<RemoteTask> lostRemoteTask() {
+        return new Callable<RemoteTask>() {
+            @Override
+            public RemoteTask call() throws Exception {
+                return new RemoteTask(builder.getBaseUrl(), "maven", 1L, null) {
+                    @Override
+                    public long getCreationTime() {
+                        return System.currentTimeMillis() - 60000;
+                    }
+
+                    @Override
+                    public BuildTaskDescriptor getBuildTaskDescriptor() throws NotFoundException {
+                        throw new NotFoundException("Task not found");
+                    }
+                };
+            }
+        };
+    }
+
+    private void waitForDispatch(BuildQueueTask task) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5000;
+        while (task.isWaiting() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(task.isWaiting());
+    }
+
+    private void addBuilder(int freeWorkers) {
+        final Map<RemoteBuilder, Integer> builders = new LinkedHashMap<>();
+        builders.put(builder, freeWorkers);
+        Assert.assertTrue(builderList.addBuilders(builders));
+    }
+
+    private TestWaiter enqueue(long id, String workspace, int weight, int maxRunning) {
+        final TestWaiter waiter =
+                new TestWaiter(newDto(BuildRequest.class).withBuilder("maven").withWorkspace(workspace).withId(id), weight, maxRunning);
+        Assert.assertTrue(builderList.enqueue(waiter));
+        return waiter;
+    }
+
+    private void end(TestWaiter waiter) {
+        quotas.release(waiter.request.getWorkspace());
+        builderList.release(waiter.builder);
+    }
+
+    private class TestWaiter extends BuildQueue.Waiter {
+        RemoteBuilder builder;
+        boolean       rejected;
+        boolean       cancelled;
+
+        TestWaiter(BaseBuilderRequest request, int weight, int maxRunning) {
+            super(request, weight, maxRunning);
+        }
+
+        @Override
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        void dispatch(RemoteBuilder builder) {
+            this.builder = builder;
+            dispatched.add(request.getId());
+        }
+
+        @Override
+        void reject() {
+            rejected = true;
+        }
+    }
 }
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import org.eclipse.che.api.builder.dto.BuildRequest;
+import org.eclipse.che.commons.lang.IoUtil;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.eclipse.che.dto.server.DtoFactory.newDto;
+
+/**
+ * @author andrew00x
+ */
+public class BuildCacheTest {
+    private File       root;
+    private BuildCache cache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("build-cache-").toFile();
+        cache = new BuildCache(new File(root, "cache"), 1024 * 1024);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void testRestoreResultOfBuildWithTheSameSources() throws Exception {
+        final File workDir1 = createSources("build1", "class A {}");
+        final String key1 = build(workDir1, "artifact");
+
+        final File workDir2 = createSources("build2", "class A {}");
+        final String key2 = cache.getKey("maven", configuration(workDir2, false), cache.snapshot(workDir2));
+        Assert.assertEquals(key2, key1);
+        Assert.assertTrue(cache.restore(key2, workDir2));
+        Assert.assertEquals(read(new File(workDir2, "target/app.jar")), "artifact");
+    }
+
+    @Test
+    public void testKeyDependsOnSourcesAndParameters() throws Exception {
+        final File workDir1 = createSources("build1", "class A {}");
+        final File workDir2 = createSources("build2", "class B {}");
+        final String key = cache.getKey("maven", configuration(workDir1, false), cache.snapshot(workDir1));
+        Assert.assertNotEquals(cache.getKey("maven", configuration(workDir2, false), cache.snapshot(workDir2)), key);
+        Assert.assertNotEquals(cache.getKey("maven", configuration(workDir1, true), cache.snapshot(workDir1)), key);
+        Assert.assertNotEquals(cache.getKey("ant", configuration(workDir1, false), cache.snapshot(workDir1)), key);
+        Assert.assertFalse(cache.restore(key, workDir1));
+    }
+
+    @Test
+    public void testSourcesAreNotStored() throws Exception {
+        final File workDir = createSources("build1", "class A {}");
+        build(workDir, "artifact");
+        Assert.assertEquals(cache.getSize(), "artifact".length());
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce() throws Exception {
+        build(createSources("build1", "class A {}"), "artifact");
+        build(createSources("build2", "class B {}"), "artifact");
+        Assert.assertEquals(cache.getSize(), "artifact".length());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedBuildIsEvicted() throws Exception {
+        cache = new BuildCache(new File(root, "small-cache"), 20);
+        final File workDir1 = createSources("build1", "class A {}");
+        final String key1 = build(workDir1, "artifact-1");
+        // Make the first build older than the second one.
+        Assert.assertTrue(new File(new File(root, "small-cache/builds"), key1).setLastModified(System.currentTimeMillis() - 60000));
+        final File workDir2 = createSources("build2", "class B {}");
+        final String key2 = build(workDir2, "artifact-2");
+        Assert.assertEquals(cache.getSize(), 20);
+
+        final File workDir3 = createSources("build3", "class C {}");
+        build(workDir3, "artifact-3");
+        Assert.assertEquals(cache.getSize(), 20);
+        Assert.assertFalse(cache.restore(key1, workDir1));
+        Assert.assertTrue(cache.restore(key2, workDir2));
+    }
+
+    @Test
+    public void testRestoreDoesNotChangeWorkDirIfPartOfBuildIsRemoved() throws Exception {
+        final File workDir1 = createSources("build1", "class A {}");
+        final String key = build(workDir1, "artifact");
+        final File object = cache.getObject(cache.snapshot(workDir1).get("target/app.jar"));
+        Assert.assertNotNull(object);
+        Assert.assertTrue(object.delete());
+
+        final File workDir2 = createSources("build2", "class A {}");
+        Assert.assertFalse(cache.restore(key, workDir2));
+        Assert.assertFalse(new File(workDir2, "target").exists());
+        Assert.assertEquals(workDir2.list().length, 1);
+        // Broken build is removed from cache.
+        Assert.assertFalse(new File(new File(root, "cache/builds"), key).exists());
+    }
+
+    @Test
+    public void testSnapshotOfProjectDetectsModifiedFiles() throws Exception {
+        final File workDir = createSources("build1", "class A {}");
+        final File file = new File(workDir, "src/A.java");
+        Assert.assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        final Map<String, String> snapshot1 = cache.snapshot("workspace/project", workDir);
+        Assert.assertEquals(snapshot1, cache.snapshot(workDir));
+        Assert.assertEquals(cache.snapshot("workspace/project", workDir), snapshot1);
+
+        Files.write(file.toPath(), "class B {}".getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> snapshot2 = cache.snapshot("workspace/project", workDir);
+        Assert.assertNotEquals(snapshot2, snapshot1);
+        Assert.assertEquals(snapshot2, cache.snapshot(workDir));
+    }
+
+    private File createSources(String name, String content) throws IOException {
+        final File workDir = new File(root, name);
+        final File src = new File(workDir, "src");
+        Assert.assertTrue(src.mkdirs());
+        Files.write(new File(src, "A.java").toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return workDir;
+    }
+
+    /** Emulates build that produces single artifact and saves its result in cache. */
+    private String build(File workDir, String artifact) throws IOException {
+        final long snapshotTime = System.currentTimeMillis();
+        final Map<String, String> sources = cache.snapshot(workDir);
+        final String key = cache.getKey("maven", configuration(workDir, false), sources);
+        final File target = new File(workDir, "target");
+        Assert.assertTrue(target.mkdirs());
+        Files.write(new File(target, "app.jar").toPath(), artifact.getBytes(StandardCharsets.UTF_8));
+        cache.store(key, workDir, sources, snapshotTime);
+        return key;
+    }
+
+    private BuilderConfiguration configuration(File workDir, boolean skipTest) {
+        final BuildRequest request = newDto(BuildRequest.class).withSkipTest(skipTest);
+        request.setBuilder("maven");
+        request.setTargets(Collections.singletonList("install"));
+        return new BuilderConfiguration(workDir.getParentFile(), workDir, BuilderTaskType.DEFAULT, request);
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.builder.internal;
+
+import com.google.common.hash.Hashing;
+
+import org.eclipse.che.commons.lang.IoUtil;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author andrew00x
+ */
+public class SourcesManagerImplTest {
+    private File               root;
+    private File               project;
+    private SourcesManagerImpl sourcesManager;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("sources-").toFile();
+        project = new File(root, "workspace/project");
+        Assert.assertTrue(project.mkdirs());
+        sourcesManager = new SourcesManagerImpl(root);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        sourcesManager.stop();
+        IoUtil.deleteRecursive(root);
+    }
+
+    @Test
+    public void testReadWrittenHashes() throws Exception {
+        write(new File(project, "pom.xml"), "<project/>");
+        write(new File(project, "src/main/java/My App.java"), "class App {}");
+        final File hashesFile = new File(root, "workspace/project.md5sums");
+        final Map<String, SourcesManagerImpl.FileHash> hashes =
+                sourcesManager.countHashes(project, sourcesManager.readHashes(hashesFile));
+        Assert.assertEquals(hashes.size(), 2);
+        sourcesManager.writeHashes(hashesFile, hashes, 12345);
+
+        final SourcesManagerImpl.FileHashes read = sourcesManager.readHashes(hashesFile);
+        Assert.assertEquals(read.time, 12345);
+        Assert.assertEquals(read.files.keySet(), hashes.keySet());
+        for (Map.Entry<String, SourcesManagerImpl.FileHash> e : hashes.entrySet()) {
+            final SourcesManagerImpl.FileHash hash = read.files.get(e.getKey());
+            Assert.assertEquals(hash.md5, e.getValue().md5);
+            Assert.assertEquals(hash.size, e.getValue().size);
+            Assert.assertEquals(hash.lastModified, e.getValue().lastModified);
+        }
+        Assert.assertEquals(read.files.get("src/main/java/My App.java").md5,
+                            Hashing.md5().hashString("class App {}", StandardCharsets.UTF_8).toString());
+    }
+
+    @Test
+    public void testHashesOfNotModifiedFilesAreNotCountedAgain() throws Exception {
+        final File file = new File(project, "pom.xml");
+        write(file, "<project/>");
+        Assert.assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        final File modified = new File(project, "README");
+        write(modified, "readme");
+        Assert.assertTrue(modified.setLastModified(System.currentTimeMillis() - 60000));
+        final Map<String, SourcesManagerImpl.FileHash> previous = new HashMap<>();
+        previous.put("pom.xml", new SourcesManagerImpl.FileHash("stored", file.length(), file.lastModified()));
+        previous.put("README", new SourcesManagerImpl.FileHash("stored", modified.length(), modified.lastModified() - 1000));
+
+        final Map<String, SourcesManagerImpl.FileHash> hashes =
+                sourcesManager.countHashes(project, new SourcesManagerImpl.FileHashes(System.currentTimeMillis(), previous));
+        Assert.assertEquals(hashes.get("pom.xml").md5, "stored");
+        Assert.assertNotEquals(hashes.get("README").md5, "stored");
+    }
+
+    @Test
+    public void testUnzipUpdatesReplacesFilesButDoesNotOverwriteThem() throws Exception {
+        final File file = new File(project, "src/A.java");
+        write(file, "class A {}");
+        // Emulates working directory of build that is populated with hard links.
+        final File link = new File(root, "build/src/A.java");
+        Assert.assertTrue(link.getParentFile().mkdirs());
+        Files.createLink(link.toPath(), file.toPath());
+
+        final Map<String, String> updates = new HashMap<>();
+        updates.put("src/A.java", "class A { int a; }");
+        updates.put("src/b/B.java", "class B {}");
+        sourcesManager.unzipUpdates(new ByteArrayInputStream(zip(updates)), project, root);
+
+        Assert.assertEquals(read(file), "class A { int a; }");
+        Assert.assertEquals(read(new File(project, "src/b/B.java")), "class B {}");
+        Assert.assertEquals(read(link), "class A {}");
+        // Temporary directory of updates is removed.
+        Assert.assertEquals(root.list().length, 2);
+    }
+
+    private void write(File file, String content) throws IOException {
+        final File parent = file.getParentFile();
+        Assert.assertTrue(parent.exists() || parent.mkdirs());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private byte[] zip(Map<String, String> files) throws IOException {
+        final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bOut)) {
+            for (Map.Entry<String, String> e : files.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(e.getKey()));
+                zipOut.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return bOut.toByteArray();
+    }
+}
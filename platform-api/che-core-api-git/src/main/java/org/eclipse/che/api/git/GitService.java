@@ -169,12 +169,15 @@ public class GitService {
     @Produces(MediaType.APPLICATION_JSON)
     public RepoInfo clone(final CloneRequest request) throws URISyntaxException, ApiException {
         long start = System.currentTimeMillis();
+        final String projectFolder = request.getWorkingDir();
         // On-the-fly resolving of repository's working directory.
-        request.setWorkingDir(resolveLocalPathByPath(request.getWorkingDir()));
+        request.setWorkingDir(resolveLocalPathByPath(projectFolder));
         LOG.info("Repository clone from '" + request.getRemoteUri() + "' to '" + request.getWorkingDir() + "' started");
         GitConnection gitConnection = getGitConnection();
         try {
             gitConnection.clone(request);
+            // Git creates files directly on file system, drop cached configuration of project since it becomes git project.
+            projectManager.invalidateProjectConfig(vfsId, projectFolder);
             return DtoFactory.getInstance().createDto(RepoInfo.class).withRemoteUri(request.getRemoteUri());
         } finally {
             long end = System.currentTimeMillis();
@@ -234,6 +237,7 @@ public class GitService {
         try (GitConnection gitConnection = getGitConnection()) {
             gitConnection.init(request);
         }
+        projectManager.invalidateProjectConfig(vfsId, projectPath);
     }
 
     @Path("log")
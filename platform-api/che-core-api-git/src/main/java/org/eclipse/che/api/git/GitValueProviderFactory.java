@@ -72,6 +72,12 @@ public class GitValueProviderFactory implements ValueProviderFactory {
         };
     }
 
+    /** Only git metadata is checked by provider. Git doesn't change files through virtual file system, see {@link GitService}. */
+    @Override
+    public boolean isInvalidatedBy(String relativePath) {
+        return relativePath.equals(".git") || relativePath.startsWith(".git/");
+    }
+
     private String resolveLocalPathByPath(String folderPath, String wsId) throws ApiException {
         VirtualFileSystem vfs = vfsRegistry.getProvider(wsId).newInstance(null);
         Item gitProject = vfs.getItemByPath(folderPath, null, false, PropertyFilter.ALL_FILTER);
@@ -29,15 +29,20 @@ import org.eclipse.che.api.project.server.type.BaseProjectType;
 import org.eclipse.che.api.project.server.type.ProjectType;
 import org.eclipse.che.api.project.server.type.ProjectTypeRegistry;
 import org.eclipse.che.api.project.server.type.Variable;
+import org.eclipse.che.api.project.shared.Builders;
+import org.eclipse.che.api.project.shared.Runners;
 import org.eclipse.che.api.project.shared.dto.SourceEstimation;
 
 import org.eclipse.che.api.vfs.server.Path;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemRegistry;
+import org.eclipse.che.api.vfs.server.observation.MoveEvent;
+import org.eclipse.che.api.vfs.server.observation.RenameEvent;
 import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.commons.lang.cache.Cache;
 import org.eclipse.che.commons.lang.cache.SLRUCache;
+import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
 import org.eclipse.che.dto.server.DtoFactory;
 
 import org.slf4j.Logger;
@@ -46,22 +51,43 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.InvalidPropertiesFormatException;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -76,15 +102,47 @@ public final class DefaultProjectManager implements ProjectManager {
     private static final int CACHE_MASK = CACHE_NUM - 1;
     private static final int SEG_SIZE   = 32;
 
+    /** Name of configuration parameter that sets max time in milliseconds for estimation of project types. */
+    public static final String ESTIMATION_TIMEOUT = "project.estimation.timeout_ms";
+
+    /** Estimation of project type that takes more time in milliseconds is reported in log. */
+    private static final long ESTIMATION_SLOW_THRESHOLD = 1000;
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    /** Name of configuration parameter that sets period in milliseconds of saving of updated misc of projects. */
+    public static final String MISC_FLUSH_PERIOD = "project.misc.flush_period_ms";
+
     private final Lock[]                                     miscLocks;
     private final Cache<Pair<String, String>, ProjectMisc>[] miscCaches;
+    private final ProjectMiscWriter                          miscWriter;
+
+    private final Lock[]                                             configLocks;
+    private final Cache<Pair<String, String>, CachedProjectConfig>[] configCaches;
+    /**
+     * Counts invalidations of configurations in each workspace. Configuration which is loaded concurrently with invalidation in the
+     * same workspace is not cached.
+     */
+    private final ConcurrentMap<String, AtomicLong>                  configInvalidations;
+
+    private final ConcurrentMap<String, AtomicLong> changeCounters;
 
     private final VirtualFileSystemRegistry         fileSystemRegistry;
     private final EventService                      eventService;
     private final EventSubscriber<VirtualFileEvent> vfsSubscriber;
+    private final EventSubscriber<VirtualFileEvent> configInvalidator;
     private final ProjectTypeRegistry               projectTypeRegistry;
     private final ProjectHandlerRegistry            handlers;
+    private final ExecutorService                   estimationExecutor;
+
+    @com.google.inject.Inject(optional = true)
+    @Named(ESTIMATION_TIMEOUT)
+    // Package-private for test.
+    long estimationTimeout = 10000;
 
+    @com.google.inject.Inject(optional = true)
+    @Named(MISC_FLUSH_PERIOD)
+    private long miscFlushPeriod = 5000;
 
     @Inject
     @SuppressWarnings("unchecked")
@@ -108,26 +166,46 @@ public final class DefaultProjectManager implements ProjectManager {
                 @Override
                 protected void evict(Pair<String, String> key, ProjectMisc value) {
                     if (value.isUpdated()) {
-                        final int index = key.hashCode() & CACHE_MASK;
-                        miscLocks[index].lock();
-                        try {
-                            writeProjectMisc(value.getProject(), value);
-                        } catch (Exception e) {
-                            LOG.error(e.getMessage(), e);
-                        } finally {
-                            miscLocks[index].unlock();
-                        }
-                        super.evict(key, value);
+                        miscWriter.schedule(key, value);
                     }
+                    super.evict(key, value);
                 }
             };
         }
+        this.miscWriter = new ProjectMiscWriter() {
+            @Override
+            protected void write(Pair<String, String> key, ProjectMisc misc) throws ServerException {
+                misc.resetUpdated();
+                final Project project = misc.getProject();
+                // Project may be removed or moved since misc is updated.
+                if (project.getBaseFolder().getVirtualFile().exists()) {
+                    writeProjectMisc(project, misc);
+                }
+            }
+        };
+
+        this.configCaches = new Cache[CACHE_NUM];
+        this.configLocks = new Lock[CACHE_NUM];
+        for (int i = 0; i < CACHE_NUM; i++) {
+            configLocks[i] = new ReentrantLock();
+            configCaches[i] = new SLRUCache<>(SEG_SIZE, SEG_SIZE);
+        }
+        this.configInvalidations = new ConcurrentHashMap<>();
+        this.changeCounters = new ConcurrentHashMap<>();
+
+        this.estimationExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                                                               new ThreadFactoryBuilder().setNameFormat("ProjectTypeEstimator-%d")
+                                                                                         .setDaemon(true)
+                                                                                         .build());
 
         vfsSubscriber = new EventSubscriber<VirtualFileEvent>() {
             @Override
             public void onEvent(VirtualFileEvent event) {
                 final String workspace = event.getWorkspaceId();
                 final String path = event.getPath();
+                if (isProjectListChange(event)) {
+                    incrementChangeCounter(workspace);
+                }
                 if (path.endsWith(Constants.CODENVY_MISC_FILE_RELATIVE_PATH)) {
                     return;
                 }
@@ -143,7 +221,9 @@ public final class DefaultProjectManager implements ProjectManager {
                             try {
                                 final Project project = getProject(workspace, projectPath);
                                 if (project != null) {
-                                    getProjectMisc(project).setModificationDate(System.currentTimeMillis());
+                                    final ProjectMisc misc = getProjectMisc(project);
+                                    misc.setModificationDate(System.currentTimeMillis());
+                                    saveProjectMisc(project, misc);
                                 }
                             } catch (Exception e) {
                                 LOG.error(e.getMessage(), e);
@@ -154,6 +234,33 @@ public final class DefaultProjectManager implements ProjectManager {
                 }
             }
         };
+
+        configInvalidator = new EventSubscriber<VirtualFileEvent>() {
+            @Override
+            public void onEvent(VirtualFileEvent event) {
+                final String path = event.getPath();
+                if (path.endsWith(Constants.CODENVY_MISC_FILE_RELATIVE_PATH)) {
+                    return;
+                }
+                switch (event.getType()) {
+                    case CONTENT_UPDATED:
+                        invalidateProjectConfigs(event.getWorkspaceId(), path, false);
+                        break;
+                    case CREATED:
+                    case DELETED:
+                        invalidateProjectConfigs(event.getWorkspaceId(), path, true);
+                        break;
+                    case MOVED:
+                        invalidateProjectConfigs(event.getWorkspaceId(), path, true);
+                        invalidateProjectConfigs(event.getWorkspaceId(), ((MoveEvent)event).getOldPath(), true);
+                        break;
+                    case RENAMED:
+                        invalidateProjectConfigs(event.getWorkspaceId(), path, true);
+                        invalidateProjectConfigs(event.getWorkspaceId(), ((RenameEvent)event).getOldPath(), true);
+                        break;
+                }
+            }
+        };
     }
 
 
@@ -177,6 +284,71 @@ public final class DefaultProjectManager implements ProjectManager {
         return projects;
     }
 
+    @Override
+    public long getChangeCounter(String workspace) {
+        final AtomicLong counter = changeCounters.get(workspace);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private void incrementChangeCounter(String workspace) {
+        getCounter(changeCounters, workspace).incrementAndGet();
+    }
+
+    /**
+     * Checks whether event may change list of projects. Items are added to or removed from list when top level folders are
+     * created, removed, moved or renamed, visibility of project depends on ACL of its folder and description and type of project are
+     * read from configuration files in {@link Constants#CODENVY_DIR}. Modification date of project is counted when its misc is saved,
+     * see {@link #saveProjectMisc(Project, ProjectMisc)}. Other events, e.g. update of content of files or ACL of nested items, don't
+     * change list of projects.
+     */
+    private static boolean isProjectListChange(VirtualFileEvent event) {
+        final String path = event.getPath();
+        switch (event.getType()) {
+            case CREATED:
+            case DELETED:
+                return isTopLevel(path) || isProjectConfigFile(path);
+            case MOVED:
+                return isTopLevel(path) || isTopLevel(((MoveEvent)event).getOldPath())
+                       || isProjectConfigFile(path) || isProjectConfigFile(((MoveEvent)event).getOldPath());
+            case RENAMED:
+                return isTopLevel(path) || isTopLevel(((RenameEvent)event).getOldPath())
+                       || isProjectConfigFile(path) || isProjectConfigFile(((RenameEvent)event).getOldPath());
+            case CONTENT_UPDATED:
+                return isProjectConfigFile(path);
+            case ACL_UPDATED:
+                return isTopLevel(path);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isTopLevel(String path) {
+        return path != null && path.lastIndexOf('/') == 0;
+    }
+
+    /** Checks whether path points to item in {@link Constants#CODENVY_DIR} of top level folder, except misc file. */
+    private static boolean isProjectConfigFile(String path) {
+        if (path == null || path.endsWith(Constants.CODENVY_MISC_FILE_RELATIVE_PATH)) {
+            return false;
+        }
+        final int projectEnd = path.indexOf('/', 1);
+        return projectEnd > 0 && path.startsWith(Constants.CODENVY_DIR, projectEnd + 1)
+               && (path.length() == projectEnd + 1 + Constants.CODENVY_DIR.length()
+                   || path.charAt(projectEnd + 1 + Constants.CODENVY_DIR.length()) == '/');
+    }
+
+    private static AtomicLong getCounter(ConcurrentMap<String, AtomicLong> counters, String workspace) {
+        AtomicLong counter = counters.get(workspace);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(workspace, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
     /**
      * Gets single project by id of workspace and project's path in this workspace.
      *
@@ -432,7 +604,12 @@ public final class DefaultProjectManager implements ProjectManager {
         try {
             ProjectMisc misc = miscCaches[index].get(key);
             if (misc == null) {
-                miscCaches[index].put(key, misc = readProjectMisc(project));
+                // Misc may be already evicted from cache but not saved yet.
+                misc = miscWriter.getPending(key);
+                if (misc == null) {
+                    misc = readProjectMisc(project);
+                }
+                miscCaches[index].put(key, misc);
             }
             return misc;
         } finally {
@@ -441,6 +618,158 @@ public final class DefaultProjectManager implements ProjectManager {
     }
 
 
+    @Override
+    public ProjectConfig getProjectConfig(Project project) throws ServerException, ValueStorageException,
+                                                                  ProjectTypeConstraintException, InvalidValueException {
+        final Pair<String, String> key = Pair.of(project.getWorkspace(), project.getPath());
+        final int index = key.hashCode() & CACHE_MASK;
+        final AtomicLong workspaceInvalidations = getCounter(configInvalidations, project.getWorkspace());
+        CachedProjectConfig cached;
+        final long invalidations;
+        configLocks[index].lock();
+        try {
+            cached = configCaches[index].get(key);
+            invalidations = workspaceInvalidations.get();
+        } finally {
+            configLocks[index].unlock();
+        }
+        if (cached == null) {
+            // Don't hold lock while configuration is loaded, value providers may be slow, e.g. git runs external process.
+            final ProjectConfig config = project.loadConfig();
+            cached = new CachedProjectConfig(config, getValueProviderFactories(config));
+            configLocks[index].lock();
+            try {
+                if (invalidations == workspaceInvalidations.get()) {
+                    configCaches[index].put(key, cached);
+                }
+            } finally {
+                configLocks[index].unlock();
+            }
+        }
+        return copyOf(cached.config);
+    }
+
+    @Override
+    public void invalidateProjectConfig(String workspace, String projectPath) {
+        final Pair<String, String> key = Pair.of(workspace, projectPath.startsWith("/") ? projectPath : ('/' + projectPath));
+        final int index = key.hashCode() & CACHE_MASK;
+        getCounter(configInvalidations, workspace).incrementAndGet();
+        incrementChangeCounter(workspace);
+        configLocks[index].lock();
+        try {
+            configCaches[index].remove(key);
+        } finally {
+            configLocks[index].unlock();
+        }
+    }
+
+    /**
+     * Drops cached configurations of projects that are affected by change of item with specified path. Configuration of project is
+     * affected by any change in its {@code .codenvy} folder and by changes that are relevant to value providers of project, see
+     * {@link ValueProviderFactory#isInvalidatedBy(String)}. If {@code subtree} is {@code true} then configurations of all projects
+     * under specified path are dropped as well.
+     */
+    private void invalidateProjectConfigs(String workspace, String path, boolean subtree) {
+        getCounter(configInvalidations, workspace).incrementAndGet();
+        final int length = path.length();
+        for (int i = 1; i < length && (i = path.indexOf('/', i)) > 0; i++) {
+            final Pair<String, String> key = Pair.of(workspace, path.substring(0, i));
+            final String relativePath = path.substring(i + 1);
+            final int index = key.hashCode() & CACHE_MASK;
+            configLocks[index].lock();
+            try {
+                final CachedProjectConfig cached = configCaches[index].get(key);
+                if (cached != null && cached.isInvalidatedBy(relativePath)) {
+                    configCaches[index].remove(key);
+                }
+            } finally {
+                configLocks[index].unlock();
+            }
+        }
+        if (subtree) {
+            final String prefix = path + '/';
+            for (int i = 0; i < CACHE_NUM; i++) {
+                configLocks[i].lock();
+                try {
+                    final List<Pair<String, String>> remove = new ArrayList<>();
+                    for (Map.Entry<Pair<String, String>, CachedProjectConfig> entry : configCaches[i]) {
+                        final Pair<String, String> key = entry.getKey();
+                        if (workspace.equals(key.first) && (path.equals(key.second) || key.second.startsWith(prefix))) {
+                            remove.add(key);
+                        }
+                    }
+                    for (Pair<String, String> key : remove) {
+                        configCaches[i].remove(key);
+                    }
+                } finally {
+                    configLocks[i].unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets factories of value providers that may be used for resolving configuration of project: providers of its primary type and
+     * mixins and providers of all transient types since any of them may be added to project after some changes.
+     */
+    private Set<ValueProviderFactory> getValueProviderFactories(ProjectConfig config) {
+        final List<ProjectType> types = new ArrayList<>();
+        types.add(projectTypeRegistry.getProjectType(config.getTypeId()));
+        for (String mixin : config.getMixinTypes()) {
+            types.add(projectTypeRegistry.getProjectType(mixin));
+        }
+        for (ProjectType type : projectTypeRegistry.getProjectTypes()) {
+            if (!type.isPersisted()) {
+                types.add(type);
+            }
+        }
+        final Set<ValueProviderFactory> factories = new HashSet<>();
+        for (ProjectType type : types) {
+            if (type != null) {
+                for (Attribute attr : type.getAttributes()) {
+                    if (attr.isVariable() && ((Variable)attr).getValueProviderFactory() != null) {
+                        factories.add(((Variable)attr).getValueProviderFactory());
+                    }
+                }
+            }
+        }
+        return factories;
+    }
+
+    private static ProjectConfig copyOf(ProjectConfig config) {
+        final Map<String, AttributeValue> attributes = new HashMap<>();
+        for (Map.Entry<String, AttributeValue> entry : config.getAttributes().entrySet()) {
+            attributes.put(entry.getKey(), new AttributeValue(entry.getValue().getList()));
+        }
+        final Runners runners = new Runners(config.getRunners().getDefault(), config.getRunners().getConfigs());
+        final Builders builders = new Builders(config.getBuilders().getDefault(), config.getBuilders().getConfigs());
+        return new ProjectConfig(config.getDescription(), config.getTypeId(), attributes, runners, builders,
+                                 new ArrayList<>(config.getMixinTypes()));
+    }
+
+    private static final class CachedProjectConfig {
+        final ProjectConfig             config;
+        final Set<ValueProviderFactory> factories;
+
+        CachedProjectConfig(ProjectConfig config, Set<ValueProviderFactory> factories) {
+            this.config = config;
+            this.factories = factories;
+        }
+
+        boolean isInvalidatedBy(String relativePath) {
+            if (relativePath.equals(Constants.CODENVY_DIR) || relativePath.startsWith(Constants.CODENVY_DIR + '/')) {
+                return true;
+            }
+            for (ValueProviderFactory factory : factories) {
+                if (factory.isInvalidatedBy(relativePath)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+
     public Set<Project> getProjectModules(Project parent)
             throws ServerException, ForbiddenException, ConflictException, IOException, NotFoundException {
         final List<String> modulePaths = new LinkedList<>();
@@ -474,6 +803,10 @@ public final class DefaultProjectManager implements ProjectManager {
                     final Properties properties = new Properties();
                     properties.loadFromXML(in);
                     misc = new ProjectMisc(properties, project);
+                } catch (InvalidPropertiesFormatException e) {
+                    // Misc keeps only dates and content root, don't make project unusable if its misc file is broken.
+                    LOG.warn("Invalid misc file of project {} in {}. {}", project.getPath(), project.getWorkspace(), e.getMessage());
+                    misc = new ProjectMisc(project);
                 } catch (IOException e) {
                     throw new ServerException(e.getMessage(), e);
                 }
@@ -489,7 +822,8 @@ public final class DefaultProjectManager implements ProjectManager {
     }
 
     /**
-     * Gets ProjectMisc.
+     * Saves ProjectMisc. Misc is not written immediately, all updates of misc of the same project that are made during period which
+     * is set with configuration parameter {@link #MISC_FLUSH_PERIOD} are written once.
      *
      * @param project
      *         project
@@ -507,15 +841,23 @@ public final class DefaultProjectManager implements ProjectManager {
             final int index = key.hashCode() & CACHE_MASK;
             miscLocks[index].lock();
             try {
-                miscCaches[index].remove(key);
-                writeProjectMisc(project, misc);
-                miscCaches[index].put(key, misc);
+                if (miscCaches[index].get(key) != misc) {
+                    miscCaches[index].put(key, misc);
+                }
+                miscWriter.schedule(key, misc);
+                // Creation and modification dates of project are in list of projects.
+                incrementChangeCounter(workspace);
             } finally {
                 miscLocks[index].unlock();
             }
         }
     }
 
+    // Package-private for test.
+    ProjectMiscWriter getMiscWriter() {
+        return miscWriter;
+    }
+
     private void writeProjectMisc(Project project, ProjectMisc misc) throws ServerException {
         try {
             final ByteArrayOutputStream bout = new ByteArrayOutputStream();
@@ -556,11 +898,17 @@ public final class DefaultProjectManager implements ProjectManager {
     @PostConstruct
     void start() {
         eventService.subscribe(vfsSubscriber);
+        eventService.subscribe(configInvalidator);
+        miscWriter.start(miscFlushPeriod);
+        registerMiscWriterMBean();
     }
 
     @PreDestroy
     void stop() {
+        unregisterMiscWriterMBean();
         eventService.unsubscribe(vfsSubscriber);
+        eventService.unsubscribe(configInvalidator);
+        estimationExecutor.shutdownNow();
         for (int i = 0, length = miscLocks.length; i < length; i++) {
             miscLocks[i].lock();
             try {
@@ -569,6 +917,42 @@ public final class DefaultProjectManager implements ProjectManager {
                 miscLocks[i].unlock();
             }
         }
+        // Updated misc is scheduled for writing when it's removed from cache, write everything before stop.
+        miscWriter.stop();
+        for (int i = 0, length = configLocks.length; i < length; i++) {
+            configLocks[i].lock();
+            try {
+                configCaches[i].clear();
+            } finally {
+                configLocks[i].unlock();
+            }
+        }
+    }
+
+    /* Publishes statistic of writing of misc over JMX. Instance that is registered by previous manager, e.g. in tests, is replaced. */
+    private void registerMiscWriterMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(ProjectMiscWriterMXBean.OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new StandardMBean(miscWriter, ProjectMiscWriterMXBean.class, true), name);
+        } catch (JMException e) {
+            LOG.warn("Unable register MBean {}. {}", ProjectMiscWriterMXBean.OBJECT_NAME, e.getMessage());
+        }
+    }
+
+    private void unregisterMiscWriterMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(ProjectMiscWriterMXBean.OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.warn("Unable unregister MBean {}. {}", ProjectMiscWriterMXBean.OBJECT_NAME, e.getMessage());
+        }
     }
 
 
@@ -587,17 +971,14 @@ public final class DefaultProjectManager implements ProjectManager {
     public Map<String, AttributeValue> estimateProject(String workspace, String path, String projectTypeId)
             throws ServerException, ForbiddenException, NotFoundException, ValueStorageException,
                    ProjectTypeConstraintException {
-
-
         ProjectType projectType = projectTypeRegistry.getProjectType(projectTypeId);
         if (projectType == null)
             throw new NotFoundException("Project Type " + projectTypeId + " not found.");
 
-        final VirtualFileEntry baseFolder = getProjectsRoot(workspace).getChild(path.startsWith("/") ? path.substring(1) : path);
-        if (!baseFolder.isFolder()) {
-            throw new NotFoundException("Not a folder: " + path);
-        }
+        return estimateProject(getFolder(workspace, path), projectType);
+    }
 
+    private Map<String, AttributeValue> estimateProject(FolderEntry baseFolder, ProjectType projectType) throws ValueStorageException {
         Map<String, AttributeValue> attributes = new HashMap<>();
 
         for (Attribute attr : projectType.getAttributes()) {
@@ -607,7 +988,7 @@ public final class DefaultProjectManager implements ProjectManager {
                 Variable var = (Variable)attr;
 
                 // getValue throws ValueStorageException if not valid
-                AttributeValue value = var.getValue((FolderEntry)baseFolder);
+                AttributeValue value = var.getValue(baseFolder);
                 if (var.isRequired() && value.getList().isEmpty()) {
                     throw new ValueStorageException("Can't get required value for " + attr.getName());
                 }
@@ -617,45 +998,114 @@ public final class DefaultProjectManager implements ProjectManager {
         }
 
         return attributes;
+    }
 
+    private FolderEntry getFolder(String workspace, String path) throws ServerException, ForbiddenException, NotFoundException {
+        final VirtualFileEntry baseFolder = getProjectsRoot(workspace).getChild(path.startsWith("/") ? path.substring(1) : path);
+        if (baseFolder == null || !baseFolder.isFolder()) {
+            throw new NotFoundException("Not a folder: " + path);
+        }
+        return (FolderEntry)baseFolder;
     }
 
-    // ProjectSuggestion
+    /**
+     * Estimates sources in folder for all registered project types. Folder is resolved once and all value providers share the same
+     * snapshot of its tree, see {@link FolderSnapshot}. Project types are estimated in parallel, estimations that are not complete
+     * within configured timeout, see {@link #ESTIMATION_TIMEOUT}, are cancelled and their project types are not included in result.
+     */
     public List<SourceEstimation> resolveSources(String workspace, String path, boolean transientOnly)
             throws ServerException, ForbiddenException, NotFoundException,
                    ProjectTypeConstraintException {
-        final List<SourceEstimation> estimations = new ArrayList<>();
+        return resolveSources(workspace, path, transientOnly, new ArrayList<String>());
+    }
 
+    /**
+     * Estimates sources in folder for all registered project types. Timeout of estimation, see {@link #ESTIMATION_TIMEOUT}, is
+     * counted from the moment when estimation of project type starts running, time that it waits for a free thread of shared
+     * executor is not counted. Project types which estimations are cancelled by timeout are added to {@code skippedTypes}.
+     */
+    public List<SourceEstimation> resolveSources(String workspace, String path, boolean transientOnly, List<String> skippedTypes)
+            throws ServerException, ForbiddenException, NotFoundException,
+                   ProjectTypeConstraintException {
+        final FolderEntry folder = new FolderSnapshot(workspace, getFolder(workspace, path).getVirtualFile());
+        final List<ProjectType> types = new ArrayList<>();
         for (ProjectType type : projectTypeRegistry.getProjectTypes(ProjectTypeRegistry.CHILD_TO_PARENT_COMPARATOR)) {
-
-            if (transientOnly && type.isPersisted())
-                continue;
-
-            final HashMap<String, List<String>> attributes = new HashMap<>();
-
-
-            try {
-                for (Map.Entry<String, AttributeValue> attr : estimateProject(workspace, path, type.getId()).entrySet()) {
-                    List<String> values = attr.getValue().getList();
-                    if (values != null && !values.isEmpty()) {
-                        attributes.put(attr.getKey(), values);
+            if (!(transientOnly && type.isPersisted())) {
+                types.add(type);
+            }
+        }
+        // Start time of each estimation, NOT_STARTED while estimation waits in the queue of executor.
+        final AtomicLongArray startTimes = new AtomicLongArray(types.size());
+        final List<Future<SourceEstimation>> futures = new ArrayList<>(types.size());
+        for (int i = 0, size = types.size(); i < size; i++) {
+            final ProjectType type = types.get(i);
+            final int index = i;
+            startTimes.set(index, NOT_STARTED);
+            // Value providers use virtual file system that checks permissions of current user.
+            futures.add(estimationExecutor.submit(ThreadLocalPropagateContext.wrap(new Callable<SourceEstimation>() {
+                @Override
+                public SourceEstimation call() throws Exception {
+                    final long start = System.nanoTime();
+                    startTimes.set(index, start);
+                    try {
+                        return estimateSources(folder, type);
+                    } finally {
+                        final long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (time > ESTIMATION_SLOW_THRESHOLD) {
+                            LOG.warn("Slow estimation of project type {} for {} in workspace {}, took {} ms",
+                                     type.getId(), path, workspace, time);
+                        } else {
+                            LOG.debug("Estimation of project type {} for {} in workspace {} took {} ms",
+                                      type.getId(), path, workspace, time);
+                        }
                     }
                 }
+            })));
+        }
 
-                if (!attributes.isEmpty()) {
-                    estimations.add(
-                            DtoFactory.getInstance().createDto(SourceEstimation.class)
-                                      .withType(type.getId())
-                                      .withPrimaryable(type.canBePrimary())
-                                      .withAttributes(attributes));
-
+        final List<SourceEstimation> estimations = new ArrayList<>();
+        final long timeout = TimeUnit.MILLISECONDS.toNanos(estimationTimeout);
+        try {
+            for (int i = 0, size = futures.size(); i < size; i++) {
+                final Future<SourceEstimation> future = futures.get(i);
+                try {
+                    final SourceEstimation estimation = getEstimation(future, startTimes, i, timeout);
+                    if (estimation != null) {
+                        estimations.add(estimation);
+                    }
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    skippedTypes.add(types.get(i).getId());
+                    LOG.warn("Estimation of project type {} for {} in workspace {} is not complete in {} ms and cancelled",
+                             types.get(i).getId(), path, workspace, estimationTimeout);
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof ValueStorageException) {
+                        LOG.warn(cause.getLocalizedMessage());
+                    } else if (cause instanceof ServerException) {
+                        throw (ServerException)cause;
+                    } else if (cause instanceof ForbiddenException) {
+                        throw (ForbiddenException)cause;
+                    } else if (cause instanceof NotFoundException) {
+                        throw (NotFoundException)cause;
+                    } else if (cause instanceof ProjectTypeConstraintException) {
+                        throw (ProjectTypeConstraintException)cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    } else {
+                        throw new ServerException(cause.getMessage(), cause);
+                    }
                 }
-
-            } catch (ValueStorageException e) {
-                LOG.warn(e.getLocalizedMessage());
             }
-
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Estimation of project types is interrupted. ");
+        } finally {
+            for (Future<SourceEstimation> future : futures) {
+                future.cancel(true);
+            }
         }
+
         if (estimations.isEmpty()) {
             estimations.add(
                     DtoFactory.getInstance().createDto(SourceEstimation.class)
@@ -666,6 +1116,43 @@ public final class DefaultProjectManager implements ProjectManager {
         return estimations;
     }
 
+    /**
+     * Waits for estimation that is not complete in {@code timeout} nanoseconds after it has started. Waiting isn't limited while
+     * estimation is in the queue of executor.
+     */
+    private static SourceEstimation getEstimation(Future<SourceEstimation> future, AtomicLongArray startTimes, int index, long timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        for (; ; ) {
+            final long start = startTimes.get(index);
+            if (start != NOT_STARTED) {
+                return future.get(Math.max(0, start + timeout - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            try {
+                return future.get(timeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Started while we were waiting or still in the queue, check again.
+            }
+        }
+    }
+
+    /** Gets estimation of sources for project type or {@code null} if sources don't match project type. */
+    private SourceEstimation estimateSources(FolderEntry folder, ProjectType type) throws ValueStorageException {
+        final HashMap<String, List<String>> attributes = new HashMap<>();
+        for (Map.Entry<String, AttributeValue> attr : estimateProject(folder, type).entrySet()) {
+            List<String> values = attr.getValue().getList();
+            if (values != null && !values.isEmpty()) {
+                attributes.put(attr.getKey(), values);
+            }
+        }
+        if (attributes.isEmpty()) {
+            return null;
+        }
+        return DtoFactory.getInstance().createDto(SourceEstimation.class)
+                         .withType(type.getId())
+                         .withPrimaryable(type.canBePrimary())
+                         .withAttributes(attributes);
+    }
+
 
     /**
      * Converts existed Folder to Project
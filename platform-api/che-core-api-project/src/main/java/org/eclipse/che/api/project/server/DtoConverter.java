@@ -33,9 +33,12 @@ import org.eclipse.che.api.project.shared.dto.ProjectTypeDefinition;
 import org.eclipse.che.api.project.shared.dto.ProjectUpdate;
 import org.eclipse.che.api.project.shared.dto.RunnerConfiguration;
 import org.eclipse.che.api.project.shared.dto.RunnersDescriptor;
+import org.eclipse.che.api.project.shared.dto.TextOccurrence;
 import org.eclipse.che.api.project.server.type.Attribute;
 import org.eclipse.che.api.project.server.type.BaseProjectType;
 import org.eclipse.che.api.project.server.type.ProjectTypeRegistry;
+import org.eclipse.che.api.vfs.server.search.SearchOccurrence;
+import org.eclipse.che.api.vfs.server.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
 import org.eclipse.che.api.workspace.server.WorkspaceService;
@@ -302,6 +305,27 @@ public class DtoConverter {
                          .withLinks(generateFileLinks(file, uriBuilder));
     }
 
+    /** Creates ItemReference from item of result of search without access to the virtual filesystem. */
+    public static ItemReference toItemReferenceDto(String workspace, SearchResultEntry entry, UriBuilder uriBuilder) {
+        final List<TextOccurrence> occurrences = new ArrayList<>(entry.getOccurrences().size());
+        for (SearchOccurrence occurrence : entry.getOccurrences()) {
+            occurrences.add(DtoFactory.getInstance().createDto(TextOccurrence.class)
+                                      .withTerm(occurrence.getTerm())
+                                      .withLineNumber(occurrence.getLineNumber())
+                                      .withStartColumn(occurrence.getStartColumn())
+                                      .withEndColumn(occurrence.getEndColumn()));
+        }
+        return DtoFactory.getInstance().createDto(ItemReference.class)
+                         .withName(entry.getName())
+                         .withPath(entry.getPath())
+                         .withType("file")
+                         .withMediaType(entry.getMediaType())
+                         .withModified(entry.getLastModified())
+                         .withContentLength(entry.getLength())
+                         .withOccurrences(occurrences)
+                         .withLinks(generateFileLinks(workspace, entry.getPath(), entry.getMediaType(), uriBuilder));
+    }
+
     public static ItemReference toItemReferenceDto(FolderEntry folder, UriBuilder uriBuilder) throws ServerException {
         return DtoFactory.getInstance().createDto(ItemReference.class)
                          .withName(folder.getName())
@@ -518,13 +542,16 @@ public class DtoConverter {
     }
 
     private static List<Link> generateFileLinks(FileEntry file, UriBuilder uriBuilder) throws ServerException {
+        return generateFileLinks(file.getWorkspace(), file.getPath(), file.getMediaType(), uriBuilder);
+    }
+
+    private static List<Link> generateFileLinks(String workspace, String path, String mediaType, UriBuilder uriBuilder) {
         final List<Link> links = new LinkedList<>();
-        final String workspace = file.getWorkspace();
-        final String relPath = file.getPath().substring(1);
+        final String relPath = path.substring(1);
         links.add(
                 createLink(GET,
                            uriBuilder.clone().path(ProjectService.class, "getFile").build(workspace, relPath).toString(),
-                           null, file.getMediaType(), Constants.LINK_REL_GET_CONTENT));
+                           null, mediaType, Constants.LINK_REL_GET_CONTENT));
         links.add(createLink(HttpMethod.PUT,
                              uriBuilder.clone().path(ProjectService.class, "updateFile").build(workspace, relPath).toString(),
                              MediaType.WILDCARD, null, Constants.LINK_REL_UPDATE_CONTENT));
@@ -538,10 +565,28 @@ public class DtoConverter {
     public static ProjectReference toReferenceDto2(Project project,
                                                    UriBuilder uriBuilder,
                                                    UriBuilder baseUriBuilder) throws InvalidValueException {
+        final List<ProjectProblem> workspaceProblems = new ArrayList<>();
+        final String wsName = fetchWorkspaceName(project.getWorkspace(), baseUriBuilder, workspaceProblems);
+        return toReferenceDto2(project, wsName, workspaceProblems, uriBuilder);
+    }
+
+    /**
+     * Creates ProjectReference with already known name of workspace. Should be used when references to many projects of the same
+     * workspace are created to avoid request of workspace name for each project, see {@link #fetchWorkspaceName}.
+     *
+     * @param wsName
+     *         name of workspace, may be {@code null} if name of workspace can't be fetched
+     * @param workspaceProblems
+     *         problems of fetching name of workspace, they are added to problems of project
+     */
+    static ProjectReference toReferenceDto2(Project project,
+                                            String wsName,
+                                            List<ProjectProblem> workspaceProblems,
+                                            UriBuilder uriBuilder) throws InvalidValueException {
         final DtoFactory dtoFactory = DtoFactory.getInstance();
         final ProjectReference dto = dtoFactory.createDto(ProjectReference.class);
         final String wsId = project.getWorkspace();
-        final String wsName = fetchWorkspaceName(wsId, baseUriBuilder, dto.getProblems());
+        dto.getProblems().addAll(workspaceProblems);
         final String name = project.getName();
         final String path = project.getPath();
         dto.withName(name).withPath(path).withWorkspaceId(wsId).withWorkspaceName(wsName);
@@ -583,7 +628,7 @@ public class DtoConverter {
         return dto;
     }
 
-    private static String fetchWorkspaceName(String wsId, UriBuilder baseUriBuilder, List<ProjectProblem> problems) {
+    static String fetchWorkspaceName(String wsId, UriBuilder baseUriBuilder, List<ProjectProblem> problems) {
         try {
             @SuppressWarnings("unchecked") // Generic array is 0 size
             final WorkspaceDescriptor descriptor = HttpJsonHelper.request(WorkspaceDescriptor.class,
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.server;
+
+import org.eclipse.che.api.core.ForbiddenException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.LazyIterator;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Folder that remembers its children once they are read. Snapshot is populated lazily, only items that are requested are read from
+ * virtual file system, and each item is read at most once. It is used when many value providers inspect the same folder, e.g. when
+ * all registered project types are estimated for imported sources.
+ * <p/>
+ * Snapshot doesn't follow changes of virtual file system, it should be used only during single operation that doesn't change content
+ * of folder. Instance of this class is thread-safe.
+ *
+ * @author andrew00x
+ */
+class FolderSnapshot extends FolderEntry {
+    private static final Object NOT_FOUND = new Object();
+
+    /** Children by name, value is FolderSnapshot, FileEntry or {@link #NOT_FOUND}. */
+    private final ConcurrentMap<String, Object> children = new ConcurrentHashMap<>();
+
+    private volatile List<VirtualFileEntry> allChildren;
+
+    FolderSnapshot(String workspace, VirtualFile virtualFile) {
+        super(workspace, virtualFile);
+    }
+
+    @Override
+    public VirtualFileEntry getChild(String path) throws ForbiddenException, ServerException {
+        FolderSnapshot folder = this;
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('/', start)) >= 0) {
+            if (end > start) {
+                final VirtualFileEntry child = folder.getChildByName(path.substring(start, end));
+                if (child == null || !child.isFolder()) {
+                    return null;
+                }
+                folder = (FolderSnapshot)child;
+            }
+            start = end + 1;
+        }
+        return start < path.length() ? folder.getChildByName(path.substring(start)) : folder;
+    }
+
+    @Override
+    public List<FileEntry> getChildFiles() throws ServerException {
+        final List<FileEntry> files = new ArrayList<>();
+        for (VirtualFileEntry child : getAllChildren()) {
+            if (child.isFile()) {
+                files.add((FileEntry)child);
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public List<FolderEntry> getChildFolders() throws ServerException {
+        final List<FolderEntry> folders = new ArrayList<>();
+        for (VirtualFileEntry child : getAllChildren()) {
+            if (child.isFolder()) {
+                folders.add((FolderEntry)child);
+            }
+        }
+        return folders;
+    }
+
+    @Override
+    List<VirtualFileEntry> getChildren(VirtualFileFilter filter) throws ServerException {
+        final List<VirtualFileEntry> filtered = new ArrayList<>();
+        for (VirtualFileEntry child : getAllChildren()) {
+            if (filter.accept(child.getVirtualFile())) {
+                filtered.add(child);
+            }
+        }
+        return filtered;
+    }
+
+    private VirtualFileEntry getChildByName(String name) throws ForbiddenException, ServerException {
+        Object child = children.get(name);
+        if (child == null) {
+            final VirtualFile vf = getVirtualFile().getChild(name);
+            child = vf == null ? NOT_FOUND : newEntry(vf);
+            final Object existed = children.putIfAbsent(name, child);
+            if (existed != null) {
+                child = existed;
+            }
+        }
+        return child == NOT_FOUND ? null : (VirtualFileEntry)child;
+    }
+
+    private List<VirtualFileEntry> getAllChildren() throws ServerException {
+        List<VirtualFileEntry> result = allChildren;
+        if (result == null) {
+            result = new ArrayList<>();
+            final LazyIterator<VirtualFile> vfChildren = getVirtualFile().getChildren(VirtualFileFilter.ALL);
+            while (vfChildren.hasNext()) {
+                final VirtualFile vf = vfChildren.next();
+                // Reuse entries that are already requested by name, so each item of tree has only one snapshot.
+                final VirtualFileEntry entry = newEntry(vf);
+                final Object existed = children.putIfAbsent(vf.getName(), entry);
+                result.add(existed == null || existed == NOT_FOUND ? entry : (VirtualFileEntry)existed);
+            }
+            allChildren = result;
+        }
+        return result;
+    }
+
+    private VirtualFileEntry newEntry(VirtualFile vf) {
+        if (vf.isFile()) {
+            return new FileEntry(getWorkspace(), vf);
+        }
+        return new FolderSnapshot(getWorkspace(), vf);
+    }
+}
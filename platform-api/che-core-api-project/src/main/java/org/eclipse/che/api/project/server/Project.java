@@ -124,8 +124,19 @@ public class Project {
         return parentProject.getBaseFolder().getVirtualFile().getVirtualFilePath().newPath(modulePath);
     }
 
+    /**
+     * Gets configuration of project. Configuration is cached by {@link ProjectManager}, each call returns new copy of configuration
+     * that may be modified by caller.
+     *
+     * @see ProjectManager#getProjectConfig(Project)
+     */
     public ProjectConfig getConfig() throws ServerException, ValueStorageException, ProjectTypeConstraintException,
                                             InvalidValueException {
+        return manager.getProjectConfig(this);
+    }
+
+    /** Reads configuration of project and resolves values of its variables, it is expensive operation, see {@link #getConfig()}. */
+    ProjectConfig loadConfig() throws ServerException, ValueStorageException, ProjectTypeConstraintException, InvalidValueException {
 
         final ProjectJson projectJson = ProjectJson.load(this);
 
@@ -281,7 +292,8 @@ public class Project {
 
 
         projectJson.save(this);
-
+        // Value providers may store values outside of virtual file system.
+        manager.invalidateProjectConfig(getWorkspace(), getPath());
     }
 
     /**
@@ -46,6 +46,17 @@ public interface ProjectManager {
      */
     List<Project> getProjects(String workspace) throws ServerException, NotFoundException;
 
+    /**
+     * Gets counter of changes of list of projects in workspace. Counter grows when top level folders are added or removed, when
+     * configuration, meta-information or visibility of projects is changed, so it is cheap way to check whether anything is changed
+     * since the last check, e.g. since list of projects is sent to the client. Counter isn't persisted and starts from zero after
+     * restart.
+     *
+     * @param workspace
+     *         id of workspace
+     */
+    long getChangeCounter(String workspace);
+
     /**
      * Gets single project by id of workspace and project's path in this workspace.
      *
@@ -115,6 +126,31 @@ public interface ProjectManager {
      */
     ProjectMisc getProjectMisc(Project project) throws ServerException;
 
+    /**
+     * Gets configuration of project. Configuration, include values of variables of project, is cached until any change in
+     * {@code .codenvy} folder of project or in items that may affect values of variables, see
+     * {@link ValueProviderFactory#isInvalidatedBy(String)}.
+     *
+     * @param project
+     *         project
+     * @return copy of configuration of project that may be modified by caller
+     * @throws ServerException
+     *         if an error occurs
+     */
+    ProjectConfig getProjectConfig(Project project) throws ServerException, ValueStorageException, ProjectTypeConstraintException,
+                                                           InvalidValueException;
+
+    /**
+     * Drops cached configuration of project. Should be used after changes in project that are not visible for virtual file system
+     * events but may change values of variables of project.
+     *
+     * @param workspace
+     *         id of workspace
+     * @param projectPath
+     *         project's path
+     */
+    void invalidateProjectConfig(String workspace, String projectPath);
+
 
     /**
      * Gets Project modules.
@@ -178,6 +214,13 @@ public interface ProjectManager {
     List<SourceEstimation> resolveSources(String workspace, String path, boolean transientOnly) throws ServerException, ForbiddenException,
             NotFoundException, ValueStorageException, ProjectTypeConstraintException;
 
+    /**
+     * Estimates sources in folder for all registered project types. Project types which estimations are not complete in time are
+     * not included in result but added to {@code skippedTypes}.
+     */
+    List<SourceEstimation> resolveSources(String workspace, String path, boolean transientOnly, List<String> skippedTypes)
+            throws ServerException, ForbiddenException, NotFoundException, ValueStorageException, ProjectTypeConstraintException;
+
     Project convertFolderToProject(String workspace, String path, ProjectConfig projectConfig, String visibility)
             throws ConflictException, ForbiddenException, ServerException, NotFoundException;
 
@@ -74,6 +74,11 @@ public class ProjectMisc {
         return data.isUpdated();
     }
 
+    /** Marks misc as saved. Any update after this call makes misc updated again. */
+    void resetUpdated() {
+        data.resetUpdated();
+    }
+
     Properties asProperties() {
         return data.properties;
     }
@@ -88,6 +93,12 @@ public class ProjectMisc {
             }
         }
 
+        void resetUpdated() {
+            synchronized (properties) {
+                updated = false;
+            }
+        }
+
         InternalMisc() {
             this(new Properties());
         }
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.commons.lang.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind store of {@link ProjectMisc}. Updated misc is not written immediately but is kept until next flush, all updates of the
+ * same project between flushes are written once. Flush is run periodically after {@link #start(long)} and at {@link #stop()}.
+ * <p/>
+ * Implementation must define how misc is written with method {@link #write(Pair, ProjectMisc)} and reset updated state of misc
+ * before it is serialized, misc that is updated again while it is written is scheduled for the next flush. Content of misc file is
+ * updated through virtual file system, that replaces content of file atomically, so misc file is never seen half-written.
+ * <p/>
+ * Statistic of writing is published over JMX, see {@link ProjectMiscWriterMXBean}.
+ *
+ * @author andrew00x
+ */
+abstract class ProjectMiscWriter implements ProjectMiscWriterMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger(ProjectMiscWriter.class);
+
+    private static class Pending {
+        final ProjectMisc misc;
+        /** Time when misc is scheduled for writing first time after previous flush. */
+        final long        since;
+
+        Pending(ProjectMisc misc, long since) {
+            this.misc = misc;
+            this.since = since;
+        }
+    }
+
+    /* Key is pair of workspace id and path of project. */
+    private final ConcurrentMap<Pair<String, String>, Pending> pending;
+
+    private final AtomicLong scheduled;
+    private final AtomicLong coalesced;
+    private final AtomicLong written;
+    private final AtomicLong failed;
+    private final AtomicLong flushes;
+
+    private volatile long lastFlushDuration;
+    private volatile long lastFlushLag;
+    private volatile long maxLag;
+
+    private ScheduledExecutorService scheduler;
+
+    ProjectMiscWriter() {
+        pending = new ConcurrentHashMap<>();
+        scheduled = new AtomicLong();
+        coalesced = new AtomicLong();
+        written = new AtomicLong();
+        failed = new AtomicLong();
+        flushes = new AtomicLong();
+    }
+
+    /**
+     * Writes misc of project.
+     *
+     * @param key
+     *         pair of workspace id and path of project
+     * @param misc
+     *         misc to write
+     */
+    protected abstract void write(Pair<String, String> key, ProjectMisc misc) throws Exception;
+
+    /** Schedules writing of misc of project. If misc of the same project is already scheduled then it is written once. */
+    void schedule(Pair<String, String> key, ProjectMisc misc) {
+        scheduled.incrementAndGet();
+        for (; ; ) {
+            final Pending existed = pending.putIfAbsent(key, new Pending(misc, System.currentTimeMillis()));
+            if (existed == null) {
+                return;
+            }
+            if (existed.misc == misc || pending.replace(key, existed, new Pending(misc, existed.since))) {
+                coalesced.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /** Gets misc of project that is scheduled for writing but isn't written yet or {@code null}. */
+    ProjectMisc getPending(Pair<String, String> key) {
+        final Pending myPending = pending.get(key);
+        return myPending == null ? null : myPending.misc;
+    }
+
+    /** Writes all scheduled misc. Misc that can't be written is dropped, error is logged. */
+    synchronized void flush() {
+        final long start = System.currentTimeMillis();
+        long lag = 0;
+        int count = 0;
+        for (Pair<String, String> key : pending.keySet()) {
+            final Pending myPending = pending.get(key);
+            if (myPending == null) {
+                continue;
+            }
+            lag = Math.max(lag, start - myPending.since);
+            boolean success = false;
+            try {
+                write(key, myPending.misc);
+                written.incrementAndGet();
+                count++;
+                success = true;
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                LOG.error(String.format("Unable save misc of project %s in workspace %s. %s", key.second, key.first, e.getMessage()), e);
+            }
+            // Keep misc pending while it's written, then it is still found by readers. Remove it only if it isn't replaced meanwhile.
+            if (pending.remove(key, myPending) && success && myPending.misc.isUpdated()) {
+                // Misc is updated while it's written.
+                pending.putIfAbsent(key, new Pending(myPending.misc, System.currentTimeMillis()));
+            }
+        }
+        flushes.incrementAndGet();
+        lastFlushDuration = System.currentTimeMillis() - start;
+        lastFlushLag = lag;
+        if (lag > maxLag) {
+            maxLag = lag;
+        }
+        if (count > 0) {
+            LOG.debug("Saved {} misc files in {} ms, max lag {} ms", count, lastFlushDuration, lag);
+        }
+    }
+
+    /** Starts periodical flush. */
+    synchronized void start(long period) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("ProjectMiscWriter-%d")
+                                                                                        .setDaemon(true)
+                                                                                        .build());
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops periodical flush and writes all scheduled misc. */
+    void stop() {
+        final ScheduledExecutorService myScheduler;
+        synchronized (this) {
+            myScheduler = scheduler;
+            scheduler = null;
+        }
+        if (myScheduler != null) {
+            myScheduler.shutdown();
+            try {
+                myScheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public long getCurrentLag() {
+        final long now = System.currentTimeMillis();
+        long lag = 0;
+        for (Pending myPending : pending.values()) {
+            lag = Math.max(lag, now - myPending.since);
+        }
+        return lag;
+    }
+
+    @Override
+    public long getScheduledCount() {
+        return scheduled.get();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    @Override
+    public long getLastFlushDuration() {
+        return lastFlushDuration;
+    }
+
+    @Override
+    public long getLastFlushLag() {
+        return lastFlushLag;
+    }
+
+    @Override
+    public long getMaxLag() {
+        return maxLag;
+    }
+}
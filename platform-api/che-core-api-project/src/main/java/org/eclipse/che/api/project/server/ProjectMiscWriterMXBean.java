@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.server;
+
+/**
+ * Management interface of write-behind store of misc of projects, see {@link ProjectMiscWriter}. It is registered in platform MBean
+ * server with name {@link #OBJECT_NAME}, so lag of writing misc can be watched with any JMX client.
+ *
+ * @author andrew00x
+ */
+public interface ProjectMiscWriterMXBean {
+    String OBJECT_NAME = "org.eclipse.che.api.project:type=ProjectMiscWriter";
+
+    /** Number of misc that are scheduled for writing. */
+    int getPendingCount();
+
+    /** Age in milliseconds of the oldest misc that is scheduled for writing or {@code 0} if nothing is scheduled. */
+    long getCurrentLag();
+
+    /** Number of requests for writing of misc. */
+    long getScheduledCount();
+
+    /** Number of requests for writing that are merged with already scheduled writing of the same project. */
+    long getCoalescedCount();
+
+    /** Number of written misc. */
+    long getWrittenCount();
+
+    /** Number of misc that are failed to write. */
+    long getFailedCount();
+
+    /** Number of flushes. */
+    long getFlushCount();
+
+    /** Duration of the last flush in milliseconds. */
+    long getLastFlushDuration();
+
+    /** Age in milliseconds of the oldest misc that was written with the last flush. */
+    long getLastFlushLag();
+
+    /** Max age in milliseconds of misc at the time of writing. */
+    long getMaxLag();
+}
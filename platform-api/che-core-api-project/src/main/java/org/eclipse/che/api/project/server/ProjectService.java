@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.eclipse.che.api.project.server;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
@@ -42,6 +45,8 @@ import org.eclipse.che.api.project.shared.dto.GeneratorDescription;
 import org.eclipse.che.api.project.shared.dto.ImportProject;
 import org.eclipse.che.api.project.shared.dto.ImportResponse;
 import org.eclipse.che.api.project.shared.dto.ImportSourceDescriptor;
+import org.eclipse.che.api.project.shared.dto.ItemChange;
+import org.eclipse.che.api.project.shared.dto.ItemChanges;
 import org.eclipse.che.api.project.shared.dto.ItemReference;
 import org.eclipse.che.api.project.shared.dto.MoveOptions;
 import org.eclipse.che.api.project.shared.dto.NewProject;
@@ -59,15 +64,23 @@ import org.eclipse.che.api.project.shared.dto.Source;
 import org.eclipse.che.api.project.shared.dto.SourceEstimation;
 import org.eclipse.che.api.project.shared.dto.TreeElement;
 import org.eclipse.che.api.vfs.server.ContentStream;
+import org.eclipse.che.api.vfs.server.MountPoint;
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemImpl;
+import org.eclipse.che.api.vfs.server.observation.ChangeJournal;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+import org.eclipse.che.api.vfs.server.search.FileNameIndexProvider;
+import org.eclipse.che.api.vfs.server.search.FileNameMatch;
 import org.eclipse.che.api.vfs.server.search.QueryExpression;
+import org.eclipse.che.api.vfs.server.search.SearchResult;
+import org.eclipse.che.api.vfs.server.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
 import org.eclipse.che.commons.env.EnvironmentContext;
 import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
 import org.eclipse.che.commons.lang.ws.rs.ExtMediaType;
+import org.eclipse.che.commons.user.User;
 import org.eclipse.che.dto.server.DtoFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,12 +101,18 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -102,8 +121,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static java.util.stream.Collectors.toMap;
@@ -121,6 +143,11 @@ import static java.util.stream.Collectors.toMap;
 public class ProjectService extends Service {
     private static final Logger  LOG                   = LoggerFactory.getLogger(ProjectService.class);
     private static final Pattern RUNNER_NAME_VALIDATOR = Pattern.compile("[\\w-]+((:/)?[^/\\\\]+)?");
+    /** Counter of changes in workspace isn't persisted, entity tags of list of projects must be different after restart. */
+    private static final long    INSTANCE_ID           = System.currentTimeMillis();
+
+    /** Response header with comma separated list of project types which estimation is cancelled by timeout. */
+    public static final String SKIPPED_PROJECT_TYPES_HEADER = "X-Skipped-Project-Types";
 
     @Inject
     private ProjectManager              projectManager;
@@ -129,6 +156,8 @@ public class ProjectService extends Service {
     @Inject
     private SearcherProvider            searcherProvider;
     @Inject
+    private FileNameIndexProvider       fileNameIndexProvider;
+    @Inject
     private EventService                eventService;
     @Inject
     private ProjectHandlerRegistry      projectHandlerRegistry;
@@ -138,9 +167,16 @@ public class ProjectService extends Service {
                                                                                   .setNameFormat("ProjectService-IndexingThread-")
                                                                                   .setDaemon(true).build());
 
+    /** Builds references to projects when list of projects is requested. */
+    private final ExecutorService listingExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                                                 new ThreadFactoryBuilder()
+                                                                                         .setNameFormat("ProjectService-ListingThread-%d")
+                                                                                         .setDaemon(true).build());
+
     @PreDestroy
     void stop() {
         executor.shutdownNow();
+        listingExecutor.shutdownNow();
     }
 
 
@@ -169,42 +205,110 @@ public class ProjectService extends Service {
     @GenerateLink(rel = Constants.LINK_REL_GET_PROJECTS)
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<ProjectReference> getProjects(@ApiParam("ID of workspace to get projects") @PathParam("ws-id") String workspace)
+    public Response getProjects(@ApiParam("ID of workspace to get projects") @PathParam("ws-id") String workspace,
+                                @Context Request request)
             throws IOException, ServerException, ConflictException, ForbiddenException, NotFoundException {
-        final List<Project> projects = projectManager.getProjects(workspace);
-
-        final List<ProjectReference> projectReferences = new ArrayList<>(projects.size());
+        // Name of workspace is the same for all projects, fetch it once. It isn't covered by counter of changes in workspace.
+        final List<ProjectProblem> workspaceProblems = new ArrayList<>();
+        final String workspaceName = DtoConverter.fetchWorkspaceName(workspace, getServiceContext().getBaseUriBuilder(),
+                                                                     workspaceProblems);
+        // Get counter before reading of projects, if anything is changed while projects are read then next request gets new list.
+        final EntityTag entityTag = getProjectsEntityTag(workspace, workspaceName, workspaceProblems);
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).build();
+        }
+        final List<ProjectReference> projectReferences = getProjectReferences(workspace, workspaceName, workspaceProblems);
+        return Response.ok(new GenericEntity<List<ProjectReference>>(projectReferences) {
+        }).tag(entityTag).build();
+    }
 
-        for (Project project : projects) {
+    /**
+     * Entity tag of list of projects is built from counter of changes in workspace, see {@link ProjectManager#getChangeCounter(String)},
+     * name of workspace and problems of fetching it since they are included in each reference to project. Visibility of projects
+     * depends on user, so tag is different for different users.
+     */
+    private EntityTag getProjectsEntityTag(String workspace, String workspaceName, List<ProjectProblem> workspaceProblems) {
+        final User user = EnvironmentContext.getCurrent().getUser();
+        final Hasher hasher = Hashing.md5().newHasher()
+                                     .putLong(INSTANCE_ID)
+                                     .putLong(projectManager.getChangeCounter(workspace))
+                                     .putString(user == null || user.getId() == null ? "" : user.getId(), StandardCharsets.UTF_8)
+                                     .putString(workspaceName == null ? "" : workspaceName, StandardCharsets.UTF_8);
+        for (ProjectProblem problem : workspaceProblems) {
+            hasher.putInt(problem.getCode())
+                  .putString(problem.getMessage() == null ? "" : problem.getMessage(), StandardCharsets.UTF_8);
+        }
+        return new EntityTag(hasher.hash().toString());
+    }
 
-            try {
-                projectReferences.add(DtoConverter.toReferenceDto2(project,
-                                                                   getServiceContext().getServiceUriBuilder(),
-                                                                   getServiceContext().getBaseUriBuilder()));
-            } catch (RuntimeException e) {
-                // Ignore known error for single project.
-                // In result we won't have them in explorer tree but at least 'bad' projects won't prevent to show 'good' projects.
-                LOG.error(e.getMessage(), e);
-                NotValidProject notValidProject = new NotValidProject(project.getBaseFolder(), projectManager);
-                projectReferences.add(DtoConverter.toReferenceDto2(notValidProject,
-                                                                   getServiceContext().getServiceUriBuilder(),
-                                                                   getServiceContext().getBaseUriBuilder()));
-            }
+    /**
+     * Reads children of root folder of workspace once and creates references to all projects in parallel. Folders that are not
+     * projects are added at the end of list as not valid projects.
+     */
+    private List<ProjectReference> getProjectReferences(String workspace, final String workspaceName,
+                                                        final List<ProjectProblem> workspaceProblems)
+            throws ServerException, ForbiddenException, NotFoundException {
+        final List<FolderEntry> folders = projectManager.getProjectsRoot(workspace).getChildFolders();
+        final boolean[] valid = new boolean[folders.size()];
+        final List<Future<ProjectReference>> futures = new ArrayList<>(folders.size());
+        for (int i = 0, size = folders.size(); i < size; i++) {
+            final int index = i;
+            final FolderEntry folder = folders.get(i);
+            final UriBuilder uriBuilder = getServiceContext().getServiceUriBuilder();
+            futures.add(listingExecutor.submit(ThreadLocalPropagateContext.wrap(new Callable<ProjectReference>() {
+                @Override
+                public ProjectReference call() throws Exception {
+                    if (folder.isProjectFolder()) {
+                        valid[index] = true;
+                        try {
+                            return DtoConverter.toReferenceDto2(new Project(folder, projectManager), workspaceName, workspaceProblems,
+                                                                uriBuilder);
+                        } catch (RuntimeException e) {
+                            // Ignore known error for single project.
+                            // In result we won't have them in explorer tree but at least 'bad' projects won't prevent to show 'good'
+                            // projects.
+                            LOG.error(e.getMessage(), e);
+                        }
+                    }
+                    return DtoConverter.toReferenceDto2(new NotValidProject(folder, projectManager), workspaceName, workspaceProblems,
+                                                        uriBuilder);
+                }
+            })));
         }
-        FolderEntry projectsRoot = projectManager.getProjectsRoot(workspace);
-        List<VirtualFileEntry> children = projectsRoot.getChildren();
-        for (VirtualFileEntry child : children) {
-            if (child.isFolder()) {
-                FolderEntry folderEntry = (FolderEntry)child;
-                if (!folderEntry.isProjectFolder()) {
-                    NotValidProject notValidProject = new NotValidProject(folderEntry, projectManager);
-
-                    projectReferences.add(DtoConverter.toReferenceDto2(notValidProject,
-                                                                       getServiceContext().getServiceUriBuilder(),
-                                                                       getServiceContext().getBaseUriBuilder()));
+
+        final List<ProjectReference> projectReferences = new ArrayList<>(folders.size());
+        final List<ProjectReference> notValidProjectReferences = new ArrayList<>();
+        try {
+            for (int i = 0, size = futures.size(); i < size; i++) {
+                final ProjectReference reference = futures.get(i).get();
+                if (valid[i]) {
+                    projectReferences.add(reference);
+                } else {
+                    notValidProjectReferences.add(reference);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerException("Reading of projects is interrupted. ");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ServerException) {
+                throw (ServerException)cause;
+            } else if (cause instanceof ForbiddenException) {
+                throw (ForbiddenException)cause;
+            } else if (cause instanceof NotFoundException) {
+                throw (NotFoundException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new ServerException(cause.getMessage(), cause);
+        } finally {
+            for (Future<ProjectReference> future : futures) {
+                future.cancel(true);
+            }
         }
+        projectReferences.addAll(notValidProjectReferences);
         return projectReferences;
     }
 
@@ -442,16 +546,104 @@ public class ProjectService extends Service {
         return attributes;
     }
 
+    @ApiOperation(value = "Get changes of items in workspace",
+                  notes = "Get changes made after change with specified sequence number. Client should remember id of journal and " +
+                          "sequence number of the latest change and send them with next request",
+                  response = ItemChanges.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 404, message = "Journal of changes isn't available"),
+            @ApiResponse(code = 500, message = "Server error")})
+    @GET
+    @Path("/changes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ItemChanges getChanges(@ApiParam(value = "Workspace ID", required = true)
+                                  @PathParam("ws-id") String workspace,
+                                  @ApiParam(value = "Id of journal of changes that is returned with previous changes")
+                                  @QueryParam("journal") String journalId,
+                                  @ApiParam(value = "Sequence number of the latest change that is known to the client")
+                                  @DefaultValue("0") @QueryParam("since") long since)
+            throws NotFoundException, ForbiddenException, ServerException {
+        final MountPoint mountPoint = projectManager.getProjectsRoot(workspace).getVirtualFile().getMountPoint();
+        final ChangeJournal journal = mountPoint.getChangeJournal();
+        if (journal == null) {
+            throw new NotFoundException(String.format("Journal of changes isn't available for workspace %s", workspace));
+        }
+        final ItemChanges itemChanges = DtoFactory.getInstance().createDto(ItemChanges.class).withJournalId(journal.getId());
+        final List<ChangeJournal.Change> changes = journalId == null || journalId.equals(journal.getId())
+                                                   ? journal.getChangesSince(since) : null;
+        if (changes == null) {
+            // History of changes is lost, client has to reload everything it needs.
+            return itemChanges.withLastSequence(journal.getLastSequence()).withComplete(false)
+                              .withChanges(Collections.<ItemChange>emptyList());
+        }
+        // Journal keeps changes of all items of workspace, client gets only changes of items that current user can read.
+        final Map<String, Boolean> accessible = new HashMap<>();
+        final List<ItemChange> items = new ArrayList<>(changes.size());
+        for (ChangeJournal.Change change : changes) {
+            final boolean pathAccessible = isAccessible(mountPoint, change.getPath(), accessible);
+            final boolean oldPathAccessible = change.getOldPath() != null && isAccessible(mountPoint, change.getOldPath(), accessible);
+            final ItemChange item = DtoFactory.getInstance().createDto(ItemChange.class)
+                                              .withSequence(change.getSequence())
+                                              .withTime(change.getTime())
+                                              .withFolder(change.isFolder());
+            if (change.getOldPath() == null || pathAccessible && oldPathAccessible) {
+                if (!pathAccessible) {
+                    continue;
+                }
+                item.withType(change.getType().value()).withPath(change.getPath()).withOldPath(change.getOldPath());
+            } else if (pathAccessible) {
+                // Item is moved from location that user can't read, for user it is a new item.
+                item.withType(VirtualFileEvent.ChangeType.CREATED.value()).withPath(change.getPath());
+            } else if (oldPathAccessible) {
+                // Item is moved to location that user can't read, for user it is removed.
+                item.withType(VirtualFileEvent.ChangeType.DELETED.value()).withPath(change.getOldPath());
+            } else {
+                continue;
+            }
+            items.add(item);
+        }
+        return itemChanges.withLastSequence(since + changes.size()).withComplete(true).withChanges(items);
+    }
+
+    /**
+     * Checks whether current user may read item with specified path. If item doesn't exist anymore, e.g. it is removed, permissions of
+     * its nearest existed parent are checked. Results are cached in {@code accessible} by path.
+     */
+    private boolean isAccessible(MountPoint mountPoint, String path, Map<String, Boolean> accessible) throws ServerException {
+        Boolean result = accessible.get(path);
+        if (result == null) {
+            try {
+                mountPoint.getVirtualFile(path);
+                result = true;
+            } catch (ForbiddenException e) {
+                result = false;
+            } catch (NotFoundException e) {
+                final int parentEnd = path.lastIndexOf('/');
+                result = parentEnd <= 0 || isAccessible(mountPoint, path.substring(0, parentEnd), accessible);
+            }
+            accessible.put(path, result);
+        }
+        return result;
+    }
+
     @GET
     @Path("/resolve/{path:.*}")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<SourceEstimation> resolveSources(@ApiParam(value = "ID of workspace to estimate projects", required = true)
-                                                 @PathParam("ws-id") String workspace,
-                                                 @ApiParam(value = "Path to requested project", required = true)
-                                                 @PathParam("path") String path)
+    public Response resolveSources(@ApiParam(value = "ID of workspace to estimate projects", required = true)
+                                   @PathParam("ws-id") String workspace,
+                                   @ApiParam(value = "Path to requested project", required = true)
+                                   @PathParam("path") String path)
             throws NotFoundException, ForbiddenException, ServerException, ConflictException {
-
-        return projectManager.resolveSources(workspace, path, false);
+        final List<String> skippedTypes = new ArrayList<>();
+        final List<SourceEstimation> estimations = projectManager.resolveSources(workspace, path, false, skippedTypes);
+        final Response.ResponseBuilder response = Response.ok(new GenericEntity<List<SourceEstimation>>(estimations) {
+        });
+        if (!skippedTypes.isEmpty()) {
+            // Estimation of these project types isn't complete in time, client may request estimation later.
+            response.header(SKIPPED_PROJECT_TYPES_HEADER, Joiner.on(',').join(skippedTypes));
+        }
+        return response.build();
     }
 
     @ApiOperation(value = "Create file",
@@ -587,7 +779,8 @@ public class ProjectService extends Service {
                             @PathParam("path") String path)
             throws IOException, NotFoundException, ForbiddenException, ServerException {
         final FileEntry file = asFile(workspace, path);
-        return Response.ok().entity(file.getInputStream()).type(file.getMediaType()).build();
+        final ContentStream content = file.getVirtualFile().getContent();
+        return Response.ok().entity((StreamingOutput)content::transferTo).type(file.getMediaType()).build();
     }
 
     @ApiOperation(value = "Update file",
@@ -813,6 +1006,8 @@ public class ProjectService extends Service {
         try {
         	 baseProjectFolder = (FolderEntry)virtualFile;
              importer.importSources(baseProjectFolder, projectSource.getLocation(), projectSource.getParameters(), outputOutputConsumerFactory);
+             // Importer may write sources directly to file system, e.g. git, cached configuration is not valid anymore.
+             projectManager.invalidateProjectConfig(workspace, baseProjectFolder.getPath());
              //project source already imported going to configure project
              return configureProject(importProject, baseProjectFolder, workspace, creationDate);
         } catch (Exception e) {
@@ -1268,6 +1463,34 @@ public class ProjectService extends Service {
                          .withChildren(getTree(folder, depth, includeFiles, uriBuilder, dtoFactory));
     }
 
+    @ApiOperation(value = "Get project tree as stream",
+                  notes = "Get project tree in the same format as tree/{parent}, but tree is written to the response while it is read. " +
+                          "Number of nodes may be limited, tree that has more nodes is cut and gets field 'truncated'",
+                  response = TreeElement.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 403, message = "User not authorized to call this operation"),
+            @ApiResponse(code = 404, message = "Not found"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GET
+    @Path("/streamingtree/{parent:.*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStreamingTree(@ApiParam(value = "Workspace ID", required = true)
+                                     @PathParam("ws-id") String workspace,
+                                     @ApiParam(value = "Path to resource. Can be project or its folders", required = true)
+                                     @PathParam("parent") String path,
+                                     @ApiParam(value = "Tree depth. If not specified ?depth=1 is used by default, -1 means whole tree")
+                                     @DefaultValue("1") @QueryParam("depth") int depth,
+                                     @ApiParam(value = "Include children files in addition to children folders. If not specified ?includeFiles=false is used by default")
+                                     @DefaultValue("false") @QueryParam("includeFiles") boolean includeFiles,
+                                     @ApiParam(value = "Max number of nodes in tree. If not specified number of nodes isn't limited")
+                                     @DefaultValue("0") @QueryParam("limit") int limit)
+            throws NotFoundException, ForbiddenException, ServerException {
+        final FolderEntry folder = asFolder(workspace, path);
+        return Response.ok(new TreeStreamingOutput(folder, depth, includeFiles, limit, getServiceContext().getServiceUriBuilder()),
+                           MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
     @ApiOperation(value = "Get file or folder",
                   response = ItemReference.class)
     @ApiResponses(value = {
@@ -1361,10 +1584,12 @@ public class ProjectService extends Service {
                                       @QueryParam("mediatype") String mediatype,
                                       @ApiParam(value = "Search keywords")
                                       @QueryParam("text") String text,
-                                      @ApiParam(value = "Maximum items to display. If this parameter is dropped, there are no limits")
+                                      @ApiParam(value = "Maximum items to display. If this parameter is dropped, server side limit is applied")
                                       @QueryParam("maxItems") @DefaultValue("-1") int maxItems,
                                       @ApiParam(value = "Skip count")
-                                      @QueryParam("skipCount") int skipCount)
+                                      @QueryParam("skipCount") int skipCount,
+                                      @ApiParam(value = "Include positions of lines which match to the text of query")
+                                      @QueryParam("includePositions") boolean includePositions)
             throws NotFoundException, ForbiddenException, ConflictException, ServerException {
 
         // to search from workspace root path should end with "/" i.e /{ws}/search/?<query>
@@ -1378,29 +1603,33 @@ public class ProjectService extends Service {
                     .setPath(path.startsWith("/") ? path : ('/' + path))
                     .setName(name)
                     .setMediaType(mediatype)
-                    .setText(text);
+                    .setText(text)
+                    .setSkipCount(skipCount)
+                    .setMaxItems(maxItems > 0 ? maxItems : -1)
+                    .setIncludePositions(includePositions);
 
-            final String[] result = searcherProvider.getSearcher(folder.getVirtualFile().getMountPoint(), true).search(expr);
+            final SearchResult result = searcherProvider.getSearcher(folder.getVirtualFile().getMountPoint(), true).query(expr);
             if (skipCount > 0) {
-                if (skipCount > result.length) {
+                if (skipCount > result.getTotalHits()) {
                     throw new ConflictException(
                             String.format("'skipCount' parameter: %d is greater then total number of items in result: %d.",
-                                          skipCount, result.length));
+                                          skipCount, result.getTotalHits()));
                 }
             }
-            final int length = maxItems > 0 ? Math.min(result.length, maxItems) : result.length;
-            final List<ItemReference> items = new ArrayList<>(length);
+            final List<ItemReference> items = new ArrayList<>(result.getEntries().size());
             final FolderEntry root = projectManager.getProjectsRoot(workspace);
             final UriBuilder uriBuilder = getServiceContext().getServiceUriBuilder();
-            for (int i = skipCount; i < length; i++) {
+            // Items are created from the data saved in the index. Only items of requested page are resolved in virtual filesystem
+            // to check whether user may access them, files are not read.
+            for (SearchResultEntry entry : result.getEntries()) {
                 VirtualFileEntry child = null;
                 try {
-                    child = root.getChild(result[i]);
+                    child = root.getChild(entry.getPath());
                 } catch (ForbiddenException ignored) {
                     // Ignore item that user can't access
                 }
                 if (child != null && child.isFile()) {
-                    items.add(DtoConverter.toItemReferenceDto((FileEntry)child, uriBuilder.clone()));
+                    items.add(DtoConverter.toItemReferenceDto(workspace, entry, uriBuilder.clone()));
                 }
             }
             return items;
@@ -1408,6 +1637,48 @@ public class ProjectService extends Service {
         return Collections.emptyList();
     }
 
+    @ApiOperation(value = "Find files by name",
+                  notes = "Find files which names match to the pattern. Pattern may be a part of name, first letters of words of name, " +
+                          "e.g. 'NTFP' for 'NavigateToFilePresenter', or simple wildcard. Results are ordered by relevance",
+                  response = ItemReference.class,
+                  responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 403, message = "User not authorized to call this operation"),
+            @ApiResponse(code = 404, message = "Not found"),
+            @ApiResponse(code = 409, message = "Conflict error"),
+            @ApiResponse(code = 500, message = "Internal Server Error")})
+    @GET
+    @Path("/navigate/{path:.*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<ItemReference> navigate(@ApiParam(value = "Workspace ID", required = true)
+                                        @PathParam("ws-id") String workspace,
+                                        @ApiParam(value = "Path to folder where to find files", required = true)
+                                        @PathParam("path") String path,
+                                        @ApiParam(value = "Pattern of name", required = true)
+                                        @QueryParam("namePattern") String namePattern,
+                                        @ApiParam(value = "Maximum items to display")
+                                        @QueryParam("maxItems") @DefaultValue("50") int maxItems)
+            throws NotFoundException, ForbiddenException, ConflictException, ServerException {
+        if (maxItems <= 0) {
+            throw new ConflictException(String.format("Invalid 'maxItems' parameter: %d.", maxItems));
+        }
+        if (namePattern == null || namePattern.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final FolderEntry folder = path.isEmpty() ? projectManager.getProjectsRoot(workspace) : asFolder(workspace, path);
+        final List<FileNameMatch> matches = fileNameIndexProvider.getIndex(folder.getVirtualFile().getMountPoint())
+                                                                 .find(namePattern, folder.getPath(), maxItems);
+        final List<ItemReference> items = new ArrayList<>(matches.size());
+        for (FileNameMatch match : matches) {
+            items.add(DtoFactory.getInstance().createDto(ItemReference.class)
+                                .withName(match.getName())
+                                .withPath(match.getPath())
+                                .withType("file"));
+        }
+        return items;
+    }
+
     @ApiOperation(value = "Get user permissions in a project",
                   notes = "Get permissions for a user in a specified project, such as read, write, build, " +
                           "run etc. ID of a user is set in a query parameter of a request URL. Roles allowed: workspace/admin",
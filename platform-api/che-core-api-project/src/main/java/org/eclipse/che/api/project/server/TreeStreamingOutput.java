@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.server;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.project.shared.dto.ItemReference;
+import org.eclipse.che.dto.server.DtoFactory;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes tree of folder in the same JSON format as {@link org.eclipse.che.api.project.shared.dto.TreeElement} while walking the tree.
+ * Nodes are written to the output as soon as they are read, so memory that is used doesn't depend on size of tree, only children of
+ * folders that are on the current path are kept in memory.
+ * <p/>
+ * If number of nodes is limited and tree has more nodes then tree is cut and root element gets field {@code truncated} with value
+ * {@code true}.
+ *
+ * @author andrew00x
+ */
+class TreeStreamingOutput implements StreamingOutput {
+    private final FolderEntry folder;
+    private final int         depth;
+    private final boolean     includeFiles;
+    private final int         limit;
+    private final UriBuilder  uriBuilder;
+    private final Gson        gson;
+
+    private int     nodes;
+    private boolean truncated;
+
+    /**
+     * @param folder
+     *         root of tree
+     * @param depth
+     *         depth of tree, negative value means no limit
+     * @param includeFiles
+     *         if {@code true} files are included in tree, otherwise only folders
+     * @param limit
+     *         max number of nodes in tree including root, value that isn't greater than 0 means no limit
+     * @param uriBuilder
+     *         builder of links of items
+     */
+    TreeStreamingOutput(FolderEntry folder, int depth, boolean includeFiles, int limit, UriBuilder uriBuilder) {
+        this.folder = folder;
+        this.depth = depth;
+        this.includeFiles = includeFiles;
+        this.limit = limit;
+        this.uriBuilder = uriBuilder;
+        gson = new Gson();
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        try {
+            writer.beginObject();
+            writeNode(writer, DtoConverter.toItemReferenceDto(folder, uriBuilder.clone()));
+            writeChildren(writer, folder, depth);
+            if (truncated) {
+                writer.name("truncated").value(true);
+            }
+            writer.endObject();
+        } catch (ServerException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // Don't close writer, output stream is closed by container.
+        writer.flush();
+    }
+
+    private void writeChildren(JsonWriter writer, FolderEntry folder, int depth) throws ServerException, IOException {
+        if (depth == 0) {
+            return;
+        }
+        final List<? extends VirtualFileEntry> children = includeFiles ? folder.getChildFoldersFiles() : folder.getChildFolders();
+        writer.name("children").beginArray();
+        for (VirtualFileEntry child : children) {
+            if (truncated || (limit > 0 && nodes >= limit)) {
+                truncated = true;
+                break;
+            }
+            writer.beginObject();
+            if (child.isFolder()) {
+                writeNode(writer, DtoConverter.toItemReferenceDto((FolderEntry)child, uriBuilder.clone()));
+                writeChildren(writer, (FolderEntry)child, depth - 1);
+            } else {
+                writeNode(writer, DtoConverter.toItemReferenceDto((FileEntry)child, uriBuilder.clone()));
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private void writeNode(JsonWriter writer, ItemReference node) throws IOException {
+        nodes++;
+        writer.name("node");
+        gson.toJson(DtoFactory.getInstance().toJsonElement(node), writer);
+    }
+}
@@ -20,4 +20,18 @@ public interface ValueProviderFactory {
     /** Create new instance of ValueProvider2. Project is used for access to low-level information about project.
      * @param projectFolder*/
     ValueProvider newInstance(FolderEntry projectFolder);
+
+    /**
+     * Checks whether change of item inside project folder may change values of providers created by this factory. Configuration of
+     * project, include values of its variables, is cached by {@link ProjectManager} and cached configuration is dropped when this
+     * method returns {@code true} for the changed item. By default any change inside project folder drops cached configuration.
+     * Implementation that reads values from particular items, e.g. from some file, should override this method, otherwise cache of
+     * project configuration is useless for projects that have such variables.
+     *
+     * @param relativePath
+     *         path of changed item relative to project folder, e.g. "src/main/java/Foo.java"
+     */
+    default boolean isInvalidatedBy(String relativePath) {
+        return true;
+    }
 }
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.shared.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+/**
+ * Change of item in workspace.
+ *
+ * @author andrew00x
+ */
+@DTO
+public interface ItemChange {
+    /** Sequence number of change, it grows monotonically while journal of changes has the same id. */
+    long getSequence();
+
+    void setSequence(long sequence);
+
+    ItemChange withSequence(long sequence);
+
+    /** Time of change in milliseconds. */
+    long getTime();
+
+    void setTime(long time);
+
+    ItemChange withTime(long time);
+
+    /** Type of change, e.g. created, content_updated, deleted, moved, renamed. */
+    String getType();
+
+    void setType(String type);
+
+    ItemChange withType(String type);
+
+    String getPath();
+
+    void setPath(String path);
+
+    ItemChange withPath(String path);
+
+    /** Path of item before change if item is moved or renamed. */
+    String getOldPath();
+
+    void setOldPath(String oldPath);
+
+    ItemChange withOldPath(String oldPath);
+
+    boolean getFolder();
+
+    void setFolder(boolean folder);
+
+    ItemChange withFolder(boolean folder);
+}
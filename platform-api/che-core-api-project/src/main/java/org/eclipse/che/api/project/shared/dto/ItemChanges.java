@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.shared.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+import java.util.List;
+
+/**
+ * Changes of items in workspace made after change that is known to the client.
+ *
+ * @author andrew00x
+ */
+@DTO
+public interface ItemChanges {
+    /** Id of journal of changes. Client must send it back together with the last sequence number to get next changes. */
+    String getJournalId();
+
+    void setJournalId(String journalId);
+
+    ItemChanges withJournalId(String journalId);
+
+    /** Sequence number of the latest change. */
+    long getLastSequence();
+
+    void setLastSequence(long lastSequence);
+
+    ItemChanges withLastSequence(long lastSequence);
+
+    /**
+     * Returns {@code false} if journal doesn't have all changes that were requested, e.g. journal is recreated or too many changes
+     * were made since the last request. In this case list of changes is empty and client must reload all items it needs.
+     */
+    boolean getComplete();
+
+    void setComplete(boolean complete);
+
+    ItemChanges withComplete(boolean complete);
+
+    List<ItemChange> getChanges();
+
+    void setChanges(List<ItemChange> changes);
+
+    ItemChanges withChanges(List<ItemChange> changes);
+}
@@ -89,4 +89,12 @@ public interface ItemReference extends Hyperlinks {
 
     ItemReference withContentLength(long length);
 
+
+    /** matches of text of search query in file, available only in result of search if they are requested */
+    List<TextOccurrence> getOccurrences();
+
+    void setOccurrences(List<TextOccurrence> occurrences);
+
+    ItemReference withOccurrences(List<TextOccurrence> occurrences);
+
 }
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.project.shared.dto;
+
+import org.eclipse.che.dto.shared.DTO;
+
+/**
+ * Position of the word in file which matches to the text of search query.
+ *
+ * @author andrew00x
+ */
+@DTO
+public interface TextOccurrence {
+    /** Get matched word in the form as it is indexed, e.g. in lower case. */
+    String getTerm();
+
+    void setTerm(String term);
+
+    TextOccurrence withTerm(String term);
+
+    /** Get number of line, starting from 1. */
+    int getLineNumber();
+
+    void setLineNumber(int lineNumber);
+
+    TextOccurrence withLineNumber(int lineNumber);
+
+    /** Get offset of the first character of the word in line, starting from 0. */
+    int getStartColumn();
+
+    void setStartColumn(int startColumn);
+
+    TextOccurrence withStartColumn(int startColumn);
+
+    /** Get offset after the last character of the word in line. */
+    int getEndColumn();
+
+    void setEndColumn(int endColumn);
+
+    TextOccurrence withEndColumn(int endColumn);
+}
@@ -37,6 +37,8 @@ import org.eclipse.che.api.project.shared.dto.GeneratorDescription;
 import org.eclipse.che.api.project.shared.dto.ImportProject;
 import org.eclipse.che.api.project.shared.dto.ImportResponse;
 import org.eclipse.che.api.project.shared.dto.ImportSourceDescriptor;
+import org.eclipse.che.api.project.shared.dto.ItemChange;
+import org.eclipse.che.api.project.shared.dto.ItemChanges;
 import org.eclipse.che.api.project.shared.dto.ItemReference;
 import org.eclipse.che.api.project.shared.dto.MoveOptions;
 import org.eclipse.che.api.project.shared.dto.NewProject;
@@ -61,6 +63,7 @@ import org.eclipse.che.api.vfs.server.VirtualFileSystemUser;
 import org.eclipse.che.api.vfs.server.VirtualFileSystemUserContext;
 import org.eclipse.che.api.vfs.server.impl.memory.MemoryFileSystemProvider;
 import org.eclipse.che.api.vfs.server.impl.memory.MemoryMountPoint;
+import org.eclipse.che.api.vfs.server.search.FileNameIndexProvider;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
 import org.eclipse.che.api.vfs.shared.dto.Principal;
@@ -232,6 +235,7 @@ public class ProjectServiceTest {
 
         pm = new DefaultProjectManager(vfsRegistry, eventService,
                                        ptRegistry, phRegistry);
+        ((DefaultProjectManager)pm).start();
 
         pm.createProject(workspace, "my_project", new ProjectConfig("my test project", "my_project_type",
                                                                     new HashMap<String, AttributeValue>(), null, null, null), null, null);
@@ -246,6 +250,9 @@ public class ProjectServiceTest {
         dependencies.addComponent(ProjectImporterRegistry.class, importerRegistry);
         dependencies.addComponent(ProjectHandlerRegistry.class, phRegistry);
         dependencies.addComponent(SearcherProvider.class, mmp.getSearcherProvider());
+        FileNameIndexProvider fileNameIndexProvider = new FileNameIndexProvider(eventService, vfsRegistry);
+        fileNameIndexProvider.start();
+        dependencies.addComponent(FileNameIndexProvider.class, fileNameIndexProvider);
         dependencies.addComponent(EventService.class, eventService);
 
 
@@ -316,6 +323,134 @@ public class ProjectServiceTest {
 
     }
 
+    @Test
+    public void testGetProjectsNotModified() throws Exception {
+        ContainerResponse response =
+                launcher.service(HttpMethod.GET, "http://localhost:8080/api/project/my_ws", "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        Object entityTag = response.getHttpHeaders().getFirst(HttpHeaders.ETAG);
+        assertNotNull(entityTag);
+
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put(HttpHeaders.IF_NONE_MATCH, Arrays.asList(entityTag.toString()));
+        response = launcher.service(HttpMethod.GET, "http://localhost:8080/api/project/my_ws", "http://localhost:8080/api", headers, null,
+                                    null);
+        assertEquals(response.getStatus(), 304);
+
+        pm.getProject(workspace, "my_project").getBaseFolder().createFile("test.txt", "test".getBytes(), MediaType.TEXT_PLAIN);
+        response = launcher.service(HttpMethod.GET, "http://localhost:8080/api/project/my_ws", "http://localhost:8080/api", headers, null,
+                                    null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        assertFalse(entityTag.toString().equals(response.getHttpHeaders().getFirst(HttpHeaders.ETAG).toString()));
+    }
+
+    @Test
+    public void testGetProjectsNotModifiedAfterUpdateOfAclOfNestedItem() throws Exception {
+        VirtualFile folder = pm.getProject(workspace, "my_project").getBaseFolder().createFolder("acl_test").getVirtualFile();
+        ContainerResponse response =
+                launcher.service(HttpMethod.GET, "http://localhost:8080/api/project/my_ws", "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        Object entityTag = response.getHttpHeaders().getFirst(HttpHeaders.ETAG);
+
+        AccessControlEntry entry = DtoFactory.getInstance().createDto(AccessControlEntry.class)
+                                             .withPermissions(Arrays.asList("all"))
+                                             .withPrincipal(DtoFactory.getInstance().createDto(Principal.class)
+                                                                      .withName("user").withType(Principal.Type.USER));
+        folder.updateACL(Arrays.asList(entry), false, null);
+
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put(HttpHeaders.IF_NONE_MATCH, Arrays.asList(entityTag.toString()));
+        response = launcher.service(HttpMethod.GET, "http://localhost:8080/api/project/my_ws", "http://localhost:8080/api", headers, null,
+                                    null);
+        assertEquals(response.getStatus(), 304);
+    }
+
+    @Test
+    public void testGetChangesSkipsItemsThatUserCannotRead() throws Exception {
+        ContainerResponse response = launcher.service(HttpMethod.GET,
+                                                      String.format("http://localhost:8080/api/project/%s/changes", workspace),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        ItemChanges changes = (ItemChanges)response.getEntity();
+        String journalId = changes.getJournalId();
+        long lastSequence = changes.getLastSequence();
+
+        FolderEntry folder = pm.getProject(workspace, "my_project").getBaseFolder().createFolder("private_folder");
+        folder.createFile("secret.txt", "secret".getBytes(), MediaType.TEXT_PLAIN);
+        AccessControlEntry entry = DtoFactory.getInstance().createDto(AccessControlEntry.class)
+                                             .withPermissions(Arrays.asList("all"))
+                                             .withPrincipal(DtoFactory.getInstance().createDto(Principal.class)
+                                                                      .withName("other").withType(Principal.Type.USER));
+        folder.getVirtualFile().updateACL(Arrays.asList(entry), true, null);
+
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/changes?journal=%s&since=%d",
+                                                  workspace, journalId, lastSequence),
+                                    "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        changes = (ItemChanges)response.getEntity();
+        assertTrue(changes.getComplete());
+        assertTrue(changes.getLastSequence() > lastSequence);
+        for (ItemChange change : changes.getChanges()) {
+            assertFalse(change.getPath().startsWith("/my_project/private_folder"), "Unexpected change: " + change.getPath());
+        }
+    }
+
+    @Test
+    public void testGetChanges() throws Exception {
+        ContainerResponse response = launcher.service(HttpMethod.GET,
+                                                      String.format("http://localhost:8080/api/project/%s/changes", workspace),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        ItemChanges changes = (ItemChanges)response.getEntity();
+        String journalId = changes.getJournalId();
+        long lastSequence = changes.getLastSequence();
+        assertNotNull(journalId);
+        assertTrue(changes.getComplete());
+
+        pm.getProject(workspace, "my_project").getBaseFolder().createFile("test.txt", "test".getBytes(), MediaType.TEXT_PLAIN);
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/changes?journal=%s&since=%d",
+                                                  workspace, journalId, lastSequence),
+                                    "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        changes = (ItemChanges)response.getEntity();
+        assertTrue(changes.getComplete());
+        assertFalse(changes.getChanges().isEmpty());
+        assertEquals(changes.getLastSequence(), lastSequence + changes.getChanges().size());
+        ItemChange created = null;
+        for (ItemChange change : changes.getChanges()) {
+            if ("/my_project/test.txt".equals(change.getPath())) {
+                created = change;
+            }
+        }
+        assertNotNull(created);
+        assertEquals(created.getType(), "created");
+        assertFalse(created.getFolder());
+        lastSequence = changes.getLastSequence();
+
+        // Nothing changed.
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/changes?journal=%s&since=%d",
+                                                  workspace, journalId, lastSequence),
+                                    "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        changes = (ItemChanges)response.getEntity();
+        assertTrue(changes.getComplete());
+        assertTrue(changes.getChanges().isEmpty());
+
+        // Unknown journal, client must reload everything.
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/changes?journal=unknown&since=%d",
+                                                  workspace, lastSequence - 1),
+                                    "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        changes = (ItemChanges)response.getEntity();
+        assertFalse(changes.getComplete());
+        assertEquals(changes.getJournalId(), journalId);
+        assertEquals(changes.getLastSequence(), lastSequence);
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void testGetModules() throws Exception {
@@ -2616,6 +2751,55 @@ public class ProjectServiceTest {
         Assert.assertTrue(names.contains("x/test.txt"));
     }
 
+    @Test
+    public void testGetStreamingTree() throws Exception {
+        Project myProject = pm.getProject(workspace, "my_project");
+        FolderEntry a = myProject.getBaseFolder().createFolder("a");
+        a.createFolder("b/c");
+        a.createFolder("x").createFile("test.txt", "test".getBytes(), MediaType.TEXT_PLAIN);
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        ContainerResponse response = launcher.service(HttpMethod.GET,
+                                                      String.format("http://localhost:8080/api/project/%s/streamingtree/my_project/a?depth=-1&includeFiles=true",
+                                                                    workspace),
+                                                      "http://localhost:8080/api", null, null, writer, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        String body = new String(writer.getBody());
+        TreeElement tree = DtoFactory.getInstance().createDtoFromJson(body, TreeElement.class);
+        assertEquals(tree.getNode().getName(), "a");
+        Set<String> names = new LinkedHashSet<>(4);
+        for (TreeElement subTree : tree.getChildren()) {
+            ItemReference _node = subTree.getNode();
+            validateFolderLinks(_node);
+            names.add(_node.getName());
+            for (TreeElement subSubTree : subTree.getChildren()) {
+                ItemReference __node = subSubTree.getNode();
+                if (__node.getType().equals("file")) {
+                    validateFileLinks(__node);
+                } else {
+                    validateFolderLinks(__node);
+                }
+                names.add(_node.getName() + "/" + __node.getName());
+            }
+        }
+        Assert.assertTrue(names.contains("b"));
+        Assert.assertTrue(names.contains("x"));
+        Assert.assertTrue(names.contains("b/c"));
+        Assert.assertTrue(names.contains("x/test.txt"));
+        assertFalse(body.contains("truncated"));
+
+        writer = new ByteArrayContainerResponseWriter();
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/streamingtree/my_project/a?depth=-1&limit=2",
+                                                  workspace),
+                                    "http://localhost:8080/api", null, null, writer, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        body = new String(writer.getBody());
+        tree = DtoFactory.getInstance().createDtoFromJson(body, TreeElement.class);
+        assertEquals(tree.getChildren().size(), 1);
+        assertTrue(tree.getChildren().get(0).getChildren().isEmpty());
+        assertTrue(body.contains("\"truncated\":true"));
+    }
+
     @Test
     public void testGetTreeWithDepthAndIncludeFilesNoFiles() throws Exception {
         Project myProject = pm.getProject(workspace, "my_project");
@@ -2808,6 +2992,65 @@ public class ProjectServiceTest {
         Assert.assertTrue(result.get(0).getPath().equals("/my_project/c/test"));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSearchPagingWithPositions() throws Exception {
+        Project myProject = pm.getProject(workspace, "my_project");
+        myProject.getBaseFolder().createFolder("a").createFile("one.txt", "hello\nsearchhit".getBytes(), MediaType.TEXT_PLAIN);
+        myProject.getBaseFolder().createFolder("b").createFile("two.txt", "searchhit searchhit".getBytes(), MediaType.TEXT_PLAIN);
+        myProject.getBaseFolder().createFolder("c").createFile("three.txt", "searchhit".getBytes(), MediaType.TEXT_PLAIN);
+
+        ContainerResponse response = launcher.service(HttpMethod.GET,
+                                                      String.format("http://localhost:8080/api/project/%s/search/my_project" +
+                                                                    "?text=searchhit&maxItems=2&skipCount=1&includePositions=true",
+                                                                    workspace),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        List<ItemReference> result = (List<ItemReference>)response.getEntity();
+        assertEquals(result.size(), 2);
+        for (ItemReference itemReference : result) {
+            Assert.assertFalse(itemReference.getOccurrences().isEmpty());
+            if (itemReference.getPath().equals("/my_project/a/one.txt")) {
+                assertEquals(itemReference.getOccurrences().size(), 1);
+                assertEquals(itemReference.getOccurrences().get(0).getLineNumber(), 2);
+                assertEquals(itemReference.getOccurrences().get(0).getStartColumn(), 0);
+                assertEquals(itemReference.getOccurrences().get(0).getEndColumn(), 9);
+            }
+            Assert.assertNotNull(itemReference.getLink("get content"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testNavigateToFile() throws Exception {
+        Project myProject = pm.getProject(workspace, "my_project");
+        myProject.getBaseFolder().createFolder("a/b").createFile("NavigateToFilePresenter.java", "x".getBytes(), MediaType.TEXT_PLAIN);
+        myProject.getBaseFolder().createFolder("c").createFile("Nav.java", "x".getBytes(), MediaType.TEXT_PLAIN);
+        myProject.getBaseFolder().createFolder("d").createFile("test.txt", "x".getBytes(), MediaType.TEXT_PLAIN);
+
+        ContainerResponse response = launcher.service(HttpMethod.GET,
+                                                      String.format("http://localhost:8080/api/project/%s/navigate/my_project?namePattern=NTFP",
+                                                                    workspace),
+                                                      "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        List<ItemReference> result = (List<ItemReference>)response.getEntity();
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getPath(), "/my_project/a/b/NavigateToFilePresenter.java");
+
+        // index is updated after file is created
+        myProject.getBaseFolder().getChild("d").getVirtualFile().createFile("NavigationBar.java", "text/plain",
+                                                                            new ByteArrayInputStream("x".getBytes()));
+        response = launcher.service(HttpMethod.GET,
+                                    String.format("http://localhost:8080/api/project/%s/navigate/my_project?namePattern=nav&maxItems=2",
+                                                  workspace),
+                                    "http://localhost:8080/api", null, null, null);
+        assertEquals(response.getStatus(), 200, "Error: " + response.getEntity());
+        result = (List<ItemReference>)response.getEntity();
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getPath(), "/my_project/c/Nav.java");
+        assertEquals(result.get(1).getPath(), "/my_project/d/NavigationBar.java");
+    }
+
     @Test
     public void testSetBasicPermissions() throws Exception {
         Project myProject = pm.getProject(workspace, "my_project");
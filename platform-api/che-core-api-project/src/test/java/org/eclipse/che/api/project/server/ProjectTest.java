@@ -34,8 +34,13 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.ws.rs.core.MediaType;
 
 /**
@@ -809,6 +814,155 @@ public class ProjectTest {
         Assert.assertEquals(projectConfig.getAttributes().get("var2"), new AttributeValue("var2Value"));
     }
 
+    @Test
+    public void testResolveSourcesCancelsSlowEstimation() throws Exception {
+        VirtualFile root = pm.getVirtualFileSystemRegistry().getProvider("my_ws").getMountPoint(false).getRoot();
+        root.createFolder("testResolveSourcesSlow");
+
+        final ValueProviderFactory slowFactory = new ValueProviderFactory() {
+            @Override
+            public ValueProvider newInstance(FolderEntry projectFolder) {
+                return new ValueProvider() {
+                    @Override
+                    public List<String> getValues(String attributeName) throws ValueStorageException {
+                        try {
+                            Thread.sleep(60000);
+                        } catch (InterruptedException e) {
+                            throw new ValueStorageException("Interrupted");
+                        }
+                        return Collections.singletonList("slow");
+                    }
+
+                    @Override
+                    public void setValues(String attributeName, List<String> value) {
+                    }
+                };
+            }
+        };
+        pm.getProjectTypeRegistry().registerProjectType(new ProjectType("testResolveSourcesSlow", "slow type", true, false) {
+            {
+                addVariableDefinition("slow_attribute", "attr description", true, slowFactory);
+            }
+        });
+        ((DefaultProjectManager)pm).estimationTimeout = 500;
+
+        long start = System.currentTimeMillis();
+        List<String> skippedTypes = new ArrayList<>();
+        List<SourceEstimation> estimations = pm.resolveSources("my_ws", "testResolveSourcesSlow", false, skippedTypes);
+        Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+        Assert.assertEquals(estimations.size(), 1);
+        Assert.assertEquals(estimations.get(0).getType(), "my_project_type");
+        Assert.assertEquals(skippedTypes, Collections.singletonList("testResolveSourcesSlow"));
+    }
+
+    @Test
+    public void testMiscWritesAreCoalesced() throws Exception {
+        Project project = pm.getProject("my_ws", "my_project");
+        ProjectMiscWriter miscWriter = ((DefaultProjectManager)pm).getMiscWriter();
+        miscWriter.flush();
+        long written = miscWriter.getWrittenCount();
+        long coalesced = miscWriter.getCoalescedCount();
+
+        for (int i = 1; i <= 100; i++) {
+            ProjectMisc misc = project.getMisc();
+            misc.setContentRoot("src" + i);
+            misc.save();
+        }
+        Assert.assertEquals(miscWriter.getPendingCount(), 1);
+        Assert.assertEquals(miscWriter.getCoalescedCount() - coalesced, 99);
+        Assert.assertEquals(project.getMisc().getContentRoot(), "src100");
+
+        miscWriter.flush();
+        Assert.assertEquals(miscWriter.getWrittenCount() - written, 1);
+        Assert.assertEquals(miscWriter.getPendingCount(), 0);
+        FileEntry miscFile = (FileEntry)project.getBaseFolder().getChild(Constants.CODENVY_MISC_FILE_RELATIVE_PATH);
+        Assert.assertNotNull(miscFile);
+        Properties properties = new Properties();
+        try (InputStream in = miscFile.getInputStream()) {
+            properties.loadFromXML(in);
+        }
+        Assert.assertEquals(properties.getProperty("contentRoot"), "src100");
+    }
+
+    @Test
+    public void testMiscWriterStatisticIsPublishedOverJmx() throws Exception {
+        Project project = pm.getProject("my_ws", "my_project");
+        ProjectMisc misc = project.getMisc();
+        misc.setContentRoot("jmx");
+        misc.save();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ProjectMiscWriterMXBean.OBJECT_NAME);
+        ProjectMiscWriter miscWriter = ((DefaultProjectManager)pm).getMiscWriter();
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertTrue(miscWriter.getPendingCount() > 0);
+        Assert.assertEquals(server.getAttribute(name, "PendingCount"), miscWriter.getPendingCount());
+        Assert.assertEquals(server.getAttribute(name, "ScheduledCount"), miscWriter.getScheduledCount());
+    }
+
+    @Test
+    public void testConfigIsCachedUntilChangesAffectingIt() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ValueProviderFactory countingFactory = new ValueProviderFactory() {
+            @Override
+            public ValueProvider newInstance(FolderEntry projectFolder) {
+                return new ValueProvider() {
+                    @Override
+                    public List<String> getValues(String attributeName) {
+                        calls.incrementAndGet();
+                        return Collections.singletonList("counted");
+                    }
+
+                    @Override
+                    public void setValues(String attributeName, List<String> value) {
+                    }
+                };
+            }
+
+            @Override
+            public boolean isInvalidatedBy(String relativePath) {
+                return relativePath.equals("marker");
+            }
+        };
+        pm.getProjectTypeRegistry().registerProjectType(new ProjectType("testConfigIsCached", "my type", true, false) {
+            {
+                addVariableDefinition("counted_attribute", "attr description", true, countingFactory);
+            }
+        });
+        VirtualFile root = pm.getVirtualFileSystemRegistry().getProvider("my_ws").getMountPoint(false).getRoot();
+        root.createFolder("testConfigIsCached").createFolder(Constants.CODENVY_DIR).createFile(Constants.CODENVY_PROJECT_FILE, null, null);
+        Project project = pm.getProject("my_ws", "testConfigIsCached");
+        new ProjectJson("testConfigIsCached", new HashMap<String, List<String>>(), null, null, "first").save(project);
+
+        Assert.assertEquals(project.getConfig().getDescription(), "first");
+        Assert.assertEquals(project.getConfig().getAttributes().get("counted_attribute").getList(), Arrays.asList("counted"));
+        Assert.assertEquals(calls.get(), 1);
+
+        // returned config is copy
+        project.getConfig().getAttributes().clear();
+        Assert.assertEquals(project.getConfig().getAttributes().size(), 1);
+        Assert.assertEquals(calls.get(), 1);
+
+        // changes that value provider doesn't care about
+        project.getBaseFolder().createFile("test.txt", "test".getBytes(), MediaType.TEXT_PLAIN);
+        project.getMisc().setContentRoot("src");
+        project.getMisc().save();
+        project.getConfig();
+        Assert.assertEquals(calls.get(), 1);
+
+        project.getBaseFolder().createFile("marker", "test".getBytes(), MediaType.TEXT_PLAIN);
+        project.getConfig();
+        Assert.assertEquals(calls.get(), 2);
+
+        new ProjectJson("testConfigIsCached", new HashMap<String, List<String>>(), null, null, "second").save(project);
+        Assert.assertEquals(project.getConfig().getDescription(), "second");
+        Assert.assertEquals(calls.get(), 3);
+
+        pm.invalidateProjectConfig("my_ws", "testConfigIsCached");
+        project.getConfig();
+        Assert.assertEquals(calls.get(), 4);
+    }
+
 
 }
 
@@ -10,7 +10,12 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.server;
 
+import org.eclipse.che.api.vfs.server.util.FileChannelInputStream;
+import org.eclipse.che.api.vfs.server.util.StreamingContentInputStream;
+
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 
 /**
@@ -62,4 +67,31 @@ public final class ContentStream {
     public Date getLastModificationDate() {
         return lastModificationDate;
     }
+
+    /**
+     * Copies content to the specified output and closes stream of content. Content of local files is transferred directly from file
+     * channel, without copying through intermediate buffer. Generated content, e.g. zip archive of folder, is written directly to
+     * the specified output.
+     *
+     * @return number of copied bytes
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        try (InputStream content = stream) {
+            if (content instanceof FileChannelInputStream) {
+                return ((FileChannelInputStream)content).transferTo(out);
+            }
+            if (content instanceof StreamingContentInputStream) {
+                return ((StreamingContentInputStream)content).transferTo(out);
+            }
+            final byte[] buf = new byte[8192];
+            long total = 0;
+            int rd;
+            while ((rd = content.read(buf)) != -1) {
+                out.write(buf, 0, rd);
+                total += rd;
+            }
+            out.flush();
+            return total;
+        }
+    }
 }
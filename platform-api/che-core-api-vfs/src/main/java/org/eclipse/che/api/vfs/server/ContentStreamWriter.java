@@ -18,7 +18,6 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -72,13 +71,6 @@ public final class ContentStreamWriter implements MessageBodyWriter<ContentStrea
 
         httpHeaders.putSingle(HttpHeaders.CACHE_CONTROL, "public, no-cache, no-store, no-transform");
 
-        try (InputStream content = t.getStream()) {
-            byte[] buf = new byte[8192];
-            int rd;
-            while ((rd = content.read(buf)) != -1) {
-                entityStream.write(buf, 0, rd);
-            }
-            entityStream.flush();
-        }
+        t.transferTo(entityStream);
     }
 }
@@ -14,6 +14,7 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.vfs.server.observation.ChangeJournal;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 
 /**
@@ -70,6 +71,13 @@ public interface MountPoint {
     /** Get EventService. EventService may be used for propagation events about updates of any items associated with this MountPoint. */
     EventService getEventService();
 
+    /**
+     * Get journal of changes of this MountPoint. Method may return {@code null} if implementation doesn't keep journal of changes.
+     *
+     * @see ChangeJournal
+     */
+    ChangeJournal getChangeJournal();
+
     /** Call after unmount this MountPoint to release used resources, e.g. clear caches */
     void reset();
 }
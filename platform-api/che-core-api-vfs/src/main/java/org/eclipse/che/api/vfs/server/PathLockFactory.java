@@ -10,6 +10,12 @@
  *******************************************************************************/
 package org.eclipse.che.api.vfs.server;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 /**
  * Advisory file locks. It does not prevent access to the file from other programs.
  * <p/>
@@ -30,15 +36,35 @@ package org.eclipse.che.api.vfs.server;
  *         }
  *      }
  * </pre>
+ * <p/>
+ * Locks are hierarchical. Exclusive lock of folder prevents other threads from getting any lock of its descendants and
+ * vice versa. The "lock table" is a concurrent map that contains one entry per locked path. Thread that gets lock of some
+ * path also leaves intention mark on each ancestor of this path. So to find a conflict it is enough to check entry of the
+ * path itself and entries of its ancestors. All checks and updates of one entry are atomic and conflicts are checked
+ * without any global lock. Threads that are blocked by conflicting lock wait on monitor of stripe of the path chosen by
+ * hash, so threads that work with unrelated paths may contend for the same monitor and be woken up by releases of each
+ * other's locks if hashes of their paths collide on the same stripe.
  *
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  */
 public final class PathLockFactory {
     private static final int MAX_RECURSIVE_LOCKS = (1 << 10) - 1;
+
+    /* Kinds of holds in the "lock table". */
+    private static final int SHARED           = 0;
+    private static final int EXCLUSIVE        = 1;
+    private static final int INTENT_SHARED    = 2;
+    private static final int INTENT_EXCLUSIVE = 3;
+
     /** Max number of threads allowed to access file. */
-    private final int maxThreads;
-    // Tail of the "lock table".
-    private final Node tail = new Node(null, 0, null);
+    private final int                    maxThreads;
+    // The "lock table". Entry is removed when the last hold of path is released.
+    private final ConcurrentMap<Path, Node> table;
+    // Threads that are blocked by lock of some path wait on monitor of stripe this path belongs to.
+    private final Object[]               monitors;
+    // Number of waiting threads per stripe. Let skip notification if nobody waits.
+    private final AtomicIntegerArray     waiters;
+    private final int                    mask;
 
     /**
      * @param maxThreads
@@ -46,149 +72,273 @@ public final class PathLockFactory {
      *         avoid blocking threads that need to obtain NOT exclusive lock.
      */
     public PathLockFactory(int maxThreads) {
-        if (maxThreads < 1) {
+        this(maxThreads, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param maxThreads
+     *         the max number of threads are allowed to access one file. Typically this parameter should be big enough to
+     *         avoid blocking threads that need to obtain NOT exclusive lock.
+     * @param concurrencyLevel
+     *         the estimated number of threads that get and release locks concurrently. This parameter is used for
+     *         calculate number of stripes of the "lock table".
+     */
+    public PathLockFactory(int maxThreads, int concurrencyLevel) {
+        if (maxThreads < 1 || concurrencyLevel < 1) {
             throw new IllegalArgumentException();
         }
         this.maxThreads = maxThreads;
+        int stripes = 1;
+        while (stripes < concurrencyLevel) {
+            stripes <<= 1;
+        }
+        table = new ConcurrentHashMap<>(stripes * 4, 0.75f, stripes);
+        monitors = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            monitors[i] = new Object();
+        }
+        waiters = new AtomicIntegerArray(stripes);
+        mask = stripes - 1;
     }
 
     public PathLock getLock(Path path, boolean exclusive) {
-        return new PathLock(path, exclusive ? maxThreads : 1);
+        return new PathLock(path, exclusive);
     }
 
-    private synchronized void acquire(Path path, int permits) {
-        while (!tryAcquire(path, permits)) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
+    private void acquire(Path path, boolean exclusive, Thread owner, long timeoutMilliseconds) {
+        final long endTime = timeoutMilliseconds < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutMilliseconds;
+        Path blocker;
+        while ((blocker = tryAcquire(path, exclusive, owner)) != null) {
+            final int stripe = stripeOf(blocker);
+            final Object monitor = monitors[stripe];
+            synchronized (monitor) {
+                waiters.incrementAndGet(stripe);
+                try {
+                    // Check again after registration as waiter. Thread that releases lock updates the "lock table" first
+                    // and then notifies waiters, so notification may not be lost.
+                    if (!isBlocked(blocker, path.equals(blocker), exclusive, owner)) {
+                        continue;
+                    }
+                    if (endTime == Long.MAX_VALUE) {
+                        monitor.wait();
+                    } else {
+                        final long waitTime = endTime - System.currentTimeMillis();
+                        if (waitTime > 0) {
+                            monitor.wait(waitTime);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    waiters.decrementAndGet(stripe);
+                }
             }
-        }
-    }
-
-    private synchronized void acquire(Path path, int permits, long timeoutMilliseconds) {
-        final long endTime = System.currentTimeMillis() + timeoutMilliseconds;
-        long waitTime = timeoutMilliseconds;
-        while (!tryAcquire(path, permits)) {
-            try {
-                wait(waitTime);
-            } catch (InterruptedException e) {
-                notifyAll();
-                throw new RuntimeException(e);
-            }
-            long now = System.currentTimeMillis();
-            if (now >= endTime) {
+            if (System.currentTimeMillis() >= endTime) {
+                if (tryAcquire(path, exclusive, owner) == null) {
+                    return;
+                }
                 throw new RuntimeException(String.format("Get lock timeout for '%s'. ", path));
             }
-            waitTime = endTime - now;
         }
     }
 
-    private synchronized void release(Path path, int permits) {
-        Node node = tail;
-        while (node != null) {
-            Node prev = node.prev;
-            if (prev == null) {
-                break;
-            }
-            if (prev.path.equals(path)) {
-                if (prev.threadDeep == 1) {
-                    // If last recursive lock.
-                    prev.permits += permits;
-                    if (prev.permits >= maxThreads) {
-                        // remove
-                        node.prev = prev.prev;
-                        prev.prev = null;
+    /** Tries to get lock of the path. Returns <code>null</code> if lock is obtained or path that prevents to get it. */
+    private Path tryAcquire(final Path path, final boolean exclusive, final Thread owner) {
+        final int mode = exclusive ? EXCLUSIVE : SHARED;
+        final int intent = exclusive ? INTENT_EXCLUSIVE : INTENT_SHARED;
+        final boolean[] recursive = new boolean[1];
+        table.computeIfPresent(path, (p, node) -> {
+            final int[] holds = node.holders.get(owner);
+            if (holds != null && (holds[SHARED] > 0 || holds[EXCLUSIVE] > 0)) {
+                // Current thread already has direct lock for this path.
+                if (holds[SHARED] + holds[EXCLUSIVE] > MAX_RECURSIVE_LOCKS) {
+                    throw new Error("Max number of recursive locks exceeded. ");
+                }
+                node.add(owner, mode, 1);
+                recursive[0] = true;
+            }
+            return node;
+        });
+        final Path[] ancestors = ancestors(path);
+        if (recursive[0]) {
+            // Ancestors already marked by current thread. Nobody may get conflicting lock for them.
+            for (Path ancestor : ancestors) {
+                table.compute(ancestor, (p, node) -> {
+                    if (node == null) {
+                        node = new Node();
                     }
-                } else {
-                    --prev.threadDeep;
+                    node.add(owner, intent, 1);
+                    return node;
+                });
+            }
+            return null;
+        }
+        for (int i = 0; i < ancestors.length; i++) {
+            if (!tryHold(ancestors[i], false, exclusive, owner)) {
+                for (int j = i - 1; j >= 0; j--) {
+                    releaseHold(ancestors[j], intent, owner);
                 }
+                return ancestors[i];
             }
-            node = node.prev;
         }
-        notifyAll();
-        //System.err.printf(">>>>> release: %s : %d%n", path, permits);
+        if (!tryHold(path, true, exclusive, owner)) {
+            for (int j = ancestors.length - 1; j >= 0; j--) {
+                releaseHold(ancestors[j], intent, owner);
+            }
+            return path;
+        }
+        return null;
     }
 
-    private boolean tryAcquire(Path path, int permits) {
-        //System.err.printf(">>>>> acquire: %s : %d%n", path, permits);
-        Node node = tail.prev;
-        final Thread current = Thread.currentThread();
-        while (node != null) {
-            if (node.path.equals(path)) {
-                if (node.threadId == current.getId()) {
-                    // Current thread already has direct lock for this path
-                    if (node.threadDeep > MAX_RECURSIVE_LOCKS) {
-                        throw new Error("Max number of recursive locks exceeded. ");
-                    }
-                    ++node.threadDeep;
-                    return true;
-                }
-                if (node.permits > permits) {
-                    // Lock already exists and current thread is not owner of this lock,
-                    // but lock is not exclusive and we can "share" it for other thread.
-                    node.permits -= permits; // decrement number of allowed concurrent threads
-                    return true;
-                }
-                // Lock is exclusive or max number of allowed concurrent thread is reached.
-                return false;
-            } else if ((node.path.isChild(path) || path.isChild(node.path)) && node.permits <= permits) {
-                // Found some path which already has lock that prevents us to get required permits.
-                // There is two possibilities:
-                // 1. Parent of the path we try to lock already locked
-                // 2. Child of the path we try to lock already locked
-                // Need to check is such lock obtained by current thread or not.
-                // If such lock obtained by other thread stop here immediately there is no reasons to continue.
-                if (node.threadId != current.getId()) {
-                    return false;
-                }
+    private boolean tryHold(Path path, final boolean target, final boolean exclusive, final Thread owner) {
+        final boolean[] holds = new boolean[1];
+        table.compute(path, (p, node) -> {
+            if (node == null) {
+                node = new Node();
+            }
+            if (node.conflicts(target, exclusive, owner, maxThreads)) {
+                return node.isEmpty() ? null : node;
+            }
+            node.add(owner, target ? (exclusive ? EXCLUSIVE : SHARED) : (exclusive ? INTENT_EXCLUSIVE : INTENT_SHARED), 1);
+            holds[0] = true;
+            return node;
+        });
+        return holds[0];
+    }
+
+    private boolean isBlocked(Path path, final boolean target, final boolean exclusive, final Thread owner) {
+        final boolean[] blocked = new boolean[1];
+        table.computeIfPresent(path, (p, node) -> {
+            blocked[0] = node.conflicts(target, exclusive, owner, maxThreads);
+            return node;
+        });
+        return blocked[0];
+    }
+
+    private void release(Path path, boolean exclusive, Thread owner) {
+        releaseHold(path, exclusive ? EXCLUSIVE : SHARED, owner);
+        for (Path ancestor : ancestors(path)) {
+            releaseHold(ancestor, exclusive ? INTENT_EXCLUSIVE : INTENT_SHARED, owner);
+        }
+    }
+
+    private void releaseHold(Path path, final int kind, final Thread owner) {
+        table.computeIfPresent(path, (p, node) -> {
+            node.remove(owner, kind);
+            return node.isEmpty() ? null : node;
+        });
+        final int stripe = stripeOf(path);
+        if (waiters.get(stripe) > 0) {
+            final Object monitor = monitors[stripe];
+            synchronized (monitor) {
+                monitor.notifyAll();
             }
-            node = node.prev;
         }
-        // If we are here there is no lock for path yet.
-        tail.prev = new Node(path, maxThreads - permits, tail.prev);
-        return true;
     }
 
-    public synchronized void checkClean() {
-        assert tail.prev == null;
+    private int stripeOf(Path path) {
+        final int h = path.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Returns all ancestors of path starting from root. */
+    private static Path[] ancestors(Path path) {
+        final Path[] ancestors = new Path[path.length()];
+        Path parent = path.getParent();
+        for (int i = ancestors.length - 1; i >= 0; i--) {
+            ancestors[i] = parent;
+            parent = parent.getParent();
+        }
+        return ancestors;
+    }
+
+    public void checkClean() {
+        assert table.isEmpty();
     }
 
    /* =============================================== */
 
     private static class Node {
-        final Path path;
-        final long threadId = Thread.currentThread().getId();
-        int  permits;
-        int  threadDeep;
-        Node prev;
+        // Total number of holds of each kind.
+        final int[]             total   = new int[4];
+        // Holds of each kind per thread.
+        final Map<Thread, int[]> holders = new HashMap<>(4);
+        // Number of threads that have shared lock.
+        int readers;
 
-        Node(Path path, int permits, Node prev) {
-            this.path = path;
-            this.permits = permits;
-            this.prev = prev;
-            threadDeep = 1;
+        boolean conflicts(boolean target, boolean exclusive, Thread owner, int maxThreads) {
+            final int[] mine = holders.get(owner);
+            if (others(mine, EXCLUSIVE) > 0) {
+                return true;
+            }
+            if (target) {
+                if (exclusive) {
+                    return others(mine, SHARED) > 0 || others(mine, INTENT_SHARED) > 0 || others(mine, INTENT_EXCLUSIVE) > 0;
+                }
+                // Lock is not exclusive and we can "share" it with other threads, if max number of threads is not reached.
+                return others(mine, INTENT_EXCLUSIVE) > 0
+                       || readers - (mine != null && mine[SHARED] > 0 ? 1 : 0) >= maxThreads;
+            }
+            // Descendant of this path is going to be locked exclusively. Shared lock of this path prevents it.
+            return exclusive && others(mine, SHARED) > 0;
+        }
+
+        int others(int[] mine, int kind) {
+            return total[kind] - (mine == null ? 0 : mine[kind]);
+        }
+
+        void add(Thread owner, int kind, int n) {
+            int[] holds = holders.get(owner);
+            if (holds == null) {
+                holders.put(owner, holds = new int[4]);
+            }
+            if (kind == SHARED && holds[SHARED] == 0) {
+                ++readers;
+            }
+            holds[kind] += n;
+            total[kind] += n;
+        }
+
+        void remove(Thread owner, int kind) {
+            final int[] holds = holders.get(owner);
+            if (holds == null || holds[kind] == 0) {
+                // Lock is not obtained by this thread.
+                return;
+            }
+            --holds[kind];
+            --total[kind];
+            if (kind == SHARED && holds[SHARED] == 0) {
+                --readers;
+            }
+            if (holds[SHARED] == 0 && holds[EXCLUSIVE] == 0 && holds[INTENT_SHARED] == 0 && holds[INTENT_EXCLUSIVE] == 0) {
+                holders.remove(owner);
+            }
+        }
+
+        boolean isEmpty() {
+            return holders.isEmpty();
         }
 
         @Override
         public String toString() {
             return "Node{" +
-                   "path=" + path +
-                   ", threadId=" + threadId +
-                   ", permits=" + permits +
-                   ", prev=" + prev +
+                   "shared=" + total[SHARED] +
+                   ", exclusive=" + total[EXCLUSIVE] +
+                   ", intentShared=" + total[INTENT_SHARED] +
+                   ", intentExclusive=" + total[INTENT_EXCLUSIVE] +
+                   ", readers=" + readers +
                    '}';
         }
     }
 
     public final class PathLock implements AutoCloseable {
-        private final Path path;
-        private final int  permits;
+        private final Path    path;
+        private final boolean exclusive;
+        private volatile Thread owner;
 
-        private PathLock(Path path, int permits) {
+        private PathLock(Path path, boolean exclusive) {
             this.path = path;
-            this.permits = permits;
+            this.exclusive = exclusive;
         }
 
         /**
@@ -197,7 +347,9 @@ public final class PathLockFactory {
          * @return this PathLock instance
          */
         public PathLock acquire() {
-            PathLockFactory.this.acquire(path, permits);
+            final Thread current = Thread.currentThread();
+            PathLockFactory.this.acquire(path, exclusive, current, -1);
+            owner = current;
             return this;
         }
 
@@ -212,18 +364,21 @@ public final class PathLockFactory {
          *         if waiting timeout reached
          */
         public PathLock acquire(long timeoutMilliseconds) {
-            PathLockFactory.this.acquire(path, permits, timeoutMilliseconds);
+            final Thread current = Thread.currentThread();
+            PathLockFactory.this.acquire(path, exclusive, current, Math.max(timeoutMilliseconds, 0));
+            owner = current;
             return this;
         }
 
-        /** Release file permit. */
+        /** Release file permit. Permit is released on behalf of thread that acquired it. */
         public void release() {
-            PathLockFactory.this.release(path, permits);
+            final Thread current = owner;
+            PathLockFactory.this.release(path, exclusive, current == null ? Thread.currentThread() : current);
         }
 
         /** Returns <code>true</code> if this lock is exclusive and <code>false</code> otherwise. */
         public boolean isExclusive() {
-            return permits == PathLockFactory.this.maxThreads;
+            return exclusive;
         }
 
         @Override
@@ -664,6 +664,10 @@ public interface VirtualFileSystem {
 
     /**
      * Performs in-depth replacing of variables or text entries in the Items.
+     * <p/>
+     * Variables, e.g. ${name}, and text entries of all replacements that match file are replaced together in one pass through
+     * content of file. If a few entries match at the same position then the longest one is replaced. Replaced content is not matched
+     * again. Variables that are not in replacements are not changed. Files that contain nothing to replace are not updated.
      *
      * @param path
      *         folder root to perform replace in depth
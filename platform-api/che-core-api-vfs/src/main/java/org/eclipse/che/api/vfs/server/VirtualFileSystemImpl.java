@@ -15,8 +15,11 @@ import org.eclipse.che.api.core.ForbiddenException;
 import org.eclipse.che.api.core.NotFoundException;
 import org.eclipse.che.api.core.ServerException;
 import org.eclipse.che.api.vfs.server.search.QueryExpression;
+import org.eclipse.che.api.vfs.server.search.SearchResult;
+import org.eclipse.che.api.vfs.server.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.server.search.SearcherProvider;
 import org.eclipse.che.api.vfs.server.util.LinksHelper;
+import org.eclipse.che.api.vfs.server.util.MultiPatternReplacer;
 import org.eclipse.che.api.vfs.shared.ItemType;
 import org.eclipse.che.api.vfs.shared.PropertyFilter;
 import org.eclipse.che.api.vfs.shared.dto.AccessControlEntry;
@@ -33,8 +36,6 @@ import org.eclipse.che.api.vfs.shared.dto.Variable;
 import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo;
 import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.ACLCapability;
 import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
-import org.eclipse.che.commons.lang.Deserializer;
-import org.eclipse.che.commons.lang.IoUtil;
 import org.eclipse.che.commons.lang.NameGenerator;
 import org.eclipse.che.commons.lang.Pair;
 import org.eclipse.che.commons.lang.ws.rs.ExtMediaType;
@@ -55,16 +56,16 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -469,63 +470,90 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
         if (!projectRoot.isFolder()) {
             throw new ConflictException("Given path must be an project root folder. ");
         }
-        final Map<String, ReplacementContainer> changesPerFile = new HashMap<>();
-        // fill changes matrix first
-        for (final ReplacementSet replacement : replacements) {
-            for (final String regex : replacement.getFiles()) {
-                Pattern pattern  = Pattern.compile(regex);
-                ItemNode rootNode = getTree(projectRoot.getId(), -1, false, PropertyFilter.ALL_FILTER);
-                LinkedList<ItemNode> q = new LinkedList<>();
-                q.add(rootNode);
-                while (!q.isEmpty()) {
-                    ItemNode node = q.pop();
-                    Item item = node.getItem();
-                    if (item.getItemType().equals(ItemType.FOLDER)) {
-                        q.addAll(node.getChildren());
-                    } else if (item.getItemType().equals(ItemType.FILE)) {
-                        // for cases like:  src/main/java/(.*)
-                        String itemInternalPath = item.getPath().substring(projectRoot.getPath().length() + 1);
-                        if (pattern.matcher(item.getName()).matches() || pattern.matcher(itemInternalPath).matches()) {
-                            ReplacementContainer container =
-                                    (changesPerFile.get(item.getPath()) != null) ? changesPerFile.get(item.getPath())
-                                                                                 : new ReplacementContainer();
-                            for (Variable variable : replacement.getEntries()) {
-                                String replaceMode  = variable.getReplacemode();
-                                if (replaceMode == null || "variable_singlepass".equals(replaceMode)) {
-                                    container.getVariableProps().put(variable.getFind(), variable.getReplace());
-                                } else if ("text_multipass".equals(replaceMode)) {
-                                    container.getTextProps().put(variable.getFind(), variable.getReplace());
-                                }
+        final List<Pattern[]> filePatterns = new ArrayList<>(replacements.size());
+        for (ReplacementSet replacement : replacements) {
+            final List<String> files = replacement.getFiles();
+            final Pattern[] patterns = new Pattern[files.size()];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = Pattern.compile(files.get(i));
+            }
+            filePatterns.add(patterns);
+        }
+        // Files are usually matched by the same replacement sets, e.g. by extension, share replacers between them.
+        final Map<BitSet, MultiPatternReplacer> replacers = new HashMap<>();
+        final LinkedList<VirtualFile> q = new LinkedList<>();
+        q.add(projectRoot);
+        while (!q.isEmpty()) {
+            final LazyIterator<VirtualFile> children = q.pop().getChildren(VirtualFileFilter.ALL);
+            while (children.hasNext()) {
+                final VirtualFile child = children.next();
+                if (child.isFolder()) {
+                    q.add(child);
+                } else if (child.isFile()) {
+                    // for cases like:  src/main/java/(.*)
+                    final String itemInternalPath = child.getPath().substring(projectRoot.getPath().length() + 1);
+                    final BitSet matched = new BitSet(filePatterns.size());
+                    for (int i = 0; i < filePatterns.size(); i++) {
+                        for (Pattern pattern : filePatterns.get(i)) {
+                            if (pattern.matcher(child.getName()).matches() || pattern.matcher(itemInternalPath).matches()) {
+                                matched.set(i);
+                                break;
                             }
-                            changesPerFile.put(item.getPath(), container);
                         }
                     }
+                    if (matched.isEmpty()) {
+                        continue;
+                    }
+                    MultiPatternReplacer replacer = replacers.get(matched);
+                    if (replacer == null) {
+                        replacers.put(matched, replacer = newReplacer(replacements, matched));
+                    }
+                    if (!replacer.isEmpty()) {
+                        replace(child, replacer, lockToken);
+                    }
                 }
             }
         }
-        //now apply changes matrix
-        for (Map.Entry<String, ReplacementContainer> entry : changesPerFile.entrySet()) {
-            try {
-                if (entry.getValue().hasReplacements()) {
-                    ContentStream cs = mountPoint.getVirtualFile(entry.getKey()).getContent();
-                    String content = IoUtil.readAndCloseQuietly(cs.getStream());
-                    String modified =
-                            Deserializer.resolveVariables(content, entry.getValue().getVariableProps(), false);
-                    for (Map.Entry<String, String> replacement : entry.getValue().getTextProps().entrySet()) {
-                        if (modified.contains(replacement.getKey())) {
-                            modified = modified.replace(replacement.getKey(), replacement.getValue());
-                        }
-                    }
-                    //better to compare big strings by hash codes first
-                    if (!(content.hashCode() == modified.hashCode()) || !content.equals(modified)) {
-                        mountPoint.getVirtualFile(entry.getKey())
-                                  .updateContent(new ByteArrayInputStream(modified.getBytes(
-                                          StandardCharsets.UTF_8)), lockToken);
-                    }
+    }
+
+    /** Creates replacer for all variables of specified replacement sets, variables of later sets override the same earlier variables. */
+    private static MultiPatternReplacer newReplacer(List<ReplacementSet> replacements, BitSet matched) {
+        final ReplacementContainer container = new ReplacementContainer();
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            for (Variable variable : replacements.get(i).getEntries()) {
+                String replaceMode = variable.getReplacemode();
+                if (replaceMode == null || "variable_singlepass".equals(replaceMode)) {
+                    container.getVariableProps().put(variable.getFind(), variable.getReplace());
+                } else if ("text_multipass".equals(replaceMode)) {
+                    container.getTextProps().put(variable.getFind(), variable.getReplace());
+                }
+            }
+        }
+        final Map<String, String> strings = new HashMap<>(container.getTextProps());
+        for (Map.Entry<String, String> variable : container.getVariableProps().entrySet()) {
+            // Variable without value is not resolved.
+            if (variable.getValue() != null && !variable.getValue().isEmpty()) {
+                strings.put("${" + variable.getKey() + '}', variable.getValue());
+            }
+        }
+        return new MultiPatternReplacer(strings);
+    }
+
+    private static void replace(VirtualFile file, MultiPatternReplacer replacer, String lockToken)
+            throws ForbiddenException, ServerException {
+        try {
+            // Most of files don't contain any variable, don't rewrite them.
+            final boolean found;
+            try (InputStream content = file.getContent().getStream()) {
+                found = replacer.find(content);
+            }
+            if (found) {
+                try (InputStream content = replacer.replace(file.getContent().getStream())) {
+                    file.updateContent(content, lockToken);
                 }
-            } catch (IOException e) {
-                LOG.warn(e.getMessage(), e);
             }
+        } catch (IOException e) {
+            LOG.warn(e.getMessage(), e);
         }
     }
 
@@ -544,26 +572,26 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
                     .setPath(query.getFirst("path"))
                     .setName(query.getFirst("name"))
                     .setMediaType(query.getFirst("mediaType"))
-                    .setText(query.getFirst("text"));
+                    .setText(query.getFirst("text"))
+                    .setSkipCount(skipCount)
+                    .setMaxItems(maxItems > 0 ? maxItems : -1);
 
-            final String[] result = searcherProvider.getSearcher(mountPoint, true).search(expr);
+            final SearchResult result = searcherProvider.getSearcher(mountPoint, true).query(expr);
             if (skipCount > 0) {
-                if (skipCount > result.length) {
+                if (skipCount > result.getTotalHits()) {
                     throw new ConflictException("'skipCount' parameter is greater then total number of items. ");
                 }
             }
-            final int length = maxItems > 0 ? Math.min(result.length, maxItems) : result.length;
-            final List<Item> items = new ArrayList<>(length);
-            for (int i = skipCount; i < length; i++) {
-                String path = result[i];
+            final List<Item> items = new ArrayList<>(result.getEntries().size());
+            for (SearchResultEntry entry : result.getEntries()) {
                 try {
-                    items.add(fromVirtualFile(mountPoint.getVirtualFile(path), false, propertyFilter));
+                    items.add(fromVirtualFile(mountPoint.getVirtualFile(entry.getPath()), false, propertyFilter));
                 } catch (NotFoundException | ForbiddenException ignored) {
                 }
             }
 
-            return DtoFactory.getInstance().createDto(ItemList.class).withItems(items).withNumItems(result.length)
-                             .withHasMoreItems(length < result.length);
+            return DtoFactory.getInstance().createDto(ItemList.class).withItems(items).withNumItems(result.getTotalHits())
+                             .withHasMoreItems(result.hasMore(skipCount));
         }
         throw new ServerException("Not supported. ");
     }
@@ -669,7 +697,10 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
         final List<OutputItem> multipart = new LinkedList<>();
         // String name, Object entity, MediaType mediaType, String fileName
         final OutputItem updates = OutputItem.create("updates", zip.getStream(), ExtMediaType.APPLICATION_ZIP_TYPE, zip.getFileName());
-        updates.getHeaders().putSingle(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength()));
+        if (zip.getLength() >= 0) {
+            // Length of zip that is streamed while it's created is unknown.
+            updates.getHeaders().putSingle(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength()));
+        }
         multipart.add(updates);
 
         if (!deleted.isEmpty()) {
@@ -692,11 +723,14 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
         if (zip == null) {
             return Response.status(204).build();
         }
+        // Send ContentStream itself, it is written by ContentStreamWriter that sends zip to the client while it's created.
         final Response.ResponseBuilder responseBuilder = Response
-                .ok(zip.getStream(), zip.getMimeType())
+                .ok(zip, zip.getMimeType())
                 .lastModified(zip.getLastModificationDate())
-                .header(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength()))
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zip.getFileName() + '"');
+        if (zip.getLength() >= 0) {
+            responseBuilder.header(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength()));
+        }
         if (!deleted.isEmpty()) {
             final StringBuilder buff = new StringBuilder();
             for (String str : deleted) {
@@ -784,16 +818,20 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
             return null;
         }
 
+        // Changed files and folders that contain them, folders must be accepted to get their content in zip.
+        final Set<org.eclipse.che.api.vfs.server.Path> accepted = new HashSet<>();
+        final org.eclipse.che.api.vfs.server.Path folderPath = folder.getVirtualFilePath();
+        for (Pair<String, org.eclipse.che.api.vfs.server.Path> pair : diff) {
+            org.eclipse.che.api.vfs.server.Path path = pair.second;
+            // Stop at the first path that is added already, its parents are added too.
+            while (path != null && path.isChild(folderPath) && accepted.add(path)) {
+                path = path.getParent();
+            }
+        }
         final ContentStream zip = folder.zip(new VirtualFileFilter() {
             @Override
             public boolean accept(VirtualFile file) {
-                for (Pair<String, org.eclipse.che.api.vfs.server.Path> pair : diff) {
-                    if (pair.second != null
-                        && (pair.second.equals(file.getVirtualFilePath()) || pair.second.isChild(file.getVirtualFilePath()))) {
-                        return true;
-                    }
-                }
-                return false;
+                return accepted.contains(file.getVirtualFilePath());
             }
         });
 
@@ -830,9 +868,9 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
         return downloadFile(getContent(id));
     }
 
-    public static Response downloadFile(ContentStream content) {
+    public static Response downloadFile(final ContentStream content) {
         return Response
-                .ok(content.getStream(), content.getMimeType())
+                .ok((StreamingOutput)content::transferTo, content.getMimeType())
                 .lastModified(content.getLastModificationDate())
                 .header(HttpHeaders.CONTENT_LENGTH, Long.toString(content.getLength()))
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + content.getFileName() + '"')
@@ -911,12 +949,14 @@ public abstract class VirtualFileSystemImpl implements VirtualFileSystem {
     @Override
     public Response downloadZip(@PathParam("folderId") String folderId) throws NotFoundException, ForbiddenException, ServerException {
         final ContentStream zip = exportZip(folderId);
-        return Response //
-                .ok(zip.getStream(), zip.getMimeType()) //
+        final Response.ResponseBuilder responseBuilder = Response //
+                .ok(zip, zip.getMimeType()) //
                 .lastModified(zip.getLastModificationDate()) //
-                .header(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength())) //
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zip.getFileName() + '"') //
-                .build();
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + zip.getFileName() + '"');
+        if (zip.getLength() >= 0) {
+            responseBuilder.header(HttpHeaders.CONTENT_LENGTH, Long.toString(zip.getLength()));
+        }
+        return responseBuilder.build();
     }
 
     @Path("uploadzip/{parentId}")
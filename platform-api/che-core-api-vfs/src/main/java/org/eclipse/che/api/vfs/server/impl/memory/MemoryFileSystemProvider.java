@@ -96,6 +96,7 @@ public class MemoryFileSystemProvider extends VirtualFileSystemProvider {
                 if (searcher != null) {
                     searcher.close();
                 }
+                memoryMountPoint.close();
             }
         } catch (ServerException e) {
             LOG.error(e.getMessage(), e);
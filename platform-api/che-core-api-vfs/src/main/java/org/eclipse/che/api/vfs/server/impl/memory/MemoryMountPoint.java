@@ -24,6 +24,7 @@ import org.eclipse.che.api.vfs.server.Path;
 import org.eclipse.che.api.vfs.server.SystemPathsFilter;
 import org.eclipse.che.api.vfs.server.VirtualFileFilter;
 import org.eclipse.che.api.vfs.server.VirtualFileVisitor;
+import org.eclipse.che.api.vfs.server.observation.ChangeJournal;
 
 import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo;
 
@@ -38,6 +39,9 @@ import java.util.Map;
  * @author andrew00x
  */
 public class MemoryMountPoint implements MountPoint {
+    /* Number of the latest changes kept in journal. */
+    private static final int CHANGE_JOURNAL_SIZE = 1000;
+
     private final String                       workspaceId;
     private final EventService                 eventService;
     private final SearcherProvider             searcherProvider;
@@ -45,6 +49,7 @@ public class MemoryMountPoint implements MountPoint {
     private final Map<String, VirtualFile>     entries;
     private final VirtualFile                  root;
     private final SystemPathsFilter            systemFilter;
+    private final ChangeJournal                changeJournal;
 
     public MemoryMountPoint(String workspaceId, EventService eventService, SearcherProvider searcherProvider,
                             VirtualFileSystemUserContext userContext, SystemPathsFilter systemFilter) {
@@ -55,6 +60,8 @@ public class MemoryMountPoint implements MountPoint {
         entries = new HashMap<>();
         root = new MemoryVirtualFile(this);
         this.systemFilter = systemFilter;
+        changeJournal = new ChangeJournal(workspaceId, CHANGE_JOURNAL_SIZE);
+        eventService.subscribe(changeJournal);
     }
 
     @Override
@@ -118,6 +125,12 @@ public class MemoryMountPoint implements MountPoint {
         entries.clear();
     }
 
+    /** Call when this MountPoint is not going to be used anymore. Stops listening of events. */
+    void close() {
+        eventService.unsubscribe(changeJournal);
+        reset();
+    }
+
     void putItem(MemoryVirtualFile item) throws ServerException {
         if (item.isFolder()) {
             final Map<String, VirtualFile> flatten = new HashMap<>();
@@ -162,6 +175,11 @@ public class MemoryMountPoint implements MountPoint {
         return eventService;
     }
 
+    @Override
+    public ChangeJournal getChangeJournal() {
+        return changeJournal;
+    }
+
     VirtualFileSystemUserContext getUserContext() {
         return userContext;
     }
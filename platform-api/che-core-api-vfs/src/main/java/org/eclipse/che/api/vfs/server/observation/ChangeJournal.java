@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.observation;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.commons.lang.NameGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bounded journal of changes of virtual file system of one workspace. Each change gets sequence number that grows monotonically, so
+ * client that remembers the last seen number may ask for changes made after it and refetch nothing if nothing changed.
+ * <p/>
+ * Journal keeps the latest changes in memory ring. If journal file is set each change is also appended to it, so sequence numbers and
+ * recent changes survive restart of server. Changes are written to the file in batches by background thread, thread that publishes
+ * events only adds them to the ring. File is rewritten with content of ring when it becomes much longer than ring. Each journal
+ * has id, new id is generated when history of changes is lost, e.g. journal file is broken, and client that sees another id must
+ * synchronize from scratch.
+ * <p/>
+ * Instance of this class is thread-safe.
+ *
+ * @author andrew00x
+ */
+public class ChangeJournal implements EventSubscriber<VirtualFileEvent> {
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeJournal.class);
+
+    private static final String HEADER         = "#journal ";
+    /* Journal file is rewritten when it has this times more records than ring. */
+    private static final int    COMPACT_FACTOR = 2;
+
+    /* Writes changes of all journals to their files. */
+    private static final ExecutorService FILE_WRITER =
+            Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("ChangeJournalWriter-%d")
+                                                                        .setDaemon(true)
+                                                                        .build());
+
+    /** Single change of virtual file system. */
+    public static final class Change {
+        private final long                        sequence;
+        private final long                        time;
+        private final VirtualFileEvent.ChangeType type;
+        private final String                      path;
+        private final String                      oldPath;
+        private final boolean                     folder;
+
+        Change(long sequence, long time, VirtualFileEvent.ChangeType type, String path, String oldPath, boolean folder) {
+            this.sequence = sequence;
+            this.time = time;
+            this.type = type;
+            this.path = path;
+            this.oldPath = oldPath;
+            this.folder = folder;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /** Time of change in milliseconds. */
+        public long getTime() {
+            return time;
+        }
+
+        public VirtualFileEvent.ChangeType getType() {
+            return type;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /** Path of item before change if item is moved or renamed, otherwise {@code null}. */
+        public String getOldPath() {
+            return oldPath;
+        }
+
+        public boolean isFolder() {
+            return folder;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" +
+                   "sequence=" + sequence +
+                   ", time=" + time +
+                   ", type=" + type +
+                   ", path='" + path + '\'' +
+                   ", oldPath='" + oldPath + '\'' +
+                   ", folder=" + folder +
+                   '}';
+        }
+    }
+
+    private final String       workspaceId;
+    private final java.io.File file;
+    private final Change[]     ring;
+    /* Guards journal file, writer and number of records in file. Lock of journal may be acquired while this lock is held. */
+    private final Object       fileLock;
+    private final Runnable     flushTask;
+
+    private String       id;
+    private long         lastSequence;
+    /* Position of next change in ring. */
+    private int          next;
+    private int          size;
+    /* Changes that aren't written to journal file yet. */
+    private List<Change> pending;
+    private boolean      flushScheduled;
+    private Writer       writer;
+    /* Number of changes in journal file. */
+    private int          records;
+
+    /**
+     * Creates journal that is kept only in memory.
+     *
+     * @param workspaceId
+     *         id of workspace which changes are journaled, events of other workspaces are ignored
+     * @param capacity
+     *         max number of changes kept in journal
+     */
+    public ChangeJournal(String workspaceId, int capacity) {
+        this(workspaceId, capacity, null);
+    }
+
+    /**
+     * Creates journal that is kept in memory and in append-only file.
+     *
+     * @param workspaceId
+     *         id of workspace which changes are journaled, events of other workspaces are ignored
+     * @param capacity
+     *         max number of changes kept in journal
+     * @param file
+     *         journal file, if file exists journal is restored from it
+     */
+    public ChangeJournal(String workspaceId, int capacity, java.io.File file) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid capacity of journal: %d", capacity));
+        }
+        this.workspaceId = workspaceId;
+        this.file = file;
+        ring = new Change[capacity];
+        fileLock = new Object();
+        pending = new ArrayList<>();
+        flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        if (file == null) {
+            id = NameGenerator.generate(null, 16);
+        } else {
+            synchronized (fileLock) {
+                load();
+            }
+        }
+    }
+
+    @Override
+    public void onEvent(VirtualFileEvent event) {
+        if (workspaceId.equals(event.getWorkspaceId())) {
+            append(event);
+        }
+    }
+
+    /** Adds event to the journal. */
+    public synchronized Change append(VirtualFileEvent event) {
+        String oldPath = null;
+        if (event instanceof MoveEvent) {
+            oldPath = ((MoveEvent)event).getOldPath();
+        } else if (event instanceof RenameEvent) {
+            oldPath = ((RenameEvent)event).getOldPath();
+        }
+        final Change change =
+                new Change(lastSequence + 1, System.currentTimeMillis(), event.getType(), event.getPath(), oldPath, event.isFolder());
+        put(change);
+        if (file != null) {
+            pending.add(change);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                FILE_WRITER.execute(flushTask);
+            }
+        }
+        return change;
+    }
+
+    /** Writes changes that are added to the journal to the journal file. Does nothing if journal is kept only in memory. */
+    public void flush() {
+        synchronized (fileLock) {
+            final List<Change> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                flushScheduled = false;
+            }
+            if (writer == null || batch.isEmpty()) {
+                return;
+            }
+            try {
+                for (Change change : batch) {
+                    writeChange(writer, change);
+                }
+                writer.flush();
+                records += batch.size();
+            } catch (IOException e) {
+                // Don't keep file that misses changes, history is lost after restart and journal gets new id.
+                LOG.warn(String.format("Unable write journal file %s, changes are kept only in memory. %s", file, e.getMessage()));
+                closeWriter();
+                if (!file.delete()) {
+                    LOG.error("Unable delete journal file {}", file);
+                }
+                return;
+            }
+            if (records > ring.length * COMPACT_FACTOR) {
+                rewrite();
+            }
+        }
+    }
+
+    /** Gets id of journal. Sequence numbers of different journals aren't comparable. */
+    public synchronized String getId() {
+        return id;
+    }
+
+    /** Gets sequence number of the latest change or {@code 0} if there were no changes. */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets changes that have sequence number greater than {@code since}, in order they were made.
+     *
+     * @param since
+     *         sequence number of the latest change that is known to the caller
+     * @return changes made after {@code since} or {@code null} if journal doesn't keep all of them anymore or {@code since} is not
+     * known to this journal
+     */
+    public synchronized List<Change> getChangesSince(long since) {
+        if (since > lastSequence || since < lastSequence - size) {
+            return null;
+        }
+        final int count = (int)(lastSequence - since);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        final List<Change> changes = new ArrayList<>(count);
+        for (int i = count; i > 0; i--) {
+            changes.add(ring[(next - i + ring.length) % ring.length]);
+        }
+        return changes;
+    }
+
+    /** Writes pending changes and closes journal file. Journal must not be used after this. */
+    public void close() {
+        synchronized (fileLock) {
+            flush();
+            closeWriter();
+        }
+    }
+
+    private void put(Change change) {
+        ring[next] = change;
+        next = (next + 1) % ring.length;
+        if (size < ring.length) {
+            size++;
+        }
+        lastSequence = change.getSequence();
+    }
+
+    private void load() {
+        boolean rewrite = false;
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                final String header = reader.readLine();
+                if (header == null || !header.startsWith(HEADER)) {
+                    throw new IOException("Invalid header of journal");
+                }
+                id = header.substring(HEADER.length());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Change change = parseChange(line);
+                    if (change.getSequence() <= lastSequence) {
+                        throw new IOException(String.format("Invalid sequence number %d", change.getSequence()));
+                    }
+                    put(change);
+                    records++;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Broken journal, e.g. last record isn't written completely. Client can't trust history anymore.
+                LOG.warn(String.format("Unable read journal file %s, start new journal. %s", file, e.getMessage()));
+                clear();
+                rewrite = true;
+            }
+        } else {
+            rewrite = true;
+        }
+        if (id == null) {
+            id = NameGenerator.generate(null, 16);
+        }
+        if (rewrite || records > ring.length * COMPACT_FACTOR) {
+            rewrite();
+        } else {
+            try {
+                writer = openWriter(file, true);
+            } catch (IOException e) {
+                LOG.warn(String.format("Unable open journal file %s, changes are kept only in memory. %s", file, e.getMessage()));
+            }
+        }
+    }
+
+    private void clear() {
+        id = null;
+        lastSequence = 0;
+        next = 0;
+        size = 0;
+        records = 0;
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+    }
+
+    /* Replaces journal file with changes that are kept in ring and opens it for appending. Must be called with fileLock held. */
+    private void rewrite() {
+        closeWriter();
+        final List<Change> changes;
+        synchronized (this) {
+            // Pending changes are in the ring, they are written to the new file with all other changes.
+            changes = getChangesSince(lastSequence - size);
+            pending.clear();
+        }
+        final java.io.File tmp = new java.io.File(file.getPath() + ".tmp");
+        try {
+            final java.io.File parent = file.getParentFile();
+            if (parent != null && !(parent.exists() || parent.mkdirs())) {
+                throw new IOException(String.format("Unable create directory %s", parent));
+            }
+            try (Writer tmpWriter = openWriter(tmp, false)) {
+                tmpWriter.write(HEADER);
+                tmpWriter.write(id);
+                tmpWriter.write('\n');
+                for (Change change : changes) {
+                    writeChange(tmpWriter, change);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = changes.size();
+            writer = openWriter(file, true);
+        } catch (IOException e) {
+            LOG.warn(String.format("Unable write journal file %s, changes are kept only in memory. %s", file, e.getMessage()));
+            closeWriter();
+            if (tmp.exists() && !tmp.delete()) {
+                LOG.error("Unable delete file {}", tmp);
+            }
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+            writer = null;
+        }
+    }
+
+    private static Writer openWriter(java.io.File file, boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+    }
+
+    /* Record of journal file: sequence, time, type, folder flag, path and old path separated with tabs. */
+    private static void writeChange(Writer writer, Change change) throws IOException {
+        writer.write(Long.toString(change.getSequence()));
+        writer.write('\t');
+        writer.write(Long.toString(change.getTime()));
+        writer.write('\t');
+        writer.write(change.getType().name());
+        writer.write('\t');
+        writer.write(change.isFolder() ? '1' : '0');
+        writer.write('\t');
+        writer.write(escape(change.getPath()));
+        writer.write('\t');
+        if (change.getOldPath() != null) {
+            writer.write(escape(change.getOldPath()));
+        }
+        writer.write('\n');
+    }
+
+    private static Change parseChange(String line) throws IOException {
+        final String[] fields = line.split("\t", -1);
+        if (fields.length != 6) {
+            throw new IOException(String.format("Invalid record of journal '%s'", line));
+        }
+        return new Change(Long.parseLong(fields[0]),
+                          Long.parseLong(fields[1]),
+                          VirtualFileEvent.ChangeType.valueOf(fields[2]),
+                          unescape(fields[4]),
+                          fields[5].isEmpty() ? null : unescape(fields[5]),
+                          "1".equals(fields[3]));
+    }
+
+    private static String escape(String str) {
+        final StringBuilder escaped = new StringBuilder(str.length());
+        for (int i = 0, length = str.length(); i < length; i++) {
+            final char c = str.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String str) throws IOException {
+        final StringBuilder unescaped = new StringBuilder(str.length());
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c == '\\') {
+                if (++i == length) {
+                    throw new IOException(String.format("Invalid escape sequence in '%s'", str));
+                }
+                c = str.charAt(i);
+                switch (c) {
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                }
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import org.eclipse.che.api.core.ForbiddenException;
+import org.eclipse.che.api.core.NotFoundException;
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.vfs.server.LazyIterator;
+import org.eclipse.che.api.vfs.server.MountPoint;
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.VirtualFileFilter;
+import org.eclipse.che.commons.lang.concurrent.ThreadLocalPropagateContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of names of files of one {@link MountPoint}. Index is intended for quick navigation to file by name, it finds
+ * files by part of name, by first letters of words of name (camel case), e.g. 'NTFP' or 'NaToFi' for 'NavigateToFilePresenter', and
+ * by characters of name in the same order. Simple wildcards '*' and '?' are supported as well. Results are ordered by relevance and
+ * limited by specified number of items, so cost of search depends mostly on the number of indexed files and not on the number of
+ * matched files.
+ * <p/>
+ * Each indexed name has a bit mask of characters that it contains. Most names are rejected by comparison of masks without looking
+ * at characters of name. Index of n-grams is not used since camel case and fuzzy matches cannot be pruned by n-grams of the whole
+ * pattern.
+ * <p/>
+ * Index is shared by all users of workspace. Access to files is checked when they are found, so results contain only files that
+ * current user may read. Implementations of virtual filesystem should override {@link #addTree(String)} to index files without
+ * checking of access control lists, default implementation indexes only files that are visible to the user who caused building of
+ * index.
+ *
+ * @author andrew00x
+ * @see FileNameIndexProvider
+ */
+public class FileNameIndex {
+    static final int EXACT      = 1000;
+    static final int PREFIX     = 800;
+    static final int CAMEL_CASE = 600;
+    static final int SUBSTRING  = 400;
+    static final int WILDCARD   = 300;
+    static final int FUZZY      = 200;
+    static final int CASE_BONUS = 50;
+
+    private static final Comparator<FileNameMatch> RELEVANCE = new Comparator<FileNameMatch>() {
+        @Override
+        public int compare(FileNameMatch o1, FileNameMatch o2) {
+            int result = Integer.compare(o2.getScore(), o1.getScore());
+            if (result == 0) {
+                result = Integer.compare(o1.getName().length(), o2.getName().length());
+            }
+            if (result == 0) {
+                result = o1.getPath().compareTo(o2.getPath());
+            }
+            return result;
+        }
+    };
+
+    private final MountPoint         mountPoint;
+    private final Map<String, Entry> entries;
+    private final AtomicBoolean      buildStarted;
+    private final FutureTask<Void>   buildTask;
+
+    public FileNameIndex(MountPoint mountPoint) {
+        this.mountPoint = mountPoint;
+        entries = new ConcurrentHashMap<>();
+        buildStarted = new AtomicBoolean();
+        buildTask = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                addTree("/");
+                return null;
+            }
+        });
+    }
+
+    public MountPoint getMountPoint() {
+        return mountPoint;
+    }
+
+    /**
+     * Starts adding of all files of mount point to the index with specified executor. Does nothing if building of index is already
+     * started.
+     */
+    public void build(Executor executor) {
+        if (buildStarted.compareAndSet(false, true)) {
+            executor.execute(ThreadLocalPropagateContext.wrap(buildTask));
+        }
+    }
+
+    /** Tells whether all files of mount point are added to the index. */
+    public boolean isBuilt() {
+        return buildTask.isDone();
+    }
+
+    /**
+     * Waits until building of index is completed.
+     *
+     * @return {@code true} if index is built and {@code false} if time is out before index is built or waiting is interrupted
+     * @throws ServerException
+     *         if building of index failed
+     */
+    public boolean awaitBuilt(long timeout, TimeUnit unit) throws ServerException {
+        try {
+            buildTask.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ServerException) {
+                throw (ServerException)cause;
+            }
+            throw new ServerException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Adds all files of the folder with specified path to the index. Folder and files that are not accessible for the current user
+     * are skipped. Sub-classes may override this method to index all files independently to the access control lists.
+     */
+    protected void addTree(String path) throws ServerException {
+        try {
+            addTree(mountPoint.getVirtualFile(path));
+        } catch (NotFoundException | ForbiddenException e) {
+            // Folder removed or not accessible, nothing to add.
+        }
+    }
+
+    /** Adds all files of the tree to the index. */
+    public void addTree(VirtualFile tree) throws ServerException {
+        final Deque<VirtualFile> folders = new ArrayDeque<>();
+        folders.push(tree);
+        while (!folders.isEmpty()) {
+            final VirtualFile folder = folders.pop();
+            // Items that user can't read are not listed.
+            final LazyIterator<VirtualFile> children = folder.getChildren(VirtualFileFilter.ALL);
+            while (children.hasNext()) {
+                final VirtualFile child = children.next();
+                if (child.isFolder()) {
+                    folders.push(child);
+                } else {
+                    add(child.getPath());
+                }
+            }
+        }
+    }
+
+    /** Adds file with specified path to the index. */
+    public void add(String path) {
+        entries.put(path, new Entry(path));
+    }
+
+    /**
+     * Removes file or all files of folder from the index.
+     *
+     * @param path
+     *         path of item
+     * @param folder
+     *         {@code true} if item is folder
+     */
+    public void delete(String path, boolean folder) {
+        if (folder) {
+            final String prefix = path + '/';
+            for (String indexed : entries.keySet()) {
+                if (indexed.startsWith(prefix)) {
+                    entries.remove(indexed);
+                }
+            }
+        } else {
+            entries.remove(path);
+        }
+    }
+
+    /** Updates index after item is moved or renamed. */
+    public void move(String oldPath, String newPath, boolean folder) {
+        if (folder) {
+            final String prefix = oldPath + '/';
+            for (String indexed : entries.keySet()) {
+                if (indexed.startsWith(prefix)) {
+                    entries.remove(indexed);
+                    add(newPath + indexed.substring(oldPath.length()));
+                }
+            }
+        } else {
+            entries.remove(oldPath);
+            add(newPath);
+        }
+    }
+
+    /** Updates index after item is created or copied. */
+    public void created(String path, boolean folder) throws ServerException {
+        if (folder) {
+            addTree(path);
+        } else {
+            add(path);
+        }
+    }
+
+    /** Gets number of indexed files. */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds files which names match to the pattern. Only files that current user may read are found.
+     *
+     * @param pattern
+     *         pattern of name. Trailing '*' is ignored
+     * @param path
+     *         if not {@code null} then only files under this path are found
+     * @param maxItems
+     *         max number of items in result
+     * @return the most relevant files, the best match first
+     * @throws ServerException
+     *         if access to found files cannot be checked
+     */
+    public List<FileNameMatch> find(String pattern, String path, int maxItems) throws ServerException {
+        while (pattern.endsWith("*")) {
+            pattern = pattern.substring(0, pattern.length() - 1);
+        }
+        if (pattern.isEmpty() || maxItems <= 0) {
+            return Collections.emptyList();
+        }
+        final String prefix = path == null || "/".equals(path) ? null : (path.endsWith("/") ? path : (path + '/'));
+        final NamePattern namePattern = new NamePattern(pattern);
+        final PriorityQueue<FileNameMatch> top = new PriorityQueue<>(maxItems + 1, Collections.reverseOrder(RELEVANCE));
+        for (Entry entry : entries.values()) {
+            if (prefix != null && !entry.path.startsWith(prefix)) {
+                continue;
+            }
+            final int score = namePattern.match(entry);
+            if (score > 0) {
+                final FileNameMatch match = new FileNameMatch(entry.path, entry.name, score);
+                // Check access only for files that get in the result at the moment, most of matched files are rejected before.
+                if (top.size() < maxItems) {
+                    if (isAccessible(entry.path)) {
+                        top.add(match);
+                    }
+                } else if (RELEVANCE.compare(match, top.peek()) < 0 && isAccessible(entry.path)) {
+                    top.poll();
+                    top.add(match);
+                }
+            }
+        }
+        final List<FileNameMatch> result = new ArrayList<>(top);
+        Collections.sort(result, RELEVANCE);
+        return result;
+    }
+
+    private boolean isAccessible(String path) throws ServerException {
+        try {
+            mountPoint.getVirtualFile(path);
+            return true;
+        } catch (NotFoundException | ForbiddenException e) {
+            return false;
+        }
+    }
+
+    /** Gets bit mask of characters of string, letters are case insensitive. */
+    static long charMask(String str) {
+        long mask = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            final char c = Character.toLowerCase(str.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                mask |= 1L << (c - 'a');
+            } else if (c >= '0' && c <= '9') {
+                mask |= 1L << (26 + c - '0');
+            } else if (c != '*' && c != '?') {
+                mask |= 1L << (36 + c % 28);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Checks whether pattern matches to the name by first letters of words. Each character of pattern must match character of name
+     * either right after the previous matched character or at the start of one of the next words of name.
+     */
+    static boolean camelCaseMatch(String pattern, String name) {
+        final int patternLength = pattern.length();
+        final int nameLength = name.length();
+        if (patternLength > nameLength) {
+            return false;
+        }
+        final boolean[] wordStarts = new boolean[nameLength];
+        for (int i = 0; i < nameLength; i++) {
+            wordStarts[i] = isWordStart(name, i);
+        }
+        // matches[n] - rest of pattern, starting from the current character, matches to the name starting from position n
+        // anyWordStart[n] - rest of pattern matches to the name starting from any word start at position n or later
+        boolean[] matches = new boolean[nameLength + 1];
+        boolean[] anyWordStart = new boolean[nameLength + 1];
+        boolean[] nextMatches = new boolean[nameLength + 1];
+        boolean[] nextAnyWordStart = new boolean[nameLength + 1];
+        for (int p = patternLength - 1; p >= 0; p--) {
+            final char c = Character.toLowerCase(pattern.charAt(p));
+            final boolean last = p == patternLength - 1;
+            for (int n = nameLength - 1; n >= 0; n--) {
+                matches[n] = Character.toLowerCase(name.charAt(n)) == c
+                             && (last || nextMatches[n + 1] || nextAnyWordStart[n + 1]);
+                anyWordStart[n] = anyWordStart[n + 1] || (wordStarts[n] && matches[n]);
+            }
+            matches[nameLength] = false;
+            anyWordStart[nameLength] = false;
+            boolean[] tmp = nextMatches;
+            nextMatches = matches;
+            matches = tmp;
+            tmp = nextAnyWordStart;
+            nextAnyWordStart = anyWordStart;
+            anyWordStart = tmp;
+        }
+        return nextAnyWordStart[0];
+    }
+
+    private static boolean isWordStart(String name, int i) {
+        if (i == 0) {
+            return true;
+        }
+        final char c = name.charAt(i);
+        final char prev = name.charAt(i - 1);
+        if (!Character.isLetterOrDigit(c) || !Character.isLetterOrDigit(prev)) {
+            // separator, e.g. '.' in 'FileName.java', and the first character after it
+            return true;
+        }
+        if (Character.isUpperCase(c)) {
+            // 'Name' in 'FileName' and 'Handler' in 'URLHandler'
+            return !Character.isUpperCase(prev) || (i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1)));
+        }
+        return Character.isDigit(c) && !Character.isDigit(prev);
+    }
+
+    /**
+     * Gets number of skipped characters of name between the first and the last matched characters if all characters of pattern are
+     * found in name in the same order, otherwise returns {@code -1}.
+     */
+    static int subsequenceGaps(String lowerPattern, String lowerName) {
+        int n = lowerName.indexOf(lowerPattern.charAt(0));
+        if (n == -1) {
+            return -1;
+        }
+        final int start = n;
+        for (int p = 1, length = lowerPattern.length(); p < length; p++) {
+            n = lowerName.indexOf(lowerPattern.charAt(p), n + 1);
+            if (n == -1) {
+                return -1;
+            }
+        }
+        return n - start + 1 - lowerPattern.length();
+    }
+
+    private static final class Entry {
+        final String path;
+        final String name;
+        final String lowerName;
+        final long   mask;
+
+        Entry(String path) {
+            this.path = path;
+            name = path.substring(path.lastIndexOf('/') + 1);
+            lowerName = name.toLowerCase();
+            mask = charMask(name);
+        }
+    }
+
+    private static final class NamePattern {
+        final String  pattern;
+        final String  lowerPattern;
+        final long    mask;
+        final Pattern wildcard;
+
+        NamePattern(String pattern) {
+            this.pattern = pattern;
+            lowerPattern = pattern.toLowerCase();
+            mask = charMask(pattern);
+            if (pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1) {
+                final StringBuilder regex = new StringBuilder();
+                for (String part : pattern.split("(?=[*?])|(?<=[*?])")) {
+                    if ("*".equals(part)) {
+                        regex.append(".*");
+                    } else if ("?".equals(part)) {
+                        regex.append('.');
+                    } else if (!part.isEmpty()) {
+                        regex.append(Pattern.quote(part));
+                    }
+                }
+                wildcard = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            } else {
+                wildcard = null;
+            }
+        }
+
+        int match(Entry entry) {
+            if ((entry.mask & mask) != mask) {
+                return 0;
+            }
+            if (wildcard != null) {
+                return wildcard.matcher(entry.name).matches() ? WILDCARD : 0;
+            }
+            if (entry.lowerName.equals(lowerPattern)) {
+                return entry.name.equals(pattern) ? EXACT + CASE_BONUS : EXACT;
+            }
+            if (entry.lowerName.startsWith(lowerPattern)) {
+                return entry.name.startsWith(pattern) ? PREFIX + CASE_BONUS : PREFIX;
+            }
+            if (camelCaseMatch(pattern, entry.name)) {
+                return CAMEL_CASE;
+            }
+            if (entry.lowerName.contains(lowerPattern)) {
+                return SUBSTRING;
+            }
+            final int gaps = subsequenceGaps(lowerPattern, entry.lowerName);
+            if (gaps >= 0) {
+                return FUZZY - Math.min(gaps, FUZZY / 2);
+            }
+            return 0;
+        }
+    }
+}
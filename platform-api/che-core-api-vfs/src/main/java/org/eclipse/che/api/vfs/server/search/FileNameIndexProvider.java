@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.eclipse.che.api.core.ServerException;
+import org.eclipse.che.api.core.notification.EventService;
+import org.eclipse.che.api.core.notification.EventSubscriber;
+import org.eclipse.che.api.vfs.server.MountPoint;
+import org.eclipse.che.api.vfs.server.VirtualFileSystemProvider;
+import org.eclipse.che.api.vfs.server.VirtualFileSystemRegistry;
+import org.eclipse.che.api.vfs.server.observation.MoveEvent;
+import org.eclipse.che.api.vfs.server.observation.RenameEvent;
+import org.eclipse.che.api.vfs.server.observation.VirtualFileEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages instances of {@link FileNameIndex}, one index for each workspace. Building of index is started with the first request and
+ * then index is kept up to date with events of virtual filesystem. Index is built with background thread, request waits for it at
+ * most few seconds and gets files that are indexed at the moment if building of index takes longer. Indexes of mount points that are
+ * unmounted, e.g. when workspace is removed, are dropped periodically.
+ *
+ * @author andrew00x
+ */
+@Singleton
+public class FileNameIndexProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(FileNameIndexProvider.class);
+
+    private static final long BUILD_WAIT_TIME = TimeUnit.SECONDS.toMillis(3);
+    private static final long EVICTION_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    private final EventService                         eventService;
+    private final VirtualFileSystemRegistry            vfsRegistry;
+    private final ConcurrentMap<String, FileNameIndex> indexes;
+    private final VirtualFileEventSubscriber           subscriber;
+    private final ScheduledExecutorService             executor;
+
+    @Inject
+    public FileNameIndexProvider(EventService eventService, VirtualFileSystemRegistry vfsRegistry) {
+        this.eventService = eventService;
+        this.vfsRegistry = vfsRegistry;
+        indexes = new ConcurrentHashMap<>();
+        subscriber = new VirtualFileEventSubscriber();
+        executor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                    new ThreadFactoryBuilder().setNameFormat("FileNameIndexProvider-%d")
+                                                                              .setDaemon(true).build());
+    }
+
+    @PostConstruct
+    public void start() {
+        eventService.subscribe(subscriber);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictUnmounted();
+            }
+        }, EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        eventService.unsubscribe(subscriber);
+        executor.shutdownNow();
+        indexes.clear();
+    }
+
+    /**
+     * Gets index of names of files for specified MountPoint. Building of index is started if necessary, this method waits for it few
+     * seconds and returns index that may be not completely built yet.
+     *
+     * @param mountPoint
+     *         MountPoint
+     * @return index of names of files
+     * @throws ServerException
+     *         if index cannot be built
+     */
+    public FileNameIndex getIndex(MountPoint mountPoint) throws ServerException {
+        final String workspaceId = mountPoint.getWorkspaceId();
+        FileNameIndex index = indexes.get(workspaceId);
+        if (index == null || index.getMountPoint() != mountPoint) {
+            // Mount point may be re-created, index of the previous one is not valid anymore.
+            final FileNameIndex newIndex = createIndex(mountPoint);
+            final boolean updated = index == null ? indexes.putIfAbsent(workspaceId, newIndex) == null
+                                                  : indexes.replace(workspaceId, index, newIndex);
+            index = updated ? newIndex : indexes.get(workspaceId);
+        }
+        index.build(executor);
+        try {
+            index.awaitBuilt(BUILD_WAIT_TIME, TimeUnit.MILLISECONDS);
+        } catch (ServerException e) {
+            // Drop broken index, next request tries to build it again.
+            indexes.remove(workspaceId, index);
+            throw e;
+        }
+        return index;
+    }
+
+    /** Creates new index for specified MountPoint. Sub-classes may create index which is specific for implementation of MountPoint. */
+    protected FileNameIndex createIndex(MountPoint mountPoint) {
+        return new FileNameIndex(mountPoint);
+    }
+
+    /** Drops indexes of mount points that are not registered in VirtualFileSystemRegistry anymore. */
+    void evictUnmounted() {
+        // Get indexes before registered mount points. Mount point of new index is always registered before index is created.
+        final List<FileNameIndex> current = new ArrayList<>(indexes.values());
+        final Set<MountPoint> mounted = Collections.newSetFromMap(new IdentityHashMap<MountPoint, Boolean>());
+        try {
+            for (VirtualFileSystemProvider provider : vfsRegistry.getRegisteredProviders()) {
+                final MountPoint mountPoint = provider.getMountPoint(false);
+                if (mountPoint != null) {
+                    mounted.add(mountPoint);
+                }
+            }
+        } catch (ServerException e) {
+            LOG.error(e.getMessage(), e);
+            return;
+        }
+        for (FileNameIndex index : current) {
+            if (!mounted.contains(index.getMountPoint())) {
+                indexes.remove(index.getMountPoint().getWorkspaceId(), index);
+            }
+        }
+    }
+
+    private class VirtualFileEventSubscriber implements EventSubscriber<VirtualFileEvent> {
+        @Override
+        public void onEvent(VirtualFileEvent event) {
+            final FileNameIndex index = indexes.get(event.getWorkspaceId());
+            if (index == null) {
+                return;
+            }
+            switch (event.getType()) {
+                case CREATED:
+                    try {
+                        index.created(event.getPath(), event.isFolder());
+                    } catch (ServerException e) {
+                        LOG.error(e.getMessage(), e);
+                    }
+                    break;
+                case DELETED:
+                    index.delete(event.getPath(), event.isFolder());
+                    break;
+                case MOVED:
+                    index.move(((MoveEvent)event).getOldPath(), event.getPath(), event.isFolder());
+                    break;
+                case RENAMED:
+                    index.move(((RenameEvent)event).getOldPath(), event.getPath(), event.isFolder());
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+/**
+ * File found in {@link FileNameIndex}.
+ *
+ * @author andrew00x
+ */
+public class FileNameMatch {
+    private final String path;
+    private final String name;
+    private final int    score;
+
+    public FileNameMatch(String path, String name, int score) {
+        this.path = path;
+        this.name = name;
+        this.score = score;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Gets relevance of match, the greater score the better match. */
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "FileNameMatch{" +
+               "path='" + path + '\'' +
+               ", score=" + score +
+               '}';
+    }
+}
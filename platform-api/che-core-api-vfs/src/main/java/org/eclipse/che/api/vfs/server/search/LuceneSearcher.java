@@ -22,36 +22,64 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.core.WhitespaceTokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Lucene based searcher.
@@ -59,10 +87,36 @@ import java.util.Set;
  * @author andrew00x
  */
 public abstract class LuceneSearcher implements Searcher {
-    private static final Logger LOG          = LoggerFactory.getLogger(LuceneSearcher.class);
-    private static final int    RESULT_LIMIT = 1000;
+    private static final Logger LOG = LoggerFactory.getLogger(LuceneSearcher.class);
 
-    private final VirtualFileFilter filter;
+    /** Max number of items in one page of result. Page is limited even if caller doesn't set limit or requests more items. */
+    private static final int RESULT_LIMIT = 1000;
+
+    private static final Set<String> STAMP_FIELDS             = new HashSet<>(Arrays.asList("path", "stamp"));
+    private static final Set<String> RESULT_FIELDS            = new HashSet<>(Arrays.asList("path", "name", "mediatype", "stamp"));
+    private static final Set<String> RESULT_FIELDS_WITH_LINES = new HashSet<>(Arrays.asList("path", "name", "mediatype", "stamp",
+                                                                                             "lines"));
+
+    /**
+     * Content of files. Term vectors with offsets are stored to find lines of matched words without reading of files, positions of
+     * words in term vectors are not needed for that.
+     */
+    private static final FieldType TEXT_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        TEXT_TYPE.setStoreTermVectors(true);
+        TEXT_TYPE.setStoreTermVectorOffsets(true);
+        TEXT_TYPE.freeze();
+    }
+
+    /** Max number of characters of file that are indexed. The rest of file is not searchable. */
+    private static final int MAX_TEXT_LENGTH = 1024 * 1024;
+
+    private final VirtualFileFilter  filter;
+    private final Queue<IndexChange> pendingChanges;
+    private final Object             flushLock;
+    private final AtomicLong         indexedFilesCounter;
+    private volatile double          lastIndexingThroughput;
 
     private IndexWriter     luceneIndexWriter;
     private SearcherManager searcherManager;
@@ -74,6 +128,18 @@ public abstract class LuceneSearcher implements Searcher {
 
     public LuceneSearcher(VirtualFileFilter filter) {
         this.filter = filter;
+        pendingChanges = new ConcurrentLinkedQueue<>();
+        flushLock = new Object();
+        indexedFilesCounter = new AtomicLong();
+    }
+
+    /**
+     * If this method returns {@code true} then added, updated and deleted files are collected in queue and index is updated with
+     * method {@link #flush()} that is expected to be called periodically from background thread. Method {@link #search(QueryExpression)}
+     * does not refresh index in this case. By default returns {@code false} and each change is applied to the index immediately.
+     */
+    protected boolean isBatchUpdates() {
+        return false;
     }
 
     protected Analyzer makeAnalyzer() {
@@ -128,6 +194,48 @@ public abstract class LuceneSearcher implements Searcher {
 
     @Override
     public String[] search(QueryExpression query) throws ServerException {
+        final List<SearchResultEntry> entries = query(query).getEntries();
+        final String[] result = new String[entries.size()];
+        for (int i = 0, length = result.length; i < length; i++) {
+            result[i] = entries.get(i).getPath();
+        }
+        return result;
+    }
+
+    @Override
+    public SearchResult query(QueryExpression query) throws ServerException {
+        final Query luceneQuery = createLuceneQuery(query);
+        final int skipCount = Math.max(0, query.getSkipCount());
+        final int maxItems = query.getMaxItems() < 0 ? RESULT_LIMIT : Math.min(query.getMaxItems(), RESULT_LIMIT);
+        final boolean includePositions = query.isIncludePositions() && query.getText() != null;
+        IndexSearcher luceneSearcher = null;
+        try {
+            if (!isBatchUpdates()) {
+                searcherManager.maybeRefresh();
+            }
+            luceneSearcher = searcherManager.acquire();
+            final int numHits = (int)Math.min(Integer.MAX_VALUE, (long)skipCount + maxItems);
+            final TopDocs topDocs = luceneSearcher.search(luceneQuery, Math.max(1, numHits));
+            final ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            final int end = Math.min(scoreDocs.length, numHits);
+            final List<SearchResultEntry> entries = new ArrayList<>(Math.max(0, end - skipCount));
+            final List<TextTerm> textTerms = includePositions ? getTextTerms(query.getText()) : null;
+            for (int i = skipCount; i < end; i++) {
+                entries.add(createEntry(luceneSearcher.getIndexReader(), scoreDocs[i], textTerms));
+            }
+            return new SearchResult(entries, topDocs.totalHits);
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        } finally {
+            try {
+                searcherManager.release(luceneSearcher);
+            } catch (IOException e) {
+                LOG.error(e.getMessage());
+            }
+        }
+    }
+
+    private Query createLuceneQuery(QueryExpression query) throws ServerException {
         final BooleanQuery luceneQuery = new BooleanQuery();
         final String name = query.getName();
         final String path = query.getPath();
@@ -150,33 +258,141 @@ public abstract class LuceneSearcher implements Searcher {
                 throw new ServerException(e.getMessage());
             }
         }
-        IndexSearcher luceneSearcher = null;
-        try {
-            searcherManager.maybeRefresh();
-            luceneSearcher = searcherManager.acquire();
-            final TopDocs topDocs = luceneSearcher.search(luceneQuery, RESULT_LIMIT);
-            if (topDocs.totalHits > RESULT_LIMIT) {
-                throw new ServerException(String.format("Too many (%d) matched results found. ", topDocs.totalHits));
+        return luceneQuery;
+    }
+
+    private SearchResultEntry createEntry(IndexReader reader, ScoreDoc scoreDoc, List<TextTerm> textTerms) throws IOException {
+        final Document doc = reader.document(scoreDoc.doc, textTerms == null ? RESULT_FIELDS : RESULT_FIELDS_WITH_LINES);
+        long lastModified = -1;
+        long length = -1;
+        final String stamp = doc.get("stamp");
+        if (stamp != null) {
+            final int colon = stamp.indexOf(':');
+            lastModified = Long.parseLong(stamp.substring(0, colon));
+            length = Long.parseLong(stamp.substring(colon + 1));
+        }
+        List<SearchOccurrence> occurrences = Collections.emptyList();
+        if (textTerms != null && !textTerms.isEmpty()) {
+            final BytesRef lines = doc.getBinaryValue("lines");
+            final Terms termVector = reader.getTermVector(scoreDoc.doc, "text");
+            if (lines != null && termVector != null) {
+                occurrences = getOccurrences(termVector, textTerms, decodeLineStarts(lines));
             }
-            final String[] result = new String[topDocs.scoreDocs.length];
-            for (int i = 0, length = result.length; i < length; i++) {
-                result[i] = luceneSearcher.doc(topDocs.scoreDocs[i].doc).getField("path").stringValue();
+        }
+        return new SearchResultEntry(doc.get("path"), doc.get("name"), doc.get("mediatype"), scoreDoc.score, lastModified, length,
+                                     occurrences);
+    }
+
+    /** Finds positions of terms of query in term vector of document. */
+    private List<SearchOccurrence> getOccurrences(Terms termVector, List<TextTerm> textTerms, int[] lineStarts) throws IOException {
+        final List<int[]> offsets = new ArrayList<>();
+        final List<String> terms = new ArrayList<>();
+        final TermsEnum termsEnum = termVector.iterator(null);
+        PostingsEnum postings = null;
+        BytesRef termBytes;
+        while ((termBytes = termsEnum.next()) != null) {
+            final String term = termBytes.utf8ToString();
+            if (!matches(term, textTerms)) {
+                continue;
             }
-            return result;
-        } catch (IOException e) {
-            throw new ServerException(e.getMessage(), e);
-        } finally {
-            try {
-                searcherManager.release(luceneSearcher);
-            } catch (IOException e) {
-                LOG.error(e.getMessage());
+            postings = termsEnum.postings(null, postings, PostingsEnum.OFFSETS);
+            if (postings.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
+                continue;
             }
+            for (int i = 0, freq = postings.freq(); i < freq; i++) {
+                postings.nextPosition();
+                offsets.add(new int[]{postings.startOffset(), postings.endOffset(), terms.size()});
+            }
+            terms.add(term);
+        }
+        Collections.sort(offsets, (a, b) -> Integer.compare(a[0], b[0]));
+        final List<SearchOccurrence> occurrences = new ArrayList<>(offsets.size());
+        for (int[] offset : offsets) {
+            if (offset[0] < 0) {
+                // Offsets are not stored.
+                continue;
+            }
+            int line = Arrays.binarySearch(lineStarts, offset[0]);
+            if (line < 0) {
+                line = -line - 2;
+            }
+            occurrences.add(new SearchOccurrence(terms.get(offset[2]), line + 1, offset[0] - lineStarts[line],
+                                                 offset[1] - lineStarts[line]));
         }
+        return occurrences;
+    }
+
+    private boolean matches(String term, List<TextTerm> textTerms) {
+        for (TextTerm textTerm : textTerms) {
+            if (textTerm.prefix ? term.startsWith(textTerm.text) : term.equals(textTerm.text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets words of text query in the same form as they are indexed. Syntax of query parser is not interpreted, except boolean
+     * operators and trailing '*' of prefix queries, it is enough to find positions of matched words.
+     */
+    private List<TextTerm> getTextTerms(String text) throws IOException {
+        final List<TextTerm> textTerms = new ArrayList<>();
+        final Analyzer analyzer = makeAnalyzer();
+        for (String word : text.split("\\s+")) {
+            if (word.isEmpty() || "AND".equals(word) || "OR".equals(word) || "NOT".equals(word) || word.startsWith("-")
+                || word.startsWith("!")) {
+                continue;
+            }
+            // cut boost and fuzziness, e.g. 'word^2' or 'word~0.8'
+            final int modifier = indexOfAny(word, "^~");
+            if (modifier != -1) {
+                word = word.substring(0, modifier);
+            }
+            word = trim(word, "+(\"", ")\"");
+            final boolean prefix = word.endsWith("*");
+            if (prefix) {
+                word = word.substring(0, word.length() - 1);
+            }
+            try (TokenStream tokens = analyzer.tokenStream("text", word)) {
+                final CharTermAttribute termAttribute = tokens.addAttribute(CharTermAttribute.class);
+                tokens.reset();
+                while (tokens.incrementToken()) {
+                    textTerms.add(new TextTerm(termAttribute.toString(), prefix));
+                }
+                tokens.end();
+            }
+        }
+        return textTerms;
+    }
+
+    private static int indexOfAny(String word, String chars) {
+        for (int i = 0, length = word.length(); i < length; i++) {
+            if (chars.indexOf(word.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String trim(String word, String leading, String trailing) {
+        int start = 0;
+        int end = word.length();
+        while (start < end && leading.indexOf(word.charAt(start)) != -1) {
+            start++;
+        }
+        while (end > start && trailing.indexOf(word.charAt(end - 1)) != -1) {
+            end--;
+        }
+        return word.substring(start, end);
     }
 
     @Override
     public final void add(VirtualFile virtualFile) throws ServerException {
-        doAdd(virtualFile);
+        if (isBatchUpdates()) {
+            pendingChanges.add(new IndexChange(IndexChange.ADD, virtualFile, virtualFile.getPath(), virtualFile.isFile()));
+        } else {
+            doAdd(virtualFile);
+        }
     }
 
     protected void doAdd(VirtualFile virtualFile) throws ServerException {
@@ -189,32 +405,60 @@ public abstract class LuceneSearcher implements Searcher {
 
     protected void addTree(VirtualFile tree) throws ServerException {
         final long start = System.currentTimeMillis();
-        final LinkedList<VirtualFile> q = new LinkedList<>();
-        q.add(tree);
-        int indexedFiles = 0;
-        while (!q.isEmpty()) {
-            final VirtualFile folder = q.pop();
-            if (folder.exists()) {
-                LazyIterator<VirtualFile> children = folder.getChildren(VirtualFileFilter.ALL);
-                while (children.hasNext()) {
-                    final VirtualFile child = children.next();
-                    if (child.isFolder()) {
-                        q.push(child);
-                    } else {
-                        addFile(child);
-                        indexedFiles++;
-                    }
-                }
-            }
-        }
+        final int indexedFiles = indexTree(tree, null);
         final long end = System.currentTimeMillis();
-        LOG.debug("Indexed {} files from {}, time: {} ms", indexedFiles, tree.getPath(), (end - start));
+        logThroughput(tree, indexedFiles, end - start);
+    }
+
+    /**
+     * Gets pool for indexing of trees of files. If this method returns {@code null} then tree is indexed in the current thread.
+     * Otherwise each folder is processed by separate task in the pool and files are indexed concurrently. By default returns {@code
+     * null}.
+     */
+    protected ForkJoinPool getIndexingPool() {
+        return null;
+    }
+
+    /**
+     * Indexes files in the tree.
+     *
+     * @param tree
+     *         root of tree
+     * @param indexed
+     *         modification stamps of files which are already indexed. If not {@code null} then only files which stamps are not the same
+     *         as in this map are indexed and all found files are removed from this map
+     * @return number of indexed files
+     */
+    private int indexTree(VirtualFile tree, Map<String, String> indexed) throws ServerException {
+        final TreeIndexer indexer = new TreeIndexer(tree, indexed, getIndexingPool() != null);
+        try {
+            return getIndexingPool() != null ? getIndexingPool().invoke(indexer) : indexer.compute();
+        } catch (IndexingException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void logThroughput(VirtualFile tree, int indexedFiles, long time) {
+        indexedFilesCounter.addAndGet(indexedFiles);
+        lastIndexingThroughput = time > 0 ? indexedFiles * 1000.0 / time : indexedFiles;
+        LOG.info("Indexed {} files from {}, time: {} ms, {} files/s", indexedFiles, tree.getPath(), time,
+                 String.format("%.1f", lastIndexingThroughput));
+    }
+
+    /** Gets total number of files indexed with {@link #addTree(VirtualFile)} and {@link #syncTree(VirtualFile)}. */
+    public long getIndexedFilesCount() {
+        return indexedFilesCounter.get();
+    }
+
+    /** Gets number of indexed files per second for the last indexing of tree. */
+    public double getLastIndexingThroughput() {
+        return lastIndexingThroughput;
     }
 
     protected void addFile(VirtualFile virtualFile) throws ServerException {
         if (virtualFile.exists()) {
             try (Reader fContentReader = filter.accept(virtualFile) ? new BufferedReader(
-                    new InputStreamReader(virtualFile.getContent().getStream())) : null) {
+                    new InputStreamReader(openContent(virtualFile))) : null) {
                 getIndexWriter().updateDocument(new Term("path", virtualFile.getPath()), createDocument(virtualFile, fContentReader));
             } catch (OutOfMemoryError oome) {
                 close();
@@ -229,6 +473,14 @@ public abstract class LuceneSearcher implements Searcher {
 
     @Override
     public final void delete(String path, boolean isFile) throws ServerException {
+        if (isBatchUpdates()) {
+            pendingChanges.add(new IndexChange(IndexChange.DELETE, null, path, isFile));
+        } else {
+            doDelete(path, isFile);
+        }
+    }
+
+    protected void doDelete(String path, boolean isFile) throws ServerException {
         try {
             if (isFile) {
                 Term term = new Term("path", path);
@@ -247,12 +499,152 @@ public abstract class LuceneSearcher implements Searcher {
 
     @Override
     public final void update(VirtualFile virtualFile) throws ServerException {
-        doUpdate(new Term("path", virtualFile.getPath()), virtualFile);
+        if (isBatchUpdates()) {
+            pendingChanges.add(new IndexChange(IndexChange.UPDATE, virtualFile, virtualFile.getPath(), true));
+        } else {
+            doUpdate(new Term("path", virtualFile.getPath()), virtualFile);
+        }
+    }
+
+    /**
+     * Applies all pending changes to the index, commits index and refreshes it for search. File which is changed few times is read
+     * and indexed once. Does nothing if there are no pending changes.
+     *
+     * @throws ServerException
+     *         if index cannot be committed or refreshed
+     * @see #isBatchUpdates()
+     */
+    public void flush() throws ServerException {
+        synchronized (flushLock) {
+            final List<IndexChange> batch = new ArrayList<>();
+            IndexChange change;
+            while ((change = pendingChanges.poll()) != null) {
+                batch.add(change);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            // Index only the last change of each file.
+            final Map<String, Integer> lastChanges = new HashMap<>();
+            for (int i = 0, size = batch.size(); i < size; i++) {
+                if (batch.get(i).isFile) {
+                    lastChanges.put(batch.get(i).path, i);
+                }
+            }
+            for (int i = 0, size = batch.size(); i < size; i++) {
+                change = batch.get(i);
+                if (change.isFile && lastChanges.get(change.path) != i) {
+                    continue;
+                }
+                try {
+                    switch (change.type) {
+                        case IndexChange.ADD:
+                            doAdd(change.virtualFile);
+                            break;
+                        case IndexChange.UPDATE:
+                            if (change.virtualFile.exists()) {
+                                doUpdate(new Term("path", change.path), change.virtualFile);
+                            }
+                            break;
+                        case IndexChange.DELETE:
+                            doDelete(change.path, change.isFile);
+                            break;
+                    }
+                } catch (ServerException | RuntimeException e) {
+                    // Don't lose the rest of changes because of one file.
+                    LOG.error(e.getMessage(), e);
+                }
+            }
+            commitAndRefresh();
+        }
+    }
+
+    private void commitAndRefresh() throws ServerException {
+        try {
+            getIndexWriter().commit();
+            searcherManager.maybeRefresh();
+        } catch (OutOfMemoryError oome) {
+            close();
+            throw oome;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Brings existed index in sync with the tree. Unlike {@link #addTree(VirtualFile)} this method indexes only files that are modified
+     * since they were indexed, according to the modification stamps saved in the index, and removes from index files that do not exist
+     * anymore. Index is committed after all.
+     *
+     * @param tree
+     *         root of tree to check
+     * @throws ServerException
+     *         if any virtual filesystem error
+     */
+    protected void syncTree(VirtualFile tree) throws ServerException {
+        final long start = System.currentTimeMillis();
+        final Map<String, String> indexed = readIndexedStamps(tree.getPath());
+        final int totalIndexed = indexed.size();
+        final int updatedFiles = indexTree(tree, indexed);
+        try {
+            for (String removed : indexed.keySet()) {
+                getIndexWriter().deleteDocuments(new Term("path", removed));
+            }
+        } catch (OutOfMemoryError oome) {
+            close();
+            throw oome;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        }
+        commitAndRefresh();
+        final long end = System.currentTimeMillis();
+        logThroughput(tree, updatedFiles, end - start);
+        LOG.debug("Synchronized index of {}, {} files were indexed before, {} files updated, {} files removed",
+                  tree.getPath(), totalIndexed, updatedFiles, indexed.size());
+    }
+
+    /** Reads paths and modification stamps of all indexed files in the tree. */
+    private Map<String, String> readIndexedStamps(String treePath) throws ServerException {
+        final String prefix = "/".equals(treePath) ? treePath : (treePath + '/');
+        final Map<String, String> stamps = new ConcurrentHashMap<>();
+        IndexSearcher luceneSearcher = null;
+        try {
+            searcherManager.maybeRefresh();
+            luceneSearcher = searcherManager.acquire();
+            final IndexReader reader = luceneSearcher.getIndexReader();
+            final Bits liveDocs = MultiFields.getLiveDocs(reader);
+            for (int i = 0, maxDoc = reader.maxDoc(); i < maxDoc; i++) {
+                if (liveDocs != null && !liveDocs.get(i)) {
+                    continue;
+                }
+                final Document doc = reader.document(i, STAMP_FIELDS);
+                final String path = doc.get("path");
+                if (path != null && (path.equals(treePath) || path.startsWith(prefix))) {
+                    final String stamp = doc.get("stamp");
+                    // Documents created before stamps were introduced are always re-indexed.
+                    stamps.put(path, stamp == null ? "" : stamp);
+                }
+            }
+            return stamps;
+        } catch (IOException e) {
+            throw new ServerException(e.getMessage(), e);
+        } finally {
+            try {
+                searcherManager.release(luceneSearcher);
+            } catch (IOException e) {
+                LOG.error(e.getMessage());
+            }
+        }
+    }
+
+    /** Modification stamp of file. File is re-indexed if its stamp is changed. */
+    private String getStamp(VirtualFile virtualFile) throws ServerException {
+        return Long.toString(virtualFile.getLastModificationDate()) + ':' + Long.toString(virtualFile.getLength());
     }
 
     protected void doUpdate(Term deleteTerm, VirtualFile virtualFile) throws ServerException {
         try (Reader fContentReader = filter.accept(virtualFile) ? new BufferedReader(
-                new InputStreamReader(virtualFile.getContent().getStream())) : null) {
+                new InputStreamReader(openContent(virtualFile))) : null) {
             getIndexWriter().updateDocument(deleteTerm, createDocument(virtualFile, fContentReader));
         } catch (OutOfMemoryError oome) {
             close();
@@ -264,17 +656,114 @@ public abstract class LuceneSearcher implements Searcher {
         }
     }
 
+    /** Opens content of file for indexing. By default content is read with {@link VirtualFile#getContent()}. */
+    protected InputStream openContent(VirtualFile virtualFile) throws ForbiddenException, ServerException, IOException {
+        return virtualFile.getContent().getStream();
+    }
+
     protected Document createDocument(VirtualFile virtualFile, Reader inReader) throws ServerException {
         final Document doc = new Document();
         doc.add(new StringField("path", virtualFile.getPath(), Field.Store.YES));
         doc.add(new StringField("name", virtualFile.getName(), Field.Store.YES));
         doc.add(new StringField("mediatype", getMediaType(virtualFile), Field.Store.YES));
+        doc.add(new StoredField("stamp", getStamp(virtualFile)));
         if (inReader != null) {
-            doc.add(new TextField("text", inReader));
+            final LineStartsReader text = new LineStartsReader(inReader, MAX_TEXT_LENGTH);
+            doc.add(new Field("text", text, TEXT_TYPE));
+            // Content of file is not kept in memory, starts of lines are known only after index writer reads content of field "text".
+            // Index writer processes fields in order they are added to document, so this field must be added after field "text".
+            doc.add(new StoredField("lines", new BytesRef()) {
+                @Override
+                public BytesRef binaryValue() {
+                    return new BytesRef(text.getLineStarts());
+                }
+            });
         }
         return doc;
     }
 
+    /**
+     * Reader that reads not more than specified number of characters and saves offsets of starts of lines in compact form, offset of
+     * each line is saved as variable-length delta from previous one.
+     */
+    private static class LineStartsReader extends FilterReader {
+        private final ByteArrayOutputStream lineStarts;
+        private final int                   maxLength;
+        private       int                   offset;
+        private       int                   previous;
+
+        LineStartsReader(Reader in, int maxLength) {
+            super(in);
+            this.maxLength = maxLength;
+            lineStarts = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public int read() throws IOException {
+            final char[] c = new char[1];
+            return read(c, 0, 1) == -1 ? -1 : c[0];
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (offset >= maxLength) {
+                return -1;
+            }
+            final int r = in.read(cbuf, off, Math.min(len, maxLength - offset));
+            for (int i = 0; i < r; i++) {
+                if (cbuf[off + i] == '\n') {
+                    int delta = offset + i + 1 - previous;
+                    previous = offset + i + 1;
+                    while ((delta & ~0x7F) != 0) {
+                        lineStarts.write((delta & 0x7F) | 0x80);
+                        delta >>>= 7;
+                    }
+                    lineStarts.write(delta);
+                }
+            }
+            if (r > 0) {
+                offset += r;
+            }
+            return r;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Skip is not supported");
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        byte[] getLineStarts() {
+            return lineStarts.toByteArray();
+        }
+    }
+
+    private static int[] decodeLineStarts(BytesRef bytes) {
+        int[] lineStarts = new int[16];
+        int lines = 1; // first line always starts at 0
+        int previous = 0;
+        for (int i = bytes.offset, end = bytes.offset + bytes.length; i < end; ) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes.bytes[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += delta;
+            if (lines == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lines << 1);
+            }
+            lineStarts[lines++] = previous;
+        }
+        return Arrays.copyOf(lineStarts, lines);
+    }
+
     /** Get virtual file media type. Any additional parameters (e.g. 'charset') are removed. */
     private String getMediaType(VirtualFile virtualFile) throws ServerException {
         String mediaType = virtualFile.getMediaType();
@@ -285,4 +774,88 @@ public abstract class LuceneSearcher implements Searcher {
         return mediaType;
     }
 
+    /** Indexes files of folder and forks tasks for sub-folders. */
+    private final class TreeIndexer extends RecursiveTask<Integer> {
+        private final VirtualFile         folder;
+        private final Map<String, String> indexed;
+        private final boolean             parallel;
+
+        TreeIndexer(VirtualFile folder, Map<String, String> indexed, boolean parallel) {
+            this.folder = folder;
+            this.indexed = indexed;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Integer compute() {
+            try {
+                int indexedFiles = 0;
+                final List<TreeIndexer> subTasks = new ArrayList<>();
+                if (folder.exists()) {
+                    final LazyIterator<VirtualFile> children = folder.getChildren(VirtualFileFilter.ALL);
+                    while (children.hasNext()) {
+                        final VirtualFile child = children.next();
+                        if (child.isFolder()) {
+                            final TreeIndexer subTask = new TreeIndexer(child, indexed, parallel);
+                            if (parallel) {
+                                subTask.fork();
+                                subTasks.add(subTask);
+                            } else {
+                                indexedFiles += subTask.compute();
+                            }
+                        } else if (indexed == null || !getStamp(child).equals(indexed.remove(child.getPath()))) {
+                            addFile(child);
+                            indexedFiles++;
+                        }
+                    }
+                }
+                for (TreeIndexer subTask : subTasks) {
+                    indexedFiles += subTask.join();
+                }
+                return indexedFiles;
+            } catch (ServerException e) {
+                throw new IndexingException(e);
+            }
+        }
+    }
+
+    /** Carries ServerException out of the fork-join tasks. */
+    private static final class IndexingException extends RuntimeException {
+        IndexingException(ServerException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServerException getCause() {
+            return (ServerException)super.getCause();
+        }
+    }
+
+    private static final class TextTerm {
+        final String  text;
+        final boolean prefix;
+
+        TextTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class IndexChange {
+        static final int ADD    = 1;
+        static final int UPDATE = 2;
+        static final int DELETE = 3;
+
+        final int         type;
+        final VirtualFile virtualFile;
+        final String      path;
+        final boolean     isFile;
+
+        IndexChange(int type, VirtualFile virtualFile, String path, boolean isFile) {
+            this.type = type;
+            this.virtualFile = virtualFile;
+            this.path = path;
+            this.isFile = isFile;
+        }
+    }
 }
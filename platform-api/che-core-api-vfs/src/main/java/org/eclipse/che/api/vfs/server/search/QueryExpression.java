@@ -12,10 +12,13 @@ package org.eclipse.che.api.vfs.server.search;
 
 /** @author andrew00x */
 public class QueryExpression {
-    private String name;
-    private String path;
-    private String mediaType;
-    private String text;
+    private String  name;
+    private String  path;
+    private String  mediaType;
+    private String  text;
+    private int     maxItems = -1;
+    private int     skipCount;
+    private boolean includePositions;
 
     public String getPath() {
         return path;
@@ -53,6 +56,36 @@ public class QueryExpression {
         return this;
     }
 
+    /** Gets maximum number of items in result. Negative value means that number of items is not limited. */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public QueryExpression setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+        return this;
+    }
+
+    /** Gets number of the most relevant items which are skipped in result. */
+    public int getSkipCount() {
+        return skipCount;
+    }
+
+    public QueryExpression setSkipCount(int skipCount) {
+        this.skipCount = skipCount;
+        return this;
+    }
+
+    /** If {@code true} then each item of result contains positions of lines of file which match to the text of query. */
+    public boolean isIncludePositions() {
+        return includePositions;
+    }
+
+    public QueryExpression setIncludePositions(boolean includePositions) {
+        this.includePositions = includePositions;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "QueryExpression{" +
@@ -60,6 +93,9 @@ public class QueryExpression {
                ", path='" + path + '\'' +
                ", mediaType='" + mediaType + '\'' +
                ", text='" + text + '\'' +
+               ", maxItems=" + maxItems +
+               ", skipCount=" + skipCount +
+               ", includePositions=" + includePositions +
                '}';
     }
 }
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+/**
+ * Position of the word in file which matches to the text of query.
+ *
+ * @author andrew00x
+ */
+public class SearchOccurrence {
+    private final String term;
+    private final int    lineNumber;
+    private final int    startColumn;
+    private final int    endColumn;
+
+    public SearchOccurrence(String term, int lineNumber, int startColumn, int endColumn) {
+        this.term = term;
+        this.lineNumber = lineNumber;
+        this.startColumn = startColumn;
+        this.endColumn = endColumn;
+    }
+
+    /** Gets indexed form of matched word, e.g. in lower case. */
+    public String getTerm() {
+        return term;
+    }
+
+    /** Gets number of line, starting from 1. */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /** Gets offset of the first character of the word in line, starting from 0. */
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    /** Gets offset after the last character of the word in line. */
+    public int getEndColumn() {
+        return endColumn;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchOccurrence{" +
+               "term='" + term + '\'' +
+               ", lineNumber=" + lineNumber +
+               ", startColumn=" + startColumn +
+               ", endColumn=" + endColumn +
+               '}';
+    }
+}
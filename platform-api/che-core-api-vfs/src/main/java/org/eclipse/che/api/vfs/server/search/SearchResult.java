@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import java.util.List;
+
+/**
+ * Page of result of search. Items are ordered by relevance, the most relevant first.
+ *
+ * @author andrew00x
+ * @see Searcher#query(QueryExpression)
+ */
+public class SearchResult {
+    private final List<SearchResultEntry> entries;
+    private final int                     totalHits;
+
+    public SearchResult(List<SearchResultEntry> entries, int totalHits) {
+        this.entries = entries;
+        this.totalHits = totalHits;
+    }
+
+    /** Gets items of this page of result. */
+    public List<SearchResultEntry> getEntries() {
+        return entries;
+    }
+
+    /** Gets total number of items that match to the query. */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /** Tells whether there are more items after this page of result. */
+    public boolean hasMore(int skipCount) {
+        return skipCount + entries.size() < totalHits;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+               "entries=" + entries +
+               ", totalHits=" + totalHits +
+               '}';
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.search;
+
+import java.util.List;
+
+/**
+ * Item of result of search. All data of item are read from the index, virtual filesystem is not accessed to get it.
+ *
+ * @author andrew00x
+ */
+public class SearchResultEntry {
+    private final String                 path;
+    private final String                 name;
+    private final String                 mediaType;
+    private final float                  score;
+    private final long                   lastModified;
+    private final long                   length;
+    private final List<SearchOccurrence> occurrences;
+
+    public SearchResultEntry(String path, String name, String mediaType, float score, long lastModified, long length,
+                             List<SearchOccurrence> occurrences) {
+        this.path = path;
+        this.name = name;
+        this.mediaType = mediaType;
+        this.score = score;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.occurrences = occurrences;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Gets media type of file without parameters, e.g. 'charset'. */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /** Gets relevance of item. Score is meaningful only to compare items of the same result. */
+    public float getScore() {
+        return score;
+    }
+
+    /** Gets modification date of file at the moment when it was indexed or {@code -1} if it is unknown. */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /** Gets length of file at the moment when it was indexed or {@code -1} if it is unknown. */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Gets matches of text of query in the content of file. List is empty if positions were not requested with {@link
+     * QueryExpression#setIncludePositions(boolean)} or query does not contain text.
+     */
+    public List<SearchOccurrence> getOccurrences() {
+        return occurrences;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResultEntry{" +
+               "path='" + path + '\'' +
+               ", score=" + score +
+               ", occurrences=" + occurrences +
+               '}';
+    }
+}
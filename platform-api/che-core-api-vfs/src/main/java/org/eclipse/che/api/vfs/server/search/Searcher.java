@@ -25,6 +25,19 @@ public interface Searcher {
      */
     String[] search(QueryExpression query) throws ServerException;
 
+    /**
+     * Return page of matched items on virtual filesystem ordered by relevance. Page is defined with {@link
+     * QueryExpression#getSkipCount()} and {@link QueryExpression#getMaxItems()}. Implementation may limit size of page even if
+     * {@code maxItems} isn't set.
+     *
+     * @param query
+     *         query expression
+     * @return page of matched items
+     * @throws ServerException
+     *         if an error occurs
+     */
+    SearchResult query(QueryExpression query) throws ServerException;
+
     /**
      * Add VirtualFile to index.
      *
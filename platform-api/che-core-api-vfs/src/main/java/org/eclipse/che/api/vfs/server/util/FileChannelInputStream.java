@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over the read only FileChannel. Stream is limited by length of file at the moment when it was opened, so the reader
+ * gets the same number of bytes as announced in Content-Length header. Content may be transferred directly from the channel with
+ * {@link #transferTo(OutputStream)} without copying it through the buffers of java heap when the target is a channel.
+ * <p/>
+ * Channel is opened under the lock of file but it's safe to use it after the lock released as long as updates of the file replace it
+ * instead of rewriting it in place. Opened channel keeps content of replaced file available until it is closed.
+ *
+ * @author andrew00x
+ */
+public final class FileChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long        length;
+    private       long        position;
+    private       long        mark;
+
+    public FileChannelInputStream(java.io.File file) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    public FileChannelInputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.length = channel.size();
+    }
+
+    /** Gets length of stream. It is the length of file at the moment when channel was opened. */
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int r = read(b, 0, 1);
+        return r == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        final long remaining = length - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int r = channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, remaining)), position);
+        if (r == -1) {
+            throw new EOFException("File was truncated while it is read. ");
+        }
+        position += r;
+        return r;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, length - position);
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int)Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = mark;
+    }
+
+    /**
+     * Transfers the rest of this stream to the specified output. If output is backed by channel, e.g. socket or file, operating system
+     * may copy data without passing it through the user space. Stream is not closed after transfer.
+     *
+     * @return number of transferred bytes
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        final WritableByteChannel target = Channels.newChannel(out);
+        final long start = position;
+        while (position < length) {
+            final long transferred = channel.transferTo(position, length - position, target);
+            if (transferred <= 0) {
+                // No progress, e.g. file is truncated or target doesn't accept bytes at the moment. Copy the rest through the heap
+                // buffer, it fails with EOFException if file is truncated.
+                final byte[] buff = new byte[8192];
+                int r;
+                while ((r = read(buff, 0, buff.length)) != -1) {
+                    out.write(buff, 0, r);
+                }
+                break;
+            }
+            position += transferred;
+        }
+        out.flush();
+        return position - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Replaces all occurrences of a set of strings in stream of bytes in one pass. All strings are matched together with Aho-Corasick
+ * automaton, so time of replacement doesn't depend on number of strings. Strings and replacements are encoded with UTF-8 and matched
+ * as bytes, content is not decoded.
+ * <p/>
+ * If a few strings match at the same position then the longest one is replaced. Matches do not overlap, the leftmost match wins.
+ * Replaced content is not matched again. Content is processed with small buffer that doesn't depend on size of content.
+ * <p/>
+ * Instance of this class is immutable and may be shared between threads.
+ *
+ * @author andrew00x
+ */
+public final class MultiPatternReplacer {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final class Node {
+        final int depth;
+
+        byte[] keys     = new byte[0];
+        Node[] children = new Node[0];
+        /** The longest proper suffix of this node that is also prefix of some string. */
+        Node   failure;
+        /** The longest string that is suffix of this node, {@code null} if there is no such string. */
+        Node   output;
+        /** Replacement if this node is end of string. */
+        byte[] replacement;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        Node child(byte b) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == b) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(byte b) {
+            Node child = child(b);
+            if (child == null) {
+                child = new Node(depth + 1);
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                keys[keys.length - 1] = b;
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private final Node   root;
+    /** Transitions from root, most of bytes of content don't start any string. */
+    private final Node[] rootTransitions;
+    private final boolean empty;
+
+    /**
+     * @param replacements
+     *         strings and their replacements, empty strings and strings that are replaced with themselves are ignored, {@code null}
+     *         replacement is the same as empty string
+     */
+    public MultiPatternReplacer(Map<String, String> replacements) {
+        root = new Node(0);
+        boolean empty = true;
+        for (Map.Entry<String, String> e : replacements.entrySet()) {
+            final String find = e.getKey();
+            final String replace = e.getValue() == null ? "" : e.getValue();
+            if (find == null || find.isEmpty() || find.equals(replace)) {
+                continue;
+            }
+            Node node = root;
+            for (byte b : find.getBytes(StandardCharsets.UTF_8)) {
+                node = node.addChild(b);
+            }
+            node.replacement = replace.getBytes(StandardCharsets.UTF_8);
+            empty = false;
+        }
+        this.empty = empty;
+        rootTransitions = new Node[256];
+        for (int i = 0; i < rootTransitions.length; i++) {
+            final Node child = root.child((byte)i);
+            rootTransitions[i] = child == null ? root : child;
+        }
+        // Breadth-first, failure of node must be resolved before failures of its children.
+        final Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children) {
+            child.failure = root;
+            child.output = child.replacement != null ? child : null;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.poll();
+            for (int i = 0; i < node.keys.length; i++) {
+                final Node child = node.children[i];
+                child.failure = next(node.failure, node.keys[i]);
+                child.output = child.replacement != null ? child : child.failure.output;
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Checks whether there is nothing to replace. */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Checks whether content contains any string that must be replaced. Stream is read until the first match or to the end but is not
+     * closed.
+     *
+     * @throws IOException
+     *         if any i/o error occurs
+     */
+    public boolean find(InputStream content) throws IOException {
+        if (empty) {
+            return false;
+        }
+        final byte[] buff = new byte[BUFFER_SIZE];
+        Node state = root;
+        int r;
+        while ((r = content.read(buff)) != -1) {
+            for (int i = 0; i < r; i++) {
+                state = next(state, buff[i]);
+                if (state.output != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets stream of content in which all strings are replaced. Content is replaced while it is read from returned stream. Closing of
+     * returned stream closes original stream.
+     */
+    public InputStream replace(InputStream content) {
+        return new ReplacingInputStream(content);
+    }
+
+    private Node next(Node state, byte b) {
+        while (state != root) {
+            final Node child = state.child(b);
+            if (child != null) {
+                return child;
+            }
+            state = state.failure;
+        }
+        return rootTransitions[b & 0xFF];
+    }
+
+    private class ReplacingInputStream extends InputStream {
+        final InputStream in;
+
+        /* Content read from original stream that is not returned to the reader yet. Bytes before 'emitted' are already written to 'out'. */
+        byte[] pending = new byte[BUFFER_SIZE];
+        int    pendingLength;
+        int    emitted;
+        /* Number of pending bytes that are passed through automaton. */
+        int    scanned;
+        Node   state = root;
+        /* The leftmost and the longest match found so far that may be not final yet since longer match may start at the same position. */
+        int    matchStart = -1;
+        int    matchEnd;
+        byte[] matchReplacement;
+
+        /* Replaced content that is ready to be read. */
+        byte[] out = new byte[BUFFER_SIZE];
+        int    outLength;
+        int    outPosition;
+
+        boolean eof;
+
+        ReplacingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (outPosition == outLength) {
+                if (eof) {
+                    return -1;
+                }
+                fill();
+            }
+            final int n = Math.min(len, outLength - outPosition);
+            System.arraycopy(out, outPosition, b, off, n);
+            outPosition += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void fill() throws IOException {
+            outLength = outPosition = 0;
+            // Keep only bytes that are not written to output yet.
+            if (emitted > 0) {
+                System.arraycopy(pending, emitted, pending, 0, pendingLength - emitted);
+                pendingLength -= emitted;
+                scanned -= emitted;
+                if (matchStart >= 0) {
+                    matchStart -= emitted;
+                    matchEnd -= emitted;
+                }
+                emitted = 0;
+            }
+            if (pending.length - pendingLength < BUFFER_SIZE) {
+                pending = Arrays.copyOf(pending, pendingLength + BUFFER_SIZE);
+            }
+            final int r = in.read(pending, pendingLength, BUFFER_SIZE);
+            if (r == -1) {
+                eof = true;
+            } else {
+                pendingLength += r;
+            }
+            scan();
+        }
+
+        private void scan() {
+            while (true) {
+                while (scanned < pendingLength) {
+                    state = next(state, pending[scanned++]);
+                    final Node match = state.output;
+                    if (match != null) {
+                        final int start = scanned - match.depth;
+                        if (matchStart < 0 || start < matchStart || (start == matchStart && scanned > matchEnd)) {
+                            matchStart = start;
+                            matchEnd = scanned;
+                            matchReplacement = match.replacement;
+                        }
+                    }
+                    // Current state is the longest suffix of content that may become a string. If it starts after the found match then
+                    // neither longer match at the same position nor match at the left position is possible anymore.
+                    if (matchStart >= 0 && scanned - state.depth > matchStart) {
+                        replaceMatch();
+                    }
+                }
+                if (eof && matchStart >= 0) {
+                    replaceMatch();
+                    continue;
+                }
+                break;
+            }
+            // Bytes before current state may not be part of any match.
+            final int safe = eof ? pendingLength : scanned - state.depth;
+            write(pending, emitted, safe - emitted);
+            emitted = safe;
+        }
+
+        private void replaceMatch() {
+            write(pending, emitted, matchStart - emitted);
+            write(matchReplacement, 0, matchReplacement.length);
+            emitted = matchEnd;
+            // Bytes after match were scanned as continuation of replaced content, scan them again.
+            scanned = matchEnd;
+            state = root;
+            matchStart = -1;
+            matchReplacement = null;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            if (len <= 0) {
+                return;
+            }
+            if (out.length - outLength < len) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + len));
+            }
+            System.arraycopy(b, off, out, outLength, len);
+            outLength += len;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputStream over the content that is generated on the fly, e.g. zip archive of folder. Content is not stored anywhere, it is
+ * written by {@link #writeTo(OutputStream)} directly to the target stream with {@link #transferTo(OutputStream)}. If content is
+ * read as regular InputStream then it is generated in separate thread and passed to the reader through the pipe. Producer waits for
+ * the reader limited time when pipe is full, so generation of content is stopped if reader abandons stream without closing it.
+ * <p/>
+ * Content may be consumed only once.
+ *
+ * @author andrew00x
+ */
+public abstract class StreamingContentInputStream extends InputStream {
+    private static final int  PIPE_BUFFER_SIZE   = 64 * 1024;
+    private static final long PIPE_WRITE_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+    private          boolean     consumed;
+    private          Pipe        pipe;
+    private volatile IOException producerError;
+
+    /**
+     * Writes content to the specified output. Implementation must not close output.
+     *
+     * @param out
+     *         output
+     * @throws IOException
+     *         if any i/o error occurs
+     */
+    protected abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Writes content directly to the specified output. Stream is not closed after transfer.
+     *
+     * @return number of transferred bytes
+     * @throws IOException
+     *         if any i/o error occurs or content already consumed
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        synchronized (this) {
+            ensureNotConsumed();
+            consumed = true;
+        }
+        final CountingOutputStream counter = new CountingOutputStream(out);
+        writeTo(counter);
+        counter.flush();
+        return counter.count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int r = read(b, 0, 1);
+        return r == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        final int r = getPipe().read(b, off, len);
+        if (r == -1) {
+            checkProducerError();
+        }
+        return r;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return getPipe().available();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        consumed = true;
+        if (pipe != null) {
+            // Producer fails on next write to the closed pipe and stops.
+            pipe.closeReader();
+        }
+    }
+
+    private synchronized Pipe getPipe() throws IOException {
+        if (pipe == null) {
+            ensureNotConsumed();
+            consumed = true;
+            final Pipe myPipe = pipe = new Pipe(PIPE_BUFFER_SIZE, PIPE_WRITE_TIMEOUT);
+            final Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writeTo(myPipe.getOutput());
+                    } catch (IOException e) {
+                        producerError = e;
+                    } catch (RuntimeException e) {
+                        producerError = new IOException(e.getMessage(), e);
+                    } finally {
+                        myPipe.closeWriter();
+                    }
+                }
+            }, "StreamingContent");
+            producer.setDaemon(true);
+            producer.start();
+        }
+        return pipe;
+    }
+
+    private void ensureNotConsumed() throws IOException {
+        if (consumed) {
+            throw new IOException("Content is already consumed. ");
+        }
+    }
+
+    private void checkProducerError() throws IOException {
+        final IOException error = producerError;
+        if (error != null) {
+            throw new IOException("Unable generate content. " + error.getMessage(), error);
+        }
+    }
+
+    /**
+     * Bounded buffer between producer and reader of content. Unlike {@link java.io.PipedInputStream} writer waits for free space in
+     * buffer limited time and fails if reader doesn't read anything during this time.
+     */
+    static final class Pipe {
+        private final byte[]  buffer;
+        private final long    writeTimeout;
+        private       int     readPosition;
+        private       int     count;
+        private       boolean writerClosed;
+        private       boolean readerClosed;
+
+        Pipe(int size, long writeTimeout) {
+            this.buffer = new byte[size];
+            this.writeTimeout = writeTimeout;
+        }
+
+        OutputStream getOutput() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte)b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    Pipe.this.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    closeWriter();
+                }
+            };
+        }
+
+        synchronized void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final long deadline = System.currentTimeMillis() + writeTimeout;
+                while (count == buffer.length && !readerClosed) {
+                    final long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new IOException(String.format("Content isn't read during %d seconds. ", writeTimeout / 1000));
+                    }
+                    await(wait);
+                }
+                if (readerClosed) {
+                    throw new IOException("Pipe closed. ");
+                }
+                final int writePosition = (readPosition + count) % buffer.length;
+                final int n = Math.min(len, Math.min(buffer.length - count, buffer.length - writePosition));
+                System.arraycopy(b, off, buffer, writePosition, n);
+                count += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        synchronized int read(byte[] b, int off, int len) throws IOException {
+            while (count == 0) {
+                if (readerClosed) {
+                    throw new IOException("Pipe closed. ");
+                }
+                if (writerClosed) {
+                    return -1;
+                }
+                await(0);
+            }
+            final int n = Math.min(len, Math.min(count, buffer.length - readPosition));
+            System.arraycopy(buffer, readPosition, b, off, n);
+            readPosition = (readPosition + n) % buffer.length;
+            count -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized int available() {
+            return count;
+        }
+
+        synchronized void closeWriter() {
+            writerClosed = true;
+            notifyAll();
+        }
+
+        synchronized void closeReader() {
+            readerClosed = true;
+            notifyAll();
+        }
+
+        private void await(long timeout) throws InterruptedIOException {
+            try {
+                wait(timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * ZipInputStream that checks compression ratio while zip is read. Unlike {@link ZipContent} it does not read whole zip before
+ * entries may be unpacked, so content of zip is read only once and does not need to be stored anywhere. Zip bomb is detected after
+ * the first megabyte of uncompressed data is read, see {@link #ZIP_THRESHOLD} and {@link #ZIP_RATIO}, so caller must be ready to
+ * get an error after some entries are already unpacked.
+ *
+ * @author andrew00x
+ */
+public final class ZipBombProtectedInputStream extends ZipInputStream {
+    /** The threshold after that checking of ZIP ratio started. */
+    public static final long ZIP_THRESHOLD = 1000000;
+    /**
+     * Max compression ratio. If the number of bytes uncompressed data is exceed the number of bytes of compressed stream more than
+     * this ratio (and number of uncompressed data is more than threshold) then ZipException is thrown.
+     */
+    public static final int  ZIP_RATIO     = 100;
+
+    private final CountingInputStream compressedCounter;
+
+    private long uncompressedBytes;
+
+    public ZipBombProtectedInputStream(InputStream in) {
+        this(new CountingInputStream(in));
+    }
+
+    private ZipBombProtectedInputStream(CountingInputStream compressedCounter) {
+        super(compressedCounter);
+        this.compressedCounter = compressedCounter;
+    }
+
+    /** All other read and skip methods of ZipInputStream, include skip of the rest of entry, use this method. */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int r = super.read(b, off, len);
+        if (r > 0) {
+            uncompressedBytes += r;
+            if (uncompressedBytes > ZIP_THRESHOLD && uncompressedBytes > (ZIP_RATIO * compressedCounter.getByteCount())) {
+                throw new ZipException("Zip bomb detected. ");
+            }
+        }
+        return r;
+    }
+}
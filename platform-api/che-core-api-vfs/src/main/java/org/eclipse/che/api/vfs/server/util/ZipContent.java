@@ -27,13 +27,13 @@ public final class ZipContent {
     private static final int  BUFFER        = 100 * 1024; // 100k
     private static final int  BUFFER_SIZE   = 8 * 1024; // 8k
     /** The threshold after that checking of ZIP ratio started. */
-    private static final long ZIP_THRESHOLD = 1000000;
+    private static final long ZIP_THRESHOLD = ZipBombProtectedInputStream.ZIP_THRESHOLD;
     /**
      * Max compression ratio. If the number of bytes uncompressed data is exceed the number
      * of bytes of compressed stream more than this ratio (and number of uncompressed data
      * is more than threshold) then VirtualFileSystemRuntimeException is thrown.
      */
-    private static final int  ZIP_RATIO     = 100;
+    private static final int  ZIP_RATIO     = ZipBombProtectedInputStream.ZIP_RATIO;
 
     public static ZipContent newInstance(InputStream in) throws IOException {
         java.io.File file = null;
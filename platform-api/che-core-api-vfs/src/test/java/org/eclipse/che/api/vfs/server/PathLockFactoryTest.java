@@ -14,6 +14,7 @@ import junit.framework.TestCase;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -236,4 +237,90 @@ public class PathLockFactoryTest extends TestCase {
         waiter.await();
         assertEquals(2, acquired.get());
     }
+
+    public void testChildLockPreventsExclusiveParentLock() throws Exception {
+        final Path parent = path.getParent();
+        final CountDownLatch starter = new CountDownLatch(1);
+        final CountDownLatch stopper = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                PathLockFactory.PathLock lock = pathLockFactory.getLock(path, false);
+                lock.acquire();
+                starter.countDown();
+                try {
+                    stopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    lock.release();
+                }
+            }
+        }.start();
+        starter.await();
+        try {
+            pathLockFactory.getLock(parent, true).acquire(100);
+            fail();
+        } catch (RuntimeException e) {
+            // OK
+        }
+        // Not exclusive lock of parent may be shared with not exclusive lock of child.
+        pathLockFactory.getLock(parent, false).acquire(100).release();
+        stopper.countDown();
+        pathLockFactory.getLock(parent, true).acquire(1000).release();
+    }
+
+    public void testUnrelatedPathsLockedConcurrently() throws Exception {
+        final Path sibling = path.getParent().newPath("d");
+        final CountDownLatch starter = new CountDownLatch(1);
+        final CountDownLatch stopper = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                PathLockFactory.PathLock lock = pathLockFactory.getLock(path, true);
+                lock.acquire();
+                starter.countDown();
+                try {
+                    stopper.await();
+                } catch (InterruptedException ignored) {
+                } finally {
+                    lock.release();
+                }
+            }
+        }.start();
+        starter.await();
+        // Exclusive lock of sibling must not be blocked by exclusive lock of path.
+        pathLockFactory.getLock(sibling, true).acquire(100).release();
+        stopper.countDown();
+    }
+
+    public void testAllLocksReleased() throws Throwable {
+        final Path[] paths = {path, path.getParent(), path.getParent().newPath("d"), path.newPath("e")};
+        final int threads = 8;
+        final CountDownLatch waiter = new CountDownLatch(threads);
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int n = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            PathLockFactory.PathLock lock = pathLockFactory.getLock(paths[(n + j) % paths.length], (n + j) % 3 == 0);
+                            lock.acquire(10000);
+                            lock.release();
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        waiter.countDown();
+                    }
+                }
+            }.start();
+        }
+        waiter.await();
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        pathLockFactory.checkClean();
+    }
 }
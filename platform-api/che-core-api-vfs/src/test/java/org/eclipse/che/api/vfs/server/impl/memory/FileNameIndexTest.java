@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.impl.memory;
+
+import com.google.common.collect.Sets;
+
+import org.eclipse.che.api.vfs.server.VirtualFile;
+import org.eclipse.che.api.vfs.server.search.FileNameIndex;
+import org.eclipse.che.api.vfs.server.search.FileNameIndexProvider;
+import org.eclipse.che.api.vfs.server.search.FileNameMatch;
+import org.eclipse.che.api.vfs.shared.dto.Principal;
+import org.eclipse.che.api.vfs.shared.dto.VirtualFileSystemInfo.BasicPermissions;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.MediaType;
+
+/** @author andrew00x */
+public class FileNameIndexTest extends MemoryFileSystemTest {
+    private FileNameIndexProvider indexProvider;
+    private VirtualFile           testFolder;
+    private String                testFolderPath;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        testFolder = mountPoint.getRoot().createFolder("FileNameIndexTest");
+        testFolderPath = testFolder.getPath();
+        VirtualFile navigation = testFolder.createFolder("navigation");
+        createFile(navigation, "NavigateToFilePresenter.java");
+        createFile(navigation, "NavigateToFileView.java");
+        createFile(navigation, "Nav.java");
+        createFile(testFolder.createFolder("search"), "FileNameIndex.java");
+        createFile(testFolder, "pom.xml");
+        indexProvider = new FileNameIndexProvider(mountPoint.getEventService(), virtualFileSystemRegistry);
+        indexProvider.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        indexProvider.stop();
+        super.tearDown();
+    }
+
+    public void testFindByCamelCase() throws Exception {
+        List<String> names = findNames("NTFP", 10);
+        assertEquals(1, names.size());
+        assertEquals("NavigateToFilePresenter.java", names.get(0));
+        assertEquals("NavigateToFileView.java", findNames("NaToFiV", 10).get(0));
+    }
+
+    public void testPrefixMatchesAreTheMostRelevant() throws Exception {
+        List<String> names = findNames("nav", 10);
+        assertEquals("Nav.java", names.get(0));
+        assertTrue(names.containsAll(Arrays.asList("NavigateToFilePresenter.java", "NavigateToFileView.java")));
+        assertEquals("pom.xml", findNames("pom.xml*", 10).get(0));
+    }
+
+    public void testWildcard() throws Exception {
+        List<String> names = findNames("*.xml", 10);
+        assertEquals(1, names.size());
+        assertEquals("pom.xml", names.get(0));
+    }
+
+    public void testResultIsLimited() throws Exception {
+        assertEquals(2, findNames("nav", 2).size());
+        assertTrue(findNames("nav", 0).isEmpty());
+    }
+
+    public void testFindSkipsFilesThatUserCannotRead() throws Exception {
+        assertEquals(1, findNames("NTFP", 10).size());
+
+        Principal adminPrincipal = createPrincipal("admin", Principal.Type.USER);
+        Map<Principal, Set<String>> permissions = new HashMap<>(1);
+        permissions.put(adminPrincipal, Sets.newHashSet(BasicPermissions.ALL.value()));
+        mountPoint.getVirtualFile(testFolderPath + "/navigation").updateACL(createAcl(permissions), true, null);
+
+        assertTrue(findNames("NTFP", 10).isEmpty());
+        List<String> names = findNames("nav", 10);
+        assertFalse(names.contains("Nav.java"));
+        assertFalse(names.contains("NavigateToFileView.java"));
+    }
+
+    public void testIndexIsUpdatedWithEvents() throws Exception {
+        FileNameIndex index = indexProvider.getIndex(mountPoint);
+        int size = index.size();
+
+        createFile(testFolder, "NewFile.txt");
+        assertEquals(size + 1, index.size());
+        assertEquals(testFolderPath + "/NewFile.txt", index.find("NewFile", testFolderPath, 10).get(0).getPath());
+
+        mountPoint.getVirtualFile(testFolderPath + "/NewFile.txt").rename("RenamedFile.txt", null, null);
+        assertTrue(index.find("NewFile", testFolderPath, 10).isEmpty());
+        assertEquals(testFolderPath + "/RenamedFile.txt", index.find("RenamedFile", testFolderPath, 10).get(0).getPath());
+
+        VirtualFile destination = testFolder.createFolder("destination");
+        mountPoint.getVirtualFile(testFolderPath + "/navigation").moveTo(destination, null);
+        List<String> paths = findPaths("Nav.java");
+        assertEquals(testFolderPath + "/destination/navigation/Nav.java", paths.get(0));
+        assertFalse(paths.contains(testFolderPath + "/navigation/Nav.java"));
+
+        destination.copyTo(testFolder.createFolder("copy"));
+        paths = findPaths("Nav.java");
+        assertTrue(paths.contains(testFolderPath + "/destination/navigation/Nav.java"));
+        assertTrue(paths.contains(testFolderPath + "/copy/destination/navigation/Nav.java"));
+
+        mountPoint.getVirtualFile(testFolderPath + "/destination").delete(null);
+        paths = findPaths("Nav.java");
+        assertFalse(paths.contains(testFolderPath + "/destination/navigation/Nav.java"));
+        assertTrue(paths.contains(testFolderPath + "/copy/destination/navigation/Nav.java"));
+        assertEquals(size + 4, index.size());
+    }
+
+    private List<String> findPaths(String pattern) throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (FileNameMatch match : indexProvider.getIndex(mountPoint).find(pattern, testFolderPath, 10)) {
+            paths.add(match.getPath());
+        }
+        return paths;
+    }
+
+    private List<String> findNames(String pattern, int maxItems) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (FileNameMatch match : indexProvider.getIndex(mountPoint).find(pattern, testFolderPath, maxItems)) {
+            names.add(match.getName());
+        }
+        return names;
+    }
+
+    private void createFile(VirtualFile parent, String name) throws Exception {
+        parent.createFile(name, MediaType.TEXT_PLAIN, new ByteArrayInputStream(DEFAULT_CONTENT_BYTES));
+    }
+}
@@ -234,4 +234,50 @@ public class ReplaceTest extends MemoryFileSystemTest {
         assertEquals(String.format(templateReplaced, replace1, replace2),
                      IoUtil.readAndCloseQuietly(mountPoint.getVirtualFileById(file.getId()).getContent().getStream()));
     }
+
+    public void testReplaceManySetsInOnePass() throws Exception {
+        VirtualFile pom = replaceTestFolder
+                .createFile("pom.xml", MediaType.TEXT_PLAIN,
+                            new ByteArrayInputStream("<version>${project.version}</version><name>${VAR_NUM_1}</name>".getBytes()));
+        VirtualFile src = replaceTestFolder.createFolder("src");
+        VirtualFile file = src.createFile("test_file.txt", MediaType.TEXT_PLAIN,
+                                          new ByteArrayInputStream(String.format(template, find1, find2).getBytes()));
+        VirtualFile other = src.createFile("other.txt", MediaType.TEXT_PLAIN,
+                                           new ByteArrayInputStream(String.format(template, find1, find2).getBytes()));
+        long otherModified = other.getLastModificationDate();
+
+        List<ReplacementSet> replacementSets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Variable variable = DtoFactory.getInstance().createDto(Variable.class).withFind("UNUSED_" + i).withReplace("unused");
+            replacementSets.add(DtoFactory.getInstance().createDto(ReplacementSet.class)
+                                          .withEntries(Arrays.asList(variable)).withFiles(Arrays.asList("(.*)\\.xml", "test_(.*)")));
+        }
+        replacementSets.add(DtoFactory.getInstance().createDto(ReplacementSet.class)
+                                      .withEntries(Arrays.asList(
+                                              DtoFactory.getInstance().createDto(Variable.class).withFind(find1).withReplace(replace1),
+                                              DtoFactory.getInstance().createDto(Variable.class).withFind(find2).withReplace(replace2)))
+                                      .withFiles(Arrays.asList("pom.xml", "src/test_(.*)")));
+        StringBuilder json = new StringBuilder("[");
+        for (ReplacementSet replacementSet : replacementSets) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(DtoFactory.getInstance().toJson(replacementSet));
+        }
+        json.append(']');
+        Map<String, List<String>> h = new HashMap<>(1);
+        h.put(HttpHeaders.CONTENT_TYPE, Arrays.asList(MediaType.APPLICATION_JSON));
+
+        String path = SERVICE_URI + "replace/" + replaceTestFolder.getName();
+        ContainerResponse response = launcher.service(HttpMethod.POST, path, BASE_URI, h, json.toString().getBytes(), null, null);
+        assertEquals(204, response.getStatus());
+        // Variables that are not replaced are not changed.
+        assertEquals("<version>${project.version}</version><name>value1</name>",
+                     IoUtil.readAndCloseQuietly(mountPoint.getVirtualFileById(pom.getId()).getContent().getStream()));
+        assertEquals(String.format(templateReplaced, replace1, replace2),
+                     IoUtil.readAndCloseQuietly(mountPoint.getVirtualFileById(file.getId()).getContent().getStream()));
+        assertEquals(String.format(template, find1, find2),
+                     IoUtil.readAndCloseQuietly(mountPoint.getVirtualFileById(other.getId()).getContent().getStream()));
+        assertEquals(otherModified, mountPoint.getVirtualFileById(other.getId()).getLastModificationDate());
+    }
 }
@@ -12,6 +12,10 @@ package org.eclipse.che.api.vfs.server.impl.memory;
 
 import org.eclipse.che.api.vfs.server.VirtualFile;
 import org.eclipse.che.api.vfs.server.search.LuceneSearcher;
+import org.eclipse.che.api.vfs.server.search.QueryExpression;
+import org.eclipse.che.api.vfs.server.search.SearchOccurrence;
+import org.eclipse.che.api.vfs.server.search.SearchResult;
+import org.eclipse.che.api.vfs.server.search.SearchResultEntry;
 import org.eclipse.che.api.vfs.shared.dto.Item;
 import org.eclipse.che.api.vfs.shared.dto.ItemList;
 import org.eclipse.che.commons.lang.Pair;
@@ -129,6 +133,55 @@ public class SearcherTest extends MemoryFileSystemTest {
         }
     }
 
+    public void testSearchPaging() throws Exception {
+        ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+        Map<String, List<String>> h = new HashMap<>(1);
+        h.put(HttpHeaders.CONTENT_TYPE, Arrays.asList(MediaType.APPLICATION_FORM_URLENCODED));
+        byte[] query = "name=SearcherTest*&mediaType=text/plain".getBytes();
+
+        ContainerResponse response = launcher.service(HttpMethod.POST, SERVICE_URI + "search?maxItems=2&skipCount=1", BASE_URI, h,
+                                                      query, writer, null);
+        assertEquals("Error: " + response.getEntity(), 200, response.getStatus());
+        ItemList page = (ItemList)response.getEntity();
+        assertEquals(2, page.getItems().size());
+        assertEquals(4, page.getNumItems());
+        assertTrue(page.isHasMoreItems());
+
+        writer.reset();
+        response = launcher.service(HttpMethod.POST, SERVICE_URI + "search?maxItems=2&skipCount=3", BASE_URI, h, query, writer, null);
+        assertEquals("Error: " + response.getEntity(), 200, response.getStatus());
+        page = (ItemList)response.getEntity();
+        assertEquals(1, page.getItems().size());
+        assertEquals(4, page.getNumItems());
+        assertFalse(page.isHasMoreItems());
+    }
+
+    public void testQueryRelevanceAndOccurrences() throws Exception {
+        String file6 = mountPoint.getVirtualFile(searchTestPath)
+                                 .createFile("SearcherTest_File06", MediaType.TEXT_PLAIN,
+                                             new ByteArrayInputStream("first line\nsecond to be\nbe be be".getBytes()))
+                                 .getPath();
+
+        SearchResult result = searcher.query(new QueryExpression().setPath(searchTestPath).setText("be").setIncludePositions(true));
+        assertEquals(4, result.getTotalHits());
+        SearchResultEntry first = result.getEntries().get(0);
+        assertEquals(file6, first.getPath());
+        assertEquals(MediaType.TEXT_PLAIN, first.getMediaType());
+        List<SearchOccurrence> occurrences = first.getOccurrences();
+        assertEquals(4, occurrences.size());
+        assertEquals(2, occurrences.get(0).getLineNumber());
+        assertEquals(10, occurrences.get(0).getStartColumn());
+        assertEquals(12, occurrences.get(0).getEndColumn());
+        assertEquals(3, occurrences.get(3).getLineNumber());
+        assertEquals(6, occurrences.get(3).getStartColumn());
+
+        result = searcher.query(new QueryExpression().setPath(searchTestPath).setText("be").setSkipCount(1).setMaxItems(2));
+        assertEquals(4, result.getTotalHits());
+        assertEquals(2, result.getEntries().size());
+        assertTrue(result.getEntries().get(0).getOccurrences().isEmpty());
+        assertFalse(file6.equals(result.getEntries().get(0).getPath()));
+    }
+
     public void testDelete() throws Exception {
         searcherManager.maybeRefresh();
         IndexSearcher luceneSearcher = searcherManager.acquire();
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.observation;
+
+import junit.framework.TestCase;
+
+import org.eclipse.che.commons.lang.IoUtil;
+
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * @author andrew00x
+ */
+public class ChangeJournalTest extends TestCase {
+    private static final String WORKSPACE = "my_ws";
+
+    private java.io.File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        IoUtil.deleteRecursive(dir);
+        super.tearDown();
+    }
+
+    public void testGetChangesSince() {
+        ChangeJournal journal = new ChangeJournal(WORKSPACE, 10);
+        assertEquals(0, journal.getLastSequence());
+        assertTrue(journal.getChangesSince(0).isEmpty());
+
+        journal.onEvent(new CreateEvent(WORKSPACE, "/a", true));
+        journal.onEvent(new CreateEvent("other_ws", "/x", true));
+        journal.onEvent(new UpdateContentEvent(WORKSPACE, "/a/b.txt"));
+        journal.onEvent(new MoveEvent(WORKSPACE, "/c/b.txt", "/a/b.txt", false));
+
+        assertEquals(3, journal.getLastSequence());
+        List<ChangeJournal.Change> changes = journal.getChangesSince(1);
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.get(0).getSequence());
+        assertEquals(VirtualFileEvent.ChangeType.CONTENT_UPDATED, changes.get(0).getType());
+        assertEquals("/a/b.txt", changes.get(0).getPath());
+        assertNull(changes.get(0).getOldPath());
+        assertEquals(VirtualFileEvent.ChangeType.MOVED, changes.get(1).getType());
+        assertEquals("/c/b.txt", changes.get(1).getPath());
+        assertEquals("/a/b.txt", changes.get(1).getOldPath());
+        assertTrue(journal.getChangesSince(3).isEmpty());
+        assertNull(journal.getChangesSince(4));
+    }
+
+    public void testOldChangesAreDropped() {
+        ChangeJournal journal = new ChangeJournal(WORKSPACE, 3);
+        for (int i = 0; i < 5; i++) {
+            journal.onEvent(new UpdateContentEvent(WORKSPACE, "/a" + i));
+        }
+        assertEquals(5, journal.getLastSequence());
+        assertNull(journal.getChangesSince(1));
+        List<ChangeJournal.Change> changes = journal.getChangesSince(2);
+        assertEquals(3, changes.size());
+        assertEquals("/a2", changes.get(0).getPath());
+        assertEquals("/a4", changes.get(2).getPath());
+    }
+
+    public void testRestoreFromFile() {
+        java.io.File file = new java.io.File(dir, "journal");
+        ChangeJournal journal = new ChangeJournal(WORKSPACE, 3, file);
+        String id = journal.getId();
+        for (int i = 0; i < 10; i++) {
+            journal.onEvent(new UpdateContentEvent(WORKSPACE, "/a\t" + i));
+        }
+        journal.onEvent(new RenameEvent(WORKSPACE, "/new\tname", "/old\nname", true));
+        journal.close();
+
+        journal = new ChangeJournal(WORKSPACE, 3, file);
+        assertEquals(id, journal.getId());
+        assertEquals(11, journal.getLastSequence());
+        assertNull(journal.getChangesSince(7));
+        List<ChangeJournal.Change> changes = journal.getChangesSince(8);
+        assertEquals(3, changes.size());
+        assertEquals("/a\t8", changes.get(0).getPath());
+        ChangeJournal.Change renamed = changes.get(2);
+        assertEquals(VirtualFileEvent.ChangeType.RENAMED, renamed.getType());
+        assertEquals("/new\tname", renamed.getPath());
+        assertEquals("/old\nname", renamed.getOldPath());
+        assertTrue(renamed.isFolder());
+
+        journal.onEvent(new DeleteEvent(WORKSPACE, "/b", false));
+        assertEquals(12, journal.getLastSequence());
+        journal.close();
+    }
+
+    public void testFlushWritesPendingChanges() throws Exception {
+        java.io.File file = new java.io.File(dir, "journal");
+        ChangeJournal journal = new ChangeJournal(WORKSPACE, 10, file);
+        journal.onEvent(new CreateEvent(WORKSPACE, "/a", true));
+        journal.onEvent(new UpdateContentEvent(WORKSPACE, "/a/b.txt"));
+        journal.flush();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).startsWith("1\t"));
+        assertTrue(lines.get(2).startsWith("2\t"));
+        journal.close();
+    }
+
+    public void testBrokenFileStartsNewJournal() throws Exception {
+        java.io.File file = new java.io.File(dir, "journal");
+        ChangeJournal journal = new ChangeJournal(WORKSPACE, 10, file);
+        String id = journal.getId();
+        journal.onEvent(new CreateEvent(WORKSPACE, "/a", true));
+        journal.close();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write("2\t123\tCRE".getBytes());
+        }
+
+        journal = new ChangeJournal(WORKSPACE, 10, file);
+        assertFalse(id.equals(journal.getId()));
+        assertEquals(0, journal.getLastSequence());
+        journal.close();
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author andrew00x
+ */
+public class FileChannelInputStreamTest extends TestCase {
+    private java.io.File file;
+    private byte[]       content;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        content = new byte[100000];
+        new Random().nextBytes(content);
+        file = java.io.File.createTempFile("channel", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        assertTrue(file.delete());
+        super.tearDown();
+    }
+
+    public void testTransferTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileChannelInputStream in = new FileChannelInputStream(file)) {
+            assertEquals(10, in.skip(10));
+            assertEquals(content.length - 10, in.transferTo(out));
+            assertEquals(-1, in.read());
+        }
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 10, content.length), out.toByteArray()));
+    }
+
+    public void testTransferToFailsIfFileIsTruncated() throws Exception {
+        try (FileChannelInputStream in = new FileChannelInputStream(file)) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(10);
+            }
+            in.transferTo(new ByteArrayOutputStream());
+            fail("EOFException expected");
+        } catch (EOFException e) {
+            // OK
+        }
+    }
+}
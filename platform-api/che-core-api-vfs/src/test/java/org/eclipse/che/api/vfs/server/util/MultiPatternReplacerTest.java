@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author andrew00x
+ */
+public class MultiPatternReplacerTest extends TestCase {
+    private Map<String, String> replacements;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        replacements = new HashMap<>();
+        replacements.put("${name}", "world");
+        replacements.put("${name.full}", "whole world");
+        replacements.put("he", "she");
+        replacements.put("hello", "bye");
+        replacements.put("same", "same");
+    }
+
+    public void testReplace() throws Exception {
+        assertEquals("bye world, she said", replace("hello ${name}, he said"));
+    }
+
+    public void testLongestMatchIsReplaced() throws Exception {
+        assertEquals("whole world and world", replace("${name.full} and ${name}"));
+    }
+
+    public void testReplacedContentIsNotMatchedAgain() throws Exception {
+        replacements.put("${greeting}", "hello");
+        assertEquals("hello ${unknown}", replace("${greeting} ${unknown}"));
+    }
+
+    public void testMatchAtTheEndOfContent() throws Exception {
+        assertEquals("s", replace("s"));
+        assertEquals("she", replace("he"));
+        assertEquals("text ${nam", replace("text ${nam"));
+    }
+
+    public void testLargeContent() throws Exception {
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            content.append("line ").append(i).append(" ${name}\n");
+            expected.append("line ").append(i).append(" world\n");
+        }
+        assertEquals(expected.toString(), replace(content.toString()));
+    }
+
+    public void testMultiByteCharacters() throws Exception {
+        replacements.put("${été}", "лето");
+        assertEquals("ж лето", replace("ж ${été}"));
+    }
+
+    public void testFind() throws Exception {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(replacements);
+        assertTrue(replacer.find(stream("say hello")));
+        assertFalse(replacer.find(stream("nothing to replace, same content")));
+    }
+
+    public void testEmpty() throws Exception {
+        Map<String, String> identity = new HashMap<>();
+        identity.put("same", "same");
+        identity.put("", "empty");
+        MultiPatternReplacer replacer = new MultiPatternReplacer(identity);
+        assertTrue(replacer.isEmpty());
+        assertFalse(replacer.find(stream("same")));
+    }
+
+    private String replace(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new MultiPatternReplacer(replacements).replace(stream(content))) {
+            byte[] buf = new byte[7];
+            int r;
+            while ((r = in.read(buf)) != -1) {
+                out.write(buf, 0, r);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
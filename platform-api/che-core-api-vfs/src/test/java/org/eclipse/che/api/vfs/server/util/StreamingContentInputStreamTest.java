@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2016 Codenvy, S.A.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Codenvy, S.A. - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.che.api.vfs.server.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author andrew00x
+ */
+public class StreamingContentInputStreamTest extends TestCase {
+    private byte[]                       content;
+    private AtomicReference<IOException> writerError;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        content = new byte[300000];
+        new Random().nextBytes(content);
+        writerError = new AtomicReference<>();
+    }
+
+    public void testRead() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = newStream()) {
+            byte[] buff = new byte[1000];
+            int r;
+            while ((r = in.read(buff)) != -1) {
+                out.write(buff, 0, r);
+            }
+        }
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
+    public void testTransferTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StreamingContentInputStream in = newStream()) {
+            assertEquals(content.length, in.transferTo(out));
+        }
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
+    public void testWriterFailsIfPipeIsNotRead() throws Exception {
+        StreamingContentInputStream.Pipe pipe = new StreamingContentInputStream.Pipe(1024, 200);
+        Thread writer = startWriter(pipe);
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertNotNull(writerError.get());
+    }
+
+    public void testWriterFailsIfPipeIsClosedByReader() throws Exception {
+        StreamingContentInputStream.Pipe pipe = new StreamingContentInputStream.Pipe(1024, 60000);
+        Thread writer = startWriter(pipe);
+        assertEquals(10, pipe.read(new byte[10], 0, 10));
+        pipe.closeReader();
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertNotNull(writerError.get());
+    }
+
+    private Thread startWriter(final StreamingContentInputStream.Pipe pipe) {
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    pipe.write(content, 0, content.length);
+                } catch (IOException e) {
+                    writerError.set(e);
+                }
+            }
+        };
+        writer.start();
+        return writer;
+    }
+
+    private StreamingContentInputStream newStream() {
+        return new StreamingContentInputStream() {
+            @Override
+            protected void writeTo(OutputStream out) throws IOException {
+                for (int off = 0; off < content.length; off += 7000) {
+                    out.write(content, off, Math.min(7000, content.length - off));
+                }
+            }
+        };
+    }
+}